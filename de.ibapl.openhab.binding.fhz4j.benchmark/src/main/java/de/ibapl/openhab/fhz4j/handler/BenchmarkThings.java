@@ -0,0 +1,120 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static de.ibapl.openhab.fhz4j.FHZ4JBindingConstants.*;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import org.openhab.core.config.core.Configuration;
+import org.openhab.core.scheduler.CronScheduler;
+import org.openhab.core.thing.Bridge;
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.thing.Thing;
+import org.openhab.core.thing.ThingTypeUID;
+import org.openhab.core.thing.ThingUID;
+import org.openhab.core.thing.binding.ThingHandlerCallback;
+import org.openhab.core.thing.binding.builder.BridgeBuilder;
+import org.openhab.core.thing.binding.builder.ThingBuilder;
+
+/**
+ * Things, a callback and a scheduler to run the handlers outside of openHAB.
+ *
+ * The callback and the scheduler are dynamic proxies, so they don't depend on
+ * the exact openHAB version. The proxy allocates the argument array of each
+ * state update, this is included in the measured allocation rate.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class BenchmarkThings {
+
+    static final ThingUID BRIDGE_UID = new ThingUID(BRIDGE_TYPE_FHZ4J_RS232, "benchmark");
+
+    /**
+     * Counts the state updates of all things, only used by the benchmark
+     * thread.
+     */
+    static final class StateUpdates {
+
+        long count;
+        ChannelUID lastChannel;
+
+    }
+
+    private BenchmarkThings() {
+    }
+
+    static Bridge createBridge() {
+        return BridgeBuilder.create(BRIDGE_TYPE_FHZ4J_RS232, BRIDGE_UID).build();
+    }
+
+    static Thing createThing(ThingTypeUID thingTypeUID, String id, Map<String, Object> configuration) {
+        return ThingBuilder.create(thingTypeUID, new ThingUID(thingTypeUID, BRIDGE_UID, id))
+                .withBridge(BRIDGE_UID)
+                .withConfiguration(new Configuration(configuration))
+                .build();
+    }
+
+    static ThingHandlerCallback createCallback(Bridge bridge, StateUpdates stateUpdates) {
+        return (ThingHandlerCallback) Proxy.newProxyInstance(ThingHandlerCallback.class.getClassLoader(),
+                new Class<?>[]{ThingHandlerCallback.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "stateUpdated":
+                            stateUpdates.count++;
+                            stateUpdates.lastChannel = (ChannelUID) args[0];
+                            return null;
+                        case "isChannelLinked":
+                            return true;
+                        case "getBridge":
+                            return bridge;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "Benchmark callback";
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    /**
+     * A CronScheduler which schedules nothing.
+     */
+    static CronScheduler createCronScheduler() {
+        return (CronScheduler) Proxy.newProxyInstance(CronScheduler.class.getClassLoader(),
+                new Class<?>[]{CronScheduler.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "Benchmark cron scheduler";
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static de.ibapl.openhab.fhz4j.FHZ4JBindingConstants.*;
+
+import java.util.concurrent.TimeUnit;
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.thing.ThingUID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Creating a ChannelUID per state update against the lookup in a
+ * {@link ChannelUIDTable}; run with {@code -prof gc} for the allocation rate.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChannelUIDTableBenchmark {
+
+    private enum ZoneChannel implements ChannelUIDTable.ChannelId {
+        TEMPERATURE_MEASURED(CHANNEL_TEMPERATURE_MEASURED),
+        DESIRED_TEMPERATURE(CHANNEL_DESIRED_TEMPERATURE);
+
+        private final String channelId;
+
+        private ZoneChannel(String channelId) {
+            this.channelId = channelId;
+        }
+
+        @Override
+        public String getChannelId() {
+            return channelId;
+        }
+
+    }
+
+    private final ThingUID thingUID = new ThingUID(THING_TYPE_FHZ4J_RADIATOR_EVO_HOME, BenchmarkThings.BRIDGE_UID, "benchmark");
+    private final ChannelUIDTable<ZoneChannel> table = new ChannelUIDTable<>(thingUID, ZoneChannel.class, ChannelUIDTable.EVO_HOME_ZONE_COUNT);
+    private int zone;
+
+    private int nextZone() {
+        zone = (zone + 1) % ChannelUIDTable.EVO_HOME_ZONE_COUNT;
+        return zone;
+    }
+
+    @Benchmark
+    public ChannelUID createChannelUID() {
+        return new ChannelUID(thingUID, ZoneChannel.TEMPERATURE_MEASURED.getChannelId());
+    }
+
+    @Benchmark
+    public ChannelUID tableChannelUID() {
+        return table.get(ZoneChannel.TEMPERATURE_MEASURED);
+    }
+
+    @Benchmark
+    public ChannelUID createZoneChannelUID() {
+        return new ChannelUID(thingUID, String.format(_XX_TEMPLATE, ZoneChannel.TEMPERATURE_MEASURED.getChannelId(), nextZone()));
+    }
+
+    @Benchmark
+    public ChannelUID tableZoneChannelUID() {
+        return table.get(ZoneChannel.TEMPERATURE_MEASURED, nextZone());
+    }
+
+}
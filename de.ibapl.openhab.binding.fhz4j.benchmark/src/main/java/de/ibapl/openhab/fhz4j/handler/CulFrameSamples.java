@@ -0,0 +1,262 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import de.ibapl.fhz4j.api.Protocol;
+import de.ibapl.fhz4j.cul.CulAdapter;
+import de.ibapl.fhz4j.cul.CulMessage;
+import de.ibapl.fhz4j.cul.CulMessageListener;
+import de.ibapl.fhz4j.protocol.em.EmMessage;
+import de.ibapl.fhz4j.protocol.evohome.EvoHomeMessage;
+import de.ibapl.fhz4j.protocol.fht.Fht80TfMessage;
+import de.ibapl.fhz4j.protocol.fht.FhtMessage;
+import de.ibapl.fhz4j.protocol.fs20.FS20Message;
+import de.ibapl.fhz4j.protocol.hms.HmsMessage;
+import de.ibapl.fhz4j.protocol.lacrosse.tx2.LaCrosseTx2Message;
+import de.ibapl.openhab.spsw.trace.ReplaySerialPortSocketFactory;
+import de.ibapl.openhab.spsw.trace.SerialPortTrace;
+import de.ibapl.spsw.api.SerialPortSocketFactory;
+import de.ibapl.spsw.api.Speed;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Parses CUL frames with the fhz4j parser, so the benchmarks dispatch the
+ * same message objects as the binding.
+ *
+ * The lines are written to a {@link SerialPortTrace} and replayed as fast as
+ * possible into a {@link CulAdapter}.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class CulFrameSamples {
+
+    /**
+     * The hex encoded RSSI appended by the CUL (X21).
+     */
+    private static final String RSSI = "3A";
+    private static final long PARSE_TIMEOUT_MILLIS = 10_000;
+
+    enum Kind {
+        FHT,
+        HMS,
+        EM,
+        EVO_HOME;
+    }
+
+    /**
+     * A parsed frame and how to pass it to a CulMessageListener.
+     */
+    static final class Frame {
+
+        final float signalStrength;
+        final Object message;
+        final Consumer<CulMessageListener> publish;
+
+        Frame(float signalStrength, Object message, Consumer<CulMessageListener> publish) {
+            this.signalStrength = signalStrength;
+            this.message = message;
+            this.publish = publish;
+        }
+
+        void publishTo(CulMessageListener listener) {
+            if (!Float.isNaN(signalStrength)) {
+                listener.signalStrength(signalStrength);
+            }
+            publish.accept(listener);
+        }
+
+    }
+
+    private CulFrameSamples() {
+    }
+
+    /**
+     * @return the address of the device as used in the thing configuration.
+     */
+    static int address(Kind kind, int device) {
+        return switch (kind) {
+            case FHT, HMS ->
+                0x1000 + device;
+            case EM ->
+                //EM has only one byte
+                1 + device % 255;
+            case EVO_HOME ->
+                //Type 04 (radiator) in the upper 6 bits
+                (0x04 << 18) | (0x10000 + device);
+        };
+    }
+
+    /**
+     * A CUL line for the device, the value changes with sequence.
+     */
+    static String line(Kind kind, int device, int sequence) {
+        final int address = address(kind, device);
+        return switch (kind) {
+            case FHT ->
+                //desired temp (0x41) from the FHT80b (0x69)
+                String.format("T%04X4169%02X%s", address, 0x22 + sequence % 8, RSSI);
+            case HMS ->
+                //HMS100TF temperature and humidity
+                String.format("H%04X01%02X%02X45%s", address, 0x10 + sequence % 8, 0x02, RSSI);
+            case EM ->
+                //EM1000EM counter, cumulated, 5min and peak little endian
+                String.format("E02%02X%02X%02X00%02X00%02X00%s", address, sequence & 0xff, sequence & 0xff, 0x10 + sequence % 8, 0x20, RSSI);
+            case EVO_HOME ->
+                //zone temperature (0x30C9) of zone 0
+                String.format("vr18%06X%06X30C90300%04X", address, address, 0x0800 + sequence % 8 * 10);
+        };
+    }
+
+    /**
+     * Parse the lines, each line must yield exactly one frame.
+     */
+    static List<Frame> parse(List<String> lines) throws IOException, InterruptedException {
+        final Path dir = Files.createTempDirectory("fhz4j-benchmark");
+        final SerialPortTrace trace = new SerialPortTrace(dir, "CUL_", 16 * 1024 * 1024, Long.MAX_VALUE, Duration.ofDays(1), Long.MAX_VALUE);
+        trace.start("Benchmark trace writer");
+        for (String line : lines) {
+            final byte[] b = (line + "\r\n").getBytes(StandardCharsets.US_ASCII);
+            trace.record(SerialPortTrace.READ, b, 0, b.length);
+        }
+        trace.stop();
+        if (trace.getDroppedCount() != 0) {
+            throw new IllegalStateException("Trace buffer too small for " + lines.size() + " lines");
+        }
+
+        final Collector collector = new Collector();
+        final SerialPortSocketFactory replay = ReplaySerialPortSocketFactory.create(dir, 0);
+        try (CulAdapter adapter = new CulAdapter(replay.open(dir.toString()), collector, Speed._9600_BPS)) {
+            final long end = System.currentTimeMillis() + PARSE_TIMEOUT_MILLIS;
+            synchronized (collector) {
+                while (collector.frames.size() + collector.failures < lines.size() && System.currentTimeMillis() < end) {
+                    collector.wait(100);
+                }
+            }
+        } catch (Exception e) {
+            throw new IOException("Can't parse CUL lines", e);
+        }
+        synchronized (collector) {
+            if (collector.frames.size() != lines.size()) {
+                throw new IllegalStateException(String.format("Parsed %d of %d lines, %d failures, first line: %s",
+                        collector.frames.size(), lines.size(), collector.failures, lines.get(0)));
+            }
+            return new ArrayList<>(collector.frames);
+        }
+    }
+
+    /**
+     * Collects the parsed frames, called by the CulAdapter receive thread.
+     */
+    private static final class Collector implements CulMessageListener {
+
+        private final List<Frame> frames = new ArrayList<>();
+        private int failures;
+        private float lastSignalStrength = Float.NaN;
+
+        private synchronized void add(Object message, Consumer<CulMessageListener> publish) {
+            frames.add(new Frame(lastSignalStrength, message, publish));
+            lastSignalStrength = Float.NaN;
+            notifyAll();
+        }
+
+        @Override
+        public void emDataParsed(EmMessage emMsg) {
+            add(emMsg, l -> l.emDataParsed(emMsg));
+        }
+
+        @Override
+        public synchronized void failed(Throwable t) {
+            failures++;
+            notifyAll();
+        }
+
+        @Override
+        public void fhtDataParsed(FhtMessage fhtMsg) {
+            add(fhtMsg, l -> l.fhtDataParsed(fhtMsg));
+        }
+
+        @Override
+        public void fht80TfDataParsed(Fht80TfMessage fht80TfMsg) {
+            add(fht80TfMsg, l -> l.fht80TfDataParsed(fht80TfMsg));
+        }
+
+        @Override
+        public void fhtPartialDataParsed(FhtMessage fhtMsg) {
+            add(fhtMsg, l -> l.fhtPartialDataParsed(fhtMsg));
+        }
+
+        @Override
+        public void fs20DataParsed(FS20Message fs20Msg) {
+            add(fs20Msg, l -> l.fs20DataParsed(fs20Msg));
+        }
+
+        @Override
+        public void hmsDataParsed(HmsMessage hmsMsg) {
+            add(hmsMsg, l -> l.hmsDataParsed(hmsMsg));
+        }
+
+        @Override
+        public void laCrosseTxParsed(LaCrosseTx2Message msg) {
+            add(msg, l -> l.laCrosseTxParsed(msg));
+        }
+
+        @Override
+        public void culMessageParsed(CulMessage msg) {
+            add(msg, l -> l.culMessageParsed(msg));
+        }
+
+        @Override
+        public void evoHomeParsed(EvoHomeMessage evoHomeMsg) {
+            add(evoHomeMsg, l -> l.evoHomeParsed(evoHomeMsg));
+        }
+
+        @Override
+        public synchronized void signalStrength(float signalStrength) {
+            lastSignalStrength = signalStrength;
+        }
+
+        @Override
+        public void receiveEnabled(Protocol protocol) {
+            //no-op
+        }
+
+        @Override
+        public void helpParsed(String helpMessages) {
+            //no-op
+        }
+
+        @Override
+        public synchronized void onIOException(IOException ioe) {
+            failures++;
+            notifyAll();
+        }
+
+    }
+
+}
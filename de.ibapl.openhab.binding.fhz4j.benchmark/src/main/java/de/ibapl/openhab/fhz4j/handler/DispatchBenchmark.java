@@ -0,0 +1,164 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static de.ibapl.openhab.fhz4j.FHZ4JBindingConstants.*;
+
+import de.ibapl.fhz4j.cul.CulMessageListener;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openhab.core.thing.Bridge;
+import org.openhab.core.thing.Thing;
+import org.openhab.core.thing.ThingTypeUID;
+import org.openhab.core.thing.binding.BaseThingHandler;
+import org.openhab.core.thing.binding.ThingHandlerCallback;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Receive and dispatch of one frame: the {@link SpswBridgeHandler} listener
+ * puts it into the receive buffer, the dispatcher looks up the thing handler,
+ * which updates its channels.
+ *
+ * The frames round robin over all devices with changing values. Throughput
+ * gives ops/s, SampleTime the tail latency; run with {@code -prof gc} for
+ * the allocation rate.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    /**
+     * The values of a device repeat after this many frames.
+     */
+    private static final int FRAMES_PER_DEVICE = 8;
+
+    @Param({"FHT", "HMS", "EM", "EVO_HOME"})
+    public String protocol;
+
+    @Param({"10", "100", "1000"})
+    public int devices;
+
+    /**
+     * The publishInterval of the things in minutes, 0 publishes every state.
+     */
+    @Param({"0", "60"})
+    public int publishInterval;
+
+    private CulFrameSamples.Kind kind;
+    private SpswBridgeHandler bridgeHandler;
+    private CulMessageListener listener;
+    private final List<BaseThingHandler> thingHandlers = new ArrayList<>();
+    private final BenchmarkThings.StateUpdates stateUpdates = new BenchmarkThings.StateUpdates();
+    private CulFrameSamples.Frame[] frames;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        kind = CulFrameSamples.Kind.valueOf(protocol);
+        final Bridge bridge = BenchmarkThings.createBridge();
+        bridgeHandler = new SpswBridgeHandler(bridge, List.of(), BenchmarkThings.createCronScheduler());
+        listener = bridgeHandler.getListener();
+        final ThingHandlerCallback callback = BenchmarkThings.createCallback(bridge, stateUpdates);
+
+        final int deviceCount = kind == CulFrameSamples.Kind.EM ? Math.min(devices, 255) : devices;
+        for (int device = 0; device < deviceCount; device++) {
+            final BaseThingHandler handler = createHandler(device);
+            handler.setCallback(callback);
+            handler.initialize();
+            bridgeHandler.childHandlerInitialized(handler, handler.getThing());
+            thingHandlers.add(handler);
+        }
+
+        //Interleave the devices, so each frame goes to another device
+        final List<String> lines = new ArrayList<>(deviceCount * FRAMES_PER_DEVICE);
+        for (int sequence = 0; sequence < FRAMES_PER_DEVICE; sequence++) {
+            for (int device = 0; device < deviceCount; device++) {
+                lines.add(CulFrameSamples.line(kind, device, sequence));
+            }
+        }
+        frames = CulFrameSamples.parse(lines).toArray(CulFrameSamples.Frame[]::new);
+    }
+
+    private BaseThingHandler createHandler(int device) {
+        final int address = CulFrameSamples.address(kind, device);
+        final BigDecimal interval = BigDecimal.valueOf(publishInterval);
+        return switch (kind) {
+            case FHT ->
+                new RadiatorFht80bHandler(createThing(THING_TYPE_FHZ4J_RADIATOR_FHT80B, device,
+                        Map.of("housecode", BigDecimal.valueOf(address), ChannelStateFilter.PUBLISH_INTERVAL_PARAM, interval)));
+            case HMS ->
+                new Hms100TfHandler(createThing(THING_TYPE_FHZ4J_HMS_100_TF, device,
+                        Map.of("housecode", BigDecimal.valueOf(address), ChannelStateFilter.PUBLISH_INTERVAL_PARAM, interval)));
+            case EM ->
+                new Em1000EmHandler(createThing(THING_TYPE_FHZ4J_EM_1000_EM, device,
+                        Map.of("address", BigDecimal.valueOf(address), ChannelStateFilter.PUBLISH_INTERVAL_PARAM, interval)));
+            case EVO_HOME ->
+                new EvoHomeHandler(createThing(THING_TYPE_FHZ4J_RADIATOR_EVO_HOME, device,
+                        Map.of("deviceId", BigDecimal.valueOf(address), ChannelStateFilter.PUBLISH_INTERVAL_PARAM, interval)));
+        };
+    }
+
+    private Thing createThing(ThingTypeUID thingTypeUID, int device, Map<String, Object> configuration) {
+        return BenchmarkThings.createThing(thingTypeUID, kind.name().toLowerCase() + "_" + device, configuration);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (BaseThingHandler handler : thingHandlers) {
+            bridgeHandler.childHandlerDisposed(handler, handler.getThing());
+            handler.dispose();
+        }
+        thingHandlers.clear();
+    }
+
+    @Benchmark
+    public long dispatch() {
+        frames[next].publishTo(listener);
+        if (++next == frames.length) {
+            next = 0;
+        }
+        bridgeHandler.dispatchReceivedFrames();
+        return stateUpdates.count;
+    }
+
+}
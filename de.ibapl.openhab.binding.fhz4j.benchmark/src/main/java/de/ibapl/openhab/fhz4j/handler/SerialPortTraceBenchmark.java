@@ -0,0 +1,98 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import de.ibapl.openhab.spsw.trace.SerialPortTrace;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of recording a CUL line to a {@link SerialPortTrace} on the serial
+ * port thread, with the writer thread compressing to a file in the
+ * background.
+ *
+ * One operation is a batch of {@link #RECORDS} records, so the score in ms is
+ * the time per record in ns. The buffer holds a whole batch, an iteration
+ * fails if records were dropped.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = SerialPortTraceBenchmark.RECORDS)
+@Measurement(iterations = 10, batchSize = SerialPortTraceBenchmark.RECORDS)
+@Fork(1)
+public class SerialPortTraceBenchmark {
+
+    static final int RECORDS = 1_000_000;
+    /**
+     * A FHT frame as the CUL sends it.
+     */
+    private static final byte[] LINE = "T1234000069FF\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final int BUFFER_SIZE = 64 * 1024 * 1024;
+
+    private Path dir;
+    private SerialPortTrace trace;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("spsw-trace-benchmark");
+        trace = new SerialPortTrace(dir, "CUL_", BUFFER_SIZE, Long.MAX_VALUE, Duration.ofDays(1), Long.MAX_VALUE);
+        trace.start("SerialPortTraceBenchmark writer");
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        trace.stop();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach((p) -> p.toFile().delete());
+        }
+        if (trace.getDroppedCount() > 0) {
+            throw new IllegalStateException("Dropped " + trace.getDroppedCount() + " records, the buffer is too small");
+        }
+    }
+
+    @Benchmark
+    public void recordLine() {
+        trace.record(SerialPortTrace.READ, LINE, 0, LINE.length);
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.ibapl.fhz4j.protocol.em.EmMessage;
+import de.ibapl.fhz4j.protocol.evohome.EvoHomeDeviceMessage;
+import de.ibapl.fhz4j.protocol.fht.FhtMessage;
+import de.ibapl.fhz4j.protocol.hms.HmsMessage;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Every line the {@link DispatchBenchmark} can use must be parsed into a
+ * frame of the device it was made for.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class CulFrameSamplesTest {
+
+    /**
+     * The most devices of a DispatchBenchmark run.
+     */
+    private static final int MAX_DEVICES = 1000;
+    /**
+     * The values of a device repeat after this many frames.
+     */
+    private static final int FRAMES_PER_DEVICE = 8;
+
+    private static void assertAllLinesParsed(CulFrameSamples.Kind kind) throws Exception {
+        final int deviceCount = kind == CulFrameSamples.Kind.EM ? 255 : MAX_DEVICES;
+        final List<String> lines = new ArrayList<>(deviceCount * FRAMES_PER_DEVICE);
+        final List<Integer> addresses = new ArrayList<>(deviceCount * FRAMES_PER_DEVICE);
+        for (int sequence = 0; sequence < FRAMES_PER_DEVICE; sequence++) {
+            for (int device = 0; device < deviceCount; device++) {
+                lines.add(CulFrameSamples.line(kind, device, sequence));
+                addresses.add(CulFrameSamples.address(kind, device));
+            }
+        }
+        final List<CulFrameSamples.Frame> frames = CulFrameSamples.parse(lines);
+        assertEquals(lines.size(), frames.size());
+        for (int i = 0; i < frames.size(); i++) {
+            final CulFrameSamples.Frame frame = frames.get(i);
+            final int address = addresses.get(i);
+            final String line = lines.get(i);
+            switch (kind) {
+                case FHT -> {
+                    assertTrue(frame.message instanceof FhtMessage, line);
+                    assertEquals(address, ((FhtMessage) frame.message).housecode & 0xffff, line);
+                    assertFalse(Float.isNaN(frame.signalStrength), line);
+                }
+                case HMS -> {
+                    assertTrue(frame.message instanceof HmsMessage, line);
+                    assertEquals(address, ((HmsMessage) frame.message).housecode & 0xffff, line);
+                    assertFalse(Float.isNaN(frame.signalStrength), line);
+                }
+                case EM -> {
+                    assertTrue(frame.message instanceof EmMessage, line);
+                    assertEquals(address, ((EmMessage) frame.message).address, line);
+                    assertFalse(Float.isNaN(frame.signalStrength), line);
+                }
+                case EVO_HOME -> {
+                    assertTrue(frame.message instanceof EvoHomeDeviceMessage, line);
+                    assertEquals(address, ((EvoHomeDeviceMessage) frame.message).deviceId1.id, line);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFhtLines() throws Exception {
+        assertAllLinesParsed(CulFrameSamples.Kind.FHT);
+    }
+
+    @Test
+    public void testHmsLines() throws Exception {
+        assertAllLinesParsed(CulFrameSamples.Kind.HMS);
+    }
+
+    @Test
+    public void testEmLines() throws Exception {
+        assertAllLinesParsed(CulFrameSamples.Kind.EM);
+    }
+
+    @Test
+    public void testEvoHomeLines() throws Exception {
+        assertAllLinesParsed(CulFrameSamples.Kind.EVO_HOME);
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.ibapl.fhz4j.protocol.evohome.EvoHomeDeviceMessage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The fingerprints of parsed frames, the frames are made by the fhz4j parser
+ * of {@link CulFrameSamples}.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class FrameDeduplicatorTest {
+
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(2);
+
+    @Test
+    public void testEvoHomePayload() throws Exception {
+        //the same zone temperature message of the same device, the temperatures of sequence 0 and 1 differ
+        final List<CulFrameSamples.Frame> frames = CulFrameSamples.parse(List.of(
+                CulFrameSamples.line(CulFrameSamples.Kind.EVO_HOME, 0, 0),
+                CulFrameSamples.line(CulFrameSamples.Kind.EVO_HOME, 0, 1),
+                CulFrameSamples.line(CulFrameSamples.Kind.EVO_HOME, 0, 0)));
+        final EvoHomeDeviceMessage first = (EvoHomeDeviceMessage) frames.get(0).message;
+        final EvoHomeDeviceMessage second = (EvoHomeDeviceMessage) frames.get(1).message;
+        assertEquals(first.command, second.command);
+        assertEquals(first.deviceId1.id, second.deviceId1.id);
+        assertEquals(first.deviceId2.id, second.deviceId2.id);
+
+        final long a = FrameDeduplicator.fingerprint(CulFrameType.EVO_HOME, first);
+        final long b = FrameDeduplicator.fingerprint(CulFrameType.EVO_HOME, second);
+        final long c = FrameDeduplicator.fingerprint(CulFrameType.EVO_HOME, frames.get(2).message);
+        assertNotEquals(a, b);
+        assertEquals(a, c);
+
+        final long t0 = System.nanoTime();
+        final FrameDeduplicator dedup = new FrameDeduplicator(WINDOW, 16);
+        assertFalse(dedup.isDuplicate(a, t0));
+        assertFalse(dedup.isDuplicate(b, t0 + 1_000));
+        assertTrue(dedup.isDuplicate(c, t0 + 2_000));
+    }
+
+}
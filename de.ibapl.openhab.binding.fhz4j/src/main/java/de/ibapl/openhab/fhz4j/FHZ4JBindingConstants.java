@@ -45,6 +45,7 @@ public class FHZ4JBindingConstants {
 
     // List of all Bridge Type UIDs
     public static final ThingTypeUID BRIDGE_TYPE_FHZ4J_RS232 = new ThingTypeUID(BINDING_ID, "rs232-bridge-cul");
+    public static final ThingTypeUID BRIDGE_TYPE_FHZ4J_CUL_AGGREGATOR = new ThingTypeUID(BINDING_ID, "cul-aggregator");
 
     // List of all Channel ids
     public static final String CHANNEL_MODE = "mode";
@@ -99,8 +100,34 @@ public class FHZ4JBindingConstants {
     public static final String CHANNEL_FRIDAY = "fridaySwitchTimes";
     public static final String CHANNEL_SATURDAY = "saturdaySwitchTimes";
     public static final String CHANNEL_SUNDAY = "sundaySwitchTimes";
+    public static final String CHANNEL_WEEK_PROGRAM = "weekProgram";
 
     public static final String CHANNEL_ENERGY_TOTAL = "energyTotal";
     public static final String CHANNEL_POWER_5MINUTES = "power5Minutes";
     public static final String CHANNEL_MAX_POWER_5MINUTES = "maxPower5Minutes";
+
+    public static final String CHANNEL_AIRTIME_REMAINING = "airtimeRemaining";
+
+    // Bridge receive statistics
+    public static final String CHANNEL_FRAMES_FS20 = "framesFs20";
+    public static final String CHANNEL_FRAMES_FHT = "framesFht";
+    public static final String CHANNEL_FRAMES_HMS = "framesHms";
+    public static final String CHANNEL_FRAMES_EM = "framesEm";
+    public static final String CHANNEL_FRAMES_LA_CROSSE_TX2 = "framesLaCrosseTx2";
+    public static final String CHANNEL_FRAMES_EVO_HOME = "framesEvoHome";
+    public static final String CHANNEL_PARSE_FAILURES = "parseFailures";
+    public static final String CHANNEL_UNKNOWN_DEVICE_FRAMES = "unknownDeviceFrames";
+    public static final String CHANNEL_DROPPED_FRAMES = "droppedFrames";
+    public static final String CHANNEL_LOVF_EVENTS = "lovfEvents";
+    public static final String CHANNEL_EOB_EVENTS = "eobEvents";
+    public static final String CHANNEL_RECONNECTS = "reconnects";
+    public static final String CHANNEL_DISPATCH_LATENCY_P50 = "dispatchLatencyP50";
+    public static final String CHANNEL_DISPATCH_LATENCY_P99 = "dispatchLatencyP99";
+    public static final String CHANNEL_DISPATCH_LATENCY_MAX = "dispatchLatencyMax";
+    public static final String CHANNEL_SIGNAL_STRENGTH = "signalStrength";
+
+    // FHT80b write confirmation
+    public static final String CHANNEL_CONFIRMATION_LATENCY_P50 = "confirmationLatencyP50";
+    public static final String CHANNEL_CONFIRMATION_LATENCY_P99 = "confirmationLatencyP99";
+    public static final String CHANNEL_CONFIRMATION_LATENCY_MAX = "confirmationLatencyMax";
 }
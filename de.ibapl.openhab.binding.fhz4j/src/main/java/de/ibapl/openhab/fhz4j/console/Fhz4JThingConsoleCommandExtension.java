@@ -21,15 +21,17 @@
  */
 package de.ibapl.openhab.fhz4j.console;
 
+import de.ibapl.fhz4j.api.Protocol;
 import de.ibapl.fhz4j.api.Response;
-import de.ibapl.fhz4j.cul.CulFhtDeviceOutBufferContentRequest;
-import de.ibapl.fhz4j.cul.CulGetFirmwareVersionRequest;
-import de.ibapl.fhz4j.cul.CulGetHardwareVersionRequest;
-import de.ibapl.fhz4j.cul.CulGetSlowRfSettingsRequest;
 import de.ibapl.fhz4j.cul.CulRemainingFhtDeviceOutBufferSizeRequest;
+import de.ibapl.fhz4j.protocol.evohome.EvoHomeCommand;
+import de.ibapl.openhab.fhz4j.handler.CulDebugInfoSnapshot;
+import de.ibapl.openhab.fhz4j.handler.CulFrameMonitor;
+import de.ibapl.openhab.fhz4j.handler.RadiatorFht80bHandler;
 import de.ibapl.openhab.fhz4j.handler.SpswBridgeHandler;
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -60,6 +62,19 @@ public class Fhz4JThingConsoleCommandExtension extends AbstractConsoleCommandExt
     private static final String SUBCMD_LIST = "list";
     private static final String SUBCMD_TX_SHOW = "txshow";
     private static final String SUBCMD_TX_CLEAR = "txclear";
+    private static final String SUBCMD_DEBUG_INFO = "debuginfo";
+    private static final String SUBCMD_CAPTURE = "capture";
+    private static final String SUBCMD_SIGNAL_STRENGTH = "rssi";
+    private static final String SUBCMD_MONITOR = "monitor";
+    private static final String SUBCMD_WRITES = "writes";
+    private static final long RESPONSE_TIMEOUT_MILLIS = 1000;
+    /**
+     * The requests to the CUL wait in the transmit queue behind the commands
+     * to the devices.
+     */
+    private static final long QUEUE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    private static final int MONITOR_BATCH_SIZE = 64;
+    private static final long MONITOR_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
 
     private final ThingRegistry thingRegistry;
     private final ThingStatusInfoI18nLocalizationService thingStatusInfoI18nLocalizationService;
@@ -100,6 +115,51 @@ public class Fhz4JThingConsoleCommandExtension extends AbstractConsoleCommandExt
                     }
                     return;
                 }
+                case SUBCMD_DEBUG_INFO -> {
+                    if (args.length > 1) {
+                        ThingUID thingUID = new ThingUID(args[1]);
+                        debugInfo(console, thingUID);
+                    } else {
+                        console.println("Specify fhz4j thing id to show debug infos: fhz4j debuginfo <thingUID> (e.g. \"fhz4j:rs232-bridge-cul:CUL0\")");
+                    }
+                    return;
+                }
+                case SUBCMD_CAPTURE -> {
+                    if (args.length > 1) {
+                        ThingUID thingUID = new ThingUID(args[1]);
+                        capture(console, thingUID, args);
+                    } else {
+                        console.println("Specify fhz4j thing id to capture EvoHome messages: fhz4j capture <thingUID> [<command>|all on|off]");
+                    }
+                    return;
+                }
+                case SUBCMD_SIGNAL_STRENGTH -> {
+                    if (args.length > 1) {
+                        ThingUID thingUID = new ThingUID(args[1]);
+                        signalStrength(console, thingUID);
+                    } else {
+                        console.println("Specify fhz4j thing id to show the signal strength of the devices: fhz4j rssi <thingUID> (e.g. \"fhz4j:rs232-bridge-cul:CUL0\")");
+                    }
+                    return;
+                }
+                case SUBCMD_MONITOR -> {
+                    if (args.length > 1) {
+                        ThingUID thingUID = new ThingUID(args[1]);
+                        monitor(console, thingUID, args);
+                    } else {
+                        console.println("Specify fhz4j thing id to monitor the received frames: fhz4j monitor <thingUID> [<protocol>|all] [<address>] (e.g. \"fhz4j monitor fhz4j:rs232-bridge-cul:CUL0 FHT 0x1234\")");
+                    }
+                    return;
+                }
+                case SUBCMD_WRITES -> {
+                    if (args.length > 1) {
+                        ThingUID thingUID = new ThingUID(args[1]);
+                        writes(console, thingUID);
+                    } else {
+                        console.println("Specify fhz4j thing id to show the confirmation of the writes: fhz4j writes <thingUID> (e.g. \"fhz4j:fht80b:CUL0:1234\")");
+                    }
+                    return;
+                }
                 default -> {
                 }
             }
@@ -112,10 +172,10 @@ public class Fhz4JThingConsoleCommandExtension extends AbstractConsoleCommandExt
         final ThingHandler thingHandler = thingRegistry.get(thingUID).getHandler();
         if (thingHandler instanceof SpswBridgeHandler handler) {
             try {
-                handler.clearFht8bBuffer();
+                handler.clearFht8bBuffer().get(QUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
                 console.println("tx cleared for thing " + thingUID + ".");
-            } catch (IOException ioe) {
-                console.println("Could not tx clear thing " + thingUID + "." + ioe);
+            } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                console.println("Could not tx clear thing " + thingUID + "." + e);
             }
         } else {
             console.println("Could not tx clear thing " + thingUID + ".");
@@ -130,10 +190,16 @@ public class Fhz4JThingConsoleCommandExtension extends AbstractConsoleCommandExt
                 Future<Response> future;
                 Response response;
 
-                future = handler.sendRequest(new CulRemainingFhtDeviceOutBufferSizeRequest());
-                response = future.get(1, TimeUnit.SECONDS);
+                future = handler.sendRequest(new CulRemainingFhtDeviceOutBufferSizeRequest()).get(QUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                response = future.get(RESPONSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
                 console.println("RemainingFhtDeviceOutBufferSize: " + response);
-            } catch (IOException | InterruptedException | ExecutionException | TimeoutException e) {
+                console.println("Estimated: " + handler.getFhtBufferStatus());
+                final String slots = handler.getFhtSlotStatus();
+                if (!slots.isEmpty()) {
+                    console.println("Receive slots:");
+                    console.println(slots);
+                }
+            } catch (InterruptedException | ExecutionException | TimeoutException e) {
                 console.println("Could not tx show thing \"" + thingUID + "\". exception: " + e);
             }
         } else {
@@ -141,46 +207,175 @@ public class Fhz4JThingConsoleCommandExtension extends AbstractConsoleCommandExt
         }
     }
 
+    private void debugInfo(Console console, ThingUID thingUID) {
+        ThingHandler thingHandler = thingRegistry.get(thingUID).getHandler();
+
+        if (thingHandler instanceof SpswBridgeHandler handler) {
+            final CulDebugInfoSnapshot snapshot = handler.getCulDebugInfoSnapshot();
+            if (snapshot == null) {
+                console.println("No debug infos sampled yet for thing \"" + thingUID + "\".");
+            } else {
+                console.println(snapshot.toString());
+            }
+        } else {
+            console.println("Could not show debug infos of thing \"" + thingUID + "\". handler: " + thingHandler);
+        }
+    }
+
+    private void signalStrength(Console console, ThingUID thingUID) {
+        ThingHandler thingHandler = thingRegistry.get(thingUID).getHandler();
+
+        if (thingHandler instanceof SpswBridgeHandler handler) {
+            final String statistics = handler.getSignalStrengthStatistics();
+            if (statistics.isEmpty()) {
+                console.println("No signal strength received yet by thing \"" + thingUID + "\".");
+            } else {
+                console.println(statistics);
+            }
+        } else {
+            console.println("Could not show signal strength of thing \"" + thingUID + "\". handler: " + thingHandler);
+        }
+    }
+
+    private void writes(Console console, ThingUID thingUID) {
+        ThingHandler thingHandler = thingRegistry.get(thingUID).getHandler();
+
+        if (thingHandler instanceof RadiatorFht80bHandler handler) {
+            console.println(handler.getWriteConfirmationStatus());
+        } else {
+            console.println("Could not show the writes of thing \"" + thingUID + "\". handler: " + thingHandler);
+        }
+    }
+
+    private void capture(Console console, ThingUID thingUID, String[] args) {
+        ThingHandler thingHandler = thingRegistry.get(thingUID).getHandler();
+
+        if (thingHandler instanceof SpswBridgeHandler handler) {
+            if (args.length > 3) {
+                final boolean enable = "on".equalsIgnoreCase(args[3]);
+                try {
+                    final EvoHomeCommand command = "all".equalsIgnoreCase(args[2]) ? null : EvoHomeCommand.valueOf(args[2]);
+                    handler.setEvoHomeCaptureEnabled(command, enable);
+                } catch (IllegalArgumentException iae) {
+                    console.println("Unknown EvoHome command: " + args[2]);
+                    return;
+                }
+            }
+            for (EvoHomeCommand command : EvoHomeCommand.values()) {
+                console.println(command + ": " + (handler.isEvoHomeCaptureEnabled(command) ? "on" : "off"));
+            }
+            console.println("dropped: " + handler.getEvoHomeCaptureDroppedCount());
+        } else {
+            console.println("Could not capture thing \"" + thingUID + "\". handler: " + thingHandler);
+        }
+    }
+
+    /**
+     * Print the received frames until the command is interrupted (Ctrl-C) or
+     * the bridge is disposed.
+     */
+    private void monitor(Console console, ThingUID thingUID, String[] args) {
+        ThingHandler thingHandler = thingRegistry.get(thingUID).getHandler();
+
+        if (thingHandler instanceof SpswBridgeHandler handler) {
+            final Protocol protocol;
+            final int address;
+            try {
+                protocol = args.length > 2 && !"all".equalsIgnoreCase(args[2]) ? Protocol.valueOf(args[2].toUpperCase()) : null;
+                address = args.length > 3 ? Integer.decode(args[3]) : CulFrameMonitor.ANY_ADDRESS;
+            } catch (IllegalArgumentException iae) {
+                console.println("Unknown protocol or address: " + iae.getMessage());
+                return;
+            }
+            final CulFrameMonitor monitor = new CulFrameMonitor(protocol, address);
+            //convert the receive time to wall clock time
+            final long epochOffsetMillis = System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+            final CulFrameMonitor.FrameConsumer printer = (type, message, signalStrength, receivedNanos) -> {
+                final long millis = epochOffsetMillis + TimeUnit.NANOSECONDS.toMillis(receivedNanos);
+                if (Float.isNaN(signalStrength)) {
+                    console.println(String.format("%tT.%<tL %-12s %s", millis, type, message));
+                } else {
+                    console.println(String.format("%tT.%<tL %-12s %s, signal strength: %.1f dBm", millis, type, message, signalStrength));
+                }
+            };
+            console.println("Monitoring " + thingUID + " " + monitor + ", press Ctrl-C to stop.");
+            handler.attachMonitor(monitor);
+            try {
+                while (!Thread.currentThread().isInterrupted() && !monitor.isClosed()) {
+                    if (monitor.drain(printer, MONITOR_BATCH_SIZE) == 0) {
+                        monitor.awaitFrames(MONITOR_IDLE_NANOS);
+                    }
+                }
+            } finally {
+                handler.detachMonitor(monitor);
+                console.println("Monitor stopped, dropped frames: " + monitor.getDroppedCount());
+            }
+        } else {
+            console.println("Could not monitor thing \"" + thingUID + "\". handler: " + thingHandler);
+        }
+    }
+
     @Override
     public List<String> getUsages() {
         return List.of(buildCommandUsage(SUBCMD_LIST, "lists all things"),
-                buildCommandUsage(SUBCMD_TX_SHOW + " <thingUID>", "show tx buffer of a fhz4j thing"),
-                buildCommandUsage(SUBCMD_TX_CLEAR + " <thingUID>", "clear tx buffer of a fhz4j thing"));
+                buildCommandUsage(SUBCMD_TX_SHOW + " <thingUID>", "show tx buffer and receive slots of a fhz4j thing"),
+                buildCommandUsage(SUBCMD_TX_CLEAR + " <thingUID>", "clear tx buffer of a fhz4j thing"),
+                buildCommandUsage(SUBCMD_DEBUG_INFO + " <thingUID>", "show the last sampled debug infos of a fhz4j bridge"),
+                buildCommandUsage(SUBCMD_CAPTURE + " <thingUID> [<command>|all on|off]", "show or switch the capture of EvoHome messages per command"),
+                buildCommandUsage(SUBCMD_SIGNAL_STRENGTH + " <thingUID>", "show the signal strength of all devices received by a fhz4j bridge"),
+                buildCommandUsage(SUBCMD_MONITOR + " <thingUID> [<protocol>|all] [<address>]", "print the received frames of a fhz4j bridge until Ctrl-C"),
+                buildCommandUsage(SUBCMD_WRITES + " <thingUID>", "show the confirmation of the writes to a FHT80b"));
     }
 
-    private void printThings(Console console) {
+    /**
+     * The pending status requests of one bridge.
+     */
+    private static final class PendingStatus {
 
+        final Thing thing;
+        final Future<Map<String, Future<Response>>> responses;
+
+        PendingStatus(Thing thing, Future<Map<String, Future<Response>>> responses) {
+            this.thing = thing;
+            this.responses = responses;
+        }
+
+    }
+
+    private void printThings(Console console) {
+        //Send the requests to all CULs first, so all answer within the same round trip
+        final List<PendingStatus> pending = new ArrayList<>();
         for (Thing thing : thingRegistry.getAll()) {
             if (thing.getHandler() instanceof SpswBridgeHandler handler) {
-                ThingStatusInfo status = thingStatusInfoI18nLocalizationService.getLocalizedThingStatusInfo(thing, null);
-                String label = thing.getLabel();
-                String id = thing.getUID().toString();
-                console.println(String.format("%s (Type=Bridge, Status=%s, Label=%s)", id, status, label));
+                pending.add(new PendingStatus(thing, handler.requestCulStatus()));
+            }
+        }
+        final long queueDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(QUEUE_TIMEOUT_MILLIS);
+        for (PendingStatus p : pending) {
+            ThingStatusInfo status = thingStatusInfoI18nLocalizationService.getLocalizedThingStatusInfo(p.thing, null);
+            String label = p.thing.getLabel();
+            String id = p.thing.getUID().toString();
+            console.println(String.format("%s (Type=Bridge, Status=%s, Label=%s)", id, status, label));
+            final Map<String, Future<Response>> responses;
+            try {
+                responses = p.responses.get(Math.max(0, queueDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | TimeoutException ex) {
+                console.println("Could not query thing " + id + ". " + ex);
+                continue;
+            }
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RESPONSE_TIMEOUT_MILLIS);
+            for (Map.Entry<String, Future<Response>> e : responses.entrySet()) {
                 try {
-                    Future<Response> future;
-                    Response response;
-
-                    future = handler.sendRequest(new CulGetSlowRfSettingsRequest());
-                    response = future.get(1, TimeUnit.SECONDS);
-                    console.println("SlowRfSettings: " + response);
-
-                    future = handler.sendRequest(new CulFhtDeviceOutBufferContentRequest());
-                    response = future.get(1, TimeUnit.SECONDS);
-                    console.println("FhtDeviceOutBufferContent: " + response);
-
-                    future = handler.sendRequest(new CulRemainingFhtDeviceOutBufferSizeRequest());
-                    response = future.get(1, TimeUnit.SECONDS);
-                    console.println("RemainingFhtDeviceOutBufferSize: " + response);
-
-                    future = handler.sendRequest(new CulGetFirmwareVersionRequest());
-                    response = future.get(1, TimeUnit.SECONDS);
-                    console.println("RemainingFhtDeviceOutBufferSize: " + response);
-
-                    future = handler.sendRequest(new CulGetHardwareVersionRequest());
-                    response = future.get(1, TimeUnit.SECONDS);
-                    console.println("RemainingFhtDeviceOutBufferSize: " + response);
-                } catch (IOException | InterruptedException | ExecutionException | TimeoutException e) {
-                    console.println("Could not tx show thing " + handler + "." + e);
+                    final Response response = e.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    console.println(e.getKey() + ": " + response);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException | TimeoutException ex) {
+                    console.println(e.getKey() + ": " + ex);
                 }
             }
         }
@@ -0,0 +1,206 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import de.ibapl.fhz4j.api.Protocol;
+import java.util.EnumMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The airtime used by the CUL in a sliding window of one hour.
+ *
+ * The 868 MHz band allows a duty cycle of 1%, that is 36 s per hour. The
+ * window is kept in buckets of one minute per {@link Protocol}, so a used
+ * airtime is released at most one minute late.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class AirtimeBudget {
+
+    static final long WINDOW_MILLIS = TimeUnit.HOURS.toMillis(1);
+    static final int BUCKET_COUNT = 60;
+    static final long BUCKET_MILLIS = WINDOW_MILLIS / BUCKET_COUNT;
+
+    /**
+     * FHT (like FS20): 12 sync bits, 5 bytes of 9 bits and the EOT bit, about
+     * 1 ms per bit and each frame is sent twice.
+     */
+    static final long FHT_FRAME_MILLIS = 2 * (12 + 5 * 9 + 1);
+    /**
+     * EvoHome: 38.4 kbit/s, every byte (with start and stop bit) Manchester
+     * encoded. The preamble, sync, header with the device ids and checksum
+     * are about 20 bytes.
+     */
+    private static final int EVO_HOME_OVERHEAD_BYTES = 20;
+    private static final int EVO_HOME_BITS_PER_BYTE = 2 * 10;
+    private static final int EVO_HOME_BITS_PER_MILLI = 38;
+
+    private final long budgetMillis;
+    /**
+     * The bucket number (now / BUCKET_MILLIS) each slot holds.
+     */
+    private final long[] bucketNumbers = new long[BUCKET_COUNT];
+    private final long[] bucketTotals = new long[BUCKET_COUNT];
+    private final EnumMap<Protocol, long[]> bucketsPerProtocol = new EnumMap<>(Protocol.class);
+
+    /**
+     * @param dutyCycle the allowed fraction of the window, 0.01 for 1%.
+     */
+    AirtimeBudget(double dutyCycle) {
+        if (dutyCycle <= 0.0 || dutyCycle > 1.0) {
+            throw new IllegalArgumentException("Illegal duty cycle: " + dutyCycle);
+        }
+        budgetMillis = Math.round(WINDOW_MILLIS * dutyCycle);
+        for (Protocol p : Protocol.values()) {
+            bucketsPerProtocol.put(p, new long[BUCKET_COUNT]);
+        }
+    }
+
+    /**
+     * @param frames the number of FHT frames.
+     * @return the estimated airtime.
+     */
+    static long estimateFhtMillis(int frames) {
+        return frames * FHT_FRAME_MILLIS;
+    }
+
+    /**
+     * @param payloadLength the length of the payload of the EvoHome message.
+     * @return the estimated airtime.
+     */
+    static long estimateEvoHomeMillis(int payloadLength) {
+        final int bits = (EVO_HOME_OVERHEAD_BYTES + payloadLength) * EVO_HOME_BITS_PER_BYTE;
+        return (bits + EVO_HOME_BITS_PER_MILLI - 1) / EVO_HOME_BITS_PER_MILLI;
+    }
+
+    static long nowMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    long getBudgetMillis() {
+        return budgetMillis;
+    }
+
+    private int slot(long bucketNumber, boolean clear) {
+        final int slot = (int) Math.floorMod(bucketNumber, (long) BUCKET_COUNT);
+        if (bucketNumbers[slot] != bucketNumber) {
+            if (!clear) {
+                return -1;
+            }
+            bucketNumbers[slot] = bucketNumber;
+            bucketTotals[slot] = 0;
+            for (long[] buckets : bucketsPerProtocol.values()) {
+                buckets[slot] = 0;
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Account a transmission.
+     */
+    synchronized void record(Protocol protocol, long airtimeMillis, long nowMillis) {
+        final int slot = slot(nowMillis / BUCKET_MILLIS, true);
+        bucketTotals[slot] += airtimeMillis;
+        bucketsPerProtocol.get(protocol)[slot] += airtimeMillis;
+    }
+
+    /**
+     * Give back the airtime of a transmission that failed.
+     *
+     * @param recordedMillis the time the transmission was recorded, if it is out
+     * of the window already nothing is given back.
+     */
+    synchronized void refund(Protocol protocol, long airtimeMillis, long recordedMillis) {
+        final int slot = slot(recordedMillis / BUCKET_MILLIS, false);
+        if (slot >= 0) {
+            final long[] buckets = bucketsPerProtocol.get(protocol);
+            final long refunded = Math.min(airtimeMillis, buckets[slot]);
+            bucketTotals[slot] -= refunded;
+            buckets[slot] -= refunded;
+        }
+    }
+
+    /**
+     * @return the airtime used in the window of all protocols.
+     */
+    synchronized long getUsedMillis(long nowMillis) {
+        final long current = nowMillis / BUCKET_MILLIS;
+        long result = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (current - bucketNumbers[i] < BUCKET_COUNT) {
+                result += bucketTotals[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the airtime used in the window by the protocol.
+     */
+    synchronized long getUsedMillis(Protocol protocol, long nowMillis) {
+        final long current = nowMillis / BUCKET_MILLIS;
+        final long[] buckets = bucketsPerProtocol.get(protocol);
+        long result = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (current - bucketNumbers[i] < BUCKET_COUNT) {
+                result += buckets[i];
+            }
+        }
+        return result;
+    }
+
+    long getRemainingMillis(long nowMillis) {
+        return Math.max(0, budgetMillis - getUsedMillis(nowMillis));
+    }
+
+    /**
+     * @param airtimeMillis the airtime to send.
+     * @param reserveMillis the airtime that must remain after the send.
+     * @return the ms to wait until the airtime is available or 0 if it can be
+     * sent now.
+     */
+    synchronized long millisUntilAvailable(long airtimeMillis, long reserveMillis, long nowMillis) {
+        final long needed = airtimeMillis + reserveMillis;
+        if (needed > budgetMillis) {
+            //Will never fit, don't block forever
+            return 0;
+        }
+        long used = getUsedMillis(nowMillis);
+        if (used + needed <= budgetMillis) {
+            return 0;
+        }
+        //Release the oldest buckets until it fits
+        final long current = nowMillis / BUCKET_MILLIS;
+        for (long bucketNumber = current - BUCKET_COUNT + 1; bucketNumber <= current; bucketNumber++) {
+            final int slot = slot(bucketNumber, false);
+            if (slot >= 0) {
+                used -= bucketTotals[slot];
+            }
+            if (used + needed <= budgetMillis) {
+                return (bucketNumber + BUCKET_COUNT) * BUCKET_MILLIS - nowMillis;
+            }
+        }
+        return (current + BUCKET_COUNT) * BUCKET_MILLIS - nowMillis;
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import java.util.concurrent.TimeUnit;
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.types.State;
+
+/**
+ * Publish a state only if it changed or the last publish of the channel is
+ * older than the republish interval. Many devices repeat the same values for
+ * hours (valve positions, sync messages), each of them would be an event on
+ * the openHAB bus and a write to the persistence.
+ *
+ * Uses the indices of the {@link ChannelUIDTable}, so no allocation is
+ * needed to check a state.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class ChannelStateFilter<E extends Enum<E> & ChannelUIDTable.ChannelId> {
+
+    /**
+     * The name of the thing configuration parameter in minutes.
+     */
+    static final String PUBLISH_INTERVAL_PARAM = "publishInterval";
+    static final long DEFAULT_PUBLISH_INTERVAL_MINUTES = 60;
+
+    private final ChannelUIDTable<E> channelUIDs;
+    private final long republishNanos;
+    private final State[] lastStates;
+    private final long[] lastPublishNanos;
+    private volatile long suppressedCount;
+
+    /**
+     * @param channelUIDs the table of the channels.
+     * @param republishMinutes publish an unchanged state at least after this
+     * minutes, 0 publishes every state.
+     */
+    ChannelStateFilter(ChannelUIDTable<E> channelUIDs, long republishMinutes) {
+        this.channelUIDs = channelUIDs;
+        this.republishNanos = TimeUnit.MINUTES.toNanos(republishMinutes);
+        lastStates = new State[channelUIDs.size()];
+        lastPublishNanos = new long[channelUIDs.size()];
+    }
+
+    /**
+     * Read the publish interval from the thing configuration.
+     *
+     * @param value the value of the configuration parameter.
+     * @return the interval in minutes.
+     */
+    static long parsePublishInterval(Object value) {
+        if (value instanceof Number number) {
+            return Math.max(0, number.longValue());
+        } else {
+            return DEFAULT_PUBLISH_INTERVAL_MINUTES;
+        }
+    }
+
+    /**
+     * @return the ChannelUID to publish the state to or null if the state is
+     * suppressed.
+     */
+    ChannelUID filter(E channel, State state) {
+        final int index = channelUIDs.indexOf(channel);
+        return accept(index, state) ? channelUIDs.get(index) : null;
+    }
+
+    /**
+     * @return the ChannelUID of the zone channel to publish the state to or
+     * null if the state is suppressed.
+     */
+    ChannelUID filter(E channel, int zone, State state) {
+        final int index = channelUIDs.indexOf(channel, zone);
+        if (index < 0) {
+            //Not in table, no cache
+            return channelUIDs.get(channel, zone);
+        }
+        return accept(index, state) ? channelUIDs.get(index) : null;
+    }
+
+    private synchronized boolean accept(int index, State state) {
+        final long now = System.nanoTime();
+        if (republishNanos > 0 && state.equals(lastStates[index]) && now - lastPublishNanos[index] < republishNanos) {
+            suppressedCount++;
+            return false;
+        }
+        lastStates[index] = state;
+        lastPublishNanos[index] = now;
+        return true;
+    }
+
+    /**
+     * Forget the last state of the channel, i.e. if it gets linked.
+     *
+     * @param channelUID the channel, the zone channels of EvoHome included.
+     */
+    synchronized void reset(ChannelUID channelUID) {
+        final int index = channelUIDs.indexOf(channelUID);
+        if (index >= 0) {
+            lastStates[index] = null;
+        }
+    }
+
+    /**
+     * @return the number of suppressed state updates.
+     */
+    long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+}
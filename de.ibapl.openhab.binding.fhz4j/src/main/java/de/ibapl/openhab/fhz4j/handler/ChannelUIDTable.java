@@ -0,0 +1,149 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static de.ibapl.openhab.fhz4j.FHZ4JBindingConstants._XX_TEMPLATE;
+
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.thing.ThingUID;
+
+/**
+ * Immutable table of the {@link ChannelUID}s of one thing, build once at
+ * initialize so the receive path does not create a ChannelUID (or format
+ * a zone channel id) per state update.
+ *
+ * The channels are indexed by an enum of the handler. For things with zones
+ * (EvoHome) each channel has the plain id and the ids "id_00" to "id_12",
+ * see {@link de.ibapl.openhab.fhz4j.FHZ4JBindingConstants#_XX_TEMPLATE}.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class ChannelUIDTable<E extends Enum<E> & ChannelUIDTable.ChannelId> {
+
+    /**
+     * Implemented by the channel enums of the handlers.
+     */
+    interface ChannelId {
+
+        String getChannelId();
+
+    }
+
+    /**
+     * The zones 0 to 12 of EvoHome.
+     */
+    static final int EVO_HOME_ZONE_COUNT = 13;
+
+    private final ThingUID thingUID;
+    private final int zoneCount;
+    private final ChannelUID[] channelUIDs;
+
+    /**
+     * Table without zones.
+     */
+    ChannelUIDTable(ThingUID thingUID, Class<E> channels) {
+        this(thingUID, channels, 0);
+    }
+
+    /**
+     * @param thingUID the UID of the thing.
+     * @param channels the channel enum.
+     * @param zoneCount the number of zones for each channel.
+     */
+    ChannelUIDTable(ThingUID thingUID, Class<E> channels, int zoneCount) {
+        this.thingUID = thingUID;
+        this.zoneCount = zoneCount;
+        final E[] values = channels.getEnumConstants();
+        final int stride = zoneCount + 1;
+        channelUIDs = new ChannelUID[values.length * stride];
+        for (E e : values) {
+            final int index = e.ordinal() * stride;
+            channelUIDs[index] = new ChannelUID(thingUID, e.getChannelId());
+            for (int zone = 0; zone < zoneCount; zone++) {
+                channelUIDs[index + 1 + zone] = new ChannelUID(thingUID, String.format(_XX_TEMPLATE, e.getChannelId(), zone));
+            }
+        }
+    }
+
+    ThingUID getThingUID() {
+        return thingUID;
+    }
+
+    /**
+     * @return the number of ChannelUIDs in the table.
+     */
+    int size() {
+        return channelUIDs.length;
+    }
+
+    int indexOf(E channel) {
+        return channel.ordinal() * (zoneCount + 1);
+    }
+
+    /**
+     * @return the index of the zone channel or -1 if the zone is outside of
+     * the table.
+     */
+    int indexOf(E channel, int zone) {
+        if (zone < 0 || zone >= zoneCount) {
+            return -1;
+        }
+        return channel.ordinal() * (zoneCount + 1) + 1 + zone;
+    }
+
+    /**
+     * Linear search, only for the rare lookups like a channel link.
+     *
+     * @return the index of the ChannelUID or -1 if it is not in the table.
+     */
+    int indexOf(ChannelUID channelUID) {
+        for (int i = 0; i < channelUIDs.length; i++) {
+            if (channelUIDs[i].equals(channelUID)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    ChannelUID get(int index) {
+        return channelUIDs[index];
+    }
+
+    ChannelUID get(E channel) {
+        return channelUIDs[indexOf(channel)];
+    }
+
+    /**
+     * @param channel the channel.
+     * @param zone the zone.
+     * @return the ChannelUID of the zone channel, zones outside of the table
+     * are created on the fly.
+     */
+    ChannelUID get(E channel, int zone) {
+        final int index = indexOf(channel, zone);
+        if (index < 0) {
+            return new ChannelUID(thingUID, String.format(_XX_TEMPLATE, channel.getChannelId(), zone));
+        }
+        return channelUIDs[index];
+    }
+
+}
@@ -0,0 +1,335 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import de.ibapl.fhz4j.protocol.evohome.DeviceId;
+import de.ibapl.fhz4j.protocol.evohome.EvoHomeDeviceMessage;
+import de.ibapl.fhz4j.protocol.evohome.ZoneTemperature;
+import de.ibapl.fhz4j.protocol.fht.FhtProperty;
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openhab.core.scheduler.CronScheduler;
+import org.openhab.core.thing.Bridge;
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.thing.Thing;
+import org.openhab.core.thing.ThingStatus;
+import org.openhab.core.thing.ThingStatusDetail;
+import org.openhab.core.thing.binding.BaseBridgeHandler;
+import org.openhab.core.thing.binding.ThingHandler;
+import org.openhab.core.types.Command;
+
+/**
+ * Virtual bridge over several CULs ({@link SpswBridgeHandler}s as child
+ * bridges), so a building can be covered by more than one CUL with a single
+ * thing per device.
+ *
+ * A frame received by more than one CUL within the deduplication window is
+ * dispatched only once to the things. Commands to a FHT or EvoHome device are
+ * sent by the connected CUL with the best averaged signal strength of that
+ * device.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class CulAggregatorHandler extends BaseBridgeHandler implements CulBridge {
+
+    private static final Logger LOGGER = Logger.getLogger("d.i.o.f.h.CulAggregatorHandler");
+
+    private static final String DEDUPLICATION_WINDOW_PARAM = "deduplicationWindow";
+    private static final long DEFAULT_DEDUPLICATION_WINDOW_MILLIS = 1_000;
+    /**
+     * Even a burst of all devices after a restart fits into one window.
+     */
+    private static final int DEDUPLICATION_CAPACITY = 256;
+    /**
+     * A CUL that has not heard the device within the last hour is not used to
+     * send to it.
+     */
+    private static final long ROUTE_MAX_AGE_NANOS = TimeUnit.HOURS.toNanos(1);
+    private static final long STATUS_INTERVAL_SECONDS = 30;
+
+    private final CopyOnWriteArrayList<SpswBridgeHandler> members = new CopyOnWriteArrayList<>();
+    private final CulDeviceRouter deviceRouter = new CulDeviceRouter();
+    /**
+     * The dispatcher threads of all members dispatch through the aggregator,
+     * the lock keeps the things updated by one thread at a time.
+     */
+    private final Object dispatchLock = new Object();
+    private FrameDeduplicator deduplicator = new FrameDeduplicator(TimeUnit.MILLISECONDS.toNanos(DEFAULT_DEDUPLICATION_WINDOW_MILLIS), DEDUPLICATION_CAPACITY);
+    private ScheduledFuture<?> statusJob;
+    private final FhtMaintenanceScheduler fhtMaintenance;
+
+    public CulAggregatorHandler(Bridge bridge, CronScheduler cronScheduler) {
+        super(bridge);
+        fhtMaintenance = new FhtMaintenanceScheduler(bridge.getUID().toString(), cronScheduler, scheduler, new FhtMaintenanceScheduler.Operations() {
+            @Override
+            public CompletableFuture<Void> setClock(short housecode, LocalDateTime localDateTime) {
+                return CulAggregatorHandler.this.setClock(housecode, localDateTime);
+            }
+
+            @Override
+            public CompletableFuture<Void> initFhtReporting(short housecode) {
+                return CulAggregatorHandler.this.initFhtReporting(housecode);
+            }
+
+            @Override
+            public int getRemainingFhtBufferSize(short housecode) {
+                //The buffer of the CUL the commands will be sent by
+                final SpswBridgeHandler member = selectMember(CulFrameType.FHT, housecode, System.nanoTime());
+                return member == null ? -1 : member.getRemainingFhtBufferSize();
+            }
+        });
+    }
+
+    @Override
+    public void initialize() {
+        final Object window = getThing().getConfiguration().get(DEDUPLICATION_WINDOW_PARAM);
+        final long windowMillis = window instanceof Number n && n.longValue() > 0 ? n.longValue() : DEFAULT_DEDUPLICATION_WINDOW_MILLIS;
+        synchronized (dispatchLock) {
+            deduplicator = new FrameDeduplicator(TimeUnit.MILLISECONDS.toNanos(windowMillis), DEDUPLICATION_CAPACITY);
+        }
+        fhtMaintenance.setWindow(FhtMaintenanceScheduler.parseWindow(getThing().getConfiguration().get(FhtMaintenanceScheduler.WINDOW_PARAM)));
+        fhtMaintenance.start();
+        statusJob = scheduler.scheduleWithFixedDelay(this::updateMemberStatus, STATUS_INTERVAL_SECONDS, STATUS_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        updateStatus(ThingStatus.ONLINE);
+    }
+
+    @Override
+    public void dispose() {
+        if (statusJob != null) {
+            statusJob.cancel(false);
+            statusJob = null;
+        }
+        fhtMaintenance.stop();
+        for (SpswBridgeHandler member : members) {
+            member.setAggregator(null);
+        }
+        members.clear();
+        deviceRouter.clear();
+    }
+
+    @Override
+    public void handleCommand(ChannelUID channelUID, Command command) {
+        //no-op
+    }
+
+    @Override
+    public void childHandlerInitialized(ThingHandler childHandler, Thing childThing) {
+        super.childHandlerInitialized(childHandler, childThing);
+        if (childHandler instanceof SpswBridgeHandler member) {
+            members.addIfAbsent(member);
+            member.setAggregator(this);
+            LOGGER.log(Level.INFO, "Added CUL {0} to {1}", new Object[]{childThing.getUID(), getThing().getUID()});
+        } else {
+            deviceRouter.add(childHandler);
+        }
+    }
+
+    @Override
+    public void childHandlerDisposed(ThingHandler childHandler, Thing childThing) {
+        super.childHandlerDisposed(childHandler, childThing);
+        if (childHandler instanceof SpswBridgeHandler member) {
+            members.remove(member);
+            member.setAggregator(null);
+        } else {
+            deviceRouter.remove(childHandler);
+        }
+    }
+
+    private void updateMemberStatus() {
+        if (members.isEmpty() || members.stream().anyMatch(m -> m.getThing().getStatus() == ThingStatus.ONLINE)) {
+            updateStatus(ThingStatus.ONLINE);
+        } else {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, "No CUL is online");
+        }
+    }
+
+    /**
+     * Called by the dispatcher thread of a member for each device frame.
+     *
+     * @param member the CUL that received the frame.
+     * @param type the type of the frame.
+     * @param address the address of the sending device.
+     * @param message the parsed frame.
+     * @param signalStrength the averaged signal strength the member receives
+     * the device with.
+     * @param receivedNanos the {@link System#nanoTime()} the member received
+     * the frame.
+     * @return false if there is no thing for the device.
+     */
+    boolean frameReceived(SpswBridgeHandler member, CulFrameType type, int address, Object message, float signalStrength, long receivedNanos) {
+        final long fingerprint = FrameDeduplicator.fingerprint(type, message);
+        synchronized (dispatchLock) {
+            //The time the frame was received, not the time the lock was taken
+            if (deduplicator.isDuplicate(fingerprint, receivedNanos)) {
+                return true;
+            }
+            final long now = System.nanoTime();
+            final SpswBridgeHandler best = selectMember(type, address, now);
+            //publish the best signal strength of all members, the first member to deliver a frame is just the fastest
+            final float bestSignalStrength = best == null || best == member ? signalStrength
+                    : best.getAverageSignalStrength(type, address, now - ROUTE_MAX_AGE_NANOS);
+            return deviceRouter.route(type, message, Float.isNaN(bestSignalStrength) ? signalStrength : bestSignalStrength);
+        }
+    }
+
+    /**
+     * @return the connected member with the best averaged signal strength of
+     * the device, any connected member if none heard it recently or null if no
+     * member is connected.
+     */
+    private SpswBridgeHandler selectMember(CulFrameType type, int address, long nowNanos) {
+        final long notBefore = nowNanos - ROUTE_MAX_AGE_NANOS;
+        SpswBridgeHandler best = null;
+        float bestSignalStrength = Float.NEGATIVE_INFINITY;
+        SpswBridgeHandler connected = null;
+        for (SpswBridgeHandler member : members) {
+            if (member.getConnectionState() != SpswBridgeHandler.ConnectionState.CONNECTED) {
+                continue;
+            }
+            if (connected == null) {
+                connected = member;
+            }
+            final float signalStrength = member.getAverageSignalStrength(type, address, notBefore);
+            if (signalStrength > bestSignalStrength) {
+                //NaN is never greater
+                best = member;
+                bestSignalStrength = signalStrength;
+            }
+        }
+        return best != null ? best : connected;
+    }
+
+    private CompletableFuture<Void> send(CulFrameType type, int address, Function<SpswBridgeHandler, CompletableFuture<Void>> send) {
+        final SpswBridgeHandler member = selectMember(type, address, System.nanoTime());
+        if (member == null) {
+            return CompletableFuture.failedFuture(new IOException("No CUL of " + getThing().getUID() + " is connected"));
+        }
+        return send.apply(member);
+    }
+
+    @Override
+    public CompletableFuture<Void> sendFhtModeAutoMessage(short housecode) {
+        return send(CulFrameType.FHT, housecode, (m) -> m.sendFhtModeAutoMessage(housecode));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendFhtModeManuMessage(short housecode) {
+        return send(CulFrameType.FHT, housecode, (m) -> m.sendFhtModeManuMessage(housecode));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendFhtMessage(short housecode, FhtProperty fhtProperty, float value) {
+        return send(CulFrameType.FHT, housecode, (m) -> m.sendFhtMessage(housecode, fhtProperty, value));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendFhtMessage(short housecode, DayOfWeek dayOfWeek, LocalTime from1, LocalTime to1, LocalTime from2,
+            LocalTime to2) {
+        return send(CulFrameType.FHT, housecode, (m) -> m.sendFhtMessage(housecode, dayOfWeek, from1, to1, from2, to2));
+    }
+
+    @Override
+    public Map<DayOfWeek, CompletableFuture<Void>> sendFhtWeekProgram(short housecode, FhtWeekProgram program, Set<DayOfWeek> days) {
+        final SpswBridgeHandler member = selectMember(CulFrameType.FHT, housecode, System.nanoTime());
+        if (member == null) {
+            final Map<DayOfWeek, CompletableFuture<Void>> result = new EnumMap<>(DayOfWeek.class);
+            for (DayOfWeek day : days) {
+                result.put(day, CompletableFuture.failedFuture(new IOException("No CUL of " + getThing().getUID() + " is connected")));
+            }
+            return result;
+        }
+        //All days through the same CUL
+        return member.sendFhtWeekProgram(housecode, program, days);
+    }
+
+    @Override
+    public CompletableFuture<Void> sendFhtPartyMessage(short housecode, float temp, LocalDateTime to) {
+        return send(CulFrameType.FHT, housecode, (m) -> m.sendFhtPartyMessage(housecode, temp, to));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendFhtHolidayMessage(short housecode, float temp, LocalDate to) {
+        return send(CulFrameType.FHT, housecode, (m) -> m.sendFhtHolidayMessage(housecode, temp, to));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendEvoHomeZoneSetpointPermanent(DeviceId deviceId, ZoneTemperature temperature) {
+        return send(CulFrameType.EVO_HOME, deviceId.id, (m) -> m.sendEvoHomeZoneSetpointPermanent(deviceId, temperature));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendEvoHomeZoneSetpointUntil(DeviceId deviceId, ZoneTemperature temperature, LocalDateTime localDateTime) {
+        return send(CulFrameType.EVO_HOME, deviceId.id, (m) -> m.sendEvoHomeZoneSetpointUntil(deviceId, temperature, localDateTime));
+    }
+
+    @Override
+    public CompletableFuture<Void> initFhtReporting(short housecode) {
+        return send(CulFrameType.FHT, housecode, (m) -> m.initFhtReporting(housecode));
+    }
+
+    @Override
+    public CompletableFuture<Void> setClock(short housecode, LocalDateTime localDateTime) {
+        return send(CulFrameType.FHT, housecode, (m) -> m.setClock(housecode, localDateTime));
+    }
+
+    @Override
+    public void registerFhtMaintenance(short housecode, String cronPattern) {
+        fhtMaintenance.register(housecode, cronPattern);
+    }
+
+    @Override
+    public void unregisterFhtMaintenance(short housecode) {
+        fhtMaintenance.unregister(housecode);
+    }
+
+    @Override
+    public void captureEvoHomeMsg(EvoHomeDeviceMessage msg) {
+        final SpswBridgeHandler member = selectMember(CulFrameType.EVO_HOME, msg.deviceId1.id, System.nanoTime());
+        if (member != null) {
+            member.captureEvoHomeMsg(msg);
+        }
+    }
+
+    /**
+     * @return the number of frames not dispatched, because an other CUL
+     * received them first.
+     */
+    public long getDuplicateFrames() {
+        synchronized (dispatchLock) {
+            return deduplicator.getDuplicateCount();
+        }
+    }
+
+}
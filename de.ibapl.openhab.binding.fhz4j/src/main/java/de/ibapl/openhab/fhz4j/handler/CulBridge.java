@@ -0,0 +1,92 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import de.ibapl.fhz4j.protocol.evohome.DeviceId;
+import de.ibapl.fhz4j.protocol.evohome.EvoHomeDeviceMessage;
+import de.ibapl.fhz4j.protocol.evohome.ZoneTemperature;
+import de.ibapl.fhz4j.protocol.fht.FhtProperty;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The bridge of the device things, either a single CUL
+ * ({@link SpswBridgeHandler}) or several CULs aggregated by a
+ * {@link CulAggregatorHandler}.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public interface CulBridge {
+
+    CompletableFuture<Void> sendFhtModeAutoMessage(short housecode);
+
+    CompletableFuture<Void> sendFhtModeManuMessage(short housecode);
+
+    CompletableFuture<Void> sendFhtMessage(short housecode, FhtProperty fhtProperty, float value);
+
+    CompletableFuture<Void> sendFhtMessage(short housecode, DayOfWeek dayOfWeek, LocalTime from1, LocalTime to1, LocalTime from2,
+            LocalTime to2);
+
+    /**
+     * Send the given days of the week program, each day as a command of its
+     * own, so they fit into the FHT buffer of the CUL.
+     *
+     * @param days the days to send, usually the ones that differ from the
+     * reported program.
+     * @return the futures completed when the day is written to the CUL.
+     */
+    Map<DayOfWeek, CompletableFuture<Void>> sendFhtWeekProgram(short housecode, FhtWeekProgram program, Set<DayOfWeek> days);
+
+    CompletableFuture<Void> sendFhtPartyMessage(short housecode, float temp, LocalDateTime to);
+
+    CompletableFuture<Void> sendFhtHolidayMessage(short housecode, float temp, LocalDate to);
+
+    CompletableFuture<Void> sendEvoHomeZoneSetpointPermanent(DeviceId deviceId, ZoneTemperature temperature);
+
+    CompletableFuture<Void> sendEvoHomeZoneSetpointUntil(DeviceId deviceId, ZoneTemperature temperature, LocalDateTime localDateTime);
+
+    CompletableFuture<Void> initFhtReporting(short housecode);
+
+    CompletableFuture<Void> setClock(short housecode, LocalDateTime localDateTime);
+
+    /**
+     * Set the clock and trigger the reporting of the FHT80b at the cron
+     * pattern. The bridge spreads the devices with the same pattern over its
+     * maintenance window.
+     *
+     * @throws IllegalArgumentException if the cron pattern is invalid.
+     */
+    void registerFhtMaintenance(short housecode, String cronPattern);
+
+    void unregisterFhtMaintenance(short housecode);
+
+    /**
+     * Capture a diagnostic EvoHome message, does not block.
+     */
+    void captureEvoHomeMsg(EvoHomeDeviceMessage msg);
+
+}
@@ -0,0 +1,231 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import de.ibapl.fhz4j.api.Response;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects the state of the CUL (slow rf settings, FHT out buffer) off the
+ * send path. A sample is started on the scheduler at a fixed rate and/or when
+ * the CUL reports a LOVF or EOB. The last result is kept as
+ * {@link CulDebugInfoSnapshot}.
+ *
+ * All requests of a sample are queued as one
+ * {@link CulTransmitQueue.Priority#DIAGNOSTIC} command, so they never delay an
+ * interactive command. The sample completes asynchronously, no scheduler
+ * thread waits for the queue or the CUL.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class CulDebugInfoSampler {
+
+    private static final Logger LOGGER = Logger.getLogger("d.i.o.f.h.CulDebugInfoSampler");
+
+    /**
+     * A LOVF is reported for every rejected send, so do not flood the CUL
+     * with requests.
+     */
+    private static final long MIN_TRIGGER_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+    static final long RESPONSE_TIMEOUT_MILLIS = 1000;
+    /**
+     * The diagnostic requests wait behind all other commands, they are
+     * promoted by aging within 2 * {@link CulTransmitQueue#AGING_STEP_NANOS}.
+     */
+    static final long QUEUE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(2);
+
+    @FunctionalInterface
+    interface StatusRequester {
+
+        /**
+         * @return the future completed with the pending responses by name when
+         * the requests are written to the CUL.
+         */
+        CompletableFuture<Map<String, Future<Response>>> requestCulStatus();
+
+    }
+
+    private final StatusRequester statusRequester;
+    private final ScheduledExecutorService scheduler;
+    private final long queueTimeoutMillis;
+    private final long responseTimeoutMillis;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean started;
+    private ScheduledFuture<?> periodicJob;
+    private volatile long lastTriggerNanos;
+    private volatile CulDebugInfoSnapshot snapshot;
+
+    CulDebugInfoSampler(StatusRequester statusRequester, ScheduledExecutorService scheduler) {
+        this(statusRequester, scheduler, QUEUE_TIMEOUT_MILLIS, RESPONSE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param queueTimeoutMillis the time the requests may wait in the
+     * transmit queue.
+     * @param responseTimeoutMillis the time the CUL has to answer after the
+     * requests are written.
+     */
+    CulDebugInfoSampler(StatusRequester statusRequester, ScheduledExecutorService scheduler, long queueTimeoutMillis,
+            long responseTimeoutMillis) {
+        this.statusRequester = statusRequester;
+        this.scheduler = scheduler;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.responseTimeoutMillis = responseTimeoutMillis;
+    }
+
+    /**
+     * @param intervalSeconds the rate of the periodic sample or 0 to sample
+     * only on LOVF and EOB.
+     */
+    synchronized void start(long intervalSeconds) {
+        stop();
+        started = true;
+        if (intervalSeconds > 0) {
+            periodicJob = scheduler.scheduleWithFixedDelay(() -> sample("interval"), intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    synchronized void stop() {
+        started = false;
+        if (periodicJob != null) {
+            periodicJob.cancel(false);
+            periodicJob = null;
+        }
+    }
+
+    /**
+     * Request a sample from the receive path. Returns immediately, triggers
+     * within {@link #MIN_TRIGGER_INTERVAL_NANOS} of the last one and triggers
+     * while the sampler is stopped are ignored.
+     *
+     * @param reason the reason stored in the snapshot.
+     */
+    void trigger(String reason) {
+        if (!started) {
+            return;
+        }
+        final long now = System.nanoTime();
+        if (lastTriggerNanos != 0 && now - lastTriggerNanos < MIN_TRIGGER_INTERVAL_NANOS) {
+            return;
+        }
+        lastTriggerNanos = now;
+        scheduler.execute(() -> sample(reason));
+    }
+
+    CulDebugInfoSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Start a sample, if none is running.
+     *
+     * @return the future completed with the snapshot.
+     */
+    CompletableFuture<CulDebugInfoSnapshot> sample(String reason) {
+        if (!started || !running.compareAndSet(false, true)) {
+            //Stopped or there is already one running
+            return CompletableFuture.completedFuture(snapshot);
+        }
+        final CompletableFuture<CulDebugInfoSnapshot> result;
+        try {
+            result = statusRequester.requestCulStatus()
+                    .orTimeout(queueTimeoutMillis, TimeUnit.MILLISECONDS)
+                    .thenCompose(this::collect)
+                    .thenApply((values) -> new CulDebugInfoSnapshot(Instant.now(), reason, values));
+        } catch (RuntimeException e) {
+            running.set(false);
+            LOGGER.log(Level.WARNING, "Can't gather CUL debug infos", e);
+            return CompletableFuture.failedFuture(e);
+        }
+        return result.whenComplete((s, t) -> {
+            running.set(false);
+            if (t != null) {
+                LOGGER.log(Level.WARNING, "Can't gather CUL debug infos", t);
+            } else {
+                snapshot = s;
+                LOGGER.log(Level.FINE, "{0}", s);
+            }
+        });
+    }
+
+    /**
+     * @return the future completed with the responses, when all arrived.
+     */
+    private CompletableFuture<Map<String, String>> collect(Map<String, Future<Response>> responses) {
+        final Map<String, CompletableFuture<String>> values = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<Response>> e : responses.entrySet()) {
+            values.put(e.getKey(), toCompletable(e.getValue()));
+        }
+        return CompletableFuture.allOf(values.values().toArray(CompletableFuture[]::new)).thenApply((v) -> {
+            final Map<String, String> result = new LinkedHashMap<>();
+            values.forEach((name, value) -> result.put(name, value.join()));
+            return result;
+        });
+    }
+
+    /**
+     * @return the future completed with the response or failed after the
+     * response timeout. A response that is no CompletableFuture is checked
+     * once after the response timeout, without blocking.
+     */
+    private CompletableFuture<String> toCompletable(Future<Response> response) {
+        if (response instanceof CompletableFuture<Response> cf) {
+            return cf.thenApply(String::valueOf).orTimeout(responseTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        if (response.isDone()) {
+            return CompletableFuture.completedFuture(response).thenApply(CulDebugInfoSampler::valueOf);
+        }
+        return CompletableFuture.supplyAsync(() -> valueOf(response),
+                CompletableFuture.delayedExecutor(responseTimeoutMillis, TimeUnit.MILLISECONDS, scheduler));
+    }
+
+    /**
+     * @param response a response, that must be done.
+     */
+    private static String valueOf(Future<Response> response) {
+        if (!response.isDone()) {
+            throw new CompletionException(new TimeoutException("No response from CUL"));
+        }
+        try {
+            return String.valueOf(response.get());
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable result of one run of the {@link CulDebugInfoSampler}.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public final class CulDebugInfoSnapshot {
+
+    private final Instant timestamp;
+    private final String trigger;
+    private final Map<String, String> values;
+
+    CulDebugInfoSnapshot(Instant timestamp, String trigger, Map<String, String> values) {
+        this.timestamp = timestamp;
+        this.trigger = trigger;
+        this.values = Collections.unmodifiableMap(new LinkedHashMap<>(values));
+    }
+
+    /**
+     * @return when the sample was finished.
+     */
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return why the sample was taken, i.e. "interval", "LOVF" or "EOB".
+     */
+    public String getTrigger() {
+        return trigger;
+    }
+
+    /**
+     * @return the responses of the CUL by name of the request in the order
+     * they where requested.
+     */
+    public Map<String, String> getValues() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("CUL debug infos at ").append(timestamp).append(" (").append(trigger).append(")");
+        for (Map.Entry<String, String> e : values.entrySet()) {
+            sb.append("\n\t").append(e.getKey()).append(": ").append(e.getValue());
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import de.ibapl.fhz4j.protocol.em.EmMessage;
+import de.ibapl.fhz4j.protocol.evohome.EvoHomeDeviceMessage;
+import de.ibapl.fhz4j.protocol.fht.Fht80TfMessage;
+import de.ibapl.fhz4j.protocol.fht.Fht8bMessage;
+import de.ibapl.fhz4j.protocol.fht.FhtMessage;
+import de.ibapl.fhz4j.protocol.hms.HmsMessage;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openhab.core.thing.binding.ThingHandler;
+
+/**
+ * Routes the received device frames to the handlers of the device things of
+ * one bridge ({@link SpswBridgeHandler} or {@link CulAggregatorHandler}).
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class CulDeviceRouter {
+
+    private static final Logger LOGGER = Logger.getLogger("d.i.o.f.h.CulDeviceRouter");
+
+    /*
+     * The handler tables are read by the dispatcher thread and written by openHAB threads,
+     * so they are copy-on-write and keyed by the primitive address.
+     */
+    private final DeviceHandlerTable<RadiatorFht80bHandler> fhtThingHandler = new DeviceHandlerTable<>();
+    private final DeviceHandlerTable<Fht80TfHandler> fht80TfThingHandler = new DeviceHandlerTable<>();
+    private final DeviceHandlerTable<EvoHomeHandler> evoHomeThingHandler = new DeviceHandlerTable<>();
+    private final DeviceHandlerTable<Hms100TfHandler> hmsThingHandler = new DeviceHandlerTable<>();
+    private final DeviceHandlerTable<Em1000EmHandler> emThingHandler = new DeviceHandlerTable<>();
+
+    void add(ThingHandler childHandler) {
+        if (childHandler instanceof RadiatorFht80bHandler rfh) {
+            fhtThingHandler.put(rfh.getHousecode(), rfh);
+            LOGGER.log(Level.INFO, "Added FHT 80B {0}", rfh.getHousecode());
+        } else if (childHandler instanceof Fht80TfHandler fth) {
+            fht80TfThingHandler.put(fth.getAddress(), fth);
+            LOGGER.log(Level.INFO, "Added FHT80 TF {0}", fth.getAddress());
+        } else if (childHandler instanceof EvoHomeHandler ehh) {
+            evoHomeThingHandler.put(ehh.getDeviceId(), ehh);
+            LOGGER.log(Level.INFO, "Added Evo Home device {0}", ehh.getDeviceId());
+        } else if (childHandler instanceof Em1000EmHandler emh) {
+            emThingHandler.put(emh.getAddress(), emh);
+            LOGGER.log(Level.INFO, "Added EM 1000 EM {0}", emh.getAddress());
+        } else if (childHandler instanceof Hms100TfHandler hmsh) {
+            hmsThingHandler.put(hmsh.getHousecode(), hmsh);
+            LOGGER.log(Level.INFO, "Added HMS 100 TF {0}", hmsh.getHousecode());
+        } else {
+            // TODO
+        }
+    }
+
+    void remove(ThingHandler childHandler) {
+        if (childHandler instanceof RadiatorFht80bHandler rfh) {
+            fhtThingHandler.remove(rfh.getHousecode(), rfh);
+        } else if (childHandler instanceof Fht80TfHandler fth) {
+            fht80TfThingHandler.remove(fth.getAddress(), fth);
+        } else if (childHandler instanceof EvoHomeHandler ehh) {
+            evoHomeThingHandler.remove(ehh.getDeviceId(), ehh);
+        } else if (childHandler instanceof Em1000EmHandler emh) {
+            emThingHandler.remove(emh.getAddress(), emh);
+        } else if (childHandler instanceof Hms100TfHandler hmsh) {
+            hmsThingHandler.remove(hmsh.getHousecode(), hmsh);
+        } else {
+            // TODO
+        }
+    }
+
+    /**
+     * The CUL receives the frames it sends to the FHT80b too, their signal
+     * strength is not the one of the device.
+     *
+     * @return true if the FHT80b sent the frame itself.
+     */
+    static boolean isSentByDevice(FhtMessage fhtMsg) {
+        return !(fhtMsg instanceof Fht8bMessage msg) || msg.fromFht_8B;
+    }
+
+    void clear() {
+        fhtThingHandler.clear();
+        fht80TfThingHandler.clear();
+        emThingHandler.clear();
+        hmsThingHandler.clear();
+        evoHomeThingHandler.clear();
+    }
+
+    /**
+     * Update the thing of the device that sent the frame.
+     *
+     * @param type the type of the frame, one of EM, FHT, FHT80_TF, HMS or
+     * EVO_HOME.
+     * @param message the parsed frame.
+     * @param signalStrength the averaged signal strength of the device or NaN.
+     * @return false if there is no thing for the device.
+     */
+    boolean route(CulFrameType type, Object message, float signalStrength) {
+        switch (type) {
+            case EM -> {
+                final EmMessage emMsg = (EmMessage) message;
+                final Em1000EmHandler emh = emThingHandler.get(emMsg.address);
+                if (emh == null) {
+                    return false;
+                }
+                emh.updateFromMsg(emMsg);
+                emh.updateSignalStrength(signalStrength);
+            }
+            case FHT -> {
+                final FhtMessage fhtMsg = (FhtMessage) message;
+                final RadiatorFht80bHandler rfh = fhtThingHandler.get(fhtMsg.housecode);
+                if (rfh == null) {
+                    return false;
+                }
+                if (isSentByDevice(fhtMsg)) {
+                    rfh.updateFromFhtMsg(fhtMsg);
+                    rfh.updateSignalStrength(signalStrength);
+                } else {
+                    //no-op Its a message to the Fht8b, not from
+                }
+            }
+            case FHT80_TF -> {
+                final Fht80TfMessage fht80TfMsg = (Fht80TfMessage) message;
+                final Fht80TfHandler fht80TfHandler = fht80TfThingHandler.get(fht80TfMsg.address);
+                if (fht80TfHandler == null) {
+                    return false;
+                }
+                fht80TfHandler.updateFromFht80TfMsg(fht80TfMsg);
+            }
+            case HMS -> {
+                final HmsMessage hmsMsg = (HmsMessage) message;
+                final Hms100TfHandler hmsh = hmsThingHandler.get(hmsMsg.housecode);
+                if (hmsh == null) {
+                    return false;
+                }
+                hmsh.updateFromMsg(hmsMsg);
+                hmsh.updateSignalStrength(signalStrength);
+            }
+            case EVO_HOME -> {
+                final EvoHomeDeviceMessage edm = (EvoHomeDeviceMessage) message;
+                final EvoHomeHandler reh = evoHomeThingHandler.get(edm.deviceId1.id);
+                if (reh == null) {
+                    return false;
+                }
+                reh.updateFromMsg(edm);
+                reh.updateSignalStrength(signalStrength);
+            }
+            default ->
+                throw new IllegalArgumentException("Not a device frame: " + type);
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import de.ibapl.fhz4j.api.Protocol;
+import de.ibapl.fhz4j.protocol.em.EmMessage;
+import de.ibapl.fhz4j.protocol.evohome.EvoHomeDeviceMessage;
+import de.ibapl.fhz4j.protocol.fht.Fht80TfMessage;
+import de.ibapl.fhz4j.protocol.fht.FhtMessage;
+import de.ibapl.fhz4j.protocol.hms.HmsMessage;
+
+/**
+ * A live tap on the frames received by one CUL, used by the console monitor.
+ *
+ * The bridge hands every received frame to all attached monitors on the
+ * receive thread. The filter is applied there and only matching frames are
+ * copied to the ring buffer of the monitor, formatting is left to the thread
+ * that drains the monitor. If the monitor is not drained fast enough frames
+ * are dropped, the receive thread never blocks.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public final class CulFrameMonitor {
+
+    @FunctionalInterface
+    public interface FrameConsumer {
+
+        void onFrame(CulFrameType type, Object message, float signalStrength, long receivedNanos);
+
+    }
+
+    /**
+     * Match any address.
+     */
+    public static final int ANY_ADDRESS = -1;
+
+    private static final int BUFFER_SIZE = 256;
+
+    private final Protocol protocol;
+    private final int address;
+    private final CulReceiveRingBuffer buffer = new CulReceiveRingBuffer(BUFFER_SIZE);
+    private volatile boolean closed;
+
+    /**
+     * @param protocol only frames of this protocol or null for all frames.
+     * @param address only frames of the device with this address or
+     * {@link #ANY_ADDRESS}.
+     */
+    public CulFrameMonitor(Protocol protocol, int address) {
+        this.protocol = protocol;
+        this.address = address;
+    }
+
+    /**
+     * The address the frame is dispatched with, that is the housecode for FHT
+     * and HMS and the device id for EvoHome.
+     *
+     * @return the address of the sending device or {@link #ANY_ADDRESS} if
+     * the frame has none.
+     */
+    static int addressOf(CulFrameType type, Object message) {
+        return switch (type) {
+            case EM ->
+                ((EmMessage) message).address;
+            case FHT, FHT_PARTIAL ->
+                ((FhtMessage) message).housecode;
+            case FHT80_TF ->
+                ((Fht80TfMessage) message).address;
+            case HMS ->
+                ((HmsMessage) message).housecode;
+            case EVO_HOME ->
+                message instanceof EvoHomeDeviceMessage edm ? edm.deviceId1.id : ANY_ADDRESS;
+            default ->
+                ANY_ADDRESS;
+        };
+    }
+
+    boolean accepts(CulFrameType type, Object message) {
+        if (protocol != null && type.protocol != protocol) {
+            return false;
+        }
+        return address == ANY_ADDRESS || address == addressOf(type, message);
+    }
+
+    /**
+     * Called on the receive thread, the only producer of the monitor.
+     */
+    void offer(CulFrameType type, Object message, float signalStrength, long receivedNanos) {
+        buffer.offer(type, message, signalStrength, receivedNanos);
+    }
+
+    /**
+     * Called by the bridge when the monitor was detached.
+     */
+    void close() {
+        closed = true;
+    }
+
+    /**
+     * @return true if the monitor was detached from the bridge, no more
+     * frames will arrive.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Hand at most maxFrames frames to the consumer, must always be called
+     * from the same thread.
+     *
+     * @return the number of frames handed over.
+     */
+    public int drain(FrameConsumer consumer, int maxFrames) {
+        return buffer.drain(consumer::onFrame, maxFrames);
+    }
+
+    /**
+     * Wait until a frame arrives, the timeout elapsed or the thread is
+     * interrupted.
+     */
+    public void awaitFrames(long timeoutNanos) {
+        buffer.awaitFrames(timeoutNanos);
+    }
+
+    /**
+     * @return the number of frames dropped, because the monitor was not
+     * drained fast enough.
+     */
+    public long getDroppedCount() {
+        return buffer.getDroppedCount();
+    }
+
+    @Override
+    public String toString() {
+        return "CulFrameMonitor{protocol=" + (protocol == null ? "all" : protocol)
+                + ", address=" + (address == ANY_ADDRESS ? "all" : String.format("0x%06x", address)) + "}";
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import de.ibapl.fhz4j.api.Protocol;
+
+/**
+ * The kind of a frame received from the CUL, this is the callback of the
+ * {@link de.ibapl.fhz4j.cul.CulMessageListener} that delivered it.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public enum CulFrameType {
+    EM(Protocol.EM),
+    FHT(Protocol.FHT),
+    FHT_PARTIAL(Protocol.FHT),
+    FHT80_TF(Protocol.FHT),
+    FS20(Protocol.FS20),
+    HMS(Protocol.HMS),
+    LA_CROSSE_TX(Protocol.LA_CROSSE_TX2),
+    CUL(null),
+    EVO_HOME(Protocol.EVO_HOME),
+    FAILED(null);
+
+    /**
+     * The radio protocol of the frame or null for CUL messages and failures.
+     */
+    final Protocol protocol;
+
+    private CulFrameType(Protocol protocol) {
+        this.protocol = protocol;
+    }
+
+}
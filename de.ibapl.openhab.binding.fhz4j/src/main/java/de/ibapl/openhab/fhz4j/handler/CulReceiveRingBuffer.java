@@ -0,0 +1,200 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Preallocated single producer single consumer ring buffer between the CUL
+ * receive thread and the thread that updates the openHAB things.
+ *
+ * The producer is the thread of the {@link de.ibapl.fhz4j.cul.CulAdapter}
+ * that reads the serial port, it must never block on a slow consumer. If the
+ * buffer is full the frame is dropped and counted.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class CulReceiveRingBuffer {
+
+    @FunctionalInterface
+    interface FrameConsumer {
+
+        void onFrame(CulFrameType type, Object message, float signalStrength, long receivedNanos);
+
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final CulFrameType[] types;
+    private final Object[] messages;
+    private final float[] signalStrengths;
+    private final long[] receivedNanos;
+
+    /**
+     * The next slot to read, only written by the consumer.
+     */
+    private final AtomicLong head = new AtomicLong();
+    /**
+     * The next slot to write, only written by the producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * The producers last seen value of head, saves the volatile read as long
+     * as there is enough space.
+     */
+    private long cachedHead;
+
+    private volatile Thread consumerThread;
+    private volatile boolean consumerParked;
+
+    private volatile long droppedCount;
+    private volatile int highWaterMark;
+
+    /**
+     * @param minCapacity the minimum number of frames that can be buffered,
+     * will be rounded up to the next power of two.
+     */
+    CulReceiveRingBuffer(int minCapacity) {
+        if (minCapacity < 1 || minCapacity > (1 << 20)) {
+            throw new IllegalArgumentException("capacity out of range: " + minCapacity);
+        }
+        int c = 1;
+        while (c < minCapacity) {
+            c <<= 1;
+        }
+        capacity = c;
+        mask = capacity - 1;
+        types = new CulFrameType[capacity];
+        messages = new Object[capacity];
+        signalStrengths = new float[capacity];
+        receivedNanos = new long[capacity];
+    }
+
+    /**
+     * Publish a frame, must only be called from the producer thread.
+     *
+     * @return false if the buffer is full and the frame was dropped.
+     */
+    boolean offer(CulFrameType type, Object message, float signalStrength, long nanos) {
+        final long t = tail.get();
+        if (t - cachedHead >= capacity) {
+            cachedHead = head.get();
+            if (t - cachedHead >= capacity) {
+                droppedCount = droppedCount + 1;
+                return false;
+            }
+        }
+        final int i = (int) t & mask;
+        types[i] = type;
+        messages[i] = message;
+        signalStrengths[i] = signalStrength;
+        receivedNanos[i] = nanos;
+        //volatile write, so we will not miss a parked consumer below
+        tail.set(t + 1);
+        if (t + 1 - cachedHead > highWaterMark) {
+            //cachedHead may be stale, only a new maximum pays for the volatile read
+            cachedHead = head.get();
+            final int depth = (int) (t + 1 - cachedHead);
+            if (depth > highWaterMark) {
+                highWaterMark = depth;
+            }
+        }
+        if (consumerParked) {
+            LockSupport.unpark(consumerThread);
+        }
+        return true;
+    }
+
+    /**
+     * Hand at most maxFrames frames to the consumer, must only be called from
+     * the consumer thread.
+     *
+     * @return the number of frames handed over.
+     */
+    int drain(FrameConsumer consumer, int maxFrames) {
+        long h = head.get();
+        final long t = tail.get();
+        int count = 0;
+        while (h < t && count < maxFrames) {
+            final int i = (int) h & mask;
+            final CulFrameType type = types[i];
+            final Object message = messages[i];
+            //Do not keep the message alive
+            messages[i] = null;
+            try {
+                consumer.onFrame(type, message, signalStrengths[i], receivedNanos[i]);
+            } finally {
+                h++;
+                head.lazySet(h);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Park the consumer thread until a frame is published or the timeout
+     * elapsed.
+     */
+    void awaitFrames(long timeoutNanos) {
+        consumerThread = Thread.currentThread();
+        consumerParked = true;
+        try {
+            if (isEmpty()) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            }
+        } finally {
+            consumerParked = false;
+        }
+    }
+
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of frames waiting to be consumed.
+     */
+    int getDepth() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * @return the maximum depth seen so far.
+     */
+    int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * @return the number of frames dropped because the buffer was full.
+     */
+    long getDroppedCount() {
+        return droppedCount;
+    }
+
+}
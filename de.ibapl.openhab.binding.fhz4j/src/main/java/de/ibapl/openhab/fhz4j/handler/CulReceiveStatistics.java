@@ -0,0 +1,120 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import de.ibapl.fhz4j.api.Protocol;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters of the received frames per {@link Protocol} and of receive events
+ * and a histogram of the receive to dispatched latency.
+ *
+ * The counters and the histogram are written by the dispatcher thread only
+ * (lazySet, no fence). The latency is only taken if it is enabled, which is
+ * the case while a latency channel is linked.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class CulReceiveStatistics {
+
+    enum Event {
+        /**
+         * The parser failed.
+         */
+        PARSE_FAILURE,
+        /**
+         * No thing handler for the address of the frame.
+         */
+        UNKNOWN_DEVICE,
+        /**
+         * The CUL reported a FHT buffer overflow (LOVF).
+         */
+        LOVF,
+        /**
+         * The CUL reported end of buffer (EOB).
+         */
+        EOB;
+    }
+
+    private final AtomicLongArray frames = new AtomicLongArray(Protocol.values().length);
+    private final AtomicLongArray events = new AtomicLongArray(Event.values().length);
+    private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+    private volatile boolean latencyEnabled;
+    /*
+     * The snapshot of the last call to dispatchLatencySinceLastCall, guarded by this
+     */
+    private long[] lastLatencySnapshot = new long[LatencyHistogram.BUCKET_COUNT];
+
+    /**
+     * Called by the dispatcher thread only.
+     */
+    void frameReceived(Protocol protocol) {
+        final int i = protocol.ordinal();
+        frames.lazySet(i, frames.get(i) + 1);
+    }
+
+    /**
+     * Called by the dispatcher thread only.
+     */
+    void event(Event event) {
+        final int i = event.ordinal();
+        events.lazySet(i, events.get(i) + 1);
+    }
+
+    boolean isLatencyEnabled() {
+        return latencyEnabled;
+    }
+
+    void setLatencyEnabled(boolean latencyEnabled) {
+        this.latencyEnabled = latencyEnabled;
+    }
+
+    /**
+     * Called by the dispatcher thread only.
+     */
+    void recordDispatchLatency(long nanos) {
+        dispatchLatency.record(nanos);
+    }
+
+    long getFrames(Protocol protocol) {
+        return frames.get(protocol.ordinal());
+    }
+
+    long getEvents(Event event) {
+        return events.get(event.ordinal());
+    }
+
+    /**
+     * @return the bucket counts of the latencies recorded since the last
+     * call.
+     */
+    synchronized long[] dispatchLatencySinceLastCall() {
+        final long[] current = dispatchLatency.snapshot();
+        final long[] result = new long[current.length];
+        for (int i = 0; i < current.length; i++) {
+            result[i] = current[i] - lastLatencySnapshot[i];
+        }
+        lastLatencySnapshot = current;
+        return result;
+    }
+
+}
@@ -0,0 +1,591 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import de.ibapl.fhz4j.api.Protocol;
+import de.ibapl.fhz4j.cul.CulAdapter;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Queue of the commands waiting to be transmitted by the CUL.
+ *
+ * A single writer thread takes the commands in FIFO order per
+ * {@link Priority} and the classes by strict priority plus aging: a command
+ * that waits longer than the aging step competes as the next
+ * higher class, the older command goes first on a tie, so maintenance and diagnostics are not starved by a stream of
+ * interactive commands. After a promoted command the next take is strictly by
+ * priority, so an interactive command waits for at most one promoted command.
+ * A promoted command that must wait for airtime does not block the higher
+ * classes.
+ *
+ * A command for the same slot (i.e.
+ * housecode and {@link de.ibapl.fhz4j.protocol.fht.FhtProperty} or
+ * {@link java.time.DayOfWeek} of a cycle) that is not yet written replaces the
+ * pending one. The replacing command is moved to the tail of the queue so the
+ * order of the commands of one device is the order of the last writes. The
+ * caller of the replaced command gets the same future as the replacing one.
+ *
+ * Before a command is written its estimated airtime is checked against the
+ * {@link AirtimeBudget}. If the budget is exhausted the writer waits, a
+ * scheduled command waits already if it would eat up the reserve kept for
+ * interactive commands. Requests to the CUL itself take no airtime.
+ *
+ * Commands that occupy the buffer of the CUL must be admitted by the
+ * {@link BufferGate}. The gate may hold back the commands of one device, i.e.
+ * until just before its receive slot, then the later commands of other
+ * devices pass, the ones of the same device wait, so their order is kept. If
+ * the gate holds back all buffered commands (the buffer is full) only commands
+ * without buffer bytes pass.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class CulTransmitQueue {
+
+    private static final Logger LOGGER = Logger.getLogger("d.i.o.f.h.CulTransmitQueue");
+
+    enum Priority {
+        /**
+         * Triggered by a user, i.e. a command to a channel.
+         */
+        INTERACTIVE,
+        /**
+         * Triggered by the binding, i.e. clock sync or reporting.
+         */
+        SCHEDULED,
+        /**
+         * Requests to the CUL itself, i.e. the debug infos.
+         */
+        DIAGNOSTIC;
+    }
+
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    /**
+     * The waiting time after which a command competes as the next higher
+     * class.
+     */
+    static final long AGING_STEP_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    @FunctionalInterface
+    interface CulWrite {
+
+        void write(CulAdapter adapter) throws IOException;
+
+    }
+
+    @FunctionalInterface
+    interface CommandWriter {
+
+        /**
+         * Called from the writer thread for each command.
+         */
+        void execute(CulWrite write) throws IOException;
+
+    }
+
+    /**
+     * Decides whether and when a command may go into the buffer of the CUL.
+     */
+    interface BufferGate {
+
+        /**
+         * Hold back all buffered commands.
+         */
+        long HOLD_ALL = -1;
+
+        /**
+         * Called from the writer thread with the lock of the queue held, must
+         * not block.
+         *
+         * @return 0 to admit the command, the millis to hold back the
+         * commands of the device or {@link #HOLD_ALL}.
+         */
+        long millisUntilAdmitted(Object address, int bytes);
+
+        /**
+         * Called from the writer thread after the command was written.
+         */
+        void written(Object address, int bytes);
+
+    }
+
+    @FunctionalInterface
+    interface TransmitListener {
+
+        /**
+         * Called from the writer thread after a command is written.
+         */
+        void transmitted(Protocol protocol, long airtimeMillis);
+
+    }
+
+    private record Slot(Protocol protocol, Object address, Enum<?> property) {
+
+    }
+
+    private static final class PendingCommand {
+
+        CulWrite write;
+        long airtimeMillis;
+        int bufferBytes;
+        final Protocol protocol;
+        final Object address;
+        final long enqueuedNanos;
+        /**
+         * When the airtime was taken from the budget.
+         */
+        long recordedMillis;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        PendingCommand(Protocol protocol, Object address, CulWrite write, long airtimeMillis, int bufferBytes, long enqueuedNanos) {
+            this.protocol = protocol;
+            this.address = address;
+            this.write = write;
+            this.airtimeMillis = airtimeMillis;
+            this.bufferBytes = bufferBytes;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+    }
+
+    /**
+     * Check the gate again after this time, even if nobody woke us up.
+     */
+    private static final long BUFFER_RECHECK_MILLIS = 10_000;
+
+    private final CommandWriter commandWriter;
+    private final AirtimeBudget airtimeBudget;
+    private final long maintenanceReserveMillis;
+    private final long agingStepNanos;
+    private volatile TransmitListener transmitListener;
+    private volatile BufferGate bufferGate;
+    /**
+     * Guarded by this, one queue per {@link Priority}, the key is a
+     * {@link Slot} or a unique Object for commands that must not be coalesced.
+     */
+    private final LinkedHashMap<Object, PendingCommand>[] queues;
+    private boolean closed;
+    /**
+     * Guarded by this, set if the last taken command was promoted ahead of a
+     * higher class.
+     */
+    private boolean promotedLast;
+    /**
+     * Guarded by this, set by {@link #nextAdmitted} if all buffered commands
+     * are held back.
+     */
+    private boolean bufferHeld;
+    /**
+     * Guarded by this, the devices held back by {@link #nextAdmitted} and the
+     * shortest time they are held.
+     */
+    private final HashSet<Object> heldAddresses = new HashSet<>();
+    private long heldMillis;
+    private final Thread writerThread;
+
+    private volatile long submittedCount;
+    private volatile long coalescedCount;
+    private volatile long delayedCount;
+    private volatile long heldBackCount;
+    private volatile long promotedCount;
+
+    /**
+     * @param name the name of the writer thread.
+     * @param commandWriter writes to the CUL.
+     * @param airtimeBudget the budget to check and account the commands.
+     * @param maintenanceReserveMillis the airtime scheduled and diagnostic
+     * commands must leave for interactive ones.
+     */
+    CulTransmitQueue(String name, CommandWriter commandWriter, AirtimeBudget airtimeBudget, long maintenanceReserveMillis) {
+        this(name, commandWriter, airtimeBudget, maintenanceReserveMillis, AGING_STEP_NANOS);
+    }
+
+    /**
+     * @param agingStepNanos the waiting time after which a command competes
+     * as the next higher class.
+     */
+    @SuppressWarnings("unchecked")
+    CulTransmitQueue(String name, CommandWriter commandWriter, AirtimeBudget airtimeBudget, long maintenanceReserveMillis, long agingStepNanos) {
+        if (agingStepNanos <= 0) {
+            throw new IllegalArgumentException("agingStepNanos must be > 0 but was: " + agingStepNanos);
+        }
+        queues = new LinkedHashMap[PRIORITIES.length];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new LinkedHashMap<>();
+        }
+        this.commandWriter = commandWriter;
+        this.airtimeBudget = airtimeBudget;
+        this.maintenanceReserveMillis = maintenanceReserveMillis;
+        this.agingStepNanos = agingStepNanos;
+        writerThread = new Thread(this::run, name);
+        writerThread.setDaemon(true);
+    }
+
+    void setTransmitListener(TransmitListener transmitListener) {
+        this.transmitListener = transmitListener;
+    }
+
+    void setBufferGate(BufferGate bufferGate) {
+        this.bufferGate = bufferGate;
+    }
+
+    /**
+     * Wake up the writer, i.e. the buffer of the CUL has room again.
+     */
+    synchronized void wakeUp() {
+        notifyAll();
+    }
+
+    void start() {
+        writerThread.start();
+    }
+
+    /**
+     * Enqueue an interactive command that replaces any pending command for
+     * the same slot.
+     *
+     * @param protocol the protocol to send.
+     * @param address the address of the device, i.e. the housecode.
+     * @param property the slot of the device, a FhtProperty or the DayOfWeek
+     * of a cycle.
+     * @param airtimeMillis the estimated airtime.
+     * @param write the write to the CUL.
+     * @return the future completed after the write or its replacement is
+     * written.
+     */
+    CompletableFuture<Void> submit(Protocol protocol, Object address, Enum<?> property, long airtimeMillis, CulWrite write) {
+        return submit(protocol, address, property, airtimeMillis, 0, write);
+    }
+
+    /**
+     * Enqueue an interactive command, that occupies the buffer of the CUL,
+     * that replaces any pending command for the same slot.
+     *
+     * @param bufferBytes the estimated bytes in the buffer of the CUL.
+     */
+    CompletableFuture<Void> submit(Protocol protocol, Object address, Enum<?> property, long airtimeMillis, int bufferBytes, CulWrite write) {
+        return enqueue(queues[Priority.INTERACTIVE.ordinal()], new Slot(protocol, address, property), protocol, address, airtimeMillis, bufferBytes,
+                write);
+    }
+
+    /**
+     * Enqueue a command that is never coalesced.
+     *
+     * @param priority the priority.
+     * @param protocol the protocol to send or null for a request to the CUL
+     * itself.
+     * @param airtimeMillis the estimated airtime, 0 for a request to the CUL
+     * itself.
+     * @param write the write to the CUL.
+     * @return the future completed after the write.
+     */
+    CompletableFuture<Void> submit(Priority priority, Protocol protocol, long airtimeMillis, CulWrite write) {
+        return submit(priority, protocol, null, airtimeMillis, 0, write);
+    }
+
+    /**
+     * Enqueue a command, that occupies the buffer of the CUL, that is never
+     * coalesced.
+     *
+     * @param address the address of the device, i.e. the housecode.
+     * @param bufferBytes the estimated bytes in the buffer of the CUL.
+     */
+    CompletableFuture<Void> submit(Priority priority, Protocol protocol, Object address, long airtimeMillis, int bufferBytes, CulWrite write) {
+        return enqueue(queues[priority.ordinal()], new Object(), protocol, address, airtimeMillis, bufferBytes, write);
+    }
+
+    private synchronized CompletableFuture<Void> enqueue(LinkedHashMap<Object, PendingCommand> queue, Object key, Protocol protocol, Object address,
+            long airtimeMillis, int bufferBytes, CulWrite write) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IOException("CUL transmit queue is closed"));
+        }
+        submittedCount++;
+        PendingCommand cmd = queue.remove(key);
+        if (cmd != null) {
+            coalescedCount++;
+            cmd.write = write;
+            cmd.airtimeMillis = airtimeMillis;
+            cmd.bufferBytes = bufferBytes;
+        } else {
+            cmd = new PendingCommand(protocol, address, write, airtimeMillis, bufferBytes, System.nanoTime());
+        }
+        queue.put(key, cmd);
+        notifyAll();
+        return cmd.result;
+    }
+
+    private synchronized PendingCommand take() throws InterruptedException {
+        boolean delayed = false;
+        boolean heldBack = false;
+        boolean strict = promotedLast;
+        while (!closed) {
+            final BufferGate gate = bufferGate;
+            //A held back command holds back the buffered commands of the later classes too
+            bufferHeld = false;
+            heldAddresses.clear();
+            heldMillis = BUFFER_RECHECK_MILLIS;
+            final Priority[] order = strict ? PRIORITIES : agedOrder(System.nanoTime());
+            Priority priority = null;
+            Iterator<Map.Entry<Object, PendingCommand>> iter = null;
+            PendingCommand result = null;
+            for (Priority p : order) {
+                iter = queues[p.ordinal()].entrySet().iterator();
+                result = nextAdmitted(iter, gate);
+                if (result != null) {
+                    priority = p;
+                    break;
+                }
+            }
+            if (result == null) {
+                if (!bufferHeld && heldAddresses.isEmpty()) {
+                    wait();
+                } else {
+                    if (!heldBack) {
+                        heldBack = true;
+                        heldBackCount++;
+                        LOGGER.log(Level.FINE, "Hold back {0} commands, buffer full: {1}, devices: {2}",
+                                new Object[]{size(), bufferHeld, heldAddresses});
+                    }
+                    //The gate will wake us up, when the buffer has room again, a device is held for heldMillis
+                    wait(heldMillis);
+                }
+                continue;
+            }
+            final boolean promoted = isPromoted(order, priority);
+            final long now = AirtimeBudget.nowMillis();
+            final long waitMillis = result.airtimeMillis == 0 ? 0
+                    : airtimeBudget.millisUntilAvailable(result.airtimeMillis, priority == Priority.INTERACTIVE ? 0 : maintenanceReserveMillis, now);
+            if (waitMillis <= 0) {
+                iter.remove();
+                if (result.airtimeMillis > 0) {
+                    //Taken before the write so the next command sees it, given back if the write fails
+                    airtimeBudget.record(result.protocol, result.airtimeMillis, now);
+                    result.recordedMillis = now;
+                }
+                if (promoted) {
+                    promotedCount++;
+                }
+                promotedLast = promoted;
+                return result;
+            }
+            if (promoted) {
+                //Do not let the higher classes wait for the airtime of a promoted command
+                strict = true;
+                continue;
+            }
+            if (!delayed) {
+                delayed = true;
+                delayedCount++;
+                LOGGER.log(Level.INFO, "Airtime budget exhausted, delay {0} command for {1} ms", new Object[]{result.protocol, waitMillis});
+            }
+            //A new interactive command or close will wake us up
+            wait(waitMillis);
+        }
+        return null;
+    }
+
+    /**
+     * @return the classes ordered by the class of their oldest command after
+     * aging, on a tie the class with the older command first.
+     */
+    private Priority[] agedOrder(long nowNanos) {
+        final Priority[] result = PRIORITIES.clone();
+        final long[] level = new long[result.length];
+        final long[] waited = new long[result.length];
+        for (int i = 0; i < result.length; i++) {
+            level[i] = i;
+            final LinkedHashMap<Object, PendingCommand> queue = queues[i];
+            if (!queue.isEmpty()) {
+                waited[i] = nowNanos - queue.values().iterator().next().enqueuedNanos;
+                level[i] = Math.max(0, i - waited[i] / agingStepNanos);
+            }
+        }
+        //insertion sort of the few classes
+        for (int i = 1; i < result.length; i++) {
+            final Priority p = result[i];
+            int j = i - 1;
+            while (j >= 0 && (level[result[j].ordinal()] > level[p.ordinal()]
+                    || level[result[j].ordinal()] == level[p.ordinal()] && waited[result[j].ordinal()] < waited[p.ordinal()])) {
+                result[j + 1] = result[j];
+                j--;
+            }
+            result[j + 1] = p;
+        }
+        return result;
+    }
+
+    /**
+     * @return true if a higher class with pending commands comes after the
+     * priority in the order.
+     */
+    private boolean isPromoted(Priority[] order, Priority priority) {
+        boolean after = false;
+        for (Priority p : order) {
+            if (p == priority) {
+                after = true;
+            } else if (after && p.ordinal() < priority.ordinal() && !queues[p.ordinal()].isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the first command that may be written, the iterator is
+     * positioned at it, or null if there is none.
+     */
+    private PendingCommand nextAdmitted(Iterator<Map.Entry<Object, PendingCommand>> iter, BufferGate gate) {
+        while (iter.hasNext()) {
+            final PendingCommand cmd = iter.next().getValue();
+            if (cmd.bufferBytes == 0 || gate == null) {
+                return cmd;
+            }
+            if (bufferHeld || heldAddresses.contains(cmd.address)) {
+                continue;
+            }
+            final long millis = gate.millisUntilAdmitted(cmd.address, cmd.bufferBytes);
+            if (millis == 0) {
+                return cmd;
+            }
+            if (millis == BufferGate.HOLD_ALL) {
+                bufferHeld = true;
+            } else {
+                heldAddresses.add(cmd.address);
+                heldMillis = Math.min(heldMillis, millis);
+            }
+        }
+        return null;
+    }
+
+    private void run() {
+        try {
+            PendingCommand cmd;
+            while ((cmd = take()) != null) {
+                try {
+                    commandWriter.execute(cmd.write);
+                    final BufferGate gate = bufferGate;
+                    if (gate != null && cmd.bufferBytes > 0) {
+                        gate.written(cmd.address, cmd.bufferBytes);
+                    }
+                    cmd.result.complete(null);
+                } catch (IOException | RuntimeException e) {
+                    if (cmd.airtimeMillis > 0) {
+                        //Nothing was sent
+                        airtimeBudget.refund(cmd.protocol, cmd.airtimeMillis, cmd.recordedMillis);
+                    }
+                    cmd.result.completeExceptionally(e);
+                }
+                final TransmitListener tl = transmitListener;
+                if (tl != null) {
+                    try {
+                        tl.transmitted(cmd.protocol, cmd.airtimeMillis);
+                    } catch (RuntimeException e) {
+                        LOGGER.log(Level.SEVERE, "TransmitListener failed", e);
+                    }
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.log(Level.FINE, "CUL transmit queue stopped: {0}", writerThread.getName());
+    }
+
+    /**
+     * Stop the writer thread and cancel all pending commands.
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            for (LinkedHashMap<Object, PendingCommand> queue : queues) {
+                for (PendingCommand cmd : queue.values()) {
+                    cmd.result.completeExceptionally(new CancellationException("CUL transmit queue closed"));
+                }
+                queue.clear();
+            }
+            notifyAll();
+        }
+        try {
+            writerThread.join(1000);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    synchronized int size() {
+        int result = 0;
+        for (LinkedHashMap<Object, PendingCommand> queue : queues) {
+            result += queue.size();
+        }
+        return result;
+    }
+
+    synchronized int size(Priority priority) {
+        return queues[priority.ordinal()].size();
+    }
+
+    /**
+     * @return the number of submitted commands.
+     */
+    long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    /**
+     * @return the number of commands replaced by a later one before they were
+     * written.
+     */
+    long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * @return the number of commands that had to wait for airtime.
+     */
+    long getDelayedCount() {
+        return delayedCount;
+    }
+
+    /**
+     * @return the number of times the writer waited for room in the buffer
+     * of the CUL or the receive slot of a device.
+     */
+    long getHeldBackCount() {
+        return heldBackCount;
+    }
+
+    /**
+     * @return the number of commands taken ahead of a higher class by aging.
+     */
+    long getPromotedCount() {
+        return promotedCount;
+    }
+
+}
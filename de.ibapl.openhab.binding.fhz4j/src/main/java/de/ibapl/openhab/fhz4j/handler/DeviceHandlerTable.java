@@ -0,0 +1,197 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import java.util.function.Consumer;
+
+/**
+ * Routing table from a primitive device address (housecode, address or
+ * device id) to the {@link org.openhab.core.thing.binding.ThingHandler}
+ * responsible for it.
+ *
+ * The table is copy-on-write: readers like the CUL receive thread only do a
+ * volatile read of the current snapshot and probe an open addressed int array,
+ * so a lookup neither locks nor boxes the address. Writers (openHAB threads in
+ * childHandlerInitialized/childHandlerDisposed) are serialized and publish a
+ * completely new snapshot.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ * @param <T> the type of the handler.
+ */
+final class DeviceHandlerTable<T> {
+
+    private final static class Snapshot {
+
+        final int[] keys;
+        final Object[] values;
+        final int mask;
+        final int size;
+
+        Snapshot(int capacity, int size) {
+            this.keys = new int[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+            this.size = size;
+        }
+
+    }
+
+    private final static Snapshot EMPTY = new Snapshot(1, 0);
+
+    private volatile Snapshot snapshot = EMPTY;
+
+    private static int indexOf(int key, int mask) {
+        //spread the bits, addresses are often small consecutive numbers
+        final int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Lookup the handler for the address. This is safe to call from any
+     * thread and does not allocate.
+     *
+     * @param address the address of the device.
+     * @return the handler or null if no handler is registered.
+     */
+    @SuppressWarnings("unchecked")
+    T get(int address) {
+        final Snapshot s = snapshot;
+        if (s.size == 0) {
+            return null;
+        }
+        int i = indexOf(address, s.mask);
+        while (true) {
+            final Object value = s.values[i];
+            if (value == null) {
+                return null;
+            }
+            if (s.keys[i] == address) {
+                return (T) value;
+            }
+            i = (i + 1) & s.mask;
+        }
+    }
+
+    int size() {
+        return snapshot.size;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(Consumer<T> consumer) {
+        final Snapshot s = snapshot;
+        for (Object value : s.values) {
+            if (value != null) {
+                consumer.accept((T) value);
+            }
+        }
+    }
+
+    /**
+     * Register the handler for the address.
+     *
+     * @param address the address of the device.
+     * @param handler the handler.
+     * @return the previous registered handler or null.
+     */
+    synchronized T put(int address, T handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("handler must not be null");
+        }
+        final Snapshot old = snapshot;
+        final T previous = get(address);
+        final Snapshot s = new Snapshot(capacityFor(previous == null ? old.size + 1 : old.size), previous == null ? old.size + 1 : old.size);
+        copyInto(old, s, address);
+        insert(s, address, handler);
+        snapshot = s;
+        return previous;
+    }
+
+    /**
+     * Remove the handler of the address.
+     *
+     * @param address the address of the device.
+     * @return the removed handler or null.
+     */
+    synchronized T remove(int address) {
+        final T previous = get(address);
+        if (previous == null) {
+            return null;
+        }
+        final Snapshot old = snapshot;
+        if (old.size == 1) {
+            snapshot = EMPTY;
+        } else {
+            final Snapshot s = new Snapshot(capacityFor(old.size - 1), old.size - 1);
+            copyInto(old, s, address);
+            snapshot = s;
+        }
+        return previous;
+    }
+
+    /**
+     * Remove the handler of the address, but only if it is the given one.
+     * A disposed handler must not remove its successor.
+     *
+     * @param address the address of the device.
+     * @param handler the handler to remove.
+     * @return true if the handler was removed.
+     */
+    synchronized boolean remove(int address, T handler) {
+        if (get(address) != handler) {
+            return false;
+        }
+        remove(address);
+        return true;
+    }
+
+    synchronized void clear() {
+        snapshot = EMPTY;
+    }
+
+    private static int capacityFor(int size) {
+        //load factor at most 0.5 keeps the probe sequences short
+        int capacity = 2;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static void copyInto(Snapshot from, Snapshot to, int skipAddress) {
+        for (int i = 0; i < from.values.length; i++) {
+            final Object value = from.values[i];
+            if (value != null && from.keys[i] != skipAddress) {
+                insert(to, from.keys[i], value);
+            }
+        }
+    }
+
+    private static void insert(Snapshot s, int key, Object value) {
+        int i = indexOf(key, s.mask);
+        while (s.values[i] != null) {
+            i = (i + 1) & s.mask;
+        }
+        s.keys[i] = key;
+        s.values[i] = value;
+    }
+
+}
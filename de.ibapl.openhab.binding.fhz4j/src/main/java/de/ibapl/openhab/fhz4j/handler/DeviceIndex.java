@@ -0,0 +1,284 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import de.ibapl.fhz4j.protocol.em.EmMessage;
+import de.ibapl.fhz4j.protocol.evohome.EvoHomeDeviceMessage;
+import de.ibapl.fhz4j.protocol.hms.HmsMessage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Every device a CUL has ever heard, kept in a small memory-mapped file so it
+ * survives a restart. A discovery scan can announce the known devices at once
+ * instead of waiting for the slowest sensor to send again.
+ *
+ * The file is a header followed by fixed size records in the order the
+ * devices were first heard:
+ * <pre>
+ * header: magic "FHZIDX01", int capacity, int size
+ * record: byte frame type + 1 (0 is empty), byte subtype, short reserved,
+ *         int address, long first seen, long last seen (epoch millis),
+ *         float averaged signal strength (dBm or NaN), int frames
+ * </pre>
+ * The subtype is the ordinal of the device type of the frame (EM, HMS and
+ * EvoHome), 0 otherwise.
+ *
+ * Updating a known device only writes to the mapped buffer, the page cache
+ * writes it to the file. An in memory open addressed table maps the key to the
+ * record.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public final class DeviceIndex {
+
+    /**
+     * Receives the entries of the index.
+     */
+    public interface Visitor {
+
+        void visit(CulFrameType type, int subtype, int address, long firstSeenMillis, long lastSeenMillis, float signalStrength, int frames);
+
+    }
+
+    private static final Logger LOGGER = Logger.getLogger("d.i.o.f.h.DeviceIndex");
+
+    static final byte[] MAGIC = "FHZIDX01".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = 16;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SIZE_OFFSET = 12;
+    static final int RECORD_SIZE = 32;
+    private static final int TYPE_OFFSET = 0;
+    private static final int SUBTYPE_OFFSET = 1;
+    private static final int ADDRESS_OFFSET = 4;
+    private static final int FIRST_SEEN_OFFSET = 8;
+    private static final int LAST_SEEN_OFFSET = 16;
+    private static final int SIGNAL_STRENGTH_OFFSET = 24;
+    private static final int FRAMES_OFFSET = 28;
+    private static final long EMPTY = -1L;
+
+    private final int capacity;
+    private MappedByteBuffer buffer;
+    private int size;
+    private boolean fullLogged;
+    /*
+     * key -> record, open addressed with load factor at most 0.5
+     */
+    private final long[] keys;
+    private final int[] records;
+
+    /**
+     * @param capacity the maximum number of devices.
+     */
+    DeviceIndex(int capacity) {
+        this.capacity = capacity;
+        final int tableSize = Integer.highestOneBit(Math.max(capacity, 1)) << 2;
+        keys = new long[tableSize];
+        records = new int[tableSize];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    private static long keyOf(CulFrameType type, int address) {
+        return ((long) type.ordinal() << 32) | (address & 0xffffffffL);
+    }
+
+    private static int indexOf(long key, int mask) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private int slotOf(long key) {
+        final int mask = keys.length - 1;
+        int i = indexOf(key, mask);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -i - 1;
+    }
+
+    /**
+     * Map the file, create it if it does not exist. A file with a different
+     * layout is replaced by an empty one.
+     *
+     * @param file the index file.
+     */
+    synchronized void open(Path file) throws IOException {
+        close();
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        final int fileSize = HEADER_SIZE + capacity * RECORD_SIZE;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final boolean valid = channel.size() == fileSize && hasHeader(channel);
+            if (!valid && channel.size() > 0) {
+                LOGGER.log(Level.WARNING, "Replace device index {0} with a different layout", file);
+                channel.truncate(0);
+            }
+            //the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            if (!valid) {
+                buffer.put(0, MAGIC);
+                buffer.putInt(CAPACITY_OFFSET, capacity);
+                buffer.putInt(SIZE_OFFSET, 0);
+            }
+        }
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        fullLogged = false;
+        final CulFrameType[] types = CulFrameType.values();
+        final int storedSize = Math.min(buffer.getInt(SIZE_OFFSET), capacity);
+        for (int record = 0; record < storedSize; record++) {
+            final int offset = HEADER_SIZE + record * RECORD_SIZE;
+            final int type = buffer.get(offset + TYPE_OFFSET) - 1;
+            if (type < 0 || type >= types.length) {
+                break;
+            }
+            final long key = keyOf(types[type], buffer.getInt(offset + ADDRESS_OFFSET));
+            final int slot = slotOf(key);
+            if (slot < 0) {
+                keys[-slot - 1] = key;
+                records[-slot - 1] = record;
+            }
+            size = record + 1;
+        }
+        LOGGER.log(Level.FINE, "Opened device index {0} with {1} devices", new Object[]{file, size});
+    }
+
+    private static boolean hasHeader(FileChannel channel) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(MAGIC.length);
+        channel.read(header, 0);
+        return Arrays.equals(header.array(), MAGIC);
+    }
+
+    /**
+     * Write the changes to the file and unmap it.
+     */
+    synchronized void close() {
+        if (buffer != null) {
+            buffer.force();
+            buffer = null;
+        }
+    }
+
+    synchronized boolean isOpen() {
+        return buffer != null;
+    }
+
+    /**
+     * Record a frame of the device, does nothing if the index is not open.
+     *
+     * @param type the type of the frame.
+     * @param address the address of the sending device.
+     * @param message the parsed frame, for the device type.
+     * @param signalStrength the averaged signal strength or NaN.
+     */
+    synchronized void record(CulFrameType type, int address, Object message, float signalStrength) {
+        if (buffer == null) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final long key = keyOf(type, address);
+        final int slot = slotOf(key);
+        final int offset;
+        if (slot >= 0) {
+            offset = HEADER_SIZE + records[slot] * RECORD_SIZE;
+        } else {
+            if (size >= capacity) {
+                if (!fullLogged) {
+                    fullLogged = true;
+                    LOGGER.log(Level.WARNING, "Device index is full with {0} devices, new devices are not recorded", capacity);
+                }
+                return;
+            }
+            keys[-slot - 1] = key;
+            records[-slot - 1] = size;
+            offset = HEADER_SIZE + size * RECORD_SIZE;
+            buffer.put(offset + SUBTYPE_OFFSET, subtypeOf(type, message));
+            buffer.putInt(offset + ADDRESS_OFFSET, address);
+            buffer.putLong(offset + FIRST_SEEN_OFFSET, now);
+            buffer.putFloat(offset + SIGNAL_STRENGTH_OFFSET, Float.NaN);
+            buffer.putInt(offset + FRAMES_OFFSET, 0);
+            //the type marks the record as used, so write it last
+            buffer.put(offset + TYPE_OFFSET, (byte) (type.ordinal() + 1));
+            size++;
+            buffer.putInt(SIZE_OFFSET, size);
+        }
+        buffer.putLong(offset + LAST_SEEN_OFFSET, now);
+        if (!Float.isNaN(signalStrength)) {
+            buffer.putFloat(offset + SIGNAL_STRENGTH_OFFSET, signalStrength);
+        }
+        buffer.putInt(offset + FRAMES_OFFSET, buffer.getInt(offset + FRAMES_OFFSET) + 1);
+    }
+
+    private static byte subtypeOf(CulFrameType type, Object message) {
+        return switch (type) {
+            case EM ->
+                (byte) ((EmMessage) message).emDeviceType.ordinal();
+            case HMS ->
+                (byte) ((HmsMessage) message).hmsDeviceType.ordinal();
+            case EVO_HOME ->
+                (byte) ((EvoHomeDeviceMessage) message).deviceId1.type.ordinal();
+            default ->
+                0;
+        };
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Visit all devices in the order they were first heard. The records are
+     * copied under the lock and visited after it is released, so the visitor
+     * does not block the dispatcher.
+     */
+    public void forEach(Visitor visitor) {
+        final ByteBuffer copy;
+        synchronized (this) {
+            if (buffer == null) {
+                return;
+            }
+            final byte[] records = new byte[size * RECORD_SIZE];
+            buffer.get(HEADER_SIZE, records);
+            copy = ByteBuffer.wrap(records);
+        }
+        final CulFrameType[] types = CulFrameType.values();
+        for (int offset = 0; offset < copy.capacity(); offset += RECORD_SIZE) {
+            visitor.visit(types[copy.get(offset + TYPE_OFFSET) - 1], copy.get(offset + SUBTYPE_OFFSET) & 0xff, copy.getInt(offset + ADDRESS_OFFSET),
+                    copy.getLong(offset + FIRST_SEEN_OFFSET), copy.getLong(offset + LAST_SEEN_OFFSET),
+                    copy.getFloat(offset + SIGNAL_STRENGTH_OFFSET), copy.getInt(offset + FRAMES_OFFSET));
+        }
+    }
+
+}
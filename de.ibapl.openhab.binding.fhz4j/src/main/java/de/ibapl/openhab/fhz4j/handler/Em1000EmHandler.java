@@ -32,7 +32,6 @@ import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingStatus;
 import org.openhab.core.thing.ThingStatusDetail;
-import org.openhab.core.thing.binding.BaseThingHandler;
 import org.openhab.core.types.Command;
 
 /**
@@ -41,7 +40,26 @@ import org.openhab.core.types.Command;
  *
  * @author aploese@gmx.de - Initial contribution
  */
-public class Em1000EmHandler extends BaseThingHandler {
+public class Em1000EmHandler extends FilteredThingHandler<Em1000EmHandler.EmChannel> {
+
+    enum EmChannel implements ChannelUIDTable.ChannelId {
+        ENERGY_TOTAL(CHANNEL_ENERGY_TOTAL),
+        POWER_5MINUTES(CHANNEL_POWER_5MINUTES),
+        MAX_POWER_5MINUTES(CHANNEL_MAX_POWER_5MINUTES),
+        SIGNAL_STRENGTH(CHANNEL_SIGNAL_STRENGTH);
+
+        private final String channelId;
+
+        private EmChannel(String channelId) {
+            this.channelId = channelId;
+        }
+
+        @Override
+        public String getChannelId() {
+            return channelId;
+        }
+
+    }
 
     protected ThingStatusDetail owHandlerStatus = ThingStatusDetail.HANDLER_CONFIGURATION_PENDING;
 
@@ -49,8 +67,10 @@ public class Em1000EmHandler extends BaseThingHandler {
 
     private short address;
 
+    private ChannelUIDTable<EmChannel> channelUIDs;
+
     public Em1000EmHandler(Thing thing) {
-        super(thing);
+        super(thing, EmChannel.SIGNAL_STRENGTH);
     }
 
     @Override
@@ -61,6 +81,8 @@ public class Em1000EmHandler extends BaseThingHandler {
     @Override
     public void initialize() {
         logger.log(Level.FINE, "thing {0} is initializing", this.thing.getUID());
+        channelUIDs = new ChannelUIDTable<>(getThing().getUID(), EmChannel.class);
+        initStateFilter(channelUIDs);
         Configuration configuration = getConfig();
         try {
             address = ((Number) configuration.get("address")).shortValue();
@@ -94,11 +116,11 @@ public class Em1000EmHandler extends BaseThingHandler {
     public void updateFromMsg(EmMessage emMsg) {
         switch (emMsg.emDeviceType) {
             case EM_1000_EM -> {
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_ENERGY_TOTAL),
+                publish(EmChannel.ENERGY_TOTAL,
                         new DecimalType(EmMessage.EM_1000_EM_ENERY * emMsg.valueCummulated));
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_POWER_5MINUTES),
+                publish(EmChannel.POWER_5MINUTES,
                         new DecimalType(EmMessage.EM_1000_EM_POWER * emMsg.value5Min));
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_MAX_POWER_5MINUTES),
+                publish(EmChannel.MAX_POWER_5MINUTES,
                         new DecimalType(EmMessage.EM_1000_EM_POWER * emMsg.value5MinPeak));
             }
             // case EM_1000_S:
@@ -0,0 +1,204 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import de.ibapl.fhz4j.protocol.evohome.EvoHomeCommand;
+import de.ibapl.fhz4j.protocol.evohome.EvoHomeDeviceMessage;
+import de.ibapl.openhab.spsw.trace.RollingFileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Captures EvoHome messages for diagnostic (unknown or not yet decoded
+ * payloads) to rolling files.
+ *
+ * The receive path only puts the message in a bounded queue, if it is full
+ * the message is dropped. A background thread formats and writes the
+ * messages in batches. The files are rolled by the {@link RollingFileWriter}.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class EvoHomeCaptureWriter extends RollingFileWriter {
+
+    private static final String FILE_PREFIX = "EVO_HOME_";
+    private static final String FILE_SUFFIX = ".log.txt";
+    private static final int QUEUE_CAPACITY = 4096;
+    private static final int BATCH_SIZE = 256;
+
+    private static final class Capture {
+
+        final long timestamp;
+        final EvoHomeDeviceMessage msg;
+
+        Capture(long timestamp, EvoHomeDeviceMessage msg) {
+            this.timestamp = timestamp;
+            this.msg = msg;
+        }
+
+    }
+
+    /**
+     * The state to detect repeated messages, only used by the writer thread.
+     */
+    private static final class LastCapture {
+
+        long timestamp;
+        EvoHomeDeviceMessage msg;
+
+    }
+
+    private final ArrayBlockingQueue<Capture> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final boolean[] enabled = new boolean[EvoHomeCommand.values().length];
+    private final EnumMap<EvoHomeCommand, LastCapture> lastCaptures = new EnumMap<>(EvoHomeCommand.class);
+    private Writer writer;
+    private long currentFileBytes;
+
+    private volatile long droppedCount;
+    private volatile long writtenCount;
+
+    /**
+     * @param directory the directory of the capture files.
+     * @param maxFileBytes roll the file if it is larger.
+     * @param maxFileAge roll the file if it is older.
+     * @param maxTotalBytes delete the oldest files if all files are larger.
+     */
+    EvoHomeCaptureWriter(Path directory, long maxFileBytes, Duration maxFileAge, long maxTotalBytes) {
+        super(directory, FILE_PREFIX, FILE_SUFFIX, maxFileBytes, maxFileAge, maxTotalBytes);
+    }
+
+    /**
+     * Switch the capture of a command on or off.
+     */
+    void setEnabled(EvoHomeCommand command, boolean enable) {
+        enabled[command.ordinal()] = enable;
+    }
+
+    void setAllEnabled(boolean enable) {
+        for (EvoHomeCommand command : EvoHomeCommand.values()) {
+            enabled[command.ordinal()] = enable;
+        }
+    }
+
+    boolean isEnabled(EvoHomeCommand command) {
+        return enabled[command.ordinal()];
+    }
+
+    /**
+     * Called on the receive path, does not block.
+     */
+    void capture(EvoHomeDeviceMessage msg) {
+        if (!isRunning() || !enabled[msg.command.ordinal()]) {
+            return;
+        }
+        if (!queue.offer(new Capture(System.currentTimeMillis(), msg))) {
+            droppedCount++;
+        }
+    }
+
+    long getDroppedCount() {
+        return droppedCount;
+    }
+
+    long getWrittenCount() {
+        return writtenCount;
+    }
+
+    @Override
+    protected void writePending() throws IOException, InterruptedException {
+        final List<Capture> batch = new ArrayList<>(BATCH_SIZE);
+        final StringBuilder sb = new StringBuilder();
+        while (isRunning() || !queue.isEmpty()) {
+            final Capture first = queue.poll(1, TimeUnit.SECONDS);
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, BATCH_SIZE - batch.size());
+            for (Capture c : batch) {
+                format(c, sb);
+            }
+            batch.clear();
+            rollIfNeeded();
+            writer.append(sb);
+            writer.flush();
+            currentFileBytes += sb.length();
+            sb.setLength(0);
+        }
+    }
+
+    private void format(Capture c, StringBuilder sb) {
+        LastCapture last = lastCaptures.get(c.msg.command);
+        if (last == null) {
+            last = new LastCapture();
+            last.timestamp = c.timestamp;
+            lastCaptures.put(c.msg.command, last);
+        }
+        sb.append('@');
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(c.timestamp), sb);
+        sb.append('\t').append(Duration.ofMillis(c.timestamp - last.timestamp)).append('\t');
+        sb.append(c.msg.command).append('\t');
+        if (Objects.equals(last.msg, c.msg)) {
+            sb.append("Same message repeated");
+        } else {
+            sb.append(c.msg);
+            //only change lastMsg if we find any differences ...
+            last.msg = c.msg;
+        }
+        sb.append('\n');
+        last.timestamp = c.timestamp;
+        writtenCount++;
+    }
+
+    @Override
+    protected long getCurrentFileBytes() {
+        return currentFileBytes;
+    }
+
+    @Override
+    protected void openFile(Path file, long nowMillis) throws IOException {
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE_NEW);
+        currentFileBytes = 0;
+    }
+
+    @Override
+    protected void closeCurrentFile() throws IOException {
+        try {
+            writer.close();
+        } finally {
+            writer = null;
+        }
+    }
+
+}
@@ -53,16 +53,6 @@ import de.ibapl.fhz4j.protocol.evohome.messages.ZoneNameRequestMessage;
 import de.ibapl.fhz4j.protocol.evohome.messages.ZoneSetpointInformationMessage;
 import de.ibapl.fhz4j.protocol.evohome.messages.ZoneSetpointRequestMessage;
 import static de.ibapl.openhab.fhz4j.FHZ4JBindingConstants.*;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.PrintStream;
-import java.time.Duration;
-import java.time.Instant;
-import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Objects;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.openhab.core.config.core.Configuration;
@@ -74,7 +64,6 @@ import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingStatus;
 import org.openhab.core.thing.ThingStatusDetail;
-import org.openhab.core.thing.binding.BaseThingHandler;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.RefreshType;
 
@@ -84,63 +73,51 @@ import org.openhab.core.types.RefreshType;
  *
  * @author aploese@gmx.de - Initial contribution
  */
-public class EvoHomeHandler extends BaseThingHandler {
+public class EvoHomeHandler extends FilteredThingHandler<EvoHomeHandler.EvoHomeChannel> {
 
-    class TestLogger {
+    enum EvoHomeChannel implements ChannelUIDTable.ChannelId {
+        TEMPERATURE_MEASURED(CHANNEL_TEMPERATURE_MEASURED),
+        DESIRED_TEMPERATURE(CHANNEL_DESIRED_TEMPERATURE),
+        MIN_TEMP(CHANNEL_MIN_TEMP),
+        MAX_TEMP(CHANNEL_MAX_TEMP),
+        OPERATION_LOCK(CHANNEL_OPERATION_LOCK),
+        WINDOW_FUNCTION(CHANNEL_WINDOW_FUNCTION),
+        WINDOW_OPEN(CHANNEL_WINDOW_OPEN),
+        VALVE_POSITION(CHANNEL_VALVE_POSITION),
+        RADIATOR_HEAT_DEMAND(CHANNEL_RADIATOR_HEAT_DEMAND),
+        BATT_LOW(CHANNEL_BATT_LOW),
+        SIGNAL_STRENGTH(CHANNEL_SIGNAL_STRENGTH);
 
-        private final static DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ISO_INSTANT;
-        private final PrintStream TEST_LOG_OS;
-        private Instant lastTS;
-        private EvoHomeDeviceMessage lastMsg;
-        private final EvoHomeCommand cmd;
+        private final String channelId;
 
-        public TestLogger(EvoHomeCommand cmd) {
-            this.cmd = cmd;
-            try {
-                TEST_LOG_OS = new PrintStream(new FileOutputStream("EVO_HOME__" + cmd + "__" + DateTimeFormatter.ISO_INSTANT.format(Instant.now()) + ".log.txt"), false);
-            } catch (FileNotFoundException ex) {
-                LOGGER.log(Level.SEVERE, null, ex);
-                throw new RuntimeException(ex);
-            }
+        private EvoHomeChannel(String channelId) {
+            this.channelId = channelId;
         }
 
-        public void print(EvoHomeDeviceMessage msg) {
-            final Instant now = Instant.now();
-            if (lastTS == null) {
-                lastTS = now;
-            }
-            if (Objects.equals(lastMsg, msg)) {
-                TEST_LOG_OS.append('@' + dateTimeFormatter.format(now) + "\t" + Duration.between(lastTS, now).toString() + '\t').println("\tSame message repeated");
-            } else {
-                TEST_LOG_OS.append('@' + dateTimeFormatter.format(now) + "\t" + Duration.between(lastTS, now).toString() + '\t').append("\t").println(msg);
-                //only change lastMsg if we find any differences ...
-                lastMsg = msg;
-            }
-            lastTS = Instant.now();
+        @Override
+        public String getChannelId() {
+            return channelId;
         }
 
     }
 
-    private final Map<EvoHomeCommand, TestLogger> loggers = new HashMap<>();
-
     private void logEvoHomeMsg(EvoHomeDeviceMessage msg) {
-        TestLogger logger = loggers.get(msg.command);
-        if (logger == null) {
-            logger = new TestLogger(msg.command);
-            loggers.put(msg.command, logger);
+        final Bridge bridge = getBridge();
+        if (bridge != null && bridge.getHandler() instanceof CulBridge culBridge) {
+            culBridge.captureEvoHomeMsg(msg);
         }
-        logger.print(msg);
     }
 
-    //TODO END TEST unknown packages
     protected ThingStatusDetail evoHomeRadiatorHandlerStatus = ThingStatusDetail.HANDLER_CONFIGURATION_PENDING;
 
     private final static Logger LOGGER = Logger.getLogger("d.i.o.f.h.EvoHomeHandler");
 
     private int deviceId;
 
+    private ChannelUIDTable<EvoHomeChannel> channelUIDs;
+
     public EvoHomeHandler(Thing thing) {
-        super(thing);
+        super(thing, EvoHomeChannel.SIGNAL_STRENGTH);
     }
 
     private byte getZoneId(ChannelUID channelUID) {
@@ -151,26 +128,28 @@ public class EvoHomeHandler extends BaseThingHandler {
 
     @Override
     public void handleCommand(ChannelUID channelUID, Command command) {
-        try {
-            if (channelUID.getId().startsWith(CHANNEL_DESIRED_TEMPERATURE)) {
-                final byte zoneId = getZoneId(channelUID);
-                if (command instanceof DecimalType decimalType) {
-                    ((SpswBridgeHandler) (getBridge().getHandler())).sendEvoHomeZoneSetpointPermanent(new DeviceId(deviceId),
-                            new ZoneTemperature(zoneId, decimalType.toBigDecimal()));
-                } else if (command instanceof RefreshType) {
-                }
-            } else {
-                LOGGER.log(Level.SEVERE, "Handle command {0} for unknown EvoHome settable channelUID: {1} ", new Object[]{command, channelUID});
+        if (channelUID.getId().startsWith(CHANNEL_DESIRED_TEMPERATURE)) {
+            final byte zoneId = getZoneId(channelUID);
+            if (command instanceof DecimalType decimalType) {
+                ((CulBridge) (getBridge().getHandler())).sendEvoHomeZoneSetpointPermanent(new DeviceId(deviceId),
+                        new ZoneTemperature(zoneId, decimalType.toBigDecimal())).whenComplete((v, t) -> {
+                            if (t != null) {
+                                LOGGER.log(Level.SEVERE, "IO EX: command " + command + " channelUID " + channelUID, t);
+                                //TODO set state ???
+                            }
+                        });
+            } else if (command instanceof RefreshType) {
             }
-        } catch (IOException ioe) {
-            LOGGER.log(Level.SEVERE, "IO EX: command {0} channelUID {1}", new Object[]{command, channelUID});
-            //TODO set state ???
+        } else {
+            LOGGER.log(Level.SEVERE, "Handle command {0} for unknown EvoHome settable channelUID: {1} ", new Object[]{command, channelUID});
         }
     }
 
     @Override
     public void initialize() {
         LOGGER.log(Level.FINE, "thing {0} is initializing", this.thing.getUID());
+        channelUIDs = new ChannelUIDTable<>(getThing().getUID(), EvoHomeChannel.class, ChannelUIDTable.EVO_HOME_ZONE_COUNT);
+        initStateFilter(channelUIDs);
         Configuration configuration = getConfig();
         try {
             deviceId = ((Number) configuration.get("deviceId")).intValue();
@@ -207,10 +186,10 @@ public class EvoHomeHandler extends BaseThingHandler {
             case ZONE_HEAT_DEMAND -> {
                 final ZoneHeatDemandInformationMessage zhdim = (ZoneHeatDemandInformationMessage) msg;
                 final float valvePos = zhdim.calcValvePosition();
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_VALVE_POSITION),
+                publish(EvoHomeChannel.VALVE_POSITION,
                         new DecimalType(valvePos));
                 final short heatDeamnd = zhdim.heatDemand;
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_RADIATOR_HEAT_DEMAND),
+                publish(EvoHomeChannel.RADIATOR_HEAT_DEMAND,
                         new DecimalType(heatDeamnd));
             }
             case ZONE_TEMPERATURE -> {
@@ -218,11 +197,11 @@ public class EvoHomeHandler extends BaseThingHandler {
                 final AbstractZoneTemperaturePayloadMessage<?> m = (AbstractZoneTemperaturePayloadMessage) msg;
                 switch (m.deviceId1.type) {
                     case RADIATOR_CONTROLLER, SINGLE_ZONE_THERMOSTAT -> //TODO ZoneID ???
-                        updateState(new ChannelUID(getThing().getUID(), CHANNEL_TEMPERATURE_MEASURED),
+                        publish(EvoHomeChannel.TEMPERATURE_MEASURED,
                                 new DecimalType(m.zoneTemperatures.get(0).temperature));
                     case MULTI_ZONE_CONTROLLER -> {
                         for (ZoneTemperature zoneTemperature : m.zoneTemperatures) {
-                            updateState(new ChannelUID(getThing().getUID(), String.format(_XX_TEMPLATE, CHANNEL_TEMPERATURE_MEASURED, zoneTemperature.zone)),
+                            publish(EvoHomeChannel.TEMPERATURE_MEASURED, zoneTemperature.zone,
                                     new DecimalType(zoneTemperature.temperature));
                         }
                     }
@@ -236,11 +215,11 @@ public class EvoHomeHandler extends BaseThingHandler {
                     //From RadiatorController and MultZoneController
                     switch (azspm.deviceId1.type) {
                         case RADIATOR_CONTROLLER, SINGLE_ZONE_THERMOSTAT -> //TODO ZoneID ???
-                            updateState(new ChannelUID(getThing().getUID(), CHANNEL_DESIRED_TEMPERATURE),
+                            publish(EvoHomeChannel.DESIRED_TEMPERATURE,
                                     new DecimalType(azspm.zoneTemperatures.get(0).temperature));
                         case MULTI_ZONE_CONTROLLER -> {
                             for (ZoneTemperature zoneTemperature : azspm.zoneTemperatures) {
-                                updateState(new ChannelUID(getThing().getUID(), String.format(_XX_TEMPLATE, CHANNEL_DESIRED_TEMPERATURE, zoneTemperature.zone)),
+                                publish(EvoHomeChannel.DESIRED_TEMPERATURE, zoneTemperature.zone,
                                         new DecimalType(zoneTemperature.temperature));
                             }
                         }
@@ -258,24 +237,24 @@ public class EvoHomeHandler extends BaseThingHandler {
                 if (msg instanceof final ZoneConfigPayloadMessage<?> zpm) {
                     switch (zpm.deviceId1.type) {
                         case RADIATOR_CONTROLLER, SINGLE_ZONE_THERMOSTAT -> {
-                            updateState(new ChannelUID(getThing().getUID(), CHANNEL_MIN_TEMP),
+                            publish(EvoHomeChannel.MIN_TEMP,
                                     new DecimalType(zpm.zones.get(0).minTemperature));
-                            updateState(new ChannelUID(getThing().getUID(), CHANNEL_MAX_TEMP),
+                            publish(EvoHomeChannel.MAX_TEMP,
                                     new DecimalType(zpm.zones.get(0).maxTemperature));
-                            updateState(new ChannelUID(getThing().getUID(), CHANNEL_OPERATION_LOCK),
+                            publish(EvoHomeChannel.OPERATION_LOCK,
                                     zpm.zones.get(0).operationLock ? OnOffType.ON : OnOffType.OFF);
-                            updateState(new ChannelUID(getThing().getUID(), CHANNEL_WINDOW_FUNCTION),
+                            publish(EvoHomeChannel.WINDOW_FUNCTION,
                                     zpm.zones.get(0).windowFunction ? OnOffType.ON : OnOffType.OFF);
                         }
                         case MULTI_ZONE_CONTROLLER -> {
                             for (ZoneConfigPayloadMessage.ZoneParams zoneParam : zpm.zones) {
-                                updateState(new ChannelUID(getThing().getUID(), String.format(_XX_TEMPLATE, CHANNEL_MIN_TEMP, zoneParam.zoneId)),
+                                publish(EvoHomeChannel.MIN_TEMP, zoneParam.zoneId,
                                         new DecimalType(zoneParam.minTemperature));
-                                updateState(new ChannelUID(getThing().getUID(), String.format(_XX_TEMPLATE, CHANNEL_MAX_TEMP, zoneParam.zoneId)),
+                                publish(EvoHomeChannel.MAX_TEMP, zoneParam.zoneId,
                                         new DecimalType(zoneParam.maxTemperature));
-                                updateState(new ChannelUID(getThing().getUID(), String.format(_XX_TEMPLATE, CHANNEL_OPERATION_LOCK, zoneParam.zoneId)),
+                                publish(EvoHomeChannel.OPERATION_LOCK, zoneParam.zoneId,
                                         zoneParam.operationLock ? OnOffType.ON : OnOffType.OFF);
-                                updateState(new ChannelUID(getThing().getUID(), String.format(_XX_TEMPLATE, CHANNEL_WINDOW_FUNCTION, zoneParam.zoneId)),
+                                publish(EvoHomeChannel.WINDOW_FUNCTION, zoneParam.zoneId,
                                         zoneParam.windowFunction ? OnOffType.ON : OnOffType.OFF);
                             }
                         }
@@ -339,9 +318,9 @@ public class EvoHomeHandler extends BaseThingHandler {
                             final OnOffType value;
                             switch (dbsim.unknown0) {
                                 case 0 ->
-                                    updateState(new ChannelUID(getThing().getUID(), CHANNEL_BATT_LOW), OnOffType.OFF);
+                                    publish(EvoHomeChannel.BATT_LOW, OnOffType.OFF);
                                 case (byte) 0x01 ->
-                                    updateState(new ChannelUID(getThing().getUID(), CHANNEL_BATT_LOW), OnOffType.ON);
+                                    publish(EvoHomeChannel.BATT_LOW, OnOffType.ON);
                                 default ->
                                     LOGGER.log(Level.SEVERE, "Can''t handle DEVICE_BATTERY_STATUS (unknown value for unknown0) message: {0} ", msg);
                             }
@@ -386,9 +365,9 @@ public class EvoHomeHandler extends BaseThingHandler {
                             final OpenClosedType value;
                             switch (wsim.unknown0) {
                                 case 0 ->
-                                    updateState(new ChannelUID(getThing().getUID(), CHANNEL_WINDOW_OPEN), OpenClosedType.CLOSED);
+                                    publish(EvoHomeChannel.WINDOW_OPEN, OpenClosedType.CLOSED);
                                 case (short) 0xc800 ->
-                                    updateState(new ChannelUID(getThing().getUID(), CHANNEL_WINDOW_OPEN), OpenClosedType.OPEN);
+                                    publish(EvoHomeChannel.WINDOW_OPEN, OpenClosedType.OPEN);
                                 default ->
                                     LOGGER.log(Level.SEVERE, "Can''t handle WINDOW_SENSOR (unknown value for unknown0) message: {0} ", msg);
                             }
@@ -396,10 +375,10 @@ public class EvoHomeHandler extends BaseThingHandler {
                         case MULTI_ZONE_CONTROLLER -> {
                             switch (wsim.unknown0) {
                                 case 0 ->
-                                    updateState(new ChannelUID(getThing().getUID(), String.format(_XX_TEMPLATE, CHANNEL_WINDOW_OPEN, wsim.zoneId)),
+                                    publish(EvoHomeChannel.WINDOW_OPEN, wsim.zoneId,
                                             OpenClosedType.CLOSED);
                                 case (short) 0xc800 ->
-                                    updateState(new ChannelUID(getThing().getUID(), String.format(_XX_TEMPLATE, CHANNEL_WINDOW_OPEN, wsim.zoneId)),
+                                    publish(EvoHomeChannel.WINDOW_OPEN, wsim.zoneId,
                                             OpenClosedType.OPEN);
                                 default ->
                                     LOGGER.log(Level.SEVERE, "Can''t handle WINDOW_SENSOR (unknown value for unknown0) message: {0} ", msg);
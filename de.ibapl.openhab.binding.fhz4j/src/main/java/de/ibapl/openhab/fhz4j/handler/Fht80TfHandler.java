@@ -34,7 +34,6 @@ import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingStatus;
 import org.openhab.core.thing.ThingStatusDetail;
-import org.openhab.core.thing.binding.BaseThingHandler;
 import org.openhab.core.types.Command;
 
 /**
@@ -43,7 +42,25 @@ import org.openhab.core.types.Command;
  *
  * @author aploese@gmx.de - Initial contribution
  */
-public class Fht80TfHandler extends BaseThingHandler {
+public class Fht80TfHandler extends FilteredThingHandler<Fht80TfHandler.Fht80TfChannel> {
+
+    enum Fht80TfChannel implements ChannelUIDTable.ChannelId {
+        BATT_LOW(CHANNEL_BATT_LOW),
+        WINDOW_INTERNAL(CHANNEL_WINDOW_INTERNAL),
+        WINDOW_EXTERNAL(CHANNEL_WINDOW_EXTERNAL);
+
+        private final String channelId;
+
+        private Fht80TfChannel(String channelId) {
+            this.channelId = channelId;
+        }
+
+        @Override
+        public String getChannelId() {
+            return channelId;
+        }
+
+    }
 
     protected ThingStatusDetail fht80TfHandlerStatus = ThingStatusDetail.HANDLER_CONFIGURATION_PENDING;
 
@@ -51,6 +68,8 @@ public class Fht80TfHandler extends BaseThingHandler {
 
     private int address;
 
+    private ChannelUIDTable<Fht80TfChannel> channelUIDs;
+
     public Fht80TfHandler(Thing thing) {
         super(thing);
     }
@@ -68,6 +87,8 @@ public class Fht80TfHandler extends BaseThingHandler {
     @Override
     public void initialize() {
         LOGGER.log(Level.FINE, "thing {0} is initializing", this.thing.getUID());
+        channelUIDs = new ChannelUIDTable<>(getThing().getUID(), Fht80TfChannel.class);
+        initStateFilter(channelUIDs);
         Configuration configuration = getConfig();
         try {
             address = Integer.parseUnsignedInt((String) configuration.get("address"), 16);
@@ -101,28 +122,28 @@ public class Fht80TfHandler extends BaseThingHandler {
 
     public void updateFromFht80TfMsg(Fht80TfMessage fht80TfMsg) {
         if (fht80TfMsg.lowBattery) {
-            updateState(new ChannelUID(getThing().getUID(), CHANNEL_BATT_LOW), OnOffType.ON);
+            publish(Fht80TfChannel.BATT_LOW, OnOffType.ON);
         } else {
-            updateState(new ChannelUID(getThing().getUID(), CHANNEL_BATT_LOW), OnOffType.OFF);
+            publish(Fht80TfChannel.BATT_LOW, OnOffType.OFF);
         }
         switch (fht80TfMsg.value) {
             case WINDOW_INTERNAL_OPEN -> {
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_WINDOW_INTERNAL), OpenClosedType.OPEN);
+                publish(Fht80TfChannel.WINDOW_INTERNAL, OpenClosedType.OPEN);
                 if (LOGGER.isLoggable(Level.FINER)) {
                     LOGGER.log(Level.FINER, String.format("update FHT80 TF %s channel: {%s}", fht80TfMsg, getThing().getUID()));
                 }
             }
             case WINDOW_INTERNAL_CLOSED -> {
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_WINDOW_INTERNAL), OpenClosedType.CLOSED);
+                publish(Fht80TfChannel.WINDOW_INTERNAL, OpenClosedType.CLOSED);
                 if (LOGGER.isLoggable(Level.FINER)) {
                     LOGGER.log(Level.FINER, String.format("update FHT80 TF %s channel: {%s}", fht80TfMsg, getThing().getUID()));
                 }
             }
             case WINDOW_EXTERNAL_OPEN -> {
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_WINDOW_EXTERNAL), OpenClosedType.OPEN);
+                publish(Fht80TfChannel.WINDOW_EXTERNAL, OpenClosedType.OPEN);
             }
             case WINDOW_EXTERNAL_CLOSED -> {
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_WINDOW_EXTERNAL), OpenClosedType.CLOSED);
+                publish(Fht80TfChannel.WINDOW_EXTERNAL, OpenClosedType.CLOSED);
             }
             case SYNC -> {
 //                    updateState(new ChannelUID(getThing().getUID(), CHANNEL_TF_SYNC), OnOffType.ON);
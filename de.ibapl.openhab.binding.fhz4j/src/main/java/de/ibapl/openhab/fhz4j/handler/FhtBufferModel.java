@@ -0,0 +1,161 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Estimated occupancy of the FHT out buffer of the CUL.
+ *
+ * The CUL keeps FHT commands until the FHT80b listens, that is about every 2
+ * minutes. The model counts the bytes written per housecode and frees them
+ * when the device is heard again, as the CUL sends the buffered commands in
+ * the receive slot of the device. The periodically polled remaining size
+ * replaces the estimate, an overflow (LOVF or EOB) marks the buffer full.
+ *
+ * Above the high water mark FHT commands are not admitted to the CUL and
+ * wait in the {@link CulTransmitQueue}, the FHT gate of the
+ * {@link SpswBridgeHandler} asks {@link #isAdmitted(int)}. An empty buffer admits any command,
+ * so a command bigger than the mark is not held back forever.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class FhtBufferModel {
+
+    private static final Logger LOGGER = Logger.getLogger("d.i.o.f.h.FhtBufferModel");
+
+    /**
+     * The FHT buffer size of the culfw, raised if the CUL reports more.
+     */
+    static final int DEFAULT_CAPACITY = 74;
+    static final int HIGH_WATER_PERCENT = 75;
+    /**
+     * The length, the housecode and a command/value pair per FHT command.
+     */
+    private static final int MESSAGE_OVERHEAD_BYTES = 3;
+    private static final int BYTES_PER_COMMAND = 2;
+
+    private int capacity = DEFAULT_CAPACITY;
+    private int used;
+    private final Map<Short, Integer> queuedBytes = new HashMap<>();
+    private long overflowCount;
+
+    /**
+     * @param commands the number of FHT commands (command/value pairs).
+     * @return the estimated bytes the commands take in the FHT buffer.
+     */
+    static int estimateBytes(int commands) {
+        return MESSAGE_OVERHEAD_BYTES + BYTES_PER_COMMAND * commands;
+    }
+
+    /**
+     * @return true if the bytes fit below the high water mark or the buffer
+     * is empty.
+     */
+    synchronized boolean isAdmitted(int bytes) {
+        return used == 0 || used + bytes <= capacity * HIGH_WATER_PERCENT / 100;
+    }
+
+    synchronized void written(Object address, int bytes) {
+        used = Math.min(capacity, used + bytes);
+        if (address instanceof Short housecode) {
+            queuedBytes.merge(housecode, bytes, Integer::sum);
+        }
+    }
+
+    /**
+     * A frame of the device was received, the CUL sent the commands for it.
+     *
+     * @return true if bytes were freed.
+     */
+    synchronized boolean deviceHeard(short housecode) {
+        final Integer bytes = queuedBytes.remove(housecode);
+        if (bytes == null) {
+            return false;
+        }
+        used = Math.max(0, used - bytes);
+        return true;
+    }
+
+    /**
+     * The CUL reported the remaining size, it replaces the estimate. The
+     * report does not tell which devices the bytes belong to, so they are no
+     * longer freed when a device is heard, the next report frees them.
+     * Otherwise the bytes sent before the report would be freed twice.
+     */
+    synchronized void remainingReported(int remaining) {
+        if (remaining > capacity) {
+            LOGGER.log(Level.INFO, "FHT buffer capacity is {0} bytes", remaining);
+            capacity = remaining;
+        }
+        used = capacity - remaining;
+        queuedBytes.clear();
+    }
+
+    /**
+     * The CUL rejected a command (LOVF or EOB).
+     */
+    synchronized void overflowReported() {
+        overflowCount++;
+        used = capacity;
+    }
+
+    /**
+     * The CUL was initialized, its buffer is empty.
+     */
+    synchronized void clear() {
+        used = 0;
+        queuedBytes.clear();
+    }
+
+    /**
+     * @return true if the estimate should be checked against the CUL.
+     */
+    synchronized boolean isPollNeeded() {
+        return used > 0;
+    }
+
+    synchronized int getRemaining() {
+        return capacity - used;
+    }
+
+    synchronized int getUsed() {
+        return used;
+    }
+
+    synchronized int getCapacity() {
+        return capacity;
+    }
+
+    synchronized long getOverflowCount() {
+        return overflowCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "FHT buffer used=" + used + "/" + capacity + " bytes, queued per housecode=" + queuedBytes + ", overflows=" + overflowCount;
+    }
+
+}
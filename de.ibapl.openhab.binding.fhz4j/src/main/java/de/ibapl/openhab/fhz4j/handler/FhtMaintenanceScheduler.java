@@ -0,0 +1,367 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openhab.core.scheduler.CronScheduler;
+import org.openhab.core.scheduler.ScheduledCompletableFuture;
+
+/**
+ * Bridge owned scheduler of the FHT80b maintenance, that is setting the clock
+ * and triggering the reporting of the device.
+ *
+ * All devices with the same cron pattern share one cron job. When it fires
+ * the devices are not served at once, but spread evenly over the maintenance
+ * window. Before a device is served the remaining FHT buffer of the CUL is
+ * checked, if it is too small the device waits. Devices that failed are
+ * retried in a later round, the devices that succeeded are not touched again.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class FhtMaintenanceScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger("d.i.o.f.h.FhtMaintenanceScheduler");
+
+    /**
+     * The operations of the bridge the maintenance is done with.
+     */
+    interface Operations {
+
+        CompletableFuture<Void> setClock(short housecode, LocalDateTime localDateTime);
+
+        CompletableFuture<Void> initFhtReporting(short housecode);
+
+        /**
+         * @return the free bytes of the FHT buffer of the CUL that sends to
+         * the device or -1 if unknown.
+         */
+        int getRemainingFhtBufferSize(short housecode);
+
+    }
+
+    static final String DEFAULT_CRON_PATTERN = "0 0 0 ? * SUN *";
+    static final String WINDOW_PARAM = "fhtMaintenanceWindow";
+    static final long DEFAULT_WINDOW_MINUTES = 60;
+    /**
+     * The clock is 5 and the reporting 1 FHT command, each is stored with the
+     * housecode in the FHT buffer of the CUL. Leave room for the commands of
+     * one more device, so user commands are not rejected.
+     */
+    static final int MIN_REMAINING_FHT_BUFFER = 36;
+    /**
+     * A FHT80b receives once in about 2 minutes, so the buffer needs at least
+     * that long to drain.
+     */
+    private static final long BUFFER_WAIT_NANOS = TimeUnit.MINUTES.toNanos(2);
+    private static final int MAX_BUFFER_WAITS = 5;
+    private static final long RETRY_DELAY_NANOS = TimeUnit.MINUTES.toNanos(30);
+    private static final int MAX_RETRIES = 3;
+
+    /**
+     * The devices that share one cron pattern.
+     */
+    private final class Group {
+
+        final String cronPattern;
+        /**
+         * Sorted, so the devices are served in a stable order.
+         */
+        final TreeSet<Short> housecodes = new TreeSet<>();
+        ScheduledCompletableFuture<?> cronJob;
+        Round round;
+
+        Group(String cronPattern) {
+            this.cronPattern = cronPattern;
+        }
+
+    }
+
+    /**
+     * One pass over the devices of a group, the next device is served by a
+     * task scheduled at its slot.
+     */
+    private final class Round implements Runnable {
+
+        final Group group;
+        final short[] housecodes;
+        final int retry;
+        final long startNanos;
+        final long slotNanos;
+        final List<CompletableFuture<Void>> results = new ArrayList<>();
+        final List<Short> failed = new ArrayList<>();
+        int next;
+        int bufferWaits;
+        ScheduledFuture<?> task;
+
+        Round(Group group, short[] housecodes, int retry, long delayNanos) {
+            this.group = group;
+            this.housecodes = housecodes;
+            this.retry = retry;
+            startNanos = System.nanoTime() + delayNanos;
+            slotNanos = window.toNanos() / housecodes.length;
+        }
+
+        @Override
+        public void run() {
+            final short housecode;
+            synchronized (FhtMaintenanceScheduler.this) {
+                if (group.round != this) {
+                    return;
+                }
+                if (next == housecodes.length) {
+                    finish();
+                    return;
+                }
+                housecode = housecodes[next];
+                if (!group.housecodes.contains(housecode)) {
+                    //device was removed meanwhile
+                    next++;
+                    scheduleNext();
+                    return;
+                }
+            }
+            //Do not block the other groups while waiting for the CUL
+            final int remaining = operations.getRemainingFhtBufferSize(housecode);
+            synchronized (FhtMaintenanceScheduler.this) {
+                if (group.round != this) {
+                    return;
+                }
+                if (remaining >= 0 && remaining < MIN_REMAINING_FHT_BUFFER) {
+                    if (++bufferWaits <= MAX_BUFFER_WAITS) {
+                        LOGGER.log(Level.FINE, "FHT buffer has only {0} bytes left, maintenance of {1} waits", new Object[]{remaining, housecode});
+                        task = scheduler.schedule(this, BUFFER_WAIT_NANOS, TimeUnit.NANOSECONDS);
+                        return;
+                    }
+                    LOGGER.log(Level.WARNING, "FHT buffer stays full, maintenance of {0} is postponed", housecode);
+                    failed.add(housecode);
+                } else {
+                    results.add(maintain(housecode));
+                }
+                bufferWaits = 0;
+                next++;
+                scheduleNext();
+            }
+        }
+
+        private CompletableFuture<Void> maintain(short housecode) {
+            LOGGER.log(Level.FINE, "Run FHT maintenance of {0}", housecode);
+            return operations.setClock(housecode, LocalDateTime.now())
+                    .thenCompose((v) -> operations.initFhtReporting(housecode))
+                    .whenComplete((v, t) -> {
+                        if (t != null) {
+                            LOGGER.log(Level.WARNING, "FHT maintenance of " + housecode + " failed", t);
+                            synchronized (FhtMaintenanceScheduler.this) {
+                                failed.add(housecode);
+                            }
+                        }
+                    });
+        }
+
+        private void scheduleNext() {
+            final long delay = startNanos + next * slotNanos - System.nanoTime();
+            task = scheduler.schedule(this, Math.max(0, delay), TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Wait for the outstanding sends, then retry the failed devices.
+         */
+        private void finish() {
+            CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).handle((v, t) -> {
+                synchronized (FhtMaintenanceScheduler.this) {
+                    if (group.round != this) {
+                        return null;
+                    }
+                    group.round = null;
+                    failed.retainAll(group.housecodes);
+                    LOGGER.log(failed.isEmpty() ? Level.INFO : Level.WARNING, "FHT maintenance of {0} devices done, {1} failed, retry {2}",
+                            new Object[]{housecodes.length, failed.size(), retry});
+                    if (!failed.isEmpty() && running) {
+                        if (retry < MAX_RETRIES) {
+                            startRound(group, toArray(failed), retry + 1, RETRY_DELAY_NANOS);
+                        } else {
+                            LOGGER.log(Level.SEVERE, "Give up FHT maintenance of {0}", failed);
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+
+        void cancel() {
+            if (task != null) {
+                task.cancel(false);
+            }
+        }
+
+    }
+
+    private final String name;
+    private final CronScheduler cronScheduler;
+    private final ScheduledExecutorService scheduler;
+    private final Operations operations;
+    private final Map<String, Group> groups = new HashMap<>();
+    private Duration window = Duration.ofMinutes(DEFAULT_WINDOW_MINUTES);
+    private boolean running;
+
+    FhtMaintenanceScheduler(String name, CronScheduler cronScheduler, ScheduledExecutorService scheduler, Operations operations) {
+        this.name = name;
+        this.cronScheduler = cronScheduler;
+        this.scheduler = scheduler;
+        this.operations = operations;
+    }
+
+    /**
+     * @param value the configured window in minutes.
+     * @return the window or the default if not configured.
+     */
+    static Duration parseWindow(Object value) {
+        if (value instanceof Number number) {
+            return Duration.ofMinutes(Math.max(0, number.longValue()));
+        } else {
+            return Duration.ofMinutes(DEFAULT_WINDOW_MINUTES);
+        }
+    }
+
+    /**
+     * @param window the devices of one cron pattern are spread over this
+     * time.
+     */
+    synchronized void setWindow(Duration window) {
+        this.window = window.isNegative() ? Duration.ZERO : window;
+    }
+
+    /**
+     * Add a device, it will be maintained at the cron pattern.
+     *
+     * @throws IllegalArgumentException if the cron pattern is invalid.
+     */
+    synchronized void register(short housecode, String cronPattern) {
+        unregister(housecode);
+        Group group = groups.get(cronPattern);
+        if (group == null) {
+            group = new Group(cronPattern);
+            if (running) {
+                schedule(group);
+            }
+            groups.put(cronPattern, group);
+        }
+        group.housecodes.add(housecode);
+    }
+
+    synchronized void unregister(short housecode) {
+        for (Iterator<Group> it = groups.values().iterator(); it.hasNext();) {
+            final Group group = it.next();
+            if (group.housecodes.remove(housecode) && group.housecodes.isEmpty()) {
+                cancel(group);
+                it.remove();
+            }
+        }
+    }
+
+    synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (Group group : groups.values()) {
+            try {
+                schedule(group);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Could not schedule FHT maintenance of " + group.housecodes + " at " + group.cronPattern, e);
+            }
+        }
+    }
+
+    /**
+     * Cancel the cron jobs and running rounds, the devices stay registered.
+     */
+    synchronized void stop() {
+        running = false;
+        for (Group group : groups.values()) {
+            cancel(group);
+        }
+    }
+
+    synchronized int size() {
+        int result = 0;
+        for (Group group : groups.values()) {
+            result += group.housecodes.size();
+        }
+        return result;
+    }
+
+    private void schedule(Group group) {
+        group.cronJob = cronScheduler.schedule(() -> {
+            synchronized (this) {
+                if (running && !group.housecodes.isEmpty()) {
+                    startRound(group, toArray(group.housecodes), 0, 0);
+                }
+            }
+        }, group.cronPattern);
+        LOGGER.log(Level.FINE, "{0}: FHT maintenance of {1} scheduled at {2}", new Object[]{name, group.housecodes, group.cronPattern});
+    }
+
+    private void cancel(Group group) {
+        if (group.cronJob != null) {
+            group.cronJob.cancel(false);
+            group.cronJob = null;
+        }
+        if (group.round != null) {
+            group.round.cancel();
+            group.round = null;
+        }
+    }
+
+    private void startRound(Group group, short[] housecodes, int retry, long delayNanos) {
+        if (group.round != null) {
+            LOGGER.log(Level.WARNING, "{0}: FHT maintenance at {1} is still running, start over", new Object[]{name, group.cronPattern});
+            group.round.cancel();
+        }
+        final Round round = new Round(group, housecodes, retry, delayNanos);
+        group.round = round;
+        round.task = scheduler.schedule(round, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static short[] toArray(Iterable<Short> housecodes) {
+        final List<Short> list = new ArrayList<>();
+        housecodes.forEach(list::add);
+        final short[] result = new short[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i);
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,278 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Learned receive slots of the FHT80b devices.
+ *
+ * An FHT80b listens only in its periodic slot, that is about every 2 minutes.
+ * All frames of one slot (the ones to the FHT8v and the answers to the CUL)
+ * arrive within a few seconds, the first frame of such a burst marks the phase
+ * of the device. The period is learned from the distance of the bursts, missed
+ * slots are counted out, so a period is learned even if not every slot is
+ * heard.
+ *
+ * With a learned slot the {@link CulTransmitQueue} keeps a command until just
+ * before the predicted slot of the device, so the buffer of the CUL holds only
+ * the commands of the devices that are about to listen. Unknown devices and
+ * devices not heard for a long time are not held back.
+ *
+ * The values are kept in parallel primitive arrays of an open addressed
+ * table, written by the dispatcher thread and read by the writer thread, so
+ * all access is synchronized.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class FhtSlotTable {
+
+    /**
+     * Receives the learned slot of one device.
+     */
+    interface Visitor {
+
+        void visit(short housecode, long lastSlotNanos, long periodNanos, long slotCount);
+
+    }
+
+    /**
+     * Frames closer together belong to the same slot.
+     */
+    static final long BURST_NANOS = TimeUnit.SECONDS.toNanos(10);
+    /**
+     * The range of a plausible slot period.
+     */
+    static final long MIN_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(110);
+    static final long MAX_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(125);
+    /**
+     * The deviation of a slot from its prediction, that still counts as in
+     * phase.
+     */
+    static final long JITTER_NANOS = TimeUnit.SECONDS.toNanos(4);
+    /**
+     * Release the commands this time before the predicted slot.
+     */
+    static final long DEFAULT_LEAD_NANOS = TimeUnit.SECONDS.toNanos(10);
+    /**
+     * Missed slots after which the phase is no longer trusted.
+     */
+    static final int MAX_MISSED_SLOTS = 10;
+
+    private static final int EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 32;
+    /**
+     * The shift of the weight of a new period sample, 1/4.
+     */
+    private static final int PERIOD_EWMA_SHIFT = 2;
+
+    private final long leadNanos;
+    private int size;
+    private int[] keys;
+    private long[] lastFrameNanos;
+    private long[] lastSlotNanos;
+    private long[] periodNanos;
+    private long[] slotCount;
+
+    /**
+     * @param leadNanos release the commands this time before the predicted
+     * slot.
+     */
+    FhtSlotTable(long leadNanos) {
+        if (leadNanos < 0 || leadNanos >= MIN_PERIOD_NANOS) {
+            throw new IllegalArgumentException("leadNanos must be in [0, " + MIN_PERIOD_NANOS + ") but was: " + leadNanos);
+        }
+        this.leadNanos = leadNanos;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        lastFrameNanos = new long[capacity];
+        lastSlotNanos = new long[capacity];
+        periodNanos = new long[capacity];
+        slotCount = new long[capacity];
+    }
+
+    private static int indexOf(int key, int mask) {
+        final int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Find the slot of the key in the table.
+     *
+     * @return the index or the negative free index minus one where the key
+     * would be inserted.
+     */
+    private int slotOf(int key) {
+        final int mask = keys.length - 1;
+        int i = indexOf(key, mask);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -i - 1;
+    }
+
+    /**
+     * A frame of the device was received.
+     *
+     * @param housecode the housecode of the device.
+     * @param nanos the {@link System#nanoTime()} of the frame.
+     */
+    synchronized void heard(short housecode, long nanos) {
+        final int key = housecode & 0xffff;
+        int slot = slotOf(key);
+        if (slot < 0) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = slotOf(key);
+            }
+            slot = -slot - 1;
+            keys[slot] = key;
+            lastFrameNanos[slot] = nanos;
+            lastSlotNanos[slot] = nanos;
+            periodNanos[slot] = 0;
+            slotCount[slot] = 1;
+            size++;
+            return;
+        }
+        final long sinceLastFrame = nanos - lastFrameNanos[slot];
+        lastFrameNanos[slot] = nanos;
+        if (sinceLastFrame < BURST_NANOS) {
+            //same slot
+            return;
+        }
+        final long distance = nanos - lastSlotNanos[slot];
+        lastSlotNanos[slot] = nanos;
+        slotCount[slot]++;
+        final long period = periodNanos[slot];
+        if (period == 0) {
+            if (distance >= MIN_PERIOD_NANOS && distance <= MAX_PERIOD_NANOS) {
+                periodNanos[slot] = distance;
+            }
+            return;
+        }
+        final long slots = (distance + period / 2) / period;
+        if (slots < 1 || slots > MAX_MISSED_SLOTS + 1 || Math.abs(distance - slots * period) > JITTER_NANOS) {
+            //out of phase, the new burst is the new phase
+            return;
+        }
+        final long sample = distance / slots;
+        if (sample >= MIN_PERIOD_NANOS && sample <= MAX_PERIOD_NANOS) {
+            periodNanos[slot] = period + ((sample - period) >> PERIOD_EWMA_SHIFT);
+        }
+    }
+
+    private void grow() {
+        final int[] oldKeys = keys;
+        final long[] oldLastFrameNanos = lastFrameNanos;
+        final long[] oldLastSlotNanos = lastSlotNanos;
+        final long[] oldPeriodNanos = periodNanos;
+        final long[] oldSlotCount = slotCount;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                final int slot = -slotOf(oldKeys[i]) - 1;
+                keys[slot] = oldKeys[i];
+                lastFrameNanos[slot] = oldLastFrameNanos[i];
+                lastSlotNanos[slot] = oldLastSlotNanos[i];
+                periodNanos[slot] = oldPeriodNanos[i];
+                slotCount[slot] = oldSlotCount[i];
+            }
+        }
+    }
+
+    /**
+     * @param housecode the housecode of the device.
+     * @param now the {@link System#nanoTime()}.
+     * @return the time until a command for the device should be released, 0
+     * if it should be released now, because the slot is near, just overdue or
+     * not known.
+     */
+    synchronized long nanosUntilRelease(short housecode, long now) {
+        final int slot = slotOf(housecode & 0xffff);
+        if (slot < 0) {
+            return 0;
+        }
+        final long period = periodNanos[slot];
+        if (period == 0) {
+            return 0;
+        }
+        final long elapsed = now - lastSlotNanos[slot];
+        if (elapsed < 0 || elapsed > period * MAX_MISSED_SLOTS) {
+            return 0;
+        }
+        final long phase = elapsed % period;
+        if (elapsed >= period && phase <= JITTER_NANOS) {
+            //the predicted slot is just due, but not heard yet
+            return 0;
+        }
+        final long untilSlot = period - phase;
+        return untilSlot <= leadNanos ? 0 : untilSlot - leadNanos;
+    }
+
+    /**
+     * @param housecode the housecode of the device.
+     * @param now the {@link System#nanoTime()}.
+     * @return the predicted {@link System#nanoTime()} of the next slot or now
+     * if the slot is not known.
+     */
+    synchronized long predictNextSlot(short housecode, long now) {
+        final int slot = slotOf(housecode & 0xffff);
+        if (slot < 0 || periodNanos[slot] == 0) {
+            return now;
+        }
+        final long period = periodNanos[slot];
+        final long elapsed = now - lastSlotNanos[slot];
+        if (elapsed < 0) {
+            return lastSlotNanos[slot];
+        }
+        return now + period - elapsed % period;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized void clear() {
+        allocate(INITIAL_CAPACITY);
+        size = 0;
+    }
+
+    /**
+     * Visit all devices, the visitor is called with the lock held.
+     */
+    synchronized void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                visitor.visit((short) keys[i], lastSlotNanos[i], periodNanos[i], slotCount[i]);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,220 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Objects;
+
+/**
+ * Immutable switch times of a FHT80b for the whole week, that is two from/to
+ * pairs per day.
+ *
+ * The string form is the one of the day channels
+ * "XX:XX-XX:XX XX:XX-XX:XX" for each day from Monday to Sunday separated by
+ * ';'. A single day is used for all days. A day may be unknown, i.e. the
+ * device did not report it yet.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public final class FhtWeekProgram {
+
+    static final String TIME_NOT_SET = "XX:XX";
+    static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    private static final int TIMES_PER_DAY = 4;
+    private static final int DAY_LENGTH = 23;
+    private static final int ALL_DAYS = (1 << 7) - 1;
+
+    /**
+     * The program without any known day.
+     */
+    public static final FhtWeekProgram UNKNOWN = new FhtWeekProgram(new LocalTime[7 * TIMES_PER_DAY], 0);
+
+    /**
+     * from1, to1, from2 and to2 of each day starting with Monday, null if not
+     * set.
+     */
+    private final LocalTime[] times;
+    /**
+     * Bit (day.ordinal()) is set if the day is known.
+     */
+    private final int knownDays;
+
+    private FhtWeekProgram(LocalTime[] times, int knownDays) {
+        this.times = times;
+        this.knownDays = knownDays;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not 1 or 7 days in the
+     * format "XX:XX-XX:XX XX:XX-XX:XX".
+     */
+    public static FhtWeekProgram parse(String value) {
+        final String[] days = value.split(";");
+        if (days.length != 1 && days.length != 7) {
+            throw new IllegalArgumentException("Expected 1 or 7 days separated by ';', but got " + days.length + ": " + value);
+        }
+        final LocalTime[] times = new LocalTime[7 * TIMES_PER_DAY];
+        for (int day = 0; day < 7; day++) {
+            final String s = days[days.length == 1 ? 0 : day].trim();
+            if (s.length() != DAY_LENGTH || s.charAt(5) != '-' || s.charAt(11) != ' ' || s.charAt(17) != '-') {
+                throw new IllegalArgumentException("Expected \"XX:XX-XX:XX XX:XX-XX:XX\", but got: " + s);
+            }
+            for (int i = 0; i < TIMES_PER_DAY; i++) {
+                times[day * TIMES_PER_DAY + i] = parseTime(s.substring(i * 6, i * 6 + 5));
+            }
+        }
+        return new FhtWeekProgram(times, ALL_DAYS);
+    }
+
+    private static LocalTime parseTime(String s) {
+        if (TIME_NOT_SET.equals(s)) {
+            return null;
+        }
+        try {
+            return TIME_FORMATTER.parse(s, LocalTime::from);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Not a time: " + s, e);
+        }
+    }
+
+    /**
+     * @return a copy with the times of the day set.
+     */
+    public FhtWeekProgram withDay(DayOfWeek day, LocalTime from1, LocalTime to1, LocalTime from2, LocalTime to2) {
+        final LocalTime[] result = times.clone();
+        final int offset = day.ordinal() * TIMES_PER_DAY;
+        result[offset] = from1;
+        result[offset + 1] = to1;
+        result[offset + 2] = from2;
+        result[offset + 3] = to2;
+        return new FhtWeekProgram(result, knownDays | (1 << day.ordinal()));
+    }
+
+    public boolean isKnown(DayOfWeek day) {
+        return (knownDays & (1 << day.ordinal())) != 0;
+    }
+
+    /**
+     * @return true if all days are known.
+     */
+    public boolean isComplete() {
+        return knownDays == ALL_DAYS;
+    }
+
+    /**
+     * @param index 0 = from1, 1 = to1, 2 = from2 and 3 = to2.
+     * @return the time or null if not set.
+     */
+    public LocalTime get(DayOfWeek day, int index) {
+        Objects.checkIndex(index, TIMES_PER_DAY);
+        return times[day.ordinal() * TIMES_PER_DAY + index];
+    }
+
+    /**
+     * @return the days of this program that are unknown in the other one or
+     * differ from it.
+     */
+    public EnumSet<DayOfWeek> changedDays(FhtWeekProgram other) {
+        final EnumSet<DayOfWeek> result = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (!isKnown(day)) {
+                continue;
+            }
+            if (!other.isKnown(day)) {
+                result.add(day);
+                continue;
+            }
+            final int offset = day.ordinal() * TIMES_PER_DAY;
+            if (!Arrays.equals(times, offset, offset + TIMES_PER_DAY, other.times, offset, offset + TIMES_PER_DAY)) {
+                result.add(day);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the day in the format "XX:XX-XX:XX XX:XX-XX:XX".
+     */
+    public String format(DayOfWeek day) {
+        final StringBuilder sb = new StringBuilder(DAY_LENGTH);
+        formatDay(sb, day);
+        return sb.toString();
+    }
+
+    /**
+     * @return all days separated by "; ", unknown days as not set.
+     */
+    public String format() {
+        final StringBuilder sb = new StringBuilder(7 * (DAY_LENGTH + 2));
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (sb.length() > 0) {
+                sb.append("; ");
+            }
+            formatDay(sb, day);
+        }
+        return sb.toString();
+    }
+
+    private void formatDay(StringBuilder sb, DayOfWeek day) {
+        final int offset = day.ordinal() * TIMES_PER_DAY;
+        for (int i = 0; i < TIMES_PER_DAY; i++) {
+            if (i == 1 || i == 3) {
+                sb.append('-');
+            } else if (i == 2) {
+                sb.append(' ');
+            }
+            final LocalTime t = times[offset + i];
+            if (t != null) {
+                TIME_FORMATTER.formatTo(t, sb);
+            } else {
+                sb.append(TIME_NOT_SET);
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj instanceof FhtWeekProgram other) {
+            return knownDays == other.knownDays && Arrays.equals(times, other.times);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * knownDays + Arrays.hashCode(times);
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracks the writes to one FHT80b until the device reports the written value.
+ *
+ * There is at most one outstanding write per property, i.e. a
+ * {@link de.ibapl.fhz4j.protocol.fht.FhtProperty} or the
+ * {@link java.time.DayOfWeek} of a cycle. A new write replaces the outstanding
+ * one, the caller of the replaced write gets the same future as the new one.
+ * A reported value that differs from the written one (i.e. a report sent
+ * before the device got the command) does not confirm the write.
+ *
+ * An unconfirmed write is sent again after a timeout, that doubles with each
+ * attempt, as the command may have been lost on air or in the buffer of the
+ * CUL. If it is still unconfirmed at the deadline, the future fails with a
+ * {@link TimeoutException}.
+ *
+ * The time from the first write to the confirmation is recorded in a
+ * {@link LatencyHistogram} in milliseconds, with the lock of the tracker
+ * held, so the frames of the device may arrive from more than one dispatcher.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class FhtWriteTracker {
+
+    private static final Logger LOGGER = Logger.getLogger("d.i.o.f.h.FhtWriteTracker");
+
+    /**
+     * About two receive slots of the device.
+     */
+    static final long DEFAULT_FIRST_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    static final long DEFAULT_DEADLINE_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+    private static final class Outstanding {
+
+        final Enum<?> property;
+        Object expected;
+        Supplier<CompletableFuture<Void>> resend;
+        long firstWriteNanos;
+        long deadlineNanos;
+        int attempts;
+        ScheduledFuture<?> timer;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        Outstanding(Enum<?> property) {
+            this.property = property;
+        }
+
+    }
+
+    private final String name;
+    private final ScheduledExecutorService scheduler;
+    private final long firstTimeoutMillis;
+    private final long deadlineMillis;
+    /**
+     * Guarded by this.
+     */
+    private final Map<Enum<?>, Outstanding> outstanding = new HashMap<>();
+    private final LatencyHistogram confirmationLatency = new LatencyHistogram();
+    private long confirmedCount;
+    private long resendCount;
+    private long failedCount;
+
+    /**
+     * @param name the name of the device for the log.
+     * @param scheduler schedules the resends.
+     * @param firstTimeoutMillis the time to wait for the first confirmation.
+     * @param deadlineMillis the time after the first write, when an
+     * unconfirmed write fails.
+     */
+    FhtWriteTracker(String name, ScheduledExecutorService scheduler, long firstTimeoutMillis, long deadlineMillis) {
+        if (firstTimeoutMillis <= 0 || deadlineMillis < firstTimeoutMillis) {
+            throw new IllegalArgumentException("Need 0 < firstTimeoutMillis <= deadlineMillis but was: " + firstTimeoutMillis + ", " + deadlineMillis);
+        }
+        this.name = name;
+        this.scheduler = scheduler;
+        this.firstTimeoutMillis = firstTimeoutMillis;
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    /**
+     * Write and track the value.
+     *
+     * @param property the written property.
+     * @param expected the value the device reports after the write.
+     * @param write writes the value, called again for a resend.
+     * @return the future completed when the device reports the value.
+     */
+    CompletableFuture<Void> track(Enum<?> property, Object expected, Supplier<CompletableFuture<Void>> write) {
+        final CompletableFuture<Void> result = expect(property, expected, write);
+        write.get();
+        return result;
+    }
+
+    /**
+     * Track a value that was written with others in one command.
+     *
+     * @param property the written property.
+     * @param expected the value the device reports after the write.
+     * @param resend writes the value alone for a resend.
+     * @return the future completed when the device reports the value.
+     */
+    synchronized CompletableFuture<Void> expect(Enum<?> property, Object expected, Supplier<CompletableFuture<Void>> resend) {
+        Outstanding o = outstanding.get(property);
+        if (o == null) {
+            o = new Outstanding(property);
+            outstanding.put(property, o);
+        } else {
+            o.timer.cancel(false);
+        }
+        final long now = System.nanoTime();
+        o.expected = expected;
+        o.resend = resend;
+        o.firstWriteNanos = now;
+        o.deadlineNanos = now + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        o.attempts = 1;
+        o.timer = schedule(o, firstTimeoutMillis);
+        return o.result;
+    }
+
+    private ScheduledFuture<?> schedule(Outstanding o, long delayMillis) {
+        return scheduler.schedule(() -> timeout(o), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void timeout(Outstanding o) {
+        final Supplier<CompletableFuture<Void>> resend;
+        synchronized (this) {
+            if (outstanding.get(o.property) != o) {
+                return;
+            }
+            final long now = System.nanoTime();
+            final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(o.deadlineNanos - now);
+            if (remainingMillis <= 0) {
+                outstanding.remove(o.property);
+                failedCount++;
+                o.result.completeExceptionally(new TimeoutException(name + " did not confirm " + o.property + " = " + o.expected
+                        + " after " + o.attempts + " writes"));
+                return;
+            }
+            final long timeoutMillis = Math.min(firstTimeoutMillis << Math.min(o.attempts, 16), remainingMillis);
+            o.attempts++;
+            resendCount++;
+            o.timer = schedule(o, timeoutMillis);
+            resend = o.resend;
+            LOGGER.log(Level.INFO, "{0} did not confirm {1} = {2}, write again, attempt {3}",
+                    new Object[]{name, o.property, o.expected, o.attempts});
+        }
+        resend.get();
+    }
+
+    /**
+     * The device reported the value of the property.
+     *
+     * @return true if an outstanding write was confirmed.
+     */
+    boolean reported(Enum<?> property, Object value) {
+        final Outstanding o;
+        synchronized (this) {
+            o = outstanding.get(property);
+            if (o == null || !o.expected.equals(value)) {
+                return false;
+            }
+            outstanding.remove(property);
+            o.timer.cancel(false);
+            confirmedCount++;
+            confirmationLatency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - o.firstWriteNanos));
+        }
+        o.result.complete(null);
+        return true;
+    }
+
+    /**
+     * Stop tracking, the futures of the outstanding writes are cancelled.
+     */
+    void clear() {
+        final Outstanding[] cancelled;
+        synchronized (this) {
+            cancelled = outstanding.values().toArray(Outstanding[]::new);
+            outstanding.clear();
+        }
+        for (Outstanding o : cancelled) {
+            o.timer.cancel(false);
+            o.result.completeExceptionally(new CancellationException("Tracking of " + name + " stopped"));
+        }
+    }
+
+    synchronized int size() {
+        return outstanding.size();
+    }
+
+    /**
+     * @return the counts of the confirmation latency in milliseconds since
+     * the tracker was created.
+     */
+    synchronized long[] confirmationLatency() {
+        return confirmationLatency.snapshot();
+    }
+
+    @Override
+    public synchronized String toString() {
+        final long[] latency = confirmationLatency.snapshot();
+        final StringBuilder sb = new StringBuilder();
+        sb.append("confirmed=").append(confirmedCount).append(", resent=").append(resendCount).append(", failed=").append(failedCount);
+        if (LatencyHistogram.totalCount(latency) > 0) {
+            sb.append(String.format(", latency p50=%.1f s, p90=%.1f s, p99=%.1f s, max=%.1f s",
+                    LatencyHistogram.valueAtPercentile(latency, 50) / 1000.0, LatencyHistogram.valueAtPercentile(latency, 90) / 1000.0,
+                    LatencyHistogram.valueAtPercentile(latency, 99) / 1000.0, LatencyHistogram.maxValue(latency) / 1000.0));
+        }
+        final long now = System.nanoTime();
+        for (Outstanding o : outstanding.values()) {
+            sb.append(String.format("%n  outstanding %s = %s since %d s, writes=%d", o.property, o.expected,
+                    TimeUnit.NANOSECONDS.toSeconds(now - o.firstWriteNanos), o.attempts));
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.thing.Thing;
+import org.openhab.core.thing.binding.BaseThingHandler;
+import org.openhab.core.types.State;
+
+/**
+ * Base of the device handlers, publishes the states through a
+ * {@link ChannelStateFilter}.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+abstract class FilteredThingHandler<E extends Enum<E> & ChannelUIDTable.ChannelId> extends BaseThingHandler {
+
+    private final E signalStrengthChannel;
+    private volatile ChannelStateFilter<E> stateFilter;
+
+    /**
+     * A handler of a device without a signal strength channel.
+     */
+    protected FilteredThingHandler(Thing thing) {
+        this(thing, null);
+    }
+
+    /**
+     * @param signalStrengthChannel the channel of
+     * {@link #updateSignalStrength(float)}.
+     */
+    protected FilteredThingHandler(Thing thing, E signalStrengthChannel) {
+        super(thing);
+        this.signalStrengthChannel = signalStrengthChannel;
+    }
+
+    /**
+     * Create the filter with the publish interval of the thing
+     * configuration, called from initialize.
+     */
+    protected void initStateFilter(ChannelUIDTable<E> channelUIDs) {
+        stateFilter = new ChannelStateFilter<>(channelUIDs,
+                ChannelStateFilter.parsePublishInterval(getConfig().get(ChannelStateFilter.PUBLISH_INTERVAL_PARAM)));
+    }
+
+    @Override
+    public void channelLinked(ChannelUID channelUID) {
+        //Publish the next state of the new link even if it is unchanged
+        final ChannelStateFilter<E> sf = stateFilter;
+        if (sf != null) {
+            sf.reset(channelUID);
+        }
+        super.channelLinked(channelUID);
+    }
+
+    protected void publish(E channel, State state) {
+        final ChannelUID channelUID = stateFilter.filter(channel, state);
+        if (channelUID != null) {
+            updateState(channelUID, state);
+        }
+    }
+
+    protected void publish(E channel, int zone, State state) {
+        final ChannelUID channelUID = stateFilter.filter(channel, zone, state);
+        if (channelUID != null) {
+            updateState(channelUID, state);
+        }
+    }
+
+    /**
+     * @param signalStrength the averaged signal strength of the device in dBm
+     * or NaN if the CUL did not report one.
+     */
+    public void updateSignalStrength(float signalStrength) {
+        if (signalStrengthChannel != null && !Float.isNaN(signalStrength)) {
+            publish(signalStrengthChannel, new DecimalType(SignalStrengthTable.round(signalStrength)));
+        }
+    }
+
+    /**
+     * @return the number of state updates not published, because the state
+     * did not change.
+     */
+    public long getSuppressedUpdates() {
+        final ChannelStateFilter<E> sf = stateFilter;
+        return sf == null ? 0 : sf.getSuppressedCount();
+    }
+
+}
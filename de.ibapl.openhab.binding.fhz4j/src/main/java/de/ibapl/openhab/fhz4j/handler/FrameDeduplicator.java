@@ -0,0 +1,320 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import de.ibapl.fhz4j.protocol.em.EmMessage;
+import de.ibapl.fhz4j.protocol.evohome.DeviceId;
+import de.ibapl.fhz4j.protocol.evohome.EvoHomeDeviceMessage;
+import de.ibapl.fhz4j.protocol.evohome.EvoHomeMessage;
+import de.ibapl.fhz4j.protocol.evohome.ZoneTemperature;
+import de.ibapl.fhz4j.protocol.evohome.messages.AbstractZoneSetpointPayloadMessage;
+import de.ibapl.fhz4j.protocol.evohome.messages.AbstractZoneTemperaturePayloadMessage;
+import de.ibapl.fhz4j.protocol.evohome.messages.DeviceBatteryStatusInformationMessage;
+import de.ibapl.fhz4j.protocol.evohome.messages.WindowSensorInformationMessage;
+import de.ibapl.fhz4j.protocol.evohome.messages.ZoneConfigPayloadMessage;
+import de.ibapl.fhz4j.protocol.evohome.messages.ZoneHeatDemandInformationMessage;
+import de.ibapl.fhz4j.protocol.fht.Fht80TfMessage;
+import de.ibapl.fhz4j.protocol.fht.Fht8bMessage;
+import de.ibapl.fhz4j.protocol.fht.FhtDateMessage;
+import de.ibapl.fhz4j.protocol.fht.FhtMessage;
+import de.ibapl.fhz4j.protocol.fht.FhtModeMessage;
+import de.ibapl.fhz4j.protocol.fht.FhtTempMessage;
+import de.ibapl.fhz4j.protocol.fht.FhtTimeMessage;
+import de.ibapl.fhz4j.protocol.fht.FhtTimesMessage;
+import de.ibapl.fhz4j.protocol.fht.FhtValvePosMessage;
+import de.ibapl.fhz4j.protocol.fht.FhtWarningMessage;
+import de.ibapl.fhz4j.protocol.hms.Hms100TfMessage;
+import de.ibapl.fhz4j.protocol.hms.HmsMessage;
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Detects a frame received by more than one CUL of an aggregator.
+ *
+ * The fingerprints of the frames are kept in two generations of open
+ * addressed long sets. A new generation is started after each window, so a
+ * frame is a duplicate if the same fingerprint was seen between one and two
+ * windows ago. There are no tombstones and no per entry timestamps, starting
+ * a generation just clears the older set.
+ *
+ * Not thread safe, the aggregator serializes the calls.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class FrameDeduplicator {
+
+    private static final long EMPTY = 0L;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long windowNanos;
+    private long[] current;
+    private long[] previous;
+    private int currentSize;
+    private long generationStartNanos;
+    private long duplicateCount;
+
+    /**
+     * @param windowNanos frames with the same fingerprint at most this apart
+     * are duplicates.
+     * @param capacity the maximum number of frames expected in a window, a
+     * generation is started early if it is exceeded.
+     */
+    FrameDeduplicator(long windowNanos, int capacity) {
+        if (windowNanos <= 0) {
+            throw new IllegalArgumentException("windowNanos must be > 0 but was: " + windowNanos);
+        }
+        this.windowNanos = windowNanos;
+        //load factor at most 0.5 keeps the probe sequences short
+        final int size = Integer.highestOneBit(Math.max(capacity, 1)) << 2;
+        current = new long[size];
+        previous = new long[size];
+        generationStartNanos = System.nanoTime();
+    }
+
+    /**
+     * The fingerprint is a 64 bit FNV-1a hash of the type and the parsed
+     * fields of the frame, it is computed on the dispatcher threads without
+     * allocation. Of an EvoHome frame the command, the devices and the
+     * payload fields the EvoHomeHandler reads are hashed, EvoHome messages
+     * without such fields and frames of other types fall back to their
+     * string representation.
+     */
+    static long fingerprint(CulFrameType type, Object message) {
+        long h = hash(FNV_OFFSET_BASIS, type.ordinal());
+        if (message instanceof FhtMessage fht) {
+            h = hashFht(h, fht);
+        } else if (message instanceof EmMessage em) {
+            h = hash(h, em.address);
+            h = hash(h, em.emDeviceType);
+            h = hash(h, em.valueCummulated);
+            h = hash(h, em.value5Min);
+            h = hash(h, em.value5MinPeak);
+        } else if (message instanceof HmsMessage hms) {
+            h = hash(h, hms.housecode);
+            h = hash(h, hms.hmsDeviceType);
+            if (hms instanceof Hms100TfMessage tf) {
+                h = hash(h, Float.floatToIntBits(tf.temp));
+                h = hash(h, Float.floatToIntBits(tf.humidy));
+                h = hash(h, tf.deviceStatus);
+            }
+        } else if (message instanceof Fht80TfMessage tf) {
+            h = hash(h, tf.address);
+            h = hash(h, tf.lowBattery ? 1 : 0);
+            h = hash(h, tf.value);
+        } else if (message instanceof EvoHomeMessage evoHome) {
+            h = hash(h, evoHome.command);
+            if (evoHome instanceof EvoHomeDeviceMessage edm) {
+                h = hash(h, edm.deviceId1);
+                h = hash(h, edm.deviceId2);
+            }
+            h = hashEvoHome(h, evoHome);
+        } else {
+            h = hash(h, message.toString());
+        }
+        return h == EMPTY ? 1 : h;
+    }
+
+    private static long hashEvoHome(long h, EvoHomeMessage evoHome) {
+        if (evoHome instanceof ZoneHeatDemandInformationMessage heatDemand) {
+            h = hash(h, heatDemand.heatDemand);
+        } else if (evoHome instanceof AbstractZoneTemperaturePayloadMessage<?> temperature) {
+            h = hash(h, temperature.zoneTemperatures);
+        } else if (evoHome instanceof AbstractZoneSetpointPayloadMessage<?> setpoint) {
+            h = hash(h, setpoint.zoneTemperatures);
+        } else if (evoHome instanceof ZoneConfigPayloadMessage<?> config) {
+            if (config.zones != null) {
+                for (int i = 0; i < config.zones.size(); i++) {
+                    final ZoneConfigPayloadMessage.ZoneParams zone = config.zones.get(i);
+                    h = hash(h, zone.zoneId);
+                    h = hash(h, zone.minTemperature);
+                    h = hash(h, zone.maxTemperature);
+                    h = hash(h, zone.operationLock ? 1 : 0);
+                    h = hash(h, zone.windowFunction ? 1 : 0);
+                }
+            }
+        } else if (evoHome instanceof DeviceBatteryStatusInformationMessage battery) {
+            h = hash(h, battery.unknown0);
+        } else if (evoHome instanceof WindowSensorInformationMessage window) {
+            h = hash(h, window.zoneId);
+            h = hash(h, window.unknown0);
+        } else {
+            //the payload is not decoded into fields
+            h = hash(h, evoHome.toString());
+        }
+        return h;
+    }
+
+    private static long hashFht(long h, FhtMessage fht) {
+        h = hash(h, fht.housecode);
+        h = hash(h, fht.command);
+        if (fht instanceof Fht8bMessage fht8b) {
+            h = hash(h, fht8b.fromFht_8B ? 1 : 0);
+        }
+        if (fht instanceof FhtTempMessage temp) {
+            h = hash(h, Float.floatToIntBits(temp.temp));
+        } else if (fht instanceof FhtValvePosMessage valve) {
+            h = hash(h, Float.floatToIntBits(valve.position));
+            h = hash(h, valve.allowLowBatteryBeep ? 1 : 0);
+        } else if (fht instanceof FhtModeMessage mode) {
+            h = hash(h, mode.mode);
+        } else if (fht instanceof FhtTimesMessage times) {
+            h = hash(h, times.timeFrom1);
+            h = hash(h, times.timeTo1);
+            h = hash(h, times.timeFrom2);
+            h = hash(h, times.timeTo2);
+        } else if (fht instanceof FhtTimeMessage time) {
+            h = hash(h, time.time);
+        } else if (fht instanceof FhtDateMessage date) {
+            h = hash(h, date.month);
+            h = hash(h, date.day);
+        } else if (fht instanceof FhtWarningMessage warning) {
+            h = hash(h, warning.warnings);
+        }
+        return h;
+    }
+
+    private static long hash(long h, int value) {
+        for (int i = 0; i < 32; i += 8) {
+            h = (h ^ ((value >>> i) & 0xff)) * FNV_PRIME;
+        }
+        return h;
+    }
+
+    private static long hash(long h, Enum<?> value) {
+        return hash(h, value == null ? -1 : value.ordinal());
+    }
+
+    private static long hash(long h, LocalTime value) {
+        return hash(h, value == null ? -1 : value.toSecondOfDay());
+    }
+
+    private static long hash(long h, DeviceId value) {
+        return hash(h, value == null ? -1 : value.id);
+    }
+
+    private static long hash(long h, BigDecimal value) {
+        //stripTrailingZeros would allocate, the parser yields the same scale for the same value
+        return hash(h, value == null ? -1 : value.hashCode());
+    }
+
+    private static long hash(long h, List<ZoneTemperature> values) {
+        if (values != null) {
+            for (int i = 0; i < values.size(); i++) {
+                final ZoneTemperature value = values.get(i);
+                h = hash(h, value.zone);
+                h = hash(h, value.temperature);
+            }
+        }
+        return h;
+    }
+
+    private static long hash(long h, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            h = hash(h, value.charAt(i));
+        }
+        return h;
+    }
+
+    /**
+     * The flags of a set of enums, at most 32 constants.
+     */
+    private static long hash(long h, Set<? extends Enum<?>> values) {
+        int bits = 0;
+        if (values != null) {
+            for (Enum<?> value : values) {
+                bits |= 1 << value.ordinal();
+            }
+        }
+        return hash(h, bits);
+    }
+
+    private static int indexOf(long fingerprint, int mask) {
+        return (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+    }
+
+    private static boolean contains(long[] set, long fingerprint) {
+        final int mask = set.length - 1;
+        int i = indexOf(fingerprint, mask);
+        while (set[i] != EMPTY) {
+            if (set[i] == fingerprint) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    private void insert(long fingerprint) {
+        final int mask = current.length - 1;
+        int i = indexOf(fingerprint, mask);
+        while (current[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        current[i] = fingerprint;
+        currentSize++;
+    }
+
+    private void nextGeneration(long nowNanos) {
+        final long[] cleared = previous;
+        previous = current;
+        Arrays.fill(cleared, EMPTY);
+        current = cleared;
+        currentSize = 0;
+        generationStartNanos = nowNanos;
+    }
+
+    /**
+     * Remember the frame.
+     *
+     * @param fingerprint the fingerprint of the frame.
+     * @param nowNanos the {@link System#nanoTime()} the frame was received.
+     * @return true if the frame was already seen within the window.
+     */
+    boolean isDuplicate(long fingerprint, long nowNanos) {
+        final long age = nowNanos - generationStartNanos;
+        if (age >= 2 * windowNanos) {
+            //both generations are out of the window
+            nextGeneration(nowNanos);
+            nextGeneration(nowNanos);
+        } else if (age >= windowNanos) {
+            nextGeneration(nowNanos);
+        }
+        if (contains(current, fingerprint) || contains(previous, fingerprint)) {
+            duplicateCount++;
+            return true;
+        }
+        if ((currentSize + 1) * 2 > current.length) {
+            nextGeneration(nowNanos);
+        }
+        insert(fingerprint);
+        return false;
+    }
+
+    long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+}
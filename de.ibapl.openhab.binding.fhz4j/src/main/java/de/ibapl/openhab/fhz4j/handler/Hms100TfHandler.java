@@ -35,7 +35,6 @@ import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingStatus;
 import org.openhab.core.thing.ThingStatusDetail;
-import org.openhab.core.thing.binding.BaseThingHandler;
 import org.openhab.core.types.Command;
 
 /**
@@ -44,7 +43,26 @@ import org.openhab.core.types.Command;
  *
  * @author aploese@gmx.de - Initial contribution
  */
-public class Hms100TfHandler extends BaseThingHandler {
+public class Hms100TfHandler extends FilteredThingHandler<Hms100TfHandler.HmsChannel> {
+
+    enum HmsChannel implements ChannelUIDTable.ChannelId {
+        TEMPERATURE_MEASURED(CHANNEL_TEMPERATURE_MEASURED),
+        HUMIDITY_MEASURED(CHANNEL_HUMIDITY_MEASURED),
+        BATT_LOW(CHANNEL_BATT_LOW),
+        SIGNAL_STRENGTH(CHANNEL_SIGNAL_STRENGTH);
+
+        private final String channelId;
+
+        private HmsChannel(String channelId) {
+            this.channelId = channelId;
+        }
+
+        @Override
+        public String getChannelId() {
+            return channelId;
+        }
+
+    }
 
     protected ThingStatusDetail owHandlerStatus = ThingStatusDetail.HANDLER_CONFIGURATION_PENDING;
 
@@ -52,8 +70,10 @@ public class Hms100TfHandler extends BaseThingHandler {
 
     private short housecode;
 
+    private ChannelUIDTable<HmsChannel> channelUIDs;
+
     public Hms100TfHandler(Thing thing) {
-        super(thing);
+        super(thing, HmsChannel.SIGNAL_STRENGTH);
     }
 
     @Override
@@ -64,6 +84,8 @@ public class Hms100TfHandler extends BaseThingHandler {
     @Override
     public void initialize() {
         logger.log(Level.FINE, "thing {0} is initializing", this.thing.getUID());
+        channelUIDs = new ChannelUIDTable<>(getThing().getUID(), HmsChannel.class);
+        initStateFilter(channelUIDs);
         Configuration configuration = getConfig();
         try {
             housecode = ((Number) configuration.get("housecode")).shortValue();
@@ -97,14 +119,14 @@ public class Hms100TfHandler extends BaseThingHandler {
     public void updateFromMsg(HmsMessage hmsMessage) {
         switch (hmsMessage.hmsDeviceType) {
             case HMS_100_TF -> {
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_TEMPERATURE_MEASURED),
+                publish(HmsChannel.TEMPERATURE_MEASURED,
                         new DecimalType(((Hms100TfMessage) hmsMessage).temp));
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_HUMIDITY_MEASURED),
+                publish(HmsChannel.HUMIDITY_MEASURED,
                         new DecimalType(((Hms100TfMessage) hmsMessage).humidy));
                 if (((Hms100TfMessage) hmsMessage).deviceStatus.contains(HmsDeviceStatus.BATT_LOW)) {
-                    updateState(new ChannelUID(getThing().getUID(), CHANNEL_BATT_LOW), OnOffType.ON);
+                    publish(HmsChannel.BATT_LOW, OnOffType.ON);
                 } else {
-                    updateState(new ChannelUID(getThing().getUID(), CHANNEL_BATT_LOW), OnOffType.OFF);
+                    publish(HmsChannel.BATT_LOW, OnOffType.OFF);
                 }
             }
             default ->
@@ -33,15 +33,18 @@ import de.ibapl.fhz4j.protocol.fht.FhtTimesMessage;
 import de.ibapl.fhz4j.protocol.fht.FhtValvePosMessage;
 import de.ibapl.fhz4j.protocol.fht.FhtWarningMessage;
 import static de.ibapl.openhab.fhz4j.FHZ4JBindingConstants.*;
-import java.io.IOException;
+import static de.ibapl.openhab.fhz4j.handler.FhtWeekProgram.TIME_FORMATTER;
+import static de.ibapl.openhab.fhz4j.handler.FhtWeekProgram.TIME_NOT_SET;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.openhab.core.config.core.Configuration;
@@ -49,17 +52,14 @@ import org.openhab.core.library.types.DateTimeType;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.StringType;
-import org.openhab.core.scheduler.CronScheduler;
-import org.openhab.core.scheduler.ScheduledCompletableFuture;
 import org.openhab.core.thing.Bridge;
 import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingStatus;
 import org.openhab.core.thing.ThingStatusDetail;
-import org.openhab.core.thing.binding.BaseThingHandler;
-import org.openhab.core.thing.binding.BridgeHandler;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.RefreshType;
+import org.openhab.core.types.UnDefType;
 
 /**
  * The {@link RadiatorFht80bHandler} is responsible for handling commands, which
@@ -67,7 +67,45 @@ import org.openhab.core.types.RefreshType;
  *
  * @author aploese@gmx.de - Initial contribution
  */
-public class RadiatorFht80bHandler extends BaseThingHandler {
+public class RadiatorFht80bHandler extends FilteredThingHandler<RadiatorFht80bHandler.FhtChannel> {
+
+    enum FhtChannel implements ChannelUIDTable.ChannelId {
+        MODE(CHANNEL_MODE),
+        HOLYDAY_END_DATE(CHANNEL_HOLYDAY_END_DATE),
+        PARTY_END_TIME(CHANNEL_PARTY_END_TIME),
+        BATT_LOW(CHANNEL_BATT_LOW),
+        TEMPERATURE_DAY(CHANNEL_TEMPERATURE_DAY),
+        TEMPERATURE_NIGHT(CHANNEL_TEMPERATURE_NIGHT),
+        TEMPERATURE_WINDOW_OPEN(CHANNEL_TEMPERATURE_WINDOW_OPEN),
+        VALVE_POSITION(CHANNEL_VALVE_POSITION),
+        VALVE_ALLOW_LOW_BATT_BEEP(CHANNEL_VALVE_ALLOW_LOW_BATT_BEEP),
+        TEMPERATURE_MEASURED(CHANNEL_TEMPERATURE_MEASURED),
+        DESIRED_TEMPERATURE(CHANNEL_DESIRED_TEMPERATURE),
+        MONDAY(CHANNEL_MONDAY),
+        TUESDAY(CHANNEL_TUESDAY),
+        WEDNESDAY(CHANNEL_WEDNESDAY),
+        THURSDAY(CHANNEL_THURSDAY),
+        FRIDAY(CHANNEL_FRIDAY),
+        SATURDAY(CHANNEL_SATURDAY),
+        SUNDAY(CHANNEL_SUNDAY),
+        WEEK_PROGRAM(CHANNEL_WEEK_PROGRAM),
+        SIGNAL_STRENGTH(CHANNEL_SIGNAL_STRENGTH),
+        CONFIRMATION_LATENCY_P50(CHANNEL_CONFIRMATION_LATENCY_P50),
+        CONFIRMATION_LATENCY_P99(CHANNEL_CONFIRMATION_LATENCY_P99),
+        CONFIRMATION_LATENCY_MAX(CHANNEL_CONFIRMATION_LATENCY_MAX);
+
+        private final String channelId;
+
+        private FhtChannel(String channelId) {
+            this.channelId = channelId;
+        }
+
+        @Override
+        public String getChannelId() {
+            return channelId;
+        }
+
+    }
 
     protected ThingStatusDetail fht80HandlerStatus = ThingStatusDetail.HANDLER_CONFIGURATION_PENDING;
 
@@ -78,15 +116,25 @@ public class RadiatorFht80bHandler extends BaseThingHandler {
 
     private short housecode;
 
-    private String cronPatternDevicePing = "0 0 0 ? * SUN *";
+    private String cronPatternDevicePing = FhtMaintenanceScheduler.DEFAULT_CRON_PATTERN;
 
-    private final CronScheduler cronScheduler;
+    /**
+     * The bridge the maintenance is registered at.
+     */
+    private CulBridge maintenanceBridge;
 
-    private ScheduledCompletableFuture refreshJob;
+    private ChannelUIDTable<FhtChannel> channelUIDs;
+    /**
+     * The switch times as last reported by the device.
+     */
+    private volatile FhtWeekProgram reportedWeekProgram = FhtWeekProgram.UNKNOWN;
+    /**
+     * Tracks the writes until the device reports the written values.
+     */
+    private volatile FhtWriteTracker writeTracker;
 
-    public RadiatorFht80bHandler(Thing thing, CronScheduler cronScheduler) {
-        super(thing);
-        this.cronScheduler = cronScheduler;
+    public RadiatorFht80bHandler(Thing thing) {
+        super(thing, FhtChannel.SIGNAL_STRENGTH);
     }
 
     @Override
@@ -105,13 +153,8 @@ public class RadiatorFht80bHandler extends BaseThingHandler {
         switch (channelUID.getId()) {
             case CHANNEL_DESIRED_TEMPERATURE -> {
                 if (command instanceof DecimalType decimalType) {
-                    try {
-                        desiredTemp = decimalType.floatValue();
-                        ((SpswBridgeHandler) (getBridge().getHandler())).sendFhtMessage(housecode,
-                                FhtProperty.DESIRED_TEMP, desiredTemp);
-                    } catch (IOException e) {
-                        LOGGER.log(Level.SEVERE, "handleCommand CHANNEL_DESIRED_TEMPERATURE", e);
-                    }
+                    desiredTemp = decimalType.floatValue();
+                    sendTemp(FhtProperty.DESIRED_TEMP, desiredTemp, "handleCommand CHANNEL_DESIRED_TEMPERATURE");
                 } else if (command instanceof RefreshType) {
                     //TODO
                     desiredTemp = 17.0f;
@@ -120,36 +163,21 @@ public class RadiatorFht80bHandler extends BaseThingHandler {
             }
             case CHANNEL_TEMPERATURE_DAY -> {
                 if (command instanceof DecimalType decimalType) {
-                    try {
-                        ((SpswBridgeHandler) (getBridge().getHandler())).sendFhtMessage(housecode, FhtProperty.DAY_TEMP,
-                                decimalType.floatValue());
-                    } catch (IOException e) {
-                        LOGGER.log(Level.SEVERE, "handleCommand CHANNEL_TEMPERATURE_DAY", e);
-                    }
+                    sendTemp(FhtProperty.DAY_TEMP, decimalType.floatValue(), "handleCommand CHANNEL_TEMPERATURE_DAY");
                 } else if (command instanceof RefreshType) {
                     // updateState(new ChannelUID(getThing().getUID(), CHANNEL_TEMPERATURE), new DecimalType(00.00));
                 }
             }
             case CHANNEL_TEMPERATURE_NIGHT -> {
                 if (command instanceof DecimalType decimalType) {
-                    try {
-                        ((SpswBridgeHandler) (getBridge().getHandler())).sendFhtMessage(housecode,
-                                FhtProperty.NIGHT_TEMP, decimalType.floatValue());
-                    } catch (IOException e) {
-                        LOGGER.log(Level.SEVERE, "handleCommand CHANNEL_TEMPERATURE_NIGHT", e);
-                    }
+                    sendTemp(FhtProperty.NIGHT_TEMP, decimalType.floatValue(), "handleCommand CHANNEL_TEMPERATURE_NIGHT");
                 } else if (command instanceof RefreshType) {
                     // updateState(new ChannelUID(getThing().getUID(), CHANNEL_TEMPERATURE), new DecimalType(00.00));
                 }
             }
             case CHANNEL_TEMPERATURE_WINDOW_OPEN -> {
                 if (command instanceof DecimalType decimalType) {
-                    try {
-                        ((SpswBridgeHandler) (getBridge().getHandler())).sendFhtMessage(housecode,
-                                FhtProperty.WINDOW_OPEN_TEMP, decimalType.floatValue());
-                    } catch (IOException e) {
-                        LOGGER.log(Level.SEVERE, "handleCommand CHANNEL_TEMPERATURE_WINDOW_OPEN", e);
-                    }
+                    sendTemp(FhtProperty.WINDOW_OPEN_TEMP, decimalType.floatValue(), "handleCommand CHANNEL_TEMPERATURE_WINDOW_OPEN");
                 } else if (command instanceof RefreshType) {
                     // updateState(new ChannelUID(getThing().getUID(), CHANNEL_TEMPERATURE), new DecimalType(00.00));
                 }
@@ -189,6 +217,16 @@ public class RadiatorFht80bHandler extends BaseThingHandler {
                     sendCycle(DayOfWeek.SUNDAY, stringType);
                 }
             }
+            case CHANNEL_WEEK_PROGRAM -> {
+                if (command instanceof StringType stringType) {
+                    sendWeekProgram(stringType);
+                } else if (command instanceof RefreshType) {
+                    final FhtWeekProgram week = reportedWeekProgram;
+                    if (week.isComplete()) {
+                        updateState(channelUID, new StringType(week.format()));
+                    }
+                }
+            }
             case CHANNEL_VALVE_POSITION -> {
                 if (command instanceof RefreshType) {
                     // updateState(new ChannelUID(getThing().getUID(), CHANNEL_VALVE_POSITION), new DecimalType(22.22));
@@ -201,17 +239,15 @@ public class RadiatorFht80bHandler extends BaseThingHandler {
             }
             case CHANNEL_MODE -> {
                 if (command instanceof StringType stringType) {
-                    try {
-                        switch (stringType.toString()) {
-                            case "AUTO" ->
-                                ((SpswBridgeHandler) (getBridge().getHandler())).sendFhtModeAutoMessage(housecode);
-                            case "MANUAL" ->
-                                ((SpswBridgeHandler) (getBridge().getHandler())).sendFhtModeManuMessage(housecode);
-                            default ->
-                                throw new IllegalArgumentException("Cant set mode to " + stringType.toString());
-                        }
-                    } catch (IOException e) {
-                        LOGGER.log(Level.SEVERE, "handleCommand CHANNEL_MODE", e);
+                    switch (stringType.toString()) {
+                        case "AUTO" ->
+                            sendTracked(FhtProperty.MODE, Fht80bMode.AUTO,
+                                    () -> getCulBridge().sendFhtModeAutoMessage(housecode), "handleCommand CHANNEL_MODE");
+                        case "MANUAL" ->
+                            sendTracked(FhtProperty.MODE, Fht80bMode.MANUAL,
+                                    () -> getCulBridge().sendFhtModeManuMessage(housecode), "handleCommand CHANNEL_MODE");
+                        default ->
+                            throw new IllegalArgumentException("Cant set mode to " + stringType.toString());
                     }
                 } else if (command instanceof RefreshType) {
                     // updateState(new ChannelUID(getThing().getUID(), CHANNEL_TEMPERATURE), new DecimalType(00.00));
@@ -242,11 +278,10 @@ public class RadiatorFht80bHandler extends BaseThingHandler {
                     }
                     toDateTime = LocalDateTime.of(toDateTime.getYear(), toDateTime.getMonth(), toDateTime.getDayOfMonth(), toTime.getHour(), toTime.getMinute());
 
-                    try {
-                        ((SpswBridgeHandler) (getBridge().getHandler())).sendFhtPartyMessage(housecode, desiredTemp, toDateTime);
-                    } catch (IOException e) {
-                        LOGGER.log(Level.SEVERE, "handleCommand CHANNEL_PARTY_END_TIME", e);
-                    }
+                    final LocalDateTime partyEnd = toDateTime;
+                    final float partyTemp = desiredTemp;
+                    sendTracked(FhtProperty.MODE, Fht80bMode.PARTY,
+                            () -> getCulBridge().sendFhtPartyMessage(housecode, partyTemp, partyEnd), "handleCommand CHANNEL_PARTY_END_TIME");
                 } else if (command instanceof RefreshType) {
                     // updateState(new ChannelUID(getThing().getUID(), CHANNEL_VALVE_POSITION), new DecimalType(22.22));
                 }
@@ -256,11 +291,9 @@ public class RadiatorFht80bHandler extends BaseThingHandler {
                     final ZonedDateTime value = dateTimeType.getZonedDateTime();
 
                     final LocalDate toDate = LocalDate.of(value.getYear(), value.getMonth(), value.getDayOfMonth());
-                    try {
-                        ((SpswBridgeHandler) (getBridge().getHandler())).sendFhtHolidayMessage(housecode, desiredTemp, toDate);
-                    } catch (IOException e) {
-                        LOGGER.log(Level.SEVERE, "handleCommand CHANNEL_HOLYDAY_END_DATE", e);
-                    }
+                    final float holidayTemp = desiredTemp;
+                    sendTracked(FhtProperty.MODE, Fht80bMode.HOLIDAY,
+                            () -> getCulBridge().sendFhtHolidayMessage(housecode, holidayTemp, toDate), "handleCommand CHANNEL_HOLYDAY_END_DATE");
                 } else if (command instanceof RefreshType) {
                     // updateState(new ChannelUID(getThing().getUID(), CHANNEL_VALVE_POSITION), new DecimalType(22.22));
                 }
@@ -270,6 +303,76 @@ public class RadiatorFht80bHandler extends BaseThingHandler {
         }
     }
 
+    /**
+     * The commands are written asynchronously by the bridge, so log a failed
+     * write when it happens.
+     */
+    private void logFailure(CompletableFuture<Void> result, String what) {
+        result.whenComplete((v, t) -> {
+            if (t != null) {
+                LOGGER.log(Level.SEVERE, what + " of " + housecode, t);
+            }
+        });
+    }
+
+    /**
+     * Logs a write that the device did not confirm before the deadline.
+     */
+    private void logUnconfirmed(CompletableFuture<Void> confirmation, String what) {
+        confirmation.whenComplete((v, t) -> {
+            if (t instanceof TimeoutException) {
+                LOGGER.log(Level.WARNING, "{0} of {1} failed: {2}", new Object[]{what, housecode, t.getMessage()});
+            }
+        });
+    }
+
+    private CulBridge getCulBridge() {
+        final Bridge bridge = getBridge();
+        if (bridge != null && bridge.getHandler() instanceof CulBridge culBridge) {
+            return culBridge;
+        }
+        throw new IllegalStateException("No CUL bridge for FHT80b " + housecode);
+    }
+
+    /**
+     * @return the write with its failure logged, also for a resend.
+     */
+    private Supplier<CompletableFuture<Void>> logged(Supplier<CompletableFuture<Void>> write, String what) {
+        return () -> {
+            CompletableFuture<Void> result;
+            try {
+                result = write.get();
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+            logFailure(result, what);
+            return result;
+        };
+    }
+
+    /**
+     * Write the value and send it again until the device reports it.
+     */
+    private void sendTracked(Enum<?> property, Object expected, Supplier<CompletableFuture<Void>> write, String what) {
+        final FhtWriteTracker tracker = writeTracker;
+        if (tracker == null) {
+            logged(write, what).get();
+        } else {
+            logUnconfirmed(tracker.track(property, expected, logged(write, what)), what);
+        }
+    }
+
+    private void sendTemp(FhtProperty property, float temp, String what) {
+        sendTracked(property, roundTemp(temp), () -> getCulBridge().sendFhtMessage(housecode, property, temp), what);
+    }
+
+    /**
+     * @return the temperature in the 0.5 °C steps the device reports.
+     */
+    private static Float roundTemp(float temp) {
+        return Math.round(temp * 2f) / 2f;
+    }
+
     private void sendCycle(DayOfWeek dayOfWeek, StringType command) {
         String value = command.toString();
 
@@ -284,18 +387,57 @@ public class RadiatorFht80bHandler extends BaseThingHandler {
         val = value.substring(18, 23);
         LocalTime to2 = TIME_NOT_SET.equals(val) ? null : TIME_FORMATTER.parse(val, LocalTime::from);
 
+        sendTracked(dayOfWeek, FhtWeekProgram.UNKNOWN.withDay(dayOfWeek, from1, to1, from2, to2).format(dayOfWeek),
+                () -> getCulBridge().sendFhtMessage(housecode, dayOfWeek, from1, to1, from2, to2), "sendCycle");
+    }
+
+    /**
+     * Send only the days that differ from the reported ones, all in one
+     * command.
+     */
+    private void sendWeekProgram(StringType command) {
+        final FhtWeekProgram program;
+        try {
+            program = FhtWeekProgram.parse(command.toString());
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.SEVERE, "Can't parse week program of " + housecode + ": " + command, e);
+            return;
+        }
+        final Set<DayOfWeek> days = program.changedDays(reportedWeekProgram);
+        if (days.isEmpty()) {
+            LOGGER.log(Level.FINE, "Week program of {0} is unchanged", housecode);
+            return;
+        }
+        LOGGER.log(Level.FINE, "Send week program of {0}, changed days: {1}", new Object[]{housecode, days});
+        final Map<DayOfWeek, CompletableFuture<Void>> written;
         try {
-            ((SpswBridgeHandler) (getBridge().getHandler())).sendFhtMessage(housecode, dayOfWeek, from1, to1, from2,
-                    to2);
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "sendCycle", e);
+            written = getCulBridge().sendFhtWeekProgram(housecode, program, days);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "sendWeekProgram of " + housecode, e);
+            return;
         }
+        written.forEach((day, result) -> {
+            logFailure(result, "sendWeekProgram");
+            //wait for the confirmation from the time the day is written, resend only the days the device does not confirm
+            result.thenRun(() -> expectDay(program, day));
+        });
+    }
 
+    private void expectDay(FhtWeekProgram program, DayOfWeek day) {
+        final FhtWriteTracker tracker = writeTracker;
+        if (tracker != null) {
+            logUnconfirmed(tracker.expect(day, program.format(day), logged(() -> getCulBridge().sendFhtMessage(housecode, day,
+                    program.get(day, 0), program.get(day, 1), program.get(day, 2), program.get(day, 3)), "sendWeekProgram")),
+                    "sendWeekProgram");
+        }
     }
 
     @Override
     public void initialize() {
         LOGGER.log(Level.FINE, "thing {0} is initializing", this.thing.getUID());
+        channelUIDs = new ChannelUIDTable<>(getThing().getUID(), FhtChannel.class);
+        reportedWeekProgram = FhtWeekProgram.UNKNOWN;
+        initStateFilter(channelUIDs);
         Configuration configuration = getConfig();
         try {
             housecode = ((Number) configuration.get("housecode")).shortValue();
@@ -304,6 +446,8 @@ public class RadiatorFht80bHandler extends BaseThingHandler {
             fht80HandlerStatus = ThingStatusDetail.HANDLER_INITIALIZING_ERROR;
             return;
         }
+        writeTracker = new FhtWriteTracker("FHT80b " + housecode, scheduler, FhtWriteTracker.DEFAULT_FIRST_TIMEOUT_MILLIS,
+                FhtWriteTracker.DEFAULT_DEADLINE_MILLIS);
         if (configuration.containsKey(CRON_PATTERN_DEVICE_PING)) {
             cronPatternDevicePing = configuration.get(CRON_PATTERN_DEVICE_PING).toString();
         }
@@ -322,23 +466,13 @@ public class RadiatorFht80bHandler extends BaseThingHandler {
             }
         }
         try {
-            refreshJob = cronScheduler.schedule(() -> {
-                LOGGER.log(Level.FINE, "Try run trigger reporting for {0}", housecode);
-                try {
-                    final BridgeHandler myBridge = getBridge().getHandler();
-                    if (myBridge instanceof SpswBridgeHandler spswBridgeHandler) {
-                        spswBridgeHandler.setClock(housecode, LocalDateTime.now());
-                        spswBridgeHandler.initFhtReporting(housecode);
-                        LOGGER.log(Level.INFO, "Did run update clock and trigger reporting of {0} succesfully", housecode);
-                    } else {
-                        LOGGER.log(Level.SEVERE, "Reporting for {0} not triggerd, can't get bridge.", housecode);
-                    }
-                } catch (IOException ioe) {
-                    LOGGER.log(Level.SEVERE, "Could not init fht reporting for " + housecode + "due to an IO error", ioe);
-                } catch (NullPointerException npe) {
-                    LOGGER.log(Level.SEVERE, "Could not init fht reporting for " + housecode + "due cul adapter may be null", npe);
-                }
-            }, cronPatternDevicePing);
+            //The bridge spreads the clock sync and reporting trigger of all devices
+            if (bridge.getHandler() instanceof CulBridge culBridge) {
+                culBridge.registerFhtMaintenance(housecode, cronPatternDevicePing);
+                maintenanceBridge = culBridge;
+            } else {
+                LOGGER.log(Level.SEVERE, "Reporting for {0} not scheduled, can't get bridge.", housecode);
+            }
         } catch (Exception ex) {
             LOGGER.log(Level.SEVERE, "Could not schedule fht reporting for:" + housecode, ex);
             updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR, "Can't schedule refresh job. " + ex);
@@ -348,8 +482,14 @@ public class RadiatorFht80bHandler extends BaseThingHandler {
 
     @Override
     public void dispose() {
-        if (refreshJob != null) {
-            refreshJob.cancel(false);
+        if (maintenanceBridge != null) {
+            maintenanceBridge.unregisterFhtMaintenance(housecode);
+            maintenanceBridge = null;
+        }
+        final FhtWriteTracker tracker = writeTracker;
+        if (tracker != null) {
+            writeTracker = null;
+            tracker.clear();
         }
     }
 
@@ -358,20 +498,21 @@ public class RadiatorFht80bHandler extends BaseThingHandler {
     }
 
     private void updateMode(FhtModeMessage modeMsg) {
-        updateState(new ChannelUID(getThing().getUID(), CHANNEL_MODE), new StringType(modeMsg.mode.name()));
+        confirm(FhtProperty.MODE, modeMsg.mode);
+        publish(FhtChannel.MODE, new StringType(modeMsg.mode.name()));
         switch (modeMsg.mode) {
             case AUTO -> {
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_HOLYDAY_END_DATE), new StringType());
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_PARTY_END_TIME), new StringType());
+                publish(FhtChannel.HOLYDAY_END_DATE, new StringType());
+                publish(FhtChannel.PARTY_END_TIME, new StringType());
             }
             case MANUAL -> {
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_HOLYDAY_END_DATE), new StringType());
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_PARTY_END_TIME), new StringType());
+                publish(FhtChannel.HOLYDAY_END_DATE, new StringType());
+                publish(FhtChannel.PARTY_END_TIME, new StringType());
             }
             case PARTY ->
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_HOLYDAY_END_DATE), new StringType());
+                publish(FhtChannel.HOLYDAY_END_DATE, new StringType());
             case HOLIDAY ->
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_PARTY_END_TIME), new StringType());
+                publish(FhtChannel.PARTY_END_TIME, new StringType());
             default -> {
             }
         }
@@ -382,63 +523,72 @@ public class RadiatorFht80bHandler extends BaseThingHandler {
             case MODE ->
                 updateMode((FhtModeMessage) fhtMsg);
             case MONDAY_TIMES ->
-                update_FROM_TO(CHANNEL_MONDAY, (FhtTimesMessage) fhtMsg);
+                update_FROM_TO(FhtChannel.MONDAY, DayOfWeek.MONDAY, (FhtTimesMessage) fhtMsg);
             case TUESDAY_TIMES ->
-                update_FROM_TO(CHANNEL_TUESDAY, (FhtTimesMessage) fhtMsg);
+                update_FROM_TO(FhtChannel.TUESDAY, DayOfWeek.TUESDAY, (FhtTimesMessage) fhtMsg);
             case WEDNESDAY_TIMES ->
-                update_FROM_TO(CHANNEL_WEDNESDAY, (FhtTimesMessage) fhtMsg);
+                update_FROM_TO(FhtChannel.WEDNESDAY, DayOfWeek.WEDNESDAY, (FhtTimesMessage) fhtMsg);
             case THURSDAY_TIMES ->
-                update_FROM_TO(CHANNEL_THURSDAY, (FhtTimesMessage) fhtMsg);
+                update_FROM_TO(FhtChannel.THURSDAY, DayOfWeek.THURSDAY, (FhtTimesMessage) fhtMsg);
             case FRIDAY_TIMES ->
-                update_FROM_TO(CHANNEL_FRIDAY, (FhtTimesMessage) fhtMsg);
+                update_FROM_TO(FhtChannel.FRIDAY, DayOfWeek.FRIDAY, (FhtTimesMessage) fhtMsg);
             case SATURDAYDAY_TIMES ->
-                update_FROM_TO(CHANNEL_SATURDAY, (FhtTimesMessage) fhtMsg);
+                update_FROM_TO(FhtChannel.SATURDAY, DayOfWeek.SATURDAY, (FhtTimesMessage) fhtMsg);
             case SUNDAYDAY_TIMES ->
-                update_FROM_TO(CHANNEL_SUNDAY, (FhtTimesMessage) fhtMsg);
+                update_FROM_TO(FhtChannel.SUNDAY, DayOfWeek.SUNDAY, (FhtTimesMessage) fhtMsg);
             case WARNINGS -> {
                 final Set<Fht80bWarning> warnings = ((FhtWarningMessage) fhtMsg).warnings;
                 if (warnings.contains(Fht80bWarning.BATT_LOW)) {
-                    updateState(new ChannelUID(getThing().getUID(), CHANNEL_BATT_LOW), OnOffType.ON);
+                    publish(FhtChannel.BATT_LOW, OnOffType.ON);
                 } else {
-                    updateState(new ChannelUID(getThing().getUID(), CHANNEL_BATT_LOW), OnOffType.OFF);
+                    publish(FhtChannel.BATT_LOW, OnOffType.OFF);
                 }
             }
-            case DAY_TEMP ->
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_TEMPERATURE_DAY),
+            case DAY_TEMP -> {
+                confirmTemp(FhtProperty.DAY_TEMP, (FhtTempMessage) fhtMsg);
+                publish(FhtChannel.TEMPERATURE_DAY,
                         new DecimalType(((FhtTempMessage) fhtMsg).temp));
-            case NIGHT_TEMP ->
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_TEMPERATURE_NIGHT),
+            }
+            case NIGHT_TEMP -> {
+                confirmTemp(FhtProperty.NIGHT_TEMP, (FhtTempMessage) fhtMsg);
+                publish(FhtChannel.TEMPERATURE_NIGHT,
                         new DecimalType(((FhtTempMessage) fhtMsg).temp));
-            case WINDOW_OPEN_TEMP ->
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_TEMPERATURE_WINDOW_OPEN),
+            }
+            case WINDOW_OPEN_TEMP -> {
+                confirmTemp(FhtProperty.WINDOW_OPEN_TEMP, (FhtTempMessage) fhtMsg);
+                publish(FhtChannel.TEMPERATURE_WINDOW_OPEN,
                         new DecimalType(((FhtTempMessage) fhtMsg).temp));
+            }
             case MANU_TEMP -> {
             }
             case HOLIDAY_END_DATE -> {
                 updateHolidays((FhtDateMessage) fhtMsg);
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_MODE),
+                confirm(FhtProperty.MODE, Fht80bMode.HOLIDAY);
+                publish(FhtChannel.MODE,
                         new StringType(Fht80bMode.HOLIDAY.name()));
             }
             case PARTY_END_TIME -> {
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_PARTY_END_TIME),
+                confirm(FhtProperty.MODE, Fht80bMode.PARTY);
+                publish(FhtChannel.PARTY_END_TIME,
                         new StringType((((FhtTimeMessage) fhtMsg).time.format(TIME_FORMATTER))));
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_MODE), new StringType(Fht80bMode.PARTY.name()));
+                publish(FhtChannel.MODE, new StringType(Fht80bMode.PARTY.name()));
             }
             case VALVE -> {
                 //Do ignore FhtValveSynhcMessage
                 if (fhtMsg instanceof FhtValvePosMessage fhtValvePosMessage) {
-                    updateState(new ChannelUID(getThing().getUID(), CHANNEL_VALVE_POSITION),
+                    publish(FhtChannel.VALVE_POSITION,
                             new DecimalType((fhtValvePosMessage.position)));
-                    updateState(new ChannelUID(getThing().getUID(), CHANNEL_VALVE_ALLOW_LOW_BATT_BEEP),
+                    publish(FhtChannel.VALVE_ALLOW_LOW_BATT_BEEP,
                             fhtValvePosMessage.allowLowBatteryBeep ? OnOffType.ON : OnOffType.OFF);
                 }
             }
             case MEASURED_TEMP ->
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_TEMPERATURE_MEASURED),
+                publish(FhtChannel.TEMPERATURE_MEASURED,
                         new DecimalType((((FhtTempMessage) fhtMsg).temp)));
             case DESIRED_TEMP -> {
                 desiredTemp = ((FhtTempMessage) fhtMsg).temp;
-                updateState(new ChannelUID(getThing().getUID(), CHANNEL_DESIRED_TEMPERATURE),
+                confirmTemp(FhtProperty.DESIRED_TEMP, (FhtTempMessage) fhtMsg);
+                publish(FhtChannel.DESIRED_TEMPERATURE,
                         new DecimalType(desiredTemp));
             }
 
@@ -447,44 +597,56 @@ public class RadiatorFht80bHandler extends BaseThingHandler {
         }
     }
 
+    private void confirm(Enum<?> property, Object value) {
+        final FhtWriteTracker tracker = writeTracker;
+        if (tracker != null && tracker.reported(property, value)) {
+            LOGGER.log(Level.FINE, "FHT80b {0} confirmed {1} = {2}", new Object[]{housecode, property, value});
+            final long[] latency = tracker.confirmationLatency();
+            publishLatency(FhtChannel.CONFIRMATION_LATENCY_P50, LatencyHistogram.valueAtPercentile(latency, 50));
+            publishLatency(FhtChannel.CONFIRMATION_LATENCY_P99, LatencyHistogram.valueAtPercentile(latency, 99));
+            publishLatency(FhtChannel.CONFIRMATION_LATENCY_MAX, LatencyHistogram.maxValue(latency));
+        }
+    }
+
+    /**
+     * @param millis the latency or -1 if no write was confirmed.
+     */
+    private void publishLatency(FhtChannel channel, long millis) {
+        publish(channel, millis < 0 ? UnDefType.UNDEF : new DecimalType(millis / 1000.0));
+    }
+
+    private void confirmTemp(FhtProperty property, FhtTempMessage tempMsg) {
+        confirm(property, roundTemp(tempMsg.temp));
+    }
+
     private void updateHolidays(FhtDateMessage fhtMsg) {
         ZonedDateTime now = ZonedDateTime.now();
         ZonedDateTime result = ZonedDateTime.of(now.getYear(), fhtMsg.month, fhtMsg.day, 0, 0, 0, 0, now.getZone());
         if (result.isBefore(now)) {
             result = result.plusYears(1);
         }
-        updateState(new ChannelUID(getThing().getUID(), CHANNEL_HOLYDAY_END_DATE), new DateTimeType(result));
+        publish(FhtChannel.HOLYDAY_END_DATE, new DateTimeType(result));
     }
 
-    private final static DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
-    private final static String TIME_NOT_SET = "XX:XX";
-
-    private void update_FROM_TO(String channelFromTo, FhtTimesMessage timesMessage) {
-        StringBuilder sb = new StringBuilder();
-        if (timesMessage.timeFrom1 != null) {
-            TIME_FORMATTER.formatTo(timesMessage.timeFrom1, sb);
-        } else {
-            sb.append(TIME_NOT_SET);
-        }
-        sb.append('-');
-        if (timesMessage.timeTo1 != null) {
-            TIME_FORMATTER.formatTo(timesMessage.timeTo1, sb);
-        } else {
-            sb.append(TIME_NOT_SET);
-        }
-        sb.append(' ');
-        if (timesMessage.timeFrom2 != null) {
-            TIME_FORMATTER.formatTo(timesMessage.timeFrom2, sb);
-        } else {
-            sb.append(TIME_NOT_SET);
+    private void update_FROM_TO(FhtChannel channelFromTo, DayOfWeek day, FhtTimesMessage timesMessage) {
+        //Only the dispatcher thread updates the reported program
+        final FhtWeekProgram week = reportedWeekProgram.withDay(day, timesMessage.timeFrom1, timesMessage.timeTo1,
+                timesMessage.timeFrom2, timesMessage.timeTo2);
+        reportedWeekProgram = week;
+        final String times = week.format(day);
+        confirm(day, times);
+        publish(channelFromTo, new StringType(times));
+        if (week.isComplete()) {
+            publish(FhtChannel.WEEK_PROGRAM, new StringType(week.format()));
         }
-        sb.append('-');
-        if (timesMessage.timeTo2 != null) {
-            TIME_FORMATTER.formatTo(timesMessage.timeTo2, sb);
-        } else {
-            sb.append(TIME_NOT_SET);
-        }
-        updateState(new ChannelUID(getThing().getUID(), channelFromTo), new StringType(sb.toString()));
+    }
+
+    /**
+     * @return the confirmation statistics and the outstanding writes.
+     */
+    public String getWriteConfirmationStatus() {
+        final FhtWriteTracker tracker = writeTracker;
+        return tracker == null ? "not initialized" : tracker.toString();
     }
 
 }
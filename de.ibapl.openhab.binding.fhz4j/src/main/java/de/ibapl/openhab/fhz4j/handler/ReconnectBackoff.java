@@ -0,0 +1,80 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Calculates the delay before the next reconnect attempt. The delay doubles
+ * with each failed attempt up to a max interval, a random jitter spreads the
+ * attempts of several bridges (or a flapping USB hub) apart.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class ReconnectBackoff {
+
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final double jitter;
+    private int failedAttempts;
+
+    /**
+     * @param initialDelayMillis the delay before the first attempt.
+     * @param maxDelayMillis the upper bound of the delay.
+     * @param jitter the fraction of the delay to randomize, 0.2 means +/- 20%.
+     */
+    ReconnectBackoff(long initialDelayMillis, long maxDelayMillis, double jitter) {
+        if (initialDelayMillis <= 0 || maxDelayMillis < initialDelayMillis) {
+            throw new IllegalArgumentException("Illegal delays initial: " + initialDelayMillis + " max: " + maxDelayMillis);
+        }
+        if (jitter < 0.0 || jitter >= 1.0) {
+            throw new IllegalArgumentException("Illegal jitter: " + jitter);
+        }
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.jitter = jitter;
+    }
+
+    /**
+     * @return the delay in ms before the next attempt.
+     */
+    synchronized long nextDelayMillis() {
+        long delay = initialDelayMillis;
+        for (int i = 0; i < failedAttempts && delay < maxDelayMillis; i++) {
+            delay <<= 1;
+        }
+        if (delay > maxDelayMillis) {
+            delay = maxDelayMillis;
+        }
+        failedAttempts++;
+        if (jitter == 0.0) {
+            return delay;
+        }
+        final double factor = 1.0 + jitter * (2.0 * ThreadLocalRandom.current().nextDouble() - 1.0);
+        return Math.max(1, Math.round(delay * factor));
+    }
+
+    synchronized void reset() {
+        failedAttempts = 0;
+    }
+
+}
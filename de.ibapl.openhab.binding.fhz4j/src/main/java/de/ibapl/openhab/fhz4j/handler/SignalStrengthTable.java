@@ -0,0 +1,227 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import java.util.Arrays;
+
+/**
+ * Per device statistics of the signal strength (RSSI) reported by the CUL.
+ *
+ * All values are kept in parallel primitive arrays of an open addressed
+ * table, so recording a reading neither allocates nor boxes. The key is the
+ * {@link CulFrameType} of the frame and the address of the sending device,
+ * this keeps i.e. an FHT housecode and an FHT80 TF address apart.
+ *
+ * Written by the dispatcher thread, read by the console, so all access is
+ * synchronized.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class SignalStrengthTable {
+
+    /**
+     * Receives the statistics of one device.
+     */
+    interface Visitor {
+
+        void visit(CulFrameType type, int address, float min, float mean, float max, float ewma, long count);
+
+    }
+
+    private static final long EMPTY = -1L;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final float alpha;
+    private int size;
+    private long[] keys;
+    private float[] min;
+    private float[] max;
+    private float[] ewma;
+    private double[] sum;
+    private long[] count;
+    private long[] lastNanos;
+
+    /**
+     * @param alpha the weight of a new reading in the exponentially weighted
+     * moving average, between 0 (exclusive) and 1 (inclusive).
+     */
+    SignalStrengthTable(float alpha) {
+        if (!(alpha > 0f && alpha <= 1f)) {
+            throw new IllegalArgumentException("alpha must be in (0, 1] but was: " + alpha);
+        }
+        this.alpha = alpha;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        min = new float[capacity];
+        max = new float[capacity];
+        ewma = new float[capacity];
+        sum = new double[capacity];
+        count = new long[capacity];
+        lastNanos = new long[capacity];
+    }
+
+    private static long keyOf(CulFrameType type, int address) {
+        return ((long) type.ordinal() << 32) | (address & 0xffffffffL);
+    }
+
+    private static int indexOf(long key, int mask) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * Find the slot of the key.
+     *
+     * @return the slot or the negative free slot minus one where the key would
+     * be inserted.
+     */
+    private int slotOf(long key) {
+        final int mask = keys.length - 1;
+        int i = indexOf(key, mask);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -i - 1;
+    }
+
+    /**
+     * Record a reading of the device.
+     *
+     * @param type the type of the frame that followed the reading.
+     * @param address the address of the sending device.
+     * @param rssi the signal strength in dBm.
+     * @return the exponentially weighted moving average of the device
+     * including this reading.
+     */
+    synchronized float record(CulFrameType type, int address, float rssi) {
+        final long now = System.nanoTime();
+        final long key = keyOf(type, address);
+        int slot = slotOf(key);
+        if (slot < 0) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = slotOf(key);
+            }
+            slot = -slot - 1;
+            keys[slot] = key;
+            min[slot] = rssi;
+            max[slot] = rssi;
+            ewma[slot] = rssi;
+            sum[slot] = rssi;
+            count[slot] = 1;
+            lastNanos[slot] = now;
+            size++;
+            return rssi;
+        }
+        if (rssi < min[slot]) {
+            min[slot] = rssi;
+        }
+        if (rssi > max[slot]) {
+            max[slot] = rssi;
+        }
+        ewma[slot] += alpha * (rssi - ewma[slot]);
+        sum[slot] += rssi;
+        count[slot]++;
+        lastNanos[slot] = now;
+        return ewma[slot];
+    }
+
+    private void grow() {
+        final long[] oldKeys = keys;
+        final float[] oldMin = min;
+        final float[] oldMax = max;
+        final float[] oldEwma = ewma;
+        final double[] oldSum = sum;
+        final long[] oldCount = count;
+        final long[] oldLastNanos = lastNanos;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                final int slot = -slotOf(oldKeys[i]) - 1;
+                keys[slot] = oldKeys[i];
+                min[slot] = oldMin[i];
+                max[slot] = oldMax[i];
+                ewma[slot] = oldEwma[i];
+                sum[slot] = oldSum[i];
+                count[slot] = oldCount[i];
+                lastNanos[slot] = oldLastNanos[i];
+            }
+        }
+    }
+
+    /**
+     * @return the exponentially weighted moving average of the device or NaN
+     * if there is no reading of it.
+     */
+    synchronized float getEwma(CulFrameType type, int address) {
+        final int slot = slotOf(keyOf(type, address));
+        return slot < 0 ? Float.NaN : ewma[slot];
+    }
+
+    /**
+     * @param notBeforeNanos the {@link System#nanoTime()} of the oldest reading
+     * that counts.
+     * @return the exponentially weighted moving average of the device or NaN
+     * if there is no reading of it since notBeforeNanos.
+     */
+    synchronized float getEwma(CulFrameType type, int address, long notBeforeNanos) {
+        final int slot = slotOf(keyOf(type, address));
+        return slot < 0 || lastNanos[slot] - notBeforeNanos < 0 ? Float.NaN : ewma[slot];
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Round to the 0.5 dBm resolution of the CUL, so the state filter can
+     * suppress the jitter of the average.
+     *
+     * @param rssi the signal strength in dBm.
+     * @return the rounded signal strength.
+     */
+    static double round(float rssi) {
+        return Math.round(rssi * 2f) / 2.0;
+    }
+
+    synchronized void forEach(Visitor visitor) {
+        final CulFrameType[] types = CulFrameType.values();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                visitor.visit(types[(int) (keys[i] >>> 32)], (int) keys[i], min[i], (float) (sum[i] / count[i]), max[i], ewma[i], count[i]);
+            }
+        }
+    }
+
+    synchronized void clear() {
+        allocate(INITIAL_CAPACITY);
+        size = 0;
+    }
+
+}
@@ -21,28 +21,39 @@
  */
 package de.ibapl.openhab.fhz4j.handler;
 
+import static de.ibapl.openhab.fhz4j.FHZ4JBindingConstants.*;
+
 import de.ibapl.fhz4j.api.FhzHandler;
 import de.ibapl.fhz4j.api.Protocol;
 import de.ibapl.fhz4j.api.Request;
 import de.ibapl.fhz4j.api.Response;
 import de.ibapl.fhz4j.cul.CulAdapter;
 import de.ibapl.fhz4j.cul.CulEobMessage;
+import de.ibapl.fhz4j.cul.CulFhtDeviceOutBufferContentRequest;
+import de.ibapl.fhz4j.cul.CulGetFirmwareVersionRequest;
+import de.ibapl.fhz4j.cul.CulGetHardwareVersionRequest;
+import de.ibapl.fhz4j.cul.CulGetSlowRfSettingsRequest;
 import de.ibapl.fhz4j.cul.CulLovfMessage;
 import de.ibapl.fhz4j.cul.CulMessage;
 import de.ibapl.fhz4j.cul.CulMessageListener;
+import de.ibapl.fhz4j.cul.CulRemainingFhtDeviceOutBufferSizeRequest;
+import de.ibapl.fhz4j.cul.CulRemainingFhtDeviceOutBufferSizeResponse;
 import de.ibapl.fhz4j.cul.SlowRfFlag;
 import de.ibapl.fhz4j.protocol.em.EmMessage;
 import de.ibapl.fhz4j.protocol.evohome.DeviceId;
+import de.ibapl.fhz4j.protocol.evohome.EvoHomeCommand;
 import de.ibapl.fhz4j.protocol.evohome.EvoHomeDeviceMessage;
 import de.ibapl.fhz4j.protocol.evohome.EvoHomeMessage;
 import de.ibapl.fhz4j.protocol.evohome.ZoneTemperature;
 import de.ibapl.fhz4j.protocol.fht.Fht80TfMessage;
-import de.ibapl.fhz4j.protocol.fht.Fht8bMessage;
 import de.ibapl.fhz4j.protocol.fht.FhtMessage;
 import de.ibapl.fhz4j.protocol.fht.FhtProperty;
 import de.ibapl.fhz4j.protocol.fs20.FS20Message;
 import de.ibapl.fhz4j.protocol.hms.HmsMessage;
 import de.ibapl.fhz4j.protocol.lacrosse.tx2.LaCrosseTx2Message;
+import de.ibapl.openhab.spsw.trace.ReplaySerialPortSocketFactory;
+import de.ibapl.openhab.spsw.trace.SerialPortTrace;
+import de.ibapl.openhab.spsw.trace.TracingSerialPortSocket;
 import de.ibapl.spsw.api.SerialPortSocket;
 import de.ibapl.spsw.api.SerialPortSocketFactory;
 import de.ibapl.spsw.api.Speed;
@@ -54,200 +65,133 @@ import de.ibapl.spsw.logging.TimeStampLogging;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.EnumSet;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.openhab.core.config.core.Configuration;
+import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.scheduler.CronScheduler;
-import org.openhab.core.scheduler.ScheduledCompletableFuture;
 import org.openhab.core.thing.Bridge;
 import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingStatus;
 import org.openhab.core.thing.ThingStatusDetail;
+import org.openhab.core.thing.ThingUID;
 import org.openhab.core.thing.binding.BaseBridgeHandler;
 import org.openhab.core.thing.binding.ThingHandler;
 import org.openhab.core.types.Command;
+import org.openhab.core.types.UnDefType;
 
 /**
  *
  * @author aploese@gmx.de - Initial contribution
  */
 //TODO rename to something like CulHandler
-public class SpswBridgeHandler extends BaseBridgeHandler {
+public class SpswBridgeHandler extends BaseBridgeHandler implements CulBridge {
 
+    /**
+     * Runs on the receive thread of the CUL adapter, so it only hands the
+     * parsed frames over to the {@link #receiveBuffer}. Updating the things is
+     * done by the dispatcher thread.
+     */
     private class Listener implements CulMessageListener {
 
-        float lastSignalStrength = Float.NaN;
+        private float lastSignalStrength = Float.NaN;
 
-        @Override
-        public void emDataParsed(EmMessage emMsg) {
-            final Em1000EmHandler emh = emThingHandler.get(emMsg.address);
-            if (emh == null) {
-                // Discovery
-                if (discoveryListener != null) {
-                    discoveryListener.emDataParsed(emMsg);
+        private void publish(CulFrameType type, Object message) {
+            final float signalStrength = lastSignalStrength;
+            //The signal strength belongs to the frame that follows
+            lastSignalStrength = Float.NaN;
+            final long nanos = System.nanoTime();
+            final CulFrameMonitor[] m = monitors;
+            for (int i = 0; i < m.length; i++) {
+                if (m[i].accepts(type, message)) {
+                    m[i].offer(type, message, signalStrength, nanos);
                 }
-                return;
             }
-            if (logExplainRead != null) {
-                logExplainRead.explainRead("EM Message: %s", emMsg);
+            if (!receiveBuffer.offer(type, message, signalStrength, nanos)) {
+                final long dropped = receiveBuffer.getDroppedCount();
+                if (dropped == 1 || dropped % 1000 == 0) {
+                    LOGGER.log(Level.WARNING, "Receive buffer full, dropped {0} frames so far", dropped);
+                }
             }
-            emh.updateFromMsg(emMsg);
+        }
+
+        @Override
+        public void emDataParsed(EmMessage emMsg) {
+            publish(CulFrameType.EM, emMsg);
         }
 
         @Override
         public void failed(Throwable t) {
-            if (logExplainRead != null) {
-                logExplainRead.explainRead(t);
-            }
+            publish(CulFrameType.FAILED, t);
         }
 
         @Override
         public void fhtDataParsed(FhtMessage fhtMsg) {
-            if (logExplainRead != null) {
-                if (Float.isNaN(lastSignalStrength)) {
-                    logExplainRead.explainRead("FHT Message: %s", fhtMsg);
-                } else {
-                    logExplainRead.explainRead("FHT Message: %s, signal strength: %f", fhtMsg, lastSignalStrength);
-                }
-            }
-            final RadiatorFht80bHandler rfh = fhtThingHandler.get(fhtMsg.housecode);
-            if (rfh == null) {
-                // Discovery
-                if (discoveryListener != null) {
-                    discoveryListener.fhtDataParsed(fhtMsg);
-                }
-                return;
-            }
-            if (fhtMsg instanceof Fht8bMessage msg && !msg.fromFht_8B) {
-                //no-op Its a message to the Fht8b, not from
-            } else {
-                rfh.updateFromFhtMsg(fhtMsg);
-            }
+            publish(CulFrameType.FHT, fhtMsg);
         }
 
         @Override
         public void fht80TfDataParsed(Fht80TfMessage fht80TfMsg) {
-            if (logExplainRead != null) {
-                if (Float.isNaN(lastSignalStrength)) {
-                    logExplainRead.explainRead("FHT80 TF Message: %s", fht80TfMsg);
-                } else {
-                    logExplainRead.explainRead("FHT80 TF Message: %s, signal strength: %f", fht80TfMsg, lastSignalStrength);
-                }
-            }
-            final Fht80TfHandler fht80TfHandler = fht80TfThingHandler.get(fht80TfMsg.address);
-            if (fht80TfHandler == null) {
-                // Discovery
-                if (discoveryListener != null) {
-                    discoveryListener.fht80TfDataParsed(fht80TfMsg);
-                }
-                return;
-            }
-            fht80TfHandler.updateFromFht80TfMsg(fht80TfMsg);
+            publish(CulFrameType.FHT80_TF, fht80TfMsg);
         }
 
         @Override
         public void fhtPartialDataParsed(FhtMessage fhtMsg) {
-            if (logExplainRead != null) {
-                if (Float.isNaN(lastSignalStrength)) {
-                    logExplainRead.explainRead("FHT Message: %s", fhtMsg);
-                } else {
-                    logExplainRead.explainRead("FHT Message: %s, signal strength: %f", fhtMsg, lastSignalStrength);
-                }
-            }
-            if (discoveryListener != null) {
-                // Discovery
-                discoveryListener.fhtDataParsed(fhtMsg);
-            }
+            publish(CulFrameType.FHT_PARTIAL, fhtMsg);
         }
 
         @Override
         public void fs20DataParsed(FS20Message fs20Msg) {
-            if (logExplainRead != null) {
-                if (Float.isNaN(lastSignalStrength)) {
-                    logExplainRead.explainRead("FS20 Message: %s", fs20Msg);
-                } else {
-                    logExplainRead.explainRead("FS20 Message: %s, signal strength: %f", fs20Msg, lastSignalStrength);
-                }
-            }
+            publish(CulFrameType.FS20, fs20Msg);
         }
 
         @Override
         public void hmsDataParsed(HmsMessage hmsMsg) {
-            if (logExplainRead != null) {
-                if (Float.isNaN(lastSignalStrength)) {
-                    logExplainRead.explainRead("HMS Message: %s", hmsMsg);
-                } else {
-                    logExplainRead.explainRead("HMS Message: %s, signal strength: %f", hmsMsg, lastSignalStrength);
-                }
-            }
-            final Hms100TfHandler hmsh = hmsThingHandler.get(hmsMsg.housecode);
-            if (hmsh == null) {
-                // Discovery
-                if (discoveryListener != null) {
-                    discoveryListener.hmsDataParsed(hmsMsg);
-                }
-                return;
-            }
-            hmsh.updateFromMsg(hmsMsg);
+            publish(CulFrameType.HMS, hmsMsg);
         }
 
         @Override
         public void laCrosseTxParsed(LaCrosseTx2Message msg) {
-            if (logExplainRead != null) {
-                logExplainRead.explainRead("LaCrosseTx2Msg Message: %s", msg);
-            }
+            publish(CulFrameType.LA_CROSSE_TX, msg);
         }
 
         @Override
         public void culMessageParsed(CulMessage msg) {
-            if (logExplainRead != null) {
-                logExplainRead.explainRead("CUL Message: %s", msg);
-                if ((CulLovfMessage.LOVF == msg) || (CulEobMessage.EOB == msg)) {
-                    try {
-                        culAdapter.gatherCulDebugInfos();
-                    } catch (IOException ioe) {
-                        LOGGER.log(Level.SEVERE, "Can't gather CUL debug infos", ioe);
-                    }
-                }
-            }
+            publish(CulFrameType.CUL, msg);
         }
 
         @Override
         public void evoHomeParsed(EvoHomeMessage evoHomeMsg) {
-            if (logExplainRead != null) {
-                logExplainRead.explainRead("EvoHome Message: %s", evoHomeMsg);
-            }
-            if (evoHomeMsg instanceof EvoHomeDeviceMessage edm) {
-                final EvoHomeHandler reh = evoHomeThingHandler.get(edm.deviceId1.id);
-                if (reh == null) {
-                    // Discovery
-                    if (discoveryListener != null) {
-                        discoveryListener.evoHomeParsed(edm);
-                    }
-                    return;
-                }
-
-                reh.updateFromMsg(edm);
-            }
+            publish(CulFrameType.EVO_HOME, evoHomeMsg);
         }
 
         @Override
         public void signalStrength(float signalStrength) {
-            if (logExplainRead != null) {
-                lastSignalStrength = signalStrength;
-            }
+            lastSignalStrength = signalStrength;
         }
 
         @Override
@@ -262,43 +206,260 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
 
         @Override
         public void onIOException(IOException ioe) {
-            /* We synchronize on thne writeLock, while this takes time,
-             * and until we setup a new culAdapter it woult be pointless to try to send anything...
-             */
-            synchronized (writeLock) {
+            connectionLost(ioe);
+        }
+    }
 
-                LOGGER.log(Level.SEVERE, "Got IOE in CUL Adapter", ioe);
-                try {
-                    culAdapter.close();
-                } catch (Exception e) {
+    /**
+     * The state of the connection to the CUL.
+     */
+    public enum ConnectionState {
+        /**
+         * The culAdapter is usable.
+         */
+        CONNECTED,
+        /**
+         * Lost the connection, a reconnect is scheduled.
+         */
+        DISCONNECTED,
+        /**
+         * A reconnect attempt is running.
+         */
+        CONNECTING,
+        /**
+         * The bridge is disposed, no reconnect will be attempted.
+         */
+        CLOSED;
+    }
+
+    /**
+     * Drains the {@link #receiveBuffer} and updates the things.
+     */
+    private class Dispatcher implements Runnable, CulReceiveRingBuffer.FrameConsumer {
+
+        private volatile boolean running = true;
+
+        @Override
+        public void run() {
+            LOGGER.log(Level.FINE, "CUL dispatcher started: {0}", getThing().getUID());
+            while (running) {
+                if (receiveBuffer.drain(this, DISPATCH_BATCH_SIZE) == 0) {
+                    receiveBuffer.awaitFrames(DISPATCH_IDLE_NANOS);
                 }
-                //Delete any reference to culAdaper, so gc can pick it up.
-                culAdapter = null;
-                //Try to run garbage collection
-                LOGGER.log(Level.SEVERE, "set culAdapter to null and run gc first time");
-                System.gc();
-                LOGGER.log(Level.SEVERE, "gc ran first time, wait 5s");
-                try {
-                    Thread.sleep(5000);//try to recover => 5 s rest
-                } catch (InterruptedException ex) {
-                    //nothing to do
+            }
+            LOGGER.log(Level.FINE, "CUL dispatcher stopped: {0}", getThing().getUID());
+        }
+
+        @Override
+        public void onFrame(CulFrameType type, Object message, float signalStrength, long receivedNanos) {
+            if (type.protocol != null) {
+                statistics.frameReceived(type.protocol);
+            }
+            try {
+                switch (type) {
+                    case EM ->
+                        dispatchEm((EmMessage) message, signalStrength, receivedNanos);
+                    case FHT ->
+                        dispatchFht((FhtMessage) message, signalStrength, receivedNanos);
+                    case FHT_PARTIAL ->
+                        dispatchFhtPartial((FhtMessage) message, signalStrength, receivedNanos);
+                    case FHT80_TF ->
+                        dispatchFht80Tf((Fht80TfMessage) message, signalStrength, receivedNanos);
+                    case FS20 ->
+                        explainRead("FS20 Message: %s", message, signalStrength);
+                    case HMS ->
+                        dispatchHms((HmsMessage) message, signalStrength, receivedNanos);
+                    case LA_CROSSE_TX ->
+                        explainRead("LaCrosseTx2Msg Message: %s", message, Float.NaN);
+                    case CUL ->
+                        dispatchCul((CulMessage) message);
+                    case EVO_HOME ->
+                        dispatchEvoHome((EvoHomeMessage) message, signalStrength, receivedNanos);
+                    case FAILED -> {
+                        statistics.event(CulReceiveStatistics.Event.PARSE_FAILURE);
+                        final LogExplainRead ler = logExplainRead;
+                        if (ler != null) {
+                            ler.explainRead((Throwable) message);
+                        }
+                    }
+                    default ->
+                        LOGGER.log(Level.SEVERE, "Unknown frame type {0}: {1}", new Object[]{type, message});
                 }
-                //Try to run garbage collection again ... sometimes only this will pick it up
-                LOGGER.log(Level.SEVERE, "set culAdapter to null and run gc second time");
-                System.gc();
-                LOGGER.log(Level.SEVERE, "gc ran second time, try to create new culAdapter");
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "Could not dispatch CUL frame: " + message, e);
+            }
+            if (statistics.isLatencyEnabled()) {
+                statistics.recordDispatchLatency(System.nanoTime() - receivedNanos);
+            }
+        }
+
+        void stop(Thread thread) {
+            running = false;
+            thread.interrupt();
+            //There must only be one consumer of the receiveBuffer, so wait until this one is gone.
+            boolean interrupted = false;
+            while (thread.isAlive()) {
                 try {
-                    culAdapter = new CulAdapter(createSerialPortSocket(), this, speed);
-                    initCulAdapter();
-                } catch (IOException e) {
-                    updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, e.getMessage());
-                    LOGGER.log(Level.SEVERE, "Can't reopen Serial port", e);
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+    }
+
+    private void explainRead(String format, Object message, float signalStrength) {
+        final LogExplainRead ler = logExplainRead;
+        if (ler != null) {
+            if (Float.isNaN(signalStrength)) {
+                ler.explainRead(format, message);
+            } else {
+                ler.explainRead(format + ", signal strength: %f", message, signalStrength);
+            }
+        }
+    }
+
+    /**
+     * Attribute the signal strength to the device that sent the frame.
+     *
+     * @return the exponentially weighted signal strength of the device or NaN
+     * if the CUL did not report one.
+     */
+    private float recordSignalStrength(CulFrameType type, int address, float signalStrength) {
+        if (Float.isNaN(signalStrength)) {
+            return Float.NaN;
+        }
+        return signalStrengths.record(type, address, signalStrength);
+    }
+
+    /**
+     * Hand the frame of a device over to the thing of the device, if this CUL
+     * is part of an aggregator the aggregator does it.
+     */
+    private void dispatchDevice(CulFrameType type, int address, Object message, float signalStrength, long receivedNanos) {
+        final float averageSignalStrength = recordSignalStrength(type, address, signalStrength);
+        deviceIndex.record(type, address, message, averageSignalStrength);
+        final CulAggregatorHandler agg = aggregator;
+        final boolean known = agg != null
+                ? agg.frameReceived(this, type, address, message, averageSignalStrength, receivedNanos)
+                : deviceRouter.route(type, message, averageSignalStrength);
+        if (!known) {
+            statistics.event(CulReceiveStatistics.Event.UNKNOWN_DEVICE);
+            // Discovery
+            final CulMessageListener dl = discoveryListener;
+            if (dl != null) {
+                switch (type) {
+                    case EM ->
+                        dl.emDataParsed((EmMessage) message);
+                    case FHT ->
+                        dl.fhtDataParsed((FhtMessage) message);
+                    case FHT80_TF ->
+                        dl.fht80TfDataParsed((Fht80TfMessage) message);
+                    case HMS ->
+                        dl.hmsDataParsed((HmsMessage) message);
+                    case EVO_HOME ->
+                        dl.evoHomeParsed((EvoHomeMessage) message);
+                    default ->
+                        LOGGER.log(Level.SEVERE, "Not a device frame {0}: {1}", new Object[]{type, message});
                 }
-                LOGGER.log(Level.SEVERE, "Creating new culAdapter succeeded");
             }
         }
     }
 
+    private void dispatchEm(EmMessage emMsg, float signalStrength, long receivedNanos) {
+        explainRead("EM Message: %s", emMsg, signalStrength);
+        dispatchDevice(CulFrameType.EM, emMsg.address, emMsg, signalStrength, receivedNanos);
+    }
+
+    private void dispatchFht(FhtMessage fhtMsg, float signalStrength, long receivedNanos) {
+        explainRead("FHT Message: %s", fhtMsg, signalStrength);
+        fhtDeviceHeard(fhtMsg.housecode, receivedNanos);
+        //The signal strength of a frame sent to the device is not the one of the device
+        dispatchDevice(CulFrameType.FHT, fhtMsg.housecode, fhtMsg, CulDeviceRouter.isSentByDevice(fhtMsg) ? signalStrength : Float.NaN, receivedNanos);
+    }
+
+    /**
+     * The device is in its receive slot, the CUL sent the buffered commands.
+     */
+    private void fhtDeviceHeard(short housecode, long receivedNanos) {
+        fhtSlots.heard(housecode, receivedNanos);
+        if (fhtBuffer.deviceHeard(housecode)) {
+            wakeUpTransmitQueue();
+        }
+    }
+
+    /**
+     * Admit an FHT command if the buffer of the CUL has room and the device
+     * is about to listen.
+     */
+    private long millisUntilFhtAdmitted(Object address, int bytes) {
+        if (!fhtBuffer.isAdmitted(bytes)) {
+            return CulTransmitQueue.BufferGate.HOLD_ALL;
+        }
+        if (!(address instanceof Short housecode)) {
+            return 0;
+        }
+        final long nanos = fhtSlots.nanosUntilRelease(housecode, System.nanoTime());
+        //round up, so we do not wake up just before the release
+        return nanos == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(nanos) + 1;
+    }
+
+    private void wakeUpTransmitQueue() {
+        final CulTransmitQueue queue = transmitQueue;
+        if (queue != null) {
+            queue.wakeUp();
+        }
+    }
+
+    private void dispatchFhtPartial(FhtMessage fhtMsg, float signalStrength, long receivedNanos) {
+        explainRead("FHT Message: %s", fhtMsg, signalStrength);
+        //The sender of a partial frame is not known, so its signal strength is not recorded
+        fhtDeviceHeard(fhtMsg.housecode, receivedNanos);
+        final CulMessageListener dl = discoveryListener;
+        if (dl != null) {
+            // Discovery
+            dl.fhtDataParsed(fhtMsg);
+        }
+    }
+
+    private void dispatchFht80Tf(Fht80TfMessage fht80TfMsg, float signalStrength, long receivedNanos) {
+        explainRead("FHT80 TF Message: %s", fht80TfMsg, signalStrength);
+        dispatchDevice(CulFrameType.FHT80_TF, fht80TfMsg.address, fht80TfMsg, signalStrength, receivedNanos);
+    }
+
+    private void dispatchHms(HmsMessage hmsMsg, float signalStrength, long receivedNanos) {
+        explainRead("HMS Message: %s", hmsMsg, signalStrength);
+        dispatchDevice(CulFrameType.HMS, hmsMsg.housecode, hmsMsg, signalStrength, receivedNanos);
+    }
+
+    private void dispatchCul(CulMessage msg) {
+        final LogExplainRead ler = logExplainRead;
+        if (ler != null) {
+            ler.explainRead("CUL Message: %s", msg);
+        }
+        if (CulLovfMessage.LOVF == msg) {
+            statistics.event(CulReceiveStatistics.Event.LOVF);
+            fhtBuffer.overflowReported();
+            debugInfoSampler.trigger("LOVF");
+        } else if (CulEobMessage.EOB == msg) {
+            statistics.event(CulReceiveStatistics.Event.EOB);
+            fhtBuffer.overflowReported();
+            debugInfoSampler.trigger("EOB");
+        }
+    }
+
+    private void dispatchEvoHome(EvoHomeMessage evoHomeMsg, float signalStrength, long receivedNanos) {
+        explainRead("EvoHome Message: %s", evoHomeMsg, signalStrength);
+        if (evoHomeMsg instanceof EvoHomeDeviceMessage edm) {
+            //deviceId1 is the sender of the frame
+            dispatchDevice(CulFrameType.EVO_HOME, edm.deviceId1.id, edm, signalStrength, receivedNanos);
+        }
+    }
+
     private final List<SerialPortSocketFactory> serialPortSocketFactories;
 
     private static final String PORT_PARAM = "port";
@@ -307,43 +468,190 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
     private static final String PROTOCOL_FHT_PARAM = "protocolFHT";
     private static final String PROTOCOL_EVO_HOME_PARAM = "protocolEvoHome";
     private static final String LOG_SERIAL_PORT = "logSerialPort";
+    private static final String TRACE_SERIAL_PORT_PARAM = "traceSerialPort";
+    private static final String REPLAY_TRACE_PARAM = "replayTrace";
+    private static final String REPLAY_SPEED_PARAM = "replaySpeed";
+    private static final String DEBUG_INFO_INTERVAL_PARAM = "debugInfoInterval";
+    private static final long FHT_BUFFER_RESPONSE_TIMEOUT_MILLIS = 1000;
+
+    /**
+     * The duty cycle allowed in the 868 MHz band.
+     */
+    private static final double DUTY_CYCLE = 0.01;
+    /**
+     * Maintenance commands (clock, reporting) must leave airtime for about 20
+     * interactive FHT frames.
+     */
+    private static final long MAINTENANCE_AIRTIME_RESERVE_MILLIS = 20 * AirtimeBudget.FHT_FRAME_MILLIS;
+    private static final int EVO_HOME_SETPOINT_PERMANENT_LENGTH = 6;
+    private static final int EVO_HOME_SETPOINT_UNTIL_LENGTH = 13;
+
+    private static final String EVO_HOME_CAPTURE_DIR = "EVO_HOME_CAPTURE";
+    private static final long EVO_HOME_CAPTURE_MAX_FILE_BYTES = 1024 * 1024;
+    private static final Duration EVO_HOME_CAPTURE_MAX_FILE_AGE = Duration.ofDays(1);
+    private static final long EVO_HOME_CAPTURE_MAX_TOTAL_BYTES = 16 * 1024 * 1024;
+
+    private static final String SERIAL_PORT_TRACE_DIR = "SERIAL_PORT_TRACE";
+    private static final String SERIAL_PORT_TRACE_PREFIX = "CUL_";
+    private static final int SERIAL_PORT_TRACE_BUFFER_SIZE = 64 * 1024;
+    private static final long SERIAL_PORT_TRACE_MAX_FILE_BYTES = 1024 * 1024;
+    private static final Duration SERIAL_PORT_TRACE_MAX_FILE_AGE = Duration.ofDays(1);
+    private static final long SERIAL_PORT_TRACE_MAX_TOTAL_BYTES = 16 * 1024 * 1024;
+
+    private static final String DEVICE_INDEX_DIR = "DEVICE_INDEX";
+    private static final String DEVICE_INDEX_SUFFIX = ".idx";
+    /**
+     * 32 KiB, far more devices than a CUL can hear.
+     */
+    private static final int DEVICE_INDEX_CAPACITY = 1024;
 
     private static final Logger LOGGER = Logger.getLogger("d.i.o.f.h.SpswBridgeHandler");
 
+    /**
+     * Enough to buffer a burst like all FHT80b reporting after a restart.
+     */
+    private static final int RECEIVE_BUFFER_SIZE = 1024;
+    private static final CulFrameMonitor[] NO_MONITORS = new CulFrameMonitor[0];
+    private static final int DISPATCH_BATCH_SIZE = 64;
+    private static final long DISPATCH_IDLE_NANOS = 100_000_000L;
+    private static final long STATISTICS_PUBLISH_INTERVAL_SECONDS = 60;
+    /**
+     * Check the estimated FHT buffer occupancy against the CUL.
+     */
+    private static final long FHT_BUFFER_POLL_INTERVAL_SECONDS = 30;
+    /**
+     * A new reading has the weight of 1/8 in the average signal strength of a
+     * device, so a single reflected frame hardly moves it.
+     */
+    private static final float SIGNAL_STRENGTH_EWMA_ALPHA = 0.125f;
+
     private String port;
     private Speed speed;
     private short housecode;
     private boolean protocolEvoHome;
     private boolean protocolFHT;
     private boolean logSerialPort;
+    private boolean traceSerialPort;
+    /**
+     * If not null the CUL traffic is replayed from a trace instead of the serial port.
+     */
+    private SerialPortSocketFactory replayFactory;
+
+    private static final long RECONNECT_INITIAL_DELAY_MILLIS = 1_000;
+    private static final long RECONNECT_MAX_DELAY_MILLIS = 5 * 60 * 1_000;
+    private static final double RECONNECT_JITTER = 0.2;
 
     private CulAdapter culAdapter;
+    /*
+     * The version responses of the CUL adapter versionsAdapter, guarded by writeLock
+     */
+    private CulAdapter versionsAdapter;
+    private Future<Response> firmwareVersionResponse;
+    private Future<Response> hardwareVersionResponse;
     private final Object writeLock = new Object();
-    private final Map<Short, RadiatorFht80bHandler> fhtThingHandler = new HashMap<>();
-    private final Map<Integer, Fht80TfHandler> fht80TfThingHandler = new HashMap<>();
-    private final Map<Integer, EvoHomeHandler> evoHomeThingHandler = new HashMap<>();
-    private final Map<Short, Hms100TfHandler> hmsThingHandler = new HashMap<>();
-    private final Map<Short, Em1000EmHandler> emThingHandler = new HashMap<>();
-    private CulMessageListener discoveryListener;
-    private LogExplainRead logExplainRead;
-    private LogExplainWrite logExplainWrite;
+    private final Listener listener = new Listener();
+
+    /*
+     * Reconnect state machine, guarded by writeLock
+     */
+    private ConnectionState connectionState = ConnectionState.CLOSED;
+    private final ReconnectBackoff reconnectBackoff = new ReconnectBackoff(RECONNECT_INITIAL_DELAY_MILLIS, RECONNECT_MAX_DELAY_MILLIS, RECONNECT_JITTER);
+    private ScheduledFuture<?> reconnectJob;
+    private long disconnectedSinceNanos;
+    /*
+     * Reconnect metrics
+     */
+    private volatile long reconnectAttempts;
+    private volatile long reconnectCount;
+    private volatile long lastReconnectDurationMillis = -1;
+    private final CulDeviceRouter deviceRouter = new CulDeviceRouter();
+    /**
+     * Set while this CUL is a member of an aggregator, which then owns the device things.
+     */
+    private volatile CulAggregatorHandler aggregator;
+    private volatile CulMessageListener discoveryListener;
+    private volatile LogExplainRead logExplainRead;
+    private volatile LogExplainWrite logExplainWrite;
+
+    private final CulReceiveRingBuffer receiveBuffer = new CulReceiveRingBuffer(RECEIVE_BUFFER_SIZE);
+    /**
+     * The attached monitors, copy on write so the receive thread reads them
+     * without a lock.
+     */
+    private volatile CulFrameMonitor[] monitors = NO_MONITORS;
+    private final Object monitorLock = new Object();
+    private final SignalStrengthTable signalStrengths = new SignalStrengthTable(SIGNAL_STRENGTH_EWMA_ALPHA);
+    private final DeviceIndex deviceIndex = new DeviceIndex(DEVICE_INDEX_CAPACITY);
+    private Dispatcher dispatcher;
+    private Thread dispatcherThread;
+    private volatile CulTransmitQueue transmitQueue;
+    private final AirtimeBudget airtimeBudget = new AirtimeBudget(DUTY_CYCLE);
+    private ScheduledFuture<?> airtimeJob;
+    private final CulReceiveStatistics statistics = new CulReceiveStatistics();
+    private ScheduledFuture<?> statisticsJob;
+    private final FhtBufferModel fhtBuffer = new FhtBufferModel();
+    private final FhtSlotTable fhtSlots = new FhtSlotTable(FhtSlotTable.DEFAULT_LEAD_NANOS);
+    private final CulTransmitQueue.BufferGate fhtGate = new CulTransmitQueue.BufferGate() {
+
+        @Override
+        public long millisUntilAdmitted(Object address, int bytes) {
+            return millisUntilFhtAdmitted(address, bytes);
+        }
+
+        @Override
+        public void written(Object address, int bytes) {
+            fhtBuffer.written(address, bytes);
+        }
+
+    };
+    private ScheduledFuture<?> fhtBufferJob;
+    private final AtomicBoolean fhtBufferPollPending = new AtomicBoolean();
 
     //DEBUG
     private final CronScheduler cronScheduler;
-    private ScheduledCompletableFuture refreshJob;
+    private final CulDebugInfoSampler debugInfoSampler = new CulDebugInfoSampler(this::requestCulStatus, scheduler);
+    private long debugInfoInterval;
+    private final EvoHomeCaptureWriter evoHomeCapture;
+    private final SerialPortTrace serialPortTrace;
+    private final FhtMaintenanceScheduler fhtMaintenance;
 
     public SpswBridgeHandler(Bridge bridge, List<SerialPortSocketFactory> serialPortSocketFactories, CronScheduler cronScheduler) {
         super(bridge);
         this.serialPortSocketFactories = serialPortSocketFactories;
         this.cronScheduler = cronScheduler;
+        evoHomeCapture = new EvoHomeCaptureWriter(Path.of(EVO_HOME_CAPTURE_DIR, bridge.getUID().getId()),
+                EVO_HOME_CAPTURE_MAX_FILE_BYTES, EVO_HOME_CAPTURE_MAX_FILE_AGE, EVO_HOME_CAPTURE_MAX_TOTAL_BYTES);
+        evoHomeCapture.setAllEnabled(true);
+        serialPortTrace = new SerialPortTrace(Path.of(SERIAL_PORT_TRACE_DIR, bridge.getUID().getId()), SERIAL_PORT_TRACE_PREFIX,
+                SERIAL_PORT_TRACE_BUFFER_SIZE, SERIAL_PORT_TRACE_MAX_FILE_BYTES, SERIAL_PORT_TRACE_MAX_FILE_AGE, SERIAL_PORT_TRACE_MAX_TOTAL_BYTES);
         protocolFHT = true;
+        fhtMaintenance = new FhtMaintenanceScheduler(bridge.getUID().toString(), cronScheduler, scheduler, new FhtMaintenanceScheduler.Operations() {
+            @Override
+            public CompletableFuture<Void> setClock(short housecode, LocalDateTime localDateTime) {
+                return SpswBridgeHandler.this.setClock(housecode, localDateTime);
+            }
+
+            @Override
+            public CompletableFuture<Void> initFhtReporting(short housecode) {
+                return SpswBridgeHandler.this.initFhtReporting(housecode);
+            }
+
+            @Override
+            public int getRemainingFhtBufferSize(short housecode) {
+                return SpswBridgeHandler.this.getRemainingFhtBufferSize();
+            }
+        });
     }
 
     private SerialPortSocket createSerialPortSocket() throws IOException {
         final String opendString = DateTimeFormatter.ISO_INSTANT.format(Instant.now());
-        for (SerialPortSocketFactory spsf : serialPortSocketFactories) {
+        final List<SerialPortSocketFactory> factories = replayFactory != null ? List.of(replayFactory) : serialPortSocketFactories;
+        for (SerialPortSocketFactory spsf : factories) {
             try {
-                final SerialPortSocket sps = spsf.open(port);
+                SerialPortSocket sps = spsf.open(port);
+                if (traceSerialPort) {
+                    sps = TracingSerialPortSocket.wrap(sps, serialPortTrace);
+                }
                 if (logSerialPort) {
                     LoggingSerialPortSocket result = LoggingSerialPortSocket.wrapWithCustomOutputStream(sps,
                             new SupressReadTimeoutExceptionLogWriter(new FileOutputStream("CUL_SpswBridgeHandler_" + opendString + ".log.txt"),
@@ -374,59 +682,33 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
     @Override
     public void childHandlerInitialized(ThingHandler childHandler, Thing childThing) {
         super.childHandlerInitialized(childHandler, childThing);
-        if (childHandler instanceof RadiatorFht80bHandler rfh) {
-            fhtThingHandler.put(rfh.getHousecode(), rfh);
-            LOGGER.log(Level.INFO, "Added FHT 80B {0}", rfh.getHousecode());
-        } else if (childHandler instanceof Fht80TfHandler fth) {
-            fht80TfThingHandler.put(fth.getAddress(), fth);
-            LOGGER.log(Level.INFO, "Added FHT80 TF {0}", fth.getAddress());
-        } else if (childHandler instanceof EvoHomeHandler ehh) {
-            evoHomeThingHandler.put(ehh.getDeviceId(), ehh);
-            LOGGER.log(Level.INFO, "Added Evo Home device {0}", ehh.getDeviceId());
-        } else if (childHandler instanceof Em1000EmHandler emh) {
-            emThingHandler.put(emh.getAddress(), emh);
-            LOGGER.log(Level.INFO, "Added EM 1000 EM {0}", emh.getAddress());
-        } else if (childHandler instanceof Hms100TfHandler hmsh) {
-            hmsThingHandler.put(hmsh.getHousecode(), hmsh);
-            LOGGER.log(Level.INFO, "Added HMS 100 TF {0}", hmsh.getHousecode());
-        } else {
-            // TODO
-        }
+        deviceRouter.add(childHandler);
     }
 
     @Override
     public void childHandlerDisposed(ThingHandler childHandler, Thing childThing) {
         super.childHandlerDisposed(childHandler, childThing);
-        if (childHandler instanceof RadiatorFht80bHandler rfh) {
-            fhtThingHandler.remove(rfh.getHousecode());
-        } else if (childHandler instanceof Fht80TfHandler fth) {
-            fht80TfThingHandler.remove(fth.getAddress());
-        } else if (childHandler instanceof EvoHomeHandler ehh) {
-            evoHomeThingHandler.remove(ehh.getDeviceId());
-        } else if (childHandler instanceof Em1000EmHandler emh) {
-            emThingHandler.remove(emh.getAddress());
-        } else if (childHandler instanceof Hms100TfHandler hmsh) {
-            hmsThingHandler.remove(hmsh.getHousecode());
-        } else {
-            // TODO
-        }
+        deviceRouter.remove(childHandler);
     }
 
-    private void initCulAdapter() throws IOException {
+    private void initCulAdapter(CulAdapter adapter) throws IOException {
         if (protocolEvoHome) {
             synchronized (writeLock) {
-                culAdapter.initEvoHome();
+                adapter.initEvoHome();
             }
         } else if (protocolFHT) {
             synchronized (writeLock) {
-                culAdapter.initFhz(housecode, EnumSet.of(SlowRfFlag.REPORT_PACKAGE, SlowRfFlag.REPORT_FHT_PROTOCOL_MESSAGES, SlowRfFlag.WITH_RSSI));
+                adapter.initFhz(housecode, EnumSet.of(SlowRfFlag.REPORT_PACKAGE, SlowRfFlag.REPORT_FHT_PROTOCOL_MESSAGES, SlowRfFlag.WITH_RSSI));
             }
         } else {
             //TODO fall back
             synchronized (writeLock) {
-                culAdapter.initFhz(housecode);
+                adapter.initFhz(housecode);
             }
         }
+        //The init clears the FHT buffer of the CUL
+        fhtBuffer.clear();
+        wakeUpTransmitQueue();
     }
 
     @Override
@@ -451,6 +733,29 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
         } else {
             logSerialPort = ((Boolean) config.get(LOG_SERIAL_PORT));
         }
+        traceSerialPort = Boolean.TRUE.equals(config.get(TRACE_SERIAL_PORT_PARAM));
+        if (config.get(REPLAY_TRACE_PARAM) instanceof String replayTrace && !replayTrace.isBlank()) {
+            final double replaySpeed = config.get(REPLAY_SPEED_PARAM) instanceof Number n ? n.doubleValue() : 1;
+            replayFactory = ReplaySerialPortSocketFactory.create(Path.of(replayTrace), replaySpeed);
+            LOGGER.log(Level.WARNING, "Replay CUL traffic from {0} instead of serial port {1}", new Object[]{replayTrace, port});
+        } else {
+            replayFactory = null;
+        }
+        if (traceSerialPort) {
+            serialPortTrace.start("Serial port trace " + getThing().getUID());
+        }
+        try {
+            deviceIndex.open(Path.of(DEVICE_INDEX_DIR, getThing().getUID().getId() + DEVICE_INDEX_SUFFIX));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not open the device index, the devices heard are not recorded", e);
+        }
+
+        if (config.get(DEBUG_INFO_INTERVAL_PARAM) instanceof Number interval) {
+            debugInfoInterval = interval.longValue();
+        } else {
+            debugInfoInterval = 0;
+        }
+        fhtMaintenance.setWindow(FhtMaintenanceScheduler.parseWindow(config.get(FhtMaintenanceScheduler.WINDOW_PARAM)));
 
         Object protocol = config.get(PROTOCOL_FHT_PARAM);
         LOGGER.log(Level.INFO, "Read protocolFHT from config: {0}", protocol);
@@ -472,37 +777,42 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
             this.protocolFHT = true;
         }
 
-        fhtThingHandler.clear();
-        fht80TfThingHandler.clear();
-        emThingHandler.clear();
-        hmsThingHandler.clear();
-        evoHomeThingHandler.clear();
+        deviceRouter.clear();
 
+        startDispatcher();
+        transmitQueue = new CulTransmitQueue("CUL writer " + getThing().getUID(), this::executeCulWrite, airtimeBudget, MAINTENANCE_AIRTIME_RESERVE_MILLIS);
+        transmitQueue.setTransmitListener((p, airtimeMillis) -> updateAirtimeRemaining());
+        transmitQueue.setBufferGate(fhtGate);
+        transmitQueue.start();
+        fhtMaintenance.start();
+        airtimeJob = scheduler.scheduleWithFixedDelay(this::updateAirtimeRemaining, 0, 1, TimeUnit.MINUTES);
+        updateLatencyEnabled();
+        statisticsJob = scheduler.scheduleWithFixedDelay(this::publishStatistics, STATISTICS_PUBLISH_INTERVAL_SECONDS,
+                STATISTICS_PUBLISH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        fhtBufferJob = scheduler.scheduleWithFixedDelay(this::pollFhtBuffer, FHT_BUFFER_POLL_INTERVAL_SECONDS,
+                FHT_BUFFER_POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        //The samples go through the transmit queue, so the sampler runs whether or not the first connect succeeds
+        debugInfoSampler.start(debugInfoInterval);
+        //Captures the frames of a CUL that connects later by reconnect() too
+        if (protocolEvoHome) {
+            evoHomeCapture.start("EvoHome capture " + getThing().getUID());
+        }
+        synchronized (writeLock) {
+            connectionState = ConnectionState.CONNECTING;
+        }
+        reconnectBackoff.reset();
         try {
-            culAdapter = new CulAdapter(createSerialPortSocket(), new Listener(), speed);
-            initCulAdapter();
-        } catch (IOException ioe) {
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, ioe.getMessage());
-            LOGGER.log(Level.SEVERE, "Got IOE in CUL Adapter during initialization", ioe);
-            try {
-                culAdapter.close();
-            } catch (Exception e) {
-                LOGGER.log(Level.SEVERE, "Could not shutdown fhzAdapter", e);
+            final CulAdapter adapter = openCulAdapter();
+            synchronized (writeLock) {
+                culAdapter = adapter;
+                connectionState = ConnectionState.CONNECTED;
             }
-            culAdapter = null;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.SEVERE, "Got exception in CUL Adapter during initialization", e);
+            connectionLost(e);
             return;
         }
 
-        if (protocolFHT && logSerialPort) {
-            refreshJob = cronScheduler.schedule(() -> {
-                try {
-                    culAdapter.gatherCulDebugInfos();
-                } catch (IOException e) {
-                    LOGGER.log(Level.SEVERE, "Could not init fht reporting for " + housecode, e);
-                }
-            }, "0 0 * * * ? *");
-
-        }
         updateStatus(ThingStatus.ONLINE);
         LOGGER.log(Level.INFO, "FhzAdapter initialized");
     }
@@ -511,33 +821,290 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
     public void dispose() {
         //TODO make log level fine
         LOGGER.log(Level.INFO, "Disposing SpswBridgeHandler: {0}", this);
-        if (refreshJob != null) {
-            refreshJob.cancel(true);
-            refreshJob = null;
+        debugInfoSampler.stop();
+        evoHomeCapture.stop();
+        detachAllMonitors();
+        fhtMaintenance.stop();
+
+        if (airtimeJob != null) {
+            airtimeJob.cancel(false);
+            airtimeJob = null;
+        }
+        if (statisticsJob != null) {
+            statisticsJob.cancel(false);
+            statisticsJob = null;
         }
+        if (fhtBufferJob != null) {
+            fhtBufferJob.cancel(false);
+            fhtBufferJob = null;
+        }
+        final CulTransmitQueue queue = transmitQueue;
+        if (queue != null) {
+            transmitQueue = null;
+            queue.close();
+        }
+        final CulAdapter cp;
+        synchronized (writeLock) {
+            connectionState = ConnectionState.CLOSED;
+            if (reconnectJob != null) {
+                reconnectJob.cancel(false);
+                reconnectJob = null;
+            }
+            cp = culAdapter;
+            culAdapter = null;
+        }
+        closeCulAdapter(cp);
+        serialPortTrace.stop();
+        deviceIndex.close();
+        stopDispatcher();
+        deviceRouter.clear();
+
+        LOGGER.log(Level.INFO, "FhzAdapter disposed");
+    }
+
+    private CulAdapter openCulAdapter() throws IOException {
+        final CulAdapter adapter = new CulAdapter(createSerialPortSocket(), listener, speed);
+        try {
+            initCulAdapter(adapter);
+        } catch (IOException | RuntimeException e) {
+            closeCulAdapter(adapter);
+            throw e;
+        }
+        return adapter;
+    }
 
-        if (culAdapter != null) {
-            FhzHandler cp = culAdapter;
+    private void closeCulAdapter(FhzHandler adapter) {
+        if (adapter != null) {
+            try {
+                adapter.close();
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Could not shutdown fhzAdapter", e);
+            }
+        }
+    }
+
+    /**
+     * Called from the receive thread of the culAdapter, so do not block here.
+     * Drop the adapter and let the scheduler reconnect.
+     */
+    private void connectionLost(Exception cause) {
+        final CulAdapter lost;
+        synchronized (writeLock) {
+            if (connectionState == ConnectionState.CLOSED || connectionState == ConnectionState.DISCONNECTED) {
+                return;
+            }
+            lost = culAdapter;
             culAdapter = null;
-            if (cp != null) {
-                try {
-                    cp.close();
-                } catch (Exception e) {
-                    LOGGER.log(Level.SEVERE, "Could not shutdown fhzAdapter", e);
-//Set cp to null, so the gc can collect it.
-//TODO How to suppress warning??                    @SuppressWarnings("Unused Assignment")
-                    cp = null;
-                    //Trigger gc to get rid of current cp ...
-                    System.gc();
+            disconnectedSinceNanos = System.nanoTime();
+            connectionState = ConnectionState.DISCONNECTED;
+            scheduleReconnect();
+        }
+        LOGGER.log(Level.SEVERE, "Lost connection to CUL Adapter", cause);
+        updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, cause.getMessage());
+        closeCulAdapter(lost);
+    }
+
+    /**
+     * Must be called with writeLock held.
+     */
+    private void scheduleReconnect() {
+        final long delay = reconnectBackoff.nextDelayMillis();
+        LOGGER.log(Level.INFO, "Schedule reconnect of CUL Adapter in {0} ms", delay);
+        reconnectJob = scheduler.schedule(this::reconnect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void reconnect() {
+        synchronized (writeLock) {
+            if (connectionState != ConnectionState.DISCONNECTED) {
+                return;
+            }
+            connectionState = ConnectionState.CONNECTING;
+            reconnectJob = null;
+        }
+        reconnectAttempts++;
+        CulAdapter adapter = null;
+        try {
+            adapter = openCulAdapter();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Reconnect of CUL Adapter failed", e);
+        }
+        boolean connected = false;
+        synchronized (writeLock) {
+            if (connectionState == ConnectionState.CONNECTING) {
+                if (adapter != null) {
+                    culAdapter = adapter;
+                    connectionState = ConnectionState.CONNECTED;
+                    connected = true;
+                } else {
+                    connectionState = ConnectionState.DISCONNECTED;
+                    scheduleReconnect();
                 }
             }
         }
-        fhtThingHandler.clear();
-        emThingHandler.clear();
-        hmsThingHandler.clear();
-        evoHomeThingHandler.clear();
+        if (connected) {
+            reconnectBackoff.reset();
+            reconnectCount++;
+            lastReconnectDurationMillis = (System.nanoTime() - disconnectedSinceNanos) / 1_000_000L;
+            LOGGER.log(Level.INFO, "Reconnected CUL Adapter after {0} ms", lastReconnectDurationMillis);
+            updateStatus(ThingStatus.ONLINE);
+        } else if (adapter != null) {
+            //disposed meanwhile
+            closeCulAdapter(adapter);
+        }
+    }
 
-        LOGGER.log(Level.INFO, "FhzAdapter disposed");
+    /**
+     * Must be called with writeLock held.
+     *
+     * @return the connected adapter.
+     * @throws IOException if there is currently no connection to the CUL, so
+     * the caller fails fast instead of waiting for the reconnect.
+     */
+    private CulAdapter connectedCulAdapter() throws IOException {
+        if (connectionState != ConnectionState.CONNECTED) {
+            throw new IOException("CUL Adapter is not connected: " + connectionState);
+        }
+        return culAdapter;
+    }
+
+    public ConnectionState getConnectionState() {
+        synchronized (writeLock) {
+            return connectionState;
+        }
+    }
+
+    /**
+     * @return the number of reconnect attempts, successful or not.
+     */
+    public long getReconnectAttempts() {
+        return reconnectAttempts;
+    }
+
+    /**
+     * @return the number of successful reconnects.
+     */
+    public long getReconnectCount() {
+        return reconnectCount;
+    }
+
+    /**
+     * @return the time in ms from loosing the connection until the last
+     * successful reconnect or -1 if there was no reconnect yet.
+     */
+    public long getLastReconnectDurationMillis() {
+        return lastReconnectDurationMillis;
+    }
+
+    private void startDispatcher() {
+        dispatcher = new Dispatcher();
+        dispatcherThread = new Thread(dispatcher, "CUL dispatcher " + getThing().getUID());
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }
+
+    private void stopDispatcher() {
+        if (dispatcher != null) {
+            dispatcher.stop(dispatcherThread);
+            dispatcher = null;
+            dispatcherThread = null;
+        }
+    }
+
+    /**
+     * @return the number of received frames waiting to be dispatched to the
+     * things.
+     */
+    public int getReceiveQueueDepth() {
+        return receiveBuffer.getDepth();
+    }
+
+    /**
+     * @return the maximum number of received frames that were waiting at the
+     * same time.
+     */
+    public int getReceiveQueueHighWaterMark() {
+        return receiveBuffer.getHighWaterMark();
+    }
+
+    /**
+     * @return the number of received frames dropped, because the dispatcher
+     * could not keep up.
+     */
+    public long getReceiveQueueDroppedCount() {
+        return receiveBuffer.getDroppedCount();
+    }
+
+    /**
+     * @return the UID of the bridge discovered devices belong to, the
+     * aggregator if this CUL is a member of one.
+     */
+    public ThingUID getDeviceBridgeUID() {
+        final CulAggregatorHandler agg = aggregator;
+        return agg != null ? agg.getThing().getUID() : getThing().getUID();
+    }
+
+    /**
+     * Called by the aggregator if this CUL becomes or is no longer a member.
+     */
+    void setAggregator(CulAggregatorHandler aggregator) {
+        this.aggregator = aggregator;
+    }
+
+    /**
+     * @param notBeforeNanos ignore a device not heard since then.
+     * @return the averaged signal strength this CUL receives from the device
+     * or NaN if it did not hear it recently.
+     */
+    float getAverageSignalStrength(CulFrameType type, int address, long notBeforeNanos) {
+        return signalStrengths.getEwma(type, address, notBeforeNanos);
+    }
+
+    /**
+     * @return all devices this CUL has heard, also before a restart.
+     */
+    public DeviceIndex getDeviceIndex() {
+        return deviceIndex;
+    }
+
+    /**
+     * Start to copy the received frames that match the filter of the monitor
+     * to it.
+     */
+    public void attachMonitor(CulFrameMonitor monitor) {
+        synchronized (monitorLock) {
+            final CulFrameMonitor[] m = Arrays.copyOf(monitors, monitors.length + 1);
+            m[m.length - 1] = monitor;
+            monitors = m;
+        }
+        LOGGER.log(Level.FINE, "Monitor attached to {0}: {1}", new Object[]{getThing().getUID(), monitor});
+    }
+
+    public void detachMonitor(CulFrameMonitor monitor) {
+        synchronized (monitorLock) {
+            final CulFrameMonitor[] m = monitors;
+            for (int i = 0; i < m.length; i++) {
+                if (m[i] == monitor) {
+                    final CulFrameMonitor[] result = new CulFrameMonitor[m.length - 1];
+                    System.arraycopy(m, 0, result, 0, i);
+                    System.arraycopy(m, i + 1, result, i, m.length - i - 1);
+                    monitors = result.length == 0 ? NO_MONITORS : result;
+                    break;
+                }
+            }
+        }
+        monitor.close();
+        LOGGER.log(Level.FINE, "Monitor detached from {0}: {1}", new Object[]{getThing().getUID(), monitor});
+    }
+
+    private void detachAllMonitors() {
+        final CulFrameMonitor[] m;
+        synchronized (monitorLock) {
+            m = monitors;
+            monitors = NO_MONITORS;
+        }
+        for (CulFrameMonitor monitor : m) {
+            monitor.close();
+        }
     }
 
     public CulMessageListener getDiscoveryListener() {
@@ -548,94 +1115,472 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
         this.discoveryListener = discoveryListener;
     }
 
-    public void sendFhtModeAutoMessage(short housecode) throws IOException, NullPointerException {
+    /**
+     * Called from the writer thread of the transmitQueue.
+     */
+    private void executeCulWrite(CulTransmitQueue.CulWrite write) throws IOException {
         synchronized (writeLock) {
-            if (logExplainWrite != null) {
-                logExplainWrite.explainWrite("Set mode to auto of: %d", housecode);
-            }
-            culAdapter.gatherCulDebugInfos();
-            culAdapter.writeFhtModeAuto(housecode);
-            culAdapter.gatherCulDebugInfos();
+            write.write(connectedCulAdapter());
         }
     }
 
-    public void sendFhtModeManuMessage(short housecode) throws IOException, NullPointerException {
-        synchronized (writeLock) {
-            culAdapter.gatherCulDebugInfos();
-            culAdapter.writeFhtModeManu(housecode);
-            culAdapter.gatherCulDebugInfos();
+    private CompletableFuture<Void> submitFht(short housecode, Enum<?> property, int frames, CulTransmitQueue.CulWrite write) {
+        return submitFht(housecode, property, frames, FhtBufferModel.estimateBytes(frames), write);
+    }
+
+    private CompletableFuture<Void> submitFht(short housecode, Enum<?> property, int frames, int bufferBytes, CulTransmitQueue.CulWrite write) {
+        final CulTransmitQueue queue = transmitQueue;
+        if (queue == null) {
+            return CompletableFuture.failedFuture(new IOException("CUL Adapter is not initialized"));
         }
+        return queue.submit(Protocol.FHT, housecode, property, AirtimeBudget.estimateFhtMillis(frames), bufferBytes, write);
     }
 
-    public void sendFhtMessage(short housecode, FhtProperty fhtProperty, float value) throws IOException, NullPointerException {
-        synchronized (writeLock) {
-            culAdapter.gatherCulDebugInfos();
-            culAdapter.writeFht(housecode, fhtProperty, value);
-            culAdapter.gatherCulDebugInfos();
+    private CompletableFuture<Void> submitFhtMaintenance(short housecode, int frames, CulTransmitQueue.CulWrite write) {
+        final CulTransmitQueue queue = transmitQueue;
+        if (queue == null) {
+            return CompletableFuture.failedFuture(new IOException("CUL Adapter is not initialized"));
         }
+        return queue.submit(CulTransmitQueue.Priority.SCHEDULED, Protocol.FHT, housecode, AirtimeBudget.estimateFhtMillis(frames),
+                FhtBufferModel.estimateBytes(frames), write);
     }
 
-    public void sendFhtMessage(short housecode, DayOfWeek dayOfWeek, LocalTime from1, LocalTime to1, LocalTime from2,
-            LocalTime to2) throws IOException, NullPointerException {
-        synchronized (writeLock) {
-            culAdapter.gatherCulDebugInfos();
-            culAdapter.writeFhtCycle(housecode, dayOfWeek, from1, to1, from2, to2);
-            culAdapter.gatherCulDebugInfos();
+    private CompletableFuture<Void> submit(CulTransmitQueue.Priority priority, Protocol protocol, long airtimeMillis, CulTransmitQueue.CulWrite write) {
+        final CulTransmitQueue queue = transmitQueue;
+        if (queue == null) {
+            return CompletableFuture.failedFuture(new IOException("CUL Adapter is not initialized"));
         }
+        return queue.submit(priority, protocol, airtimeMillis, write);
     }
 
-    public void sendFhtPartyMessage(short housecode, float temp, LocalDateTime to) throws IOException, NullPointerException {
-        synchronized (writeLock) {
-            culAdapter.gatherCulDebugInfos();
-            culAdapter.writeFhtModeParty(housecode, temp, to);
-            culAdapter.gatherCulDebugInfos();
+    /**
+     * Queue a request to the CUL itself behind the interactive and scheduled
+     * commands.
+     *
+     * @return the future completed with the pending response when the request
+     * is written.
+     */
+    public CompletableFuture<Future<Response>> sendRequest(Request request) {
+        final CompletableFuture<Future<Response>> result = new CompletableFuture<>();
+        submit(CulTransmitQueue.Priority.DIAGNOSTIC, null, 0, (ca) -> result.complete(ca.sendRequest(request)))
+                .whenComplete((v, t) -> {
+                    if (t != null) {
+                        result.completeExceptionally(t);
+                    }
+                });
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Void> sendFhtModeAutoMessage(short housecode) {
+        return submitFht(housecode, FhtProperty.MODE, 1, (ca) -> {
+            final LogExplainWrite lew = logExplainWrite;
+            if (lew != null) {
+                lew.explainWrite("Set mode to auto of: %d", housecode);
+            }
+            ca.writeFhtModeAuto(housecode);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> sendFhtModeManuMessage(short housecode) {
+        return submitFht(housecode, FhtProperty.MODE, 1, (ca) -> ca.writeFhtModeManu(housecode));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendFhtMessage(short housecode, FhtProperty fhtProperty, float value) {
+        return submitFht(housecode, fhtProperty, 1, (ca) -> ca.writeFht(housecode, fhtProperty, value));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendFhtMessage(short housecode, DayOfWeek dayOfWeek, LocalTime from1, LocalTime to1, LocalTime from2,
+            LocalTime to2) {
+        return submitFht(housecode, dayOfWeek, 4, (ca) -> ca.writeFhtCycle(housecode, dayOfWeek, from1, to1, from2, to2));
+    }
+
+    @Override
+    public Map<DayOfWeek, CompletableFuture<Void>> sendFhtWeekProgram(short housecode, FhtWeekProgram program, Set<DayOfWeek> days) {
+        //A full week does not fit into the FHT buffer of the CUL, so each day is a command of its own.
+        //The buffer gate admits the days that fit below the high water mark, the others wait for the next slot.
+        final Map<DayOfWeek, CompletableFuture<Void>> result = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : days) {
+            result.put(day, sendFhtMessage(housecode, day, program.get(day, 0), program.get(day, 1), program.get(day, 2), program.get(day, 3)));
         }
+        return result;
     }
 
-    public void sendFhtHolidayMessage(short housecode, float temp, LocalDate to) throws IOException, NullPointerException {
-        synchronized (writeLock) {
-            culAdapter.gatherCulDebugInfos();
-            culAdapter.writeFhtModeHoliday(housecode, temp, to);
-            culAdapter.gatherCulDebugInfos();
+    @Override
+    public CompletableFuture<Void> sendFhtPartyMessage(short housecode, float temp, LocalDateTime to) {
+        return submitFht(housecode, FhtProperty.MODE, 4, (ca) -> ca.writeFhtModeParty(housecode, temp, to));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendFhtHolidayMessage(short housecode, float temp, LocalDate to) {
+        return submitFht(housecode, FhtProperty.MODE, 4, (ca) -> ca.writeFhtModeHoliday(housecode, temp, to));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendEvoHomeZoneSetpointPermanent(DeviceId deviceId, ZoneTemperature temperature) {
+        return submit(CulTransmitQueue.Priority.INTERACTIVE, Protocol.EVO_HOME, AirtimeBudget.estimateEvoHomeMillis(EVO_HOME_SETPOINT_PERMANENT_LENGTH),
+                (ca) -> ca.writeEvoHomeZoneSetpointPermanent(deviceId, temperature));
+    }
+
+    @Override
+    public CompletableFuture<Void> sendEvoHomeZoneSetpointUntil(DeviceId deviceId, ZoneTemperature temperature, LocalDateTime localDateTime) {
+        return submit(CulTransmitQueue.Priority.INTERACTIVE, Protocol.EVO_HOME, AirtimeBudget.estimateEvoHomeMillis(EVO_HOME_SETPOINT_UNTIL_LENGTH),
+                (ca) -> ca.writeEvoHomeZoneSetpointUntil(deviceId, temperature, localDateTime));
+    }
+
+    @Override
+    public CompletableFuture<Void> initFhtReporting(short housecode) {
+        return submitFhtMaintenance(housecode, 1, (ca) -> ca.initFhtReporting(housecode));
+    }
+
+    @Override
+    public CompletableFuture<Void> setClock(short housecode, LocalDateTime localDateTime) {
+        return submitFhtMaintenance(housecode, 5, (ca) -> ca.writeFhtTimeAndDate(housecode, localDateTime));
+    }
+
+    @Override
+    public void registerFhtMaintenance(short housecode, String cronPattern) {
+        fhtMaintenance.register(housecode, cronPattern);
+    }
+
+    @Override
+    public void unregisterFhtMaintenance(short housecode) {
+        fhtMaintenance.unregister(housecode);
+    }
+
+    /**
+     * @return the estimated free bytes of the FHT buffer of the CUL.
+     */
+    int getRemainingFhtBufferSize() {
+        return fhtBuffer.getRemaining();
+    }
+
+    /**
+     * @return the estimated occupancy of the FHT buffer of the CUL.
+     */
+    public String getFhtBufferStatus() {
+        final CulTransmitQueue queue = transmitQueue;
+        return fhtBuffer + (queue == null ? "" : ", held back=" + queue.getHeldBackCount() + ", pending commands=" + queue.size()
+                + " (interactive=" + queue.size(CulTransmitQueue.Priority.INTERACTIVE) + ", scheduled=" + queue.size(CulTransmitQueue.Priority.SCHEDULED)
+                + ", diagnostic=" + queue.size(CulTransmitQueue.Priority.DIAGNOSTIC) + "), promoted by aging=" + queue.getPromotedCount());
+    }
+
+    /**
+     * @return the learned receive slots of the FHT devices, one line per
+     * device.
+     */
+    public String getFhtSlotStatus() {
+        final StringBuilder sb = new StringBuilder();
+        final long now = System.nanoTime();
+        fhtSlots.forEach((housecode, lastSlotNanos, periodNanos, slotCount) -> {
+            if (!sb.isEmpty()) {
+                sb.append('\n');
+            }
+            if (periodNanos == 0) {
+                sb.append(String.format("FHT %d (0x%x): last slot %d s ago, period not learned, slots=%d",
+                        housecode & 0xffff, housecode & 0xffff, TimeUnit.NANOSECONDS.toSeconds(now - lastSlotNanos), slotCount));
+            } else {
+                sb.append(String.format("FHT %d (0x%x): last slot %d s ago, period=%.1f s, next slot in %d s, slots=%d",
+                        housecode & 0xffff, housecode & 0xffff, TimeUnit.NANOSECONDS.toSeconds(now - lastSlotNanos), periodNanos / 1e9,
+                        TimeUnit.NANOSECONDS.toSeconds(fhtSlots.predictNextSlot(housecode, now) - now), slotCount));
+            }
+        });
+        return sb.toString();
+    }
+
+    /**
+     * Replace the estimated FHT buffer occupancy by the one of the CUL, if
+     * there are bytes in the buffer. The request waits in the transmit queue
+     * like the other diagnostic requests, only one is pending at a time.
+     */
+    private void pollFhtBuffer() {
+        if (!fhtBuffer.isPollNeeded() || getConnectionState() != ConnectionState.CONNECTED
+                || !fhtBufferPollPending.compareAndSet(false, true)) {
+            return;
         }
+        sendRequest(new CulRemainingFhtDeviceOutBufferSizeRequest())
+                .thenAcceptAsync(this::fhtBufferSizeReceived, scheduler)
+                .whenComplete((v, t) -> {
+                    fhtBufferPollPending.set(false);
+                    if (t != null) {
+                        LOGGER.log(Level.FINE, "Could not get the remaining FHT buffer size", t);
+                    }
+                });
     }
 
-    public void sendEvoHomeZoneSetpointPermanent(DeviceId deviceId, ZoneTemperature temperature) throws IOException, NullPointerException {
-        synchronized (writeLock) {
-            culAdapter.writeEvoHomeZoneSetpointPermanent(deviceId, temperature);
+    /**
+     * Wait for the response of the CUL to the written request.
+     */
+    private void fhtBufferSizeReceived(Future<Response> pending) {
+        final Response response;
+        try {
+            response = pending.get(FHT_BUFFER_RESPONSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException | TimeoutException e) {
+            LOGGER.log(Level.FINE, "Could not get the remaining FHT buffer size", e);
+            return;
+        }
+        if (response instanceof CulRemainingFhtDeviceOutBufferSizeResponse r) {
+            fhtBuffer.remainingReported(r.remainingSize);
+            wakeUpTransmitQueue();
+        } else {
+            LOGGER.log(Level.WARNING, "Unexpected response to the remaining FHT buffer size request: {0}", response);
         }
     }
 
-    public void sendEvoHomeZoneSetpointUntil(DeviceId deviceId, ZoneTemperature temperature, LocalDateTime localDateTime) throws IOException, NullPointerException {
-        synchronized (writeLock) {
-            culAdapter.writeEvoHomeZoneSetpointUntil(deviceId, temperature, localDateTime);
+    @Override
+    public void captureEvoHomeMsg(EvoHomeDeviceMessage msg) {
+        evoHomeCapture.capture(msg);
+    }
+
+    /**
+     * Switch the capture of EvoHome messages on or off.
+     *
+     * @param command the command or null for all commands.
+     * @param enable on or off.
+     */
+    public void setEvoHomeCaptureEnabled(EvoHomeCommand command, boolean enable) {
+        if (command == null) {
+            evoHomeCapture.setAllEnabled(enable);
+        } else {
+            evoHomeCapture.setEnabled(command, enable);
         }
     }
 
-    public void initFhtReporting(short housecode) throws IOException, NullPointerException {
-        synchronized (writeLock) {
-            culAdapter.gatherCulDebugInfos();
-            culAdapter.initFhtReporting(housecode);
-            culAdapter.gatherCulDebugInfos();
+    public boolean isEvoHomeCaptureEnabled(EvoHomeCommand command) {
+        return evoHomeCapture.isEnabled(command);
+    }
+
+    /**
+     * @return the number of EvoHome messages dropped, because the capture
+     * writer could not keep up.
+     */
+    public long getEvoHomeCaptureDroppedCount() {
+        return evoHomeCapture.getDroppedCount();
+    }
+
+    /**
+     * @return the number of serial port trace records dropped, because the
+     * trace writer could not keep up.
+     */
+    public long getSerialPortTraceDroppedCount() {
+        return serialPortTrace.getDroppedCount();
+    }
+
+    /*
+     * Benchmark hooks, used by the DispatchBenchmark of the benchmark module only.
+     * The benchmark does not initialize the bridge, so there is no CulAdapter and no dispatcher thread.
+     */
+    private Dispatcher benchmarkDispatcher;
+
+    /**
+     * Benchmark hook: the listener the CulAdapter reports the received frames
+     * to.
+     */
+    CulMessageListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Benchmark hook: dispatch the received frames on the calling thread
+     * instead of the dispatcher thread.
+     *
+     * @return the number of dispatched frames.
+     */
+    int dispatchReceivedFrames() {
+        if (benchmarkDispatcher == null) {
+            benchmarkDispatcher = new Dispatcher();
         }
+        return receiveBuffer.drain(benchmarkDispatcher, DISPATCH_BATCH_SIZE);
     }
 
-    void setClock(short housecode, LocalDateTime localDateTime) throws IOException, NullPointerException {
-        synchronized (writeLock) {
-            culAdapter.gatherCulDebugInfos();
-            culAdapter.writeFhtTimeAndDate(housecode, localDateTime);
-            culAdapter.gatherCulDebugInfos();
+    /**
+     * @return the last sampled CUL debug infos or null if there is none yet.
+     */
+    public CulDebugInfoSnapshot getCulDebugInfoSnapshot() {
+        return debugInfoSampler.getSnapshot();
+    }
+
+    /**
+     * @return the signal strength statistics of all devices heard so far, one
+     * line per device.
+     */
+    public String getSignalStrengthStatistics() {
+        final StringBuilder sb = new StringBuilder();
+        signalStrengths.forEach((type, address, min, mean, max, ewma, count) -> {
+            if (!sb.isEmpty()) {
+                sb.append('\n');
+            }
+            sb.append(String.format("%s %d (0x%x): min=%.1f dBm, mean=%.1f dBm, max=%.1f dBm, average=%.1f dBm, readings=%d",
+                    type, address, address, min, mean, max, ewma, count));
+        });
+        return sb.toString();
+    }
+
+    /**
+     * @return the number of commands waiting to be written to the CUL.
+     */
+    public int getTransmitQueueSize() {
+        final CulTransmitQueue queue = transmitQueue;
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * @return the number of commands replaced by a later command for the
+     * same device and property before they were written.
+     */
+    public long getTransmitCommandsCoalesced() {
+        final CulTransmitQueue queue = transmitQueue;
+        return queue == null ? 0 : queue.getCoalescedCount();
+    }
+
+    /**
+     * @return the number of commands that had to wait for airtime.
+     */
+    public long getTransmitCommandsDelayed() {
+        final CulTransmitQueue queue = transmitQueue;
+        return queue == null ? 0 : queue.getDelayedCount();
+    }
+
+    /**
+     * @return the remaining airtime in ms of the duty cycle in the last hour.
+     */
+    public long getAirtimeRemainingMillis() {
+        return airtimeBudget.getRemainingMillis(AirtimeBudget.nowMillis());
+    }
+
+    /**
+     * @param protocol the protocol.
+     * @return the airtime in ms used by the protocol in the last hour.
+     */
+    public long getAirtimeUsedMillis(Protocol protocol) {
+        return airtimeBudget.getUsedMillis(protocol, AirtimeBudget.nowMillis());
+    }
+
+    @Override
+    public void channelLinked(ChannelUID channelUID) {
+        super.channelLinked(channelUID);
+        updateLatencyEnabled();
+    }
+
+    @Override
+    public void channelUnlinked(ChannelUID channelUID) {
+        super.channelUnlinked(channelUID);
+        updateLatencyEnabled();
+    }
+
+    /**
+     * Take the dispatch latency only if anybody reads it.
+     */
+    private void updateLatencyEnabled() {
+        statistics.setLatencyEnabled(isLinked(CHANNEL_DISPATCH_LATENCY_P50)
+                || isLinked(CHANNEL_DISPATCH_LATENCY_P99)
+                || isLinked(CHANNEL_DISPATCH_LATENCY_MAX));
+    }
+
+    private void publishStatistics() {
+        publishCounter(CHANNEL_FRAMES_FS20, statistics.getFrames(Protocol.FS20));
+        publishCounter(CHANNEL_FRAMES_FHT, statistics.getFrames(Protocol.FHT));
+        publishCounter(CHANNEL_FRAMES_HMS, statistics.getFrames(Protocol.HMS));
+        publishCounter(CHANNEL_FRAMES_EM, statistics.getFrames(Protocol.EM));
+        publishCounter(CHANNEL_FRAMES_LA_CROSSE_TX2, statistics.getFrames(Protocol.LA_CROSSE_TX2));
+        publishCounter(CHANNEL_FRAMES_EVO_HOME, statistics.getFrames(Protocol.EVO_HOME));
+        publishCounter(CHANNEL_PARSE_FAILURES, statistics.getEvents(CulReceiveStatistics.Event.PARSE_FAILURE));
+        publishCounter(CHANNEL_UNKNOWN_DEVICE_FRAMES, statistics.getEvents(CulReceiveStatistics.Event.UNKNOWN_DEVICE));
+        publishCounter(CHANNEL_DROPPED_FRAMES, receiveBuffer.getDroppedCount());
+        publishCounter(CHANNEL_LOVF_EVENTS, statistics.getEvents(CulReceiveStatistics.Event.LOVF));
+        publishCounter(CHANNEL_EOB_EVENTS, statistics.getEvents(CulReceiveStatistics.Event.EOB));
+        publishCounter(CHANNEL_RECONNECTS, reconnectCount);
+        if (statistics.isLatencyEnabled()) {
+            final long[] latency = statistics.dispatchLatencySinceLastCall();
+            publishLatency(CHANNEL_DISPATCH_LATENCY_P50, LatencyHistogram.valueAtPercentile(latency, 50));
+            publishLatency(CHANNEL_DISPATCH_LATENCY_P99, LatencyHistogram.valueAtPercentile(latency, 99));
+            publishLatency(CHANNEL_DISPATCH_LATENCY_MAX, LatencyHistogram.maxValue(latency));
         }
     }
 
-    public Future<Response> sendRequest(Request request) throws IOException, NullPointerException {
-        synchronized (writeLock) {
-            return culAdapter.sendRequest(request);
+    private void publishCounter(String channelId, long value) {
+        if (isLinked(channelId)) {
+            updateState(channelId, new DecimalType(value));
+        }
+    }
+
+    /**
+     * @param nanos the latency or -1 if no frame was dispatched.
+     */
+    private void publishLatency(String channelId, long nanos) {
+        if (isLinked(channelId)) {
+            updateState(channelId, nanos < 0 ? UnDefType.UNDEF : new DecimalType(nanos / 1000.0));
+        }
+    }
+
+    private void updateAirtimeRemaining() {
+        if (isLinked(CHANNEL_AIRTIME_REMAINING)) {
+            final double percent = 100.0 * getAirtimeRemainingMillis() / airtimeBudget.getBudgetMillis();
+            updateState(CHANNEL_AIRTIME_REMAINING, new DecimalType(percent));
+        }
+    }
+
+    /**
+     * Queue the status requests of the CUL as one diagnostic command, so the
+     * responses arrive within one round trip. The firmware and hardware
+     * version do not change, so they are requested only once per connection.
+     *
+     * @return the future completed with the pending responses by name when
+     * the requests are written.
+     */
+    public CompletableFuture<Map<String, Future<Response>>> requestCulStatus() {
+        final CompletableFuture<Map<String, Future<Response>>> result = new CompletableFuture<>();
+        //The writer holds writeLock while it writes
+        submit(CulTransmitQueue.Priority.DIAGNOSTIC, null, 0, (ca) -> {
+            if (versionsAdapter != ca || isFailed(firmwareVersionResponse) || isFailed(hardwareVersionResponse)) {
+                firmwareVersionResponse = ca.sendRequest(new CulGetFirmwareVersionRequest());
+                hardwareVersionResponse = ca.sendRequest(new CulGetHardwareVersionRequest());
+                versionsAdapter = ca;
+            }
+            final Map<String, Future<Response>> responses = new LinkedHashMap<>();
+            responses.put("FirmwareVersion", firmwareVersionResponse);
+            responses.put("HardwareVersion", hardwareVersionResponse);
+            responses.put("SlowRfSettings", ca.sendRequest(new CulGetSlowRfSettingsRequest()));
+            responses.put("FhtDeviceOutBufferContent", ca.sendRequest(new CulFhtDeviceOutBufferContentRequest()));
+            responses.put("RemainingFhtDeviceOutBufferSize", ca.sendRequest(new CulRemainingFhtDeviceOutBufferSizeRequest()));
+            result.complete(responses);
+        }).whenComplete((v, t) -> {
+            if (t != null) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    private static boolean isFailed(Future<Response> response) {
+        if (!response.isDone()) {
+            return false;
+        }
+        try {
+            response.get();
+            return false;
+        } catch (ExecutionException | CancellationException e) {
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
         }
     }
 
-    public void clearFht8bBuffer() throws IOException {
-        initCulAdapter();
+    /**
+     * Queue the init of the CUL, it clears the FHT buffer of the CUL.
+     *
+     * @return the future completed when the CUL is initialized.
+     */
+    public CompletableFuture<Void> clearFht8bBuffer() {
+        //The writer holds writeLock while it writes
+        return submit(CulTransmitQueue.Priority.DIAGNOSTIC, null, 0, this::initCulAdapter);
     }
 
 }
@@ -22,6 +22,7 @@
 package de.ibapl.openhab.fhz4j.internal;
 
 import de.ibapl.openhab.fhz4j.FHZ4JBindingConstants;
+import de.ibapl.openhab.fhz4j.handler.CulAggregatorHandler;
 import de.ibapl.openhab.fhz4j.handler.Em1000EmHandler;
 import de.ibapl.openhab.fhz4j.handler.EvoHomeHandler;
 import de.ibapl.openhab.fhz4j.handler.Fht80TfHandler;
@@ -65,6 +66,7 @@ public class FHZ4JHandlerFactory extends BaseThingHandlerFactory {
             FHZ4JBindingConstants.THING_TYPE_FHZ4J_RADIATOR_FHT80B,
             FHZ4JBindingConstants.THING_TYPE_FHZ4J_FHT80_TF,
             FHZ4JBindingConstants.BRIDGE_TYPE_FHZ4J_RS232,
+            FHZ4JBindingConstants.BRIDGE_TYPE_FHZ4J_CUL_AGGREGATOR,
             FHZ4JBindingConstants.THING_TYPE_FHZ4J_EM_1000_EM,
             FHZ4JBindingConstants.THING_TYPE_FHZ4J_HMS_100_TF,
             FHZ4JBindingConstants.THING_TYPE_FHZ4J_RADIATOR_EVO_HOME,
@@ -89,7 +91,7 @@ public class FHZ4JHandlerFactory extends BaseThingHandlerFactory {
         final ThingTypeUID thingTypeUID = thing.getThingTypeUID();
 
         if (thingTypeUID.equals(FHZ4JBindingConstants.THING_TYPE_FHZ4J_RADIATOR_FHT80B)) {
-            return new RadiatorFht80bHandler(thing, cronScheduler);
+            return new RadiatorFht80bHandler(thing);
         } else if (thingTypeUID.equals(FHZ4JBindingConstants.THING_TYPE_FHZ4J_FHT80_TF)) {
             return new Fht80TfHandler(thing);
         } else if (thingTypeUID.equals(FHZ4JBindingConstants.THING_TYPE_FHZ4J_RADIATOR_EVO_HOME)) {
@@ -118,6 +120,8 @@ public class FHZ4JHandlerFactory extends BaseThingHandlerFactory {
                 registerDiscoveryService(spswBridgeHandler);
                 return spswBridgeHandler;
             }
+        } else if (thingTypeUID.equals(FHZ4JBindingConstants.BRIDGE_TYPE_FHZ4J_CUL_AGGREGATOR)) {
+            return new CulAggregatorHandler((Bridge) thing, cronScheduler);
         } else if (thingTypeUID.equals(FHZ4JBindingConstants.THING_TYPE_FHZ4J_UNKNOWN)) {
             return new UnknownDeviceHandler(thing);
         } else {
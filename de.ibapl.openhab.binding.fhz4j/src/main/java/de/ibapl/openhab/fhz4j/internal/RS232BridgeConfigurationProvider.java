@@ -23,6 +23,7 @@ package de.ibapl.openhab.fhz4j.internal;
 
 import de.ibapl.spsw.api.SerialPortSocketFactory;
 import de.ibapl.spsw.api.Speed;
+import java.math.BigDecimal;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collection;
@@ -127,6 +128,46 @@ public class RS232BridgeConfigurationProvider implements ConfigDescriptionProvid
                         withLabel("Log Serial Port Data").
                         withDescription("Log IO and settings on the serial port");
                 configBuilder.withParameter(paramBuilder.build());
+
+                paramBuilder = ConfigDescriptionParameterBuilder.create("traceSerialPort", Type.BOOLEAN).
+                        withDefault(String.valueOf(false)).
+                        withRequired(false).
+                        withLabel("Trace Serial Port Data").
+                        withDescription("Record the raw serial port data to rolling compressed files in SERIAL_PORT_TRACE. Cheap enough to stay switched on.");
+                configBuilder.withParameter(paramBuilder.build());
+
+                paramBuilder = ConfigDescriptionParameterBuilder.create("replayTrace", Type.TEXT).
+                        withRequired(false).
+                        withAdvanced(true).
+                        withLabel("Replay Trace").
+                        withDescription("A serial port trace file or directory to replay instead of opening the serial port. Leave empty for normal operation.");
+                configBuilder.withParameter(paramBuilder.build());
+
+                paramBuilder = ConfigDescriptionParameterBuilder.create("replaySpeed", Type.DECIMAL).
+                        withDefault("1").
+                        withMinimum(BigDecimal.ZERO).
+                        withRequired(false).
+                        withAdvanced(true).
+                        withLabel("Replay Speed").
+                        withDescription("1 replays with the original timing, N N-times faster and 0 as fast as possible.");
+                configBuilder.withParameter(paramBuilder.build());
+
+                paramBuilder = ConfigDescriptionParameterBuilder.create("debugInfoInterval", Type.INTEGER).
+                        withDefault("0").
+                        withMinimum(BigDecimal.ZERO).
+                        withRequired(false).
+                        withLabel("Debug Info Interval").
+                        withDescription("Interval in seconds to sample the CUL debug infos (slow rf settings, FHT buffer). 0 samples only on buffer overflow (LOVF/EOB).");
+                configBuilder.withParameter(paramBuilder.build());
+
+                paramBuilder = ConfigDescriptionParameterBuilder.create("fhtMaintenanceWindow", Type.INTEGER).
+                        withDefault("60").
+                        withMinimum(BigDecimal.ZERO).
+                        withRequired(false).
+                        withAdvanced(true).
+                        withLabel("FHT Maintenance Window").
+                        withDescription("Minutes to spread the clock sync and reporting trigger of the FHT80b devices with the same cron pattern over.");
+                configBuilder.withParameter(paramBuilder.build());
             }
         }
         return configBuilder.build();
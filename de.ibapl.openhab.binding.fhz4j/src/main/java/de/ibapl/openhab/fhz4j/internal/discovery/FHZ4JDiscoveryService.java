@@ -24,19 +24,24 @@ package de.ibapl.openhab.fhz4j.internal.discovery;
 import de.ibapl.fhz4j.api.Protocol;
 import de.ibapl.fhz4j.cul.CulMessage;
 import de.ibapl.fhz4j.cul.CulMessageListener;
+import de.ibapl.fhz4j.protocol.em.EmDeviceType;
 import de.ibapl.fhz4j.protocol.em.EmMessage;
+import de.ibapl.fhz4j.protocol.evohome.DeviceType;
 import de.ibapl.fhz4j.protocol.evohome.EvoHomeDeviceMessage;
 import de.ibapl.fhz4j.protocol.evohome.EvoHomeMessage;
 import de.ibapl.fhz4j.protocol.fht.Fht80TfMessage;
 import de.ibapl.fhz4j.protocol.fht.FhtMessage;
 import de.ibapl.fhz4j.protocol.fs20.FS20Message;
+import de.ibapl.fhz4j.protocol.hms.HmsDeviceType;
 import de.ibapl.fhz4j.protocol.hms.HmsMessage;
 import de.ibapl.fhz4j.protocol.lacrosse.tx2.LaCrosseTx2Message;
 import de.ibapl.openhab.fhz4j.FHZ4JBindingConstants;
+import de.ibapl.openhab.fhz4j.handler.CulFrameType;
 import de.ibapl.openhab.fhz4j.handler.SpswBridgeHandler;
 import de.ibapl.openhab.fhz4j.internal.FHZ4JHandlerFactory;
 import java.io.IOException;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.openhab.core.config.discovery.AbstractDiscoveryService;
@@ -55,7 +60,23 @@ public class FHZ4JDiscoveryService extends AbstractDiscoveryService implements C
 
     private final static int SEARCH_TIME = 15 * 60; // 15 minutes FHT80 sends all 120 sec, HMS 100 TF all 10 min.
 
+    /**
+     * Announce a device still sending again after 5 minutes, so its result is
+     * refreshed in the inbox without a DiscoveryResult per received frame.
+     */
+    private final static long ANNOUNCE_REFRESH_NANOS = TimeUnit.MINUTES.toNanos(5);
+
+    /**
+     * A device from the index not heard for 30 days is gone.
+     */
+    private final static long KNOWN_DEVICE_MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+
     private final SpswBridgeHandler spswBridgeHandler;
+    private final SeenDeviceSet seenFht = new SeenDeviceSet(ANNOUNCE_REFRESH_NANOS);
+    private final SeenDeviceSet seenFht80Tf = new SeenDeviceSet(ANNOUNCE_REFRESH_NANOS);
+    private final SeenDeviceSet seenHms = new SeenDeviceSet(ANNOUNCE_REFRESH_NANOS);
+    private final SeenDeviceSet seenEm = new SeenDeviceSet(ANNOUNCE_REFRESH_NANOS);
+    private final SeenDeviceSet seenEvoHome = new SeenDeviceSet(ANNOUNCE_REFRESH_NANOS);
 
     public FHZ4JDiscoveryService(SpswBridgeHandler spswBridgeHandler) {
         super(FHZ4JHandlerFactory.SUPPORTED_THING_TYPES_UIDS, SEARCH_TIME, false);
@@ -69,7 +90,14 @@ public class FHZ4JDiscoveryService extends AbstractDiscoveryService implements C
 
     @Override
     public void startScan() {
+        seenFht.clear();
+        seenFht80Tf.clear();
+        seenHms.clear();
+        seenEm.clear();
+        seenEvoHome.clear();
         spswBridgeHandler.setDiscoveryListener(this);
+        //Don't wait for the slowest sensor, announce the devices heard before at once
+        spswBridgeHandler.getDeviceIndex().forEach(this::announceKnownDevice);
     }
 
     @Override
@@ -85,7 +113,7 @@ public class FHZ4JDiscoveryService extends AbstractDiscoveryService implements C
     }
 
     private void addHms100TfDevice(short housecode) {
-        final ThingUID bridgeUID = spswBridgeHandler.getThing().getUID();
+        final ThingUID bridgeUID = spswBridgeHandler.getDeviceBridgeUID();
         final String deviceIdStr = Short.toString(housecode);
         final ThingUID thingUID = getThingUID(deviceIdStr, bridgeUID,
                 FHZ4JBindingConstants.THING_TYPE_FHZ4J_HMS_100_TF);
@@ -99,7 +127,7 @@ public class FHZ4JDiscoveryService extends AbstractDiscoveryService implements C
     }
 
     private void addEm1000EmDevice(short address) {
-        final ThingUID bridgeUID = spswBridgeHandler.getThing().getUID();
+        final ThingUID bridgeUID = spswBridgeHandler.getDeviceBridgeUID();
         final String deviceIdStr = Short.toString(address);
         final ThingUID thingUID = getThingUID(deviceIdStr, bridgeUID,
                 FHZ4JBindingConstants.THING_TYPE_FHZ4J_EM_1000_EM);
@@ -114,7 +142,7 @@ public class FHZ4JDiscoveryService extends AbstractDiscoveryService implements C
 
     private void addRadiatorEvoHomeDevice(int deviceId) {
         final String hexDeviceId = String.format("%06x", deviceId);
-        final ThingUID bridgeUID = spswBridgeHandler.getThing().getUID();
+        final ThingUID bridgeUID = spswBridgeHandler.getDeviceBridgeUID();
         final ThingUID thingUID = getThingUID(hexDeviceId, bridgeUID,
                 FHZ4JBindingConstants.THING_TYPE_FHZ4J_RADIATOR_EVO_HOME);
 
@@ -131,7 +159,7 @@ public class FHZ4JDiscoveryService extends AbstractDiscoveryService implements C
 
     private void addSingleZoneThermostatEvoHomeDevice(int deviceId) {
         final String hexDeviceId = String.format("%06x", deviceId);
-        final ThingUID bridgeUID = spswBridgeHandler.getThing().getUID();
+        final ThingUID bridgeUID = spswBridgeHandler.getDeviceBridgeUID();
         final ThingUID thingUID = getThingUID(hexDeviceId, bridgeUID,
                 FHZ4JBindingConstants.THING_TYPE_FHZ4J_SINGLE_ZONE_THERMOSTAT_EVO_HOME);
 
@@ -145,7 +173,7 @@ public class FHZ4JDiscoveryService extends AbstractDiscoveryService implements C
 
     private void addMultiZoneControllerEvoHomeDevice(int deviceId) {
         final String hexDeviceId = String.format("%06x", deviceId);
-        final ThingUID bridgeUID = spswBridgeHandler.getThing().getUID();
+        final ThingUID bridgeUID = spswBridgeHandler.getDeviceBridgeUID();
         final ThingUID thingUID = getThingUID(hexDeviceId, bridgeUID,
                 FHZ4JBindingConstants.THING_TYPE_FHZ4J_MULTI_ZONE_CONTROLLER_EVO_HOME);
 
@@ -158,7 +186,7 @@ public class FHZ4JDiscoveryService extends AbstractDiscoveryService implements C
     }
 
     private void addFhtDevice(short housecode) {
-        final ThingUID bridgeUID = spswBridgeHandler.getThing().getUID();
+        final ThingUID bridgeUID = spswBridgeHandler.getDeviceBridgeUID();
         final String deviceIdStr = Short.toString(housecode);
         final ThingUID thingUID = getThingUID(deviceIdStr, bridgeUID,
                 FHZ4JBindingConstants.THING_TYPE_FHZ4J_RADIATOR_FHT80B);
@@ -176,7 +204,7 @@ public class FHZ4JDiscoveryService extends AbstractDiscoveryService implements C
 
     private void addFht80TfDevice(int address) {
         final String hexAdress = String.format("%06x", address);
-        final ThingUID bridgeUID = spswBridgeHandler.getThing().getUID();
+        final ThingUID bridgeUID = spswBridgeHandler.getDeviceBridgeUID();
         final String deviceIdStr = hexAdress;
         final ThingUID thingUID = getThingUID(deviceIdStr, bridgeUID,
                 FHZ4JBindingConstants.THING_TYPE_FHZ4J_FHT80_TF);
@@ -192,12 +220,66 @@ public class FHZ4JDiscoveryService extends AbstractDiscoveryService implements C
         thingDiscovered(discoveryResult);
     }
 
+    private void addEvoHomeDevice(DeviceType deviceType, int deviceId) {
+        switch (deviceType) {
+            case MULTI_ZONE_CONTROLLER ->
+                addMultiZoneControllerEvoHomeDevice(deviceId);
+            case SINGLE_ZONE_THERMOSTAT ->
+                addSingleZoneThermostatEvoHomeDevice(deviceId);
+            case RADIATOR_CONTROLLER ->
+                addRadiatorEvoHomeDevice(deviceId);
+            default ->
+                logger.log(Level.SEVERE, "Cant handle EvoHome device {0} of type {1}", new Object[]{String.format("%06x", deviceId), deviceType});
+        }
+    }
+
+    private void announceKnownDevice(CulFrameType type, int subtype, int address, long firstSeenMillis, long lastSeenMillis, float signalStrength, int frames) {
+        if (System.currentTimeMillis() - lastSeenMillis > KNOWN_DEVICE_MAX_AGE_MILLIS) {
+            return;
+        }
+        final long now = System.nanoTime();
+        switch (type) {
+            case FHT -> {
+                if (seenFht.announce(address, now)) {
+                    addFhtDevice((short) address);
+                }
+            }
+            case FHT80_TF -> {
+                if (seenFht80Tf.announce(address, now)) {
+                    addFht80TfDevice(address);
+                }
+            }
+            case HMS -> {
+                if (subtype == HmsDeviceType.HMS_100_TF.ordinal() && seenHms.announce(address, now)) {
+                    addHms100TfDevice((short) address);
+                }
+            }
+            case EM -> {
+                if (subtype == EmDeviceType.EM_1000_EM.ordinal() && seenEm.announce(address, now)) {
+                    addEm1000EmDevice((short) address);
+                }
+            }
+            case EVO_HOME -> {
+                final DeviceType[] deviceTypes = DeviceType.values();
+                if (subtype < deviceTypes.length && seenEvoHome.announce(address, now)) {
+                    addEvoHomeDevice(deviceTypes[subtype], address);
+                }
+            }
+            default -> {
+                //no things
+            }
+        }
+    }
+
     private ThingUID getThingUID(String deviceId, ThingUID bridgeUID, ThingTypeUID thingTypeUID) {
         return new ThingUID(thingTypeUID, bridgeUID, deviceId);
     }
 
     @Override
     public void emDataParsed(EmMessage emMsg) {
+        if (!seenEm.announce(emMsg.address, System.nanoTime())) {
+            return;
+        }
         switch (emMsg.emDeviceType) {
             case EM_1000_EM:
                 addEm1000EmDevice(emMsg.address);
@@ -215,12 +297,16 @@ public class FHZ4JDiscoveryService extends AbstractDiscoveryService implements C
 
     @Override
     public void fhtDataParsed(FhtMessage fhtMsg) {
-        addFhtDevice(fhtMsg.housecode);
+        if (seenFht.announce(fhtMsg.housecode, System.nanoTime())) {
+            addFhtDevice(fhtMsg.housecode);
+        }
     }
 
     @Override
     public void fht80TfDataParsed(Fht80TfMessage fht80TfMsg) {
-        addFht80TfDevice(fht80TfMsg.address);
+        if (seenFht80Tf.announce(fht80TfMsg.address, System.nanoTime())) {
+            addFht80TfDevice(fht80TfMsg.address);
+        }
     }
 
     @Override
@@ -237,6 +323,9 @@ public class FHZ4JDiscoveryService extends AbstractDiscoveryService implements C
 
     @Override
     public void hmsDataParsed(HmsMessage hmsMsg) {
+        if (!seenHms.announce(hmsMsg.housecode, System.nanoTime())) {
+            return;
+        }
         switch (hmsMsg.hmsDeviceType) {
             case HMS_100_TF:
                 addHms100TfDevice(hmsMsg.housecode);
@@ -261,16 +350,10 @@ public class FHZ4JDiscoveryService extends AbstractDiscoveryService implements C
     @Override
     public void evoHomeParsed(EvoHomeMessage evoHomeMsg) {
         if (evoHomeMsg instanceof EvoHomeDeviceMessage devMsg) {
-            switch (devMsg.deviceId1.type) {
-                case MULTI_ZONE_CONTROLLER ->
-                    addMultiZoneControllerEvoHomeDevice(devMsg.deviceId1.id);
-                case SINGLE_ZONE_THERMOSTAT ->
-                    addSingleZoneThermostatEvoHomeDevice(devMsg.deviceId1.id);
-                case RADIATOR_CONTROLLER ->
-                    addRadiatorEvoHomeDevice(devMsg.deviceId1.id);
-                default ->
-                    logger.log(Level.SEVERE, "Cant handle EvoHomeDeviceMessage: {0}", devMsg);
+            if (!seenEvoHome.announce(devMsg.deviceId1.id, System.nanoTime())) {
+                return;
             }
+            addEvoHomeDevice(devMsg.deviceId1.type, devMsg.deviceId1.id);
         }
     }
 
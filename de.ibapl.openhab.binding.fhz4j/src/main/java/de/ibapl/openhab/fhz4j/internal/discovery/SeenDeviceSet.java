@@ -0,0 +1,134 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.internal.discovery;
+
+import java.util.Arrays;
+
+/**
+ * The devices of one thing type already announced in the current scan, keyed
+ * by the primitive address (housecode, address or device id).
+ *
+ * An open addressed int set with the time of the last announcement, so the
+ * lookup for a frame of a known device neither allocates nor boxes.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class SeenDeviceSet {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final long refreshNanos;
+    private int size;
+    private boolean[] used;
+    private int[] keys;
+    private long[] announcedNanos;
+
+    /**
+     * @param refreshNanos announce a device again after this time, 0 announces
+     * each device only once until {@link #clear()}.
+     */
+    SeenDeviceSet(long refreshNanos) {
+        this.refreshNanos = refreshNanos;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        used = new boolean[capacity];
+        keys = new int[capacity];
+        announcedNanos = new long[capacity];
+    }
+
+    private static int indexOf(int key, int mask) {
+        //spread the bits, addresses are often small consecutive numbers
+        final int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int slotOf(int key) {
+        final int mask = keys.length - 1;
+        int i = indexOf(key, mask);
+        while (used[i]) {
+            if (keys[i] == key) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -i - 1;
+    }
+
+    /**
+     * Check if the device must be announced and if so remember it as
+     * announced now.
+     *
+     * @param address the address of the device.
+     * @param nowNanos the current {@link System#nanoTime()}.
+     * @return true if the device was not announced yet or the last
+     * announcement is older than the refresh time.
+     */
+    synchronized boolean announce(int address, long nowNanos) {
+        int slot = slotOf(address);
+        if (slot >= 0) {
+            if (refreshNanos > 0 && nowNanos - announcedNanos[slot] >= refreshNanos) {
+                announcedNanos[slot] = nowNanos;
+                return true;
+            }
+            return false;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+            slot = slotOf(address);
+        }
+        slot = -slot - 1;
+        used[slot] = true;
+        keys[slot] = address;
+        announcedNanos[slot] = nowNanos;
+        size++;
+        return true;
+    }
+
+    private void grow() {
+        final boolean[] oldUsed = used;
+        final int[] oldKeys = keys;
+        final long[] oldAnnouncedNanos = announcedNanos;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                final int slot = -slotOf(oldKeys[i]) - 1;
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                announcedNanos[slot] = oldAnnouncedNanos[i];
+            }
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized void clear() {
+        if (size > 0) {
+            Arrays.fill(used, false);
+            size = 0;
+        }
+    }
+
+}
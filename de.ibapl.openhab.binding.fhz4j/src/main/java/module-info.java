@@ -34,4 +34,5 @@ module de.ibapl.opnhab.bindings.fhz4j {
     requires org.openhab.core.thing;
 
     requires de.ibapl.fhz4j.parser.cul;
+    requires de.ibapl.openhab.spsw.trace;
 }
@@ -0,0 +1,124 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import de.ibapl.fhz4j.api.Protocol;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class AirtimeBudgetTest {
+
+    /**
+     * Start of a bucket, far away from 0.
+     */
+    private static final long T0 = 100 * AirtimeBudget.WINDOW_MILLIS;
+
+    @Test
+    public void testOnePercentIs36SecondsPerHour() {
+        final AirtimeBudget budget = new AirtimeBudget(0.01);
+        assertEquals(36_000, budget.getBudgetMillis());
+        assertEquals(36_000, budget.getRemainingMillis(T0));
+        assertThrows(IllegalArgumentException.class, () -> new AirtimeBudget(0.0));
+        assertThrows(IllegalArgumentException.class, () -> new AirtimeBudget(1.5));
+    }
+
+    @Test
+    public void testEstimates() {
+        assertEquals(116, AirtimeBudget.estimateFhtMillis(1));
+        assertEquals(232, AirtimeBudget.estimateFhtMillis(2));
+        //(20 + 10) bytes * 20 bits / 38 bits per ms, rounded up
+        assertEquals(16, AirtimeBudget.estimateEvoHomeMillis(10));
+    }
+
+    @Test
+    public void testUsedPerProtocol() {
+        final AirtimeBudget budget = new AirtimeBudget(0.01);
+        budget.record(Protocol.FHT, 1_000, T0);
+        budget.record(Protocol.EVO_HOME, 500, T0 + 10);
+        budget.record(Protocol.FHT, 200, T0 + AirtimeBudget.BUCKET_MILLIS);
+        assertEquals(1_700, budget.getUsedMillis(T0 + AirtimeBudget.BUCKET_MILLIS));
+        assertEquals(1_200, budget.getUsedMillis(Protocol.FHT, T0 + AirtimeBudget.BUCKET_MILLIS));
+        assertEquals(500, budget.getUsedMillis(Protocol.EVO_HOME, T0 + AirtimeBudget.BUCKET_MILLIS));
+        assertEquals(0, budget.getUsedMillis(Protocol.HMS, T0 + AirtimeBudget.BUCKET_MILLIS));
+        assertEquals(36_000 - 1_700, budget.getRemainingMillis(T0 + AirtimeBudget.BUCKET_MILLIS));
+    }
+
+    @Test
+    public void testBucketRollover() {
+        final AirtimeBudget budget = new AirtimeBudget(0.01);
+        budget.record(Protocol.FHT, 1_000, T0);
+        budget.record(Protocol.FHT, 2_000, T0 + AirtimeBudget.BUCKET_MILLIS);
+        //the last ms of the window of the first bucket
+        assertEquals(3_000, budget.getUsedMillis(T0 + AirtimeBudget.WINDOW_MILLIS - 1));
+        //the first bucket left the window
+        assertEquals(2_000, budget.getUsedMillis(T0 + AirtimeBudget.WINDOW_MILLIS));
+        assertEquals(2_000, budget.getUsedMillis(Protocol.FHT, T0 + AirtimeBudget.WINDOW_MILLIS));
+        //the slot of the first bucket is reused and starts from 0
+        budget.record(Protocol.FHT, 100, T0 + AirtimeBudget.WINDOW_MILLIS);
+        assertEquals(2_100, budget.getUsedMillis(T0 + AirtimeBudget.WINDOW_MILLIS));
+        assertEquals(100, budget.getUsedMillis(T0 + AirtimeBudget.WINDOW_MILLIS + AirtimeBudget.BUCKET_MILLIS));
+        assertEquals(0, budget.getUsedMillis(T0 + 3 * AirtimeBudget.WINDOW_MILLIS));
+    }
+
+    @Test
+    public void testOnePercentLimit() {
+        final AirtimeBudget budget = new AirtimeBudget(0.01);
+        budget.record(Protocol.FHT, 20_000, T0);
+        budget.record(Protocol.FHT, 15_000, T0 + AirtimeBudget.BUCKET_MILLIS);
+        final long now = T0 + 2 * AirtimeBudget.BUCKET_MILLIS;
+        assertEquals(1_000, budget.getRemainingMillis(now));
+        assertEquals(0, budget.millisUntilAvailable(1_000, 0, now));
+        //must wait until the first bucket leaves the window
+        assertEquals(AirtimeBudget.WINDOW_MILLIS - 2 * AirtimeBudget.BUCKET_MILLIS, budget.millisUntilAvailable(1_001, 0, now));
+        assertEquals(AirtimeBudget.WINDOW_MILLIS - 2 * AirtimeBudget.BUCKET_MILLIS, budget.millisUntilAvailable(500, 600, now));
+        //must wait until both buckets left the window
+        assertEquals(AirtimeBudget.WINDOW_MILLIS - AirtimeBudget.BUCKET_MILLIS, budget.millisUntilAvailable(22_000, 0, now));
+        //never fits, don't block forever
+        assertEquals(0, budget.millisUntilAvailable(36_001, 0, now));
+        budget.record(Protocol.FHT, 2_000, now);
+        assertEquals(0, budget.getRemainingMillis(now));
+    }
+
+    @Test
+    public void testRefund() {
+        final AirtimeBudget budget = new AirtimeBudget(0.01);
+        budget.record(Protocol.FHT, 1_000, T0);
+        budget.record(Protocol.FHT, 200, T0 + AirtimeBudget.BUCKET_MILLIS);
+        budget.refund(Protocol.FHT, 200, T0 + AirtimeBudget.BUCKET_MILLIS);
+        assertEquals(1_000, budget.getUsedMillis(Protocol.FHT, T0 + AirtimeBudget.BUCKET_MILLIS));
+        //never more than was recorded by the protocol in the bucket
+        budget.refund(Protocol.EVO_HOME, 500, T0);
+        budget.refund(Protocol.FHT, 5_000, T0);
+        assertEquals(0, budget.getUsedMillis(T0 + AirtimeBudget.BUCKET_MILLIS));
+        //a bucket out of the window is not touched
+        budget.record(Protocol.FHT, 300, T0 + AirtimeBudget.WINDOW_MILLIS);
+        budget.refund(Protocol.FHT, 300, T0);
+        assertEquals(300, budget.getUsedMillis(T0 + AirtimeBudget.WINDOW_MILLIS));
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.thing.ThingUID;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class ChannelStateFilterTest {
+
+    private enum TestChannel implements ChannelUIDTable.ChannelId {
+        TEMPERATURE("temperature"),
+        BATT_LOW("battLow");
+
+        private final String channelId;
+
+        private TestChannel(String channelId) {
+            this.channelId = channelId;
+        }
+
+        @Override
+        public String getChannelId() {
+            return channelId;
+        }
+
+    }
+
+    private static final ThingUID THING_UID = new ThingUID("fhz4j:test:1");
+
+    private static ChannelStateFilter<TestChannel> filter(int zoneCount, long republishMinutes) {
+        return new ChannelStateFilter<>(new ChannelUIDTable<>(THING_UID, TestChannel.class, zoneCount), republishMinutes);
+    }
+
+    @Test
+    public void testUnchangedStateSuppressed() {
+        final ChannelStateFilter<TestChannel> filter = filter(0, 60);
+        assertEquals(new ChannelUID(THING_UID, "temperature"), filter.filter(TestChannel.TEMPERATURE, new DecimalType(21.5)));
+        assertNull(filter.filter(TestChannel.TEMPERATURE, new DecimalType(21.5)));
+        assertEquals(1, filter.getSuppressedCount());
+        assertNotNull(filter.filter(TestChannel.TEMPERATURE, new DecimalType(22)));
+        //the channels are filtered independent of each other
+        assertNotNull(filter.filter(TestChannel.BATT_LOW, OnOffType.OFF));
+        assertNull(filter.filter(TestChannel.BATT_LOW, OnOffType.OFF));
+        assertEquals(2, filter.getSuppressedCount());
+    }
+
+    @Test
+    public void testZeroIntervalPublishesEveryState() {
+        final ChannelStateFilter<TestChannel> filter = filter(0, 0);
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(filter.filter(TestChannel.TEMPERATURE, new DecimalType(21.5)));
+        }
+        assertEquals(0, filter.getSuppressedCount());
+    }
+
+    @Test
+    public void testResetOnlyTheLinkedChannel() {
+        final ChannelStateFilter<TestChannel> filter = filter(0, 60);
+        filter.filter(TestChannel.TEMPERATURE, new DecimalType(21.5));
+        filter.filter(TestChannel.BATT_LOW, OnOffType.OFF);
+        filter.reset(new ChannelUID(THING_UID, "temperature"));
+        assertNotNull(filter.filter(TestChannel.TEMPERATURE, new DecimalType(21.5)));
+        assertNull(filter.filter(TestChannel.BATT_LOW, OnOffType.OFF));
+        //a channel of an other thing is ignored
+        filter.reset(new ChannelUID(new ThingUID("fhz4j:test:2"), "battLow"));
+        assertNull(filter.filter(TestChannel.BATT_LOW, OnOffType.OFF));
+    }
+
+    @Test
+    public void testZoneChannels() {
+        final ChannelStateFilter<TestChannel> filter = filter(2, 60);
+        final ChannelUID zone1 = new ChannelUID(THING_UID, "temperature_01");
+        assertEquals(zone1, filter.filter(TestChannel.TEMPERATURE, 1, new DecimalType(21.5)));
+        assertNull(filter.filter(TestChannel.TEMPERATURE, 1, new DecimalType(21.5)));
+        //the other zone and the channel without zone are not affected
+        assertNotNull(filter.filter(TestChannel.TEMPERATURE, 0, new DecimalType(21.5)));
+        assertNotNull(filter.filter(TestChannel.TEMPERATURE, new DecimalType(21.5)));
+
+        filter.reset(zone1);
+        assertEquals(zone1, filter.filter(TestChannel.TEMPERATURE, 1, new DecimalType(21.5)));
+        assertNull(filter.filter(TestChannel.TEMPERATURE, 0, new DecimalType(21.5)));
+
+        //zones outside of the table are never suppressed
+        final ChannelUID zone5 = new ChannelUID(THING_UID, "temperature_05");
+        assertEquals(zone5, filter.filter(TestChannel.TEMPERATURE, 5, new DecimalType(21.5)));
+        assertEquals(zone5, filter.filter(TestChannel.TEMPERATURE, 5, new DecimalType(21.5)));
+    }
+
+    @Test
+    public void testParsePublishInterval() {
+        assertEquals(15, ChannelStateFilter.parsePublishInterval(15));
+        assertEquals(15, ChannelStateFilter.parsePublishInterval(new java.math.BigDecimal("15")));
+        assertEquals(0, ChannelStateFilter.parsePublishInterval(-1));
+        assertEquals(ChannelStateFilter.DEFAULT_PUBLISH_INTERVAL_MINUTES, ChannelStateFilter.parsePublishInterval(null));
+        assertEquals(ChannelStateFilter.DEFAULT_PUBLISH_INTERVAL_MINUTES, ChannelStateFilter.parsePublishInterval("15"));
+    }
+
+}
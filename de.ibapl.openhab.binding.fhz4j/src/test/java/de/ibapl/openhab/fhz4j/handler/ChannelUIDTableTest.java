@@ -0,0 +1,101 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.thing.ThingUID;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class ChannelUIDTableTest {
+
+    private enum TestChannel implements ChannelUIDTable.ChannelId {
+        TEMPERATURE("temperature"),
+        BATT_LOW("battLow");
+
+        private final String channelId;
+
+        private TestChannel(String channelId) {
+            this.channelId = channelId;
+        }
+
+        @Override
+        public String getChannelId() {
+            return channelId;
+        }
+
+    }
+
+    private static final ThingUID THING_UID = new ThingUID("fhz4j:test:1");
+
+    @Test
+    public void testWithoutZones() {
+        final ChannelUIDTable<TestChannel> table = new ChannelUIDTable<>(THING_UID, TestChannel.class);
+        assertEquals(2, table.size());
+        assertSame(THING_UID, table.getThingUID());
+        assertEquals(new ChannelUID(THING_UID, "temperature"), table.get(TestChannel.TEMPERATURE));
+        assertEquals(new ChannelUID(THING_UID, "battLow"), table.get(TestChannel.BATT_LOW));
+        //the same instance each time
+        assertSame(table.get(TestChannel.BATT_LOW), table.get(TestChannel.BATT_LOW));
+        assertEquals(-1, table.indexOf(TestChannel.TEMPERATURE, 0));
+    }
+
+    @Test
+    public void testZones() {
+        final ChannelUIDTable<TestChannel> table = new ChannelUIDTable<>(THING_UID, TestChannel.class, ChannelUIDTable.EVO_HOME_ZONE_COUNT);
+        assertEquals(2 * 14, table.size());
+        assertEquals(new ChannelUID(THING_UID, "temperature"), table.get(TestChannel.TEMPERATURE));
+        assertEquals(new ChannelUID(THING_UID, "temperature_00"), table.get(TestChannel.TEMPERATURE, 0));
+        assertEquals(new ChannelUID(THING_UID, "battLow_12"), table.get(TestChannel.BATT_LOW, 12));
+        assertSame(table.get(TestChannel.BATT_LOW, 12), table.get(TestChannel.BATT_LOW, 12));
+        assertEquals(-1, table.indexOf(TestChannel.BATT_LOW, -1));
+        assertEquals(-1, table.indexOf(TestChannel.BATT_LOW, 13));
+    }
+
+    @Test
+    public void testZoneOutsideOfTheTable() {
+        final ChannelUIDTable<TestChannel> table = new ChannelUIDTable<>(THING_UID, TestChannel.class, ChannelUIDTable.EVO_HOME_ZONE_COUNT);
+        final ChannelUID channelUID = table.get(TestChannel.TEMPERATURE, 13);
+        assertEquals(new ChannelUID(THING_UID, "temperature_13"), channelUID);
+        //created on the fly
+        assertNotSame(channelUID, table.get(TestChannel.TEMPERATURE, 13));
+    }
+
+    @Test
+    public void testIndexOfChannelUID() {
+        final ChannelUIDTable<TestChannel> table = new ChannelUIDTable<>(THING_UID, TestChannel.class, 2);
+        for (int i = 0; i < table.size(); i++) {
+            assertEquals(i, table.indexOf(table.get(i)));
+        }
+        assertEquals(table.indexOf(TestChannel.BATT_LOW, 1), table.indexOf(new ChannelUID(THING_UID, "battLow_01")));
+        assertEquals(-1, table.indexOf(new ChannelUID(THING_UID, "battLow_02")));
+        assertEquals(-1, table.indexOf(new ChannelUID(new ThingUID("fhz4j:test:2"), "battLow")));
+    }
+
+}
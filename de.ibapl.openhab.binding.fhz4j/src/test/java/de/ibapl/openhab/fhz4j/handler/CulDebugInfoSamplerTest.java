@@ -0,0 +1,177 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.ibapl.fhz4j.api.Response;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class CulDebugInfoSamplerTest {
+
+    private static final long QUEUE_TIMEOUT_MILLIS = 200;
+    private static final long RESPONSE_TIMEOUT_MILLIS = 100;
+
+    private ScheduledExecutorService scheduler;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        scheduler = new ScheduledThreadPoolExecutor(1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private static Map<String, Future<Response>> responses(Future<Response> slowRfSettings) {
+        final Map<String, Future<Response>> result = new LinkedHashMap<>();
+        result.put("FirmwareVersion", CompletableFuture.completedFuture(null));
+        result.put("SlowRfSettings", slowRfSettings);
+        return result;
+    }
+
+    private CulDebugInfoSampler newSampler(CompletableFuture<Map<String, Future<Response>>> status) {
+        return new CulDebugInfoSampler(() -> {
+            requests.incrementAndGet();
+            return status;
+        }, scheduler, QUEUE_TIMEOUT_MILLIS, RESPONSE_TIMEOUT_MILLIS);
+    }
+
+    @Test
+    public void testSample() throws Exception {
+        final CulDebugInfoSampler sampler = newSampler(CompletableFuture.completedFuture(responses(CompletableFuture.completedFuture(null))));
+        sampler.start(0);
+        final CulDebugInfoSnapshot snapshot = sampler.sample("test").get(10, TimeUnit.SECONDS);
+        assertSame(snapshot, sampler.getSnapshot());
+        assertEquals("test", snapshot.getTrigger());
+        assertEquals(2, snapshot.getValues().size());
+        assertEquals("null", snapshot.getValues().get("SlowRfSettings"));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testSampleWaitsWithoutBlockingTheScheduler() throws Exception {
+        final CompletableFuture<Map<String, Future<Response>>> status = new CompletableFuture<>();
+        final CulDebugInfoSampler sampler = newSampler(status);
+        sampler.start(0);
+        final CompletableFuture<CulDebugInfoSnapshot> sample = sampler.sample("test");
+        //the only scheduler thread is free
+        assertEquals("free", CompletableFuture.supplyAsync(() -> "free", scheduler).get(1, TimeUnit.SECONDS));
+        //a second sample does not request while the first one is running
+        sampler.sample("second");
+        assertEquals(1, requests.get());
+        final CompletableFuture<Response> response = new CompletableFuture<>();
+        status.complete(responses(response));
+        assertFalse(sample.isDone());
+        response.complete(null);
+        assertEquals("test", sample.get(10, TimeUnit.SECONDS).getTrigger());
+    }
+
+    @Test
+    public void testQueueTimeout() throws Exception {
+        final CulDebugInfoSampler sampler = newSampler(new CompletableFuture<>());
+        sampler.start(0);
+        final ExecutionException e = assertThrows(ExecutionException.class, () -> sampler.sample("test").get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof TimeoutException);
+        assertNull(sampler.getSnapshot());
+        //the next sample may run
+        sampler.sample("next");
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void testResponseTimeout() throws Exception {
+        final CulDebugInfoSampler sampler = newSampler(CompletableFuture.completedFuture(responses(new CompletableFuture<>())));
+        sampler.start(0);
+        final ExecutionException e = assertThrows(ExecutionException.class, () -> sampler.sample("test").get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof TimeoutException);
+    }
+
+    @Test
+    public void testResponseNoCompletableFuture() throws Exception {
+        final FutureTask<Response> response = new FutureTask<>(() -> null);
+        final CulDebugInfoSampler sampler = newSampler(CompletableFuture.completedFuture(responses(response)));
+        sampler.start(0);
+        final CompletableFuture<CulDebugInfoSnapshot> sample = sampler.sample("test");
+        //the CUL answers within the response timeout
+        response.run();
+        assertEquals("null", sample.get(10, TimeUnit.SECONDS).getValues().get("SlowRfSettings"));
+    }
+
+    @Test
+    public void testStopped() throws Exception {
+        final CulDebugInfoSampler sampler = newSampler(CompletableFuture.completedFuture(responses(CompletableFuture.completedFuture(null))));
+        sampler.trigger("LOVF");
+        assertNull(sampler.sample("test").get(10, TimeUnit.SECONDS));
+        sampler.start(0);
+        sampler.stop();
+        sampler.trigger("EOB");
+        //let the scheduler run anything submitted so far
+        CompletableFuture.runAsync(() -> {
+        }, scheduler).get(1, TimeUnit.SECONDS);
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    public void testTrigger() throws Exception {
+        final CulDebugInfoSampler sampler = newSampler(CompletableFuture.completedFuture(responses(CompletableFuture.completedFuture(null))));
+        sampler.start(0);
+        sampler.trigger("LOVF");
+        //within the minimum trigger interval
+        sampler.trigger("EOB");
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (sampler.getSnapshot() == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertNotNull(sampler.getSnapshot());
+        assertEquals("LOVF", sampler.getSnapshot().getTrigger());
+        CompletableFuture.runAsync(() -> {
+        }, scheduler).get(1, TimeUnit.SECONDS);
+        assertEquals(1, requests.get());
+    }
+
+}
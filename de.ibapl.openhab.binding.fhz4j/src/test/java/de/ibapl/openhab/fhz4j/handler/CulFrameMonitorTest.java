@@ -0,0 +1,101 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.ibapl.fhz4j.api.Protocol;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class CulFrameMonitorTest {
+
+    @Test
+    public void testAcceptsProtocol() {
+        final CulFrameMonitor all = new CulFrameMonitor(null, CulFrameMonitor.ANY_ADDRESS);
+        assertTrue(all.accepts(CulFrameType.CUL, "V 1.67 CUL868"));
+        assertTrue(all.accepts(CulFrameType.FAILED, null));
+        final CulFrameMonitor fs20 = new CulFrameMonitor(Protocol.FS20, CulFrameMonitor.ANY_ADDRESS);
+        assertTrue(fs20.accepts(CulFrameType.FS20, null));
+        assertFalse(fs20.accepts(CulFrameType.CUL, "V 1.67 CUL868"));
+        final CulFrameMonitor fht = new CulFrameMonitor(Protocol.FHT, CulFrameMonitor.ANY_ADDRESS);
+        assertFalse(fht.accepts(CulFrameType.FS20, null));
+    }
+
+    @Test
+    public void testAcceptsAddress() {
+        assertEquals(CulFrameMonitor.ANY_ADDRESS, CulFrameMonitor.addressOf(CulFrameType.CUL, "V 1.67 CUL868"));
+        assertEquals(CulFrameMonitor.ANY_ADDRESS, CulFrameMonitor.addressOf(CulFrameType.FAILED, null));
+        //frames without address do not match a device
+        final CulFrameMonitor device = new CulFrameMonitor(null, 0x1234);
+        assertFalse(device.accepts(CulFrameType.CUL, "V 1.67 CUL868"));
+        assertFalse(device.accepts(CulFrameType.FAILED, null));
+    }
+
+    @Test
+    public void testDrain() {
+        final CulFrameMonitor monitor = new CulFrameMonitor(null, CulFrameMonitor.ANY_ADDRESS);
+        final List<Object> messages = new ArrayList<>();
+        final long now = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            monitor.offer(CulFrameType.CUL, "line " + i, -50.0f, now + i);
+        }
+        monitor.awaitFrames(TimeUnit.SECONDS.toNanos(10));
+        assertEquals(2, monitor.drain((type, message, signalStrength, receivedNanos) -> messages.add(message), 2));
+        assertEquals(1, monitor.drain((type, message, signalStrength, receivedNanos) -> messages.add(message), 2));
+        assertEquals(0, monitor.drain((type, message, signalStrength, receivedNanos) -> messages.add(message), 2));
+        assertEquals(List.of("line 0", "line 1", "line 2"), messages);
+        assertEquals(0, monitor.getDroppedCount());
+    }
+
+    @Test
+    public void testDropWhenNotDrained() {
+        final CulFrameMonitor monitor = new CulFrameMonitor(null, CulFrameMonitor.ANY_ADDRESS);
+        final long now = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            monitor.offer(CulFrameType.CUL, "line " + i, -50.0f, now + i);
+        }
+        final int drained = monitor.drain((type, message, signalStrength, receivedNanos) -> {
+        }, Integer.MAX_VALUE);
+        assertTrue(drained > 0 && drained < 1000);
+        assertEquals(1000 - drained, monitor.getDroppedCount());
+    }
+
+    @Test
+    public void testClose() {
+        final CulFrameMonitor monitor = new CulFrameMonitor(Protocol.FHT, 0x1234);
+        assertFalse(monitor.isClosed());
+        monitor.close();
+        assertTrue(monitor.isClosed());
+        assertEquals("CulFrameMonitor{protocol=FHT, address=0x001234}", monitor.toString());
+        assertEquals("CulFrameMonitor{protocol=all, address=all}", new CulFrameMonitor(null, CulFrameMonitor.ANY_ADDRESS).toString());
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class CulReceiveRingBufferTest {
+
+    private static final class Collector implements CulReceiveRingBuffer.FrameConsumer {
+
+        final List<Object> messages = new ArrayList<>();
+        final List<Long> receivedNanos = new ArrayList<>();
+
+        @Override
+        public void onFrame(CulFrameType type, Object message, float signalStrength, long receivedNanos) {
+            messages.add(message);
+            this.receivedNanos.add(receivedNanos);
+        }
+
+    }
+
+    @Test
+    public void testCapacityIsRoundedUp() {
+        assertEquals(1, new CulReceiveRingBuffer(1).getCapacity());
+        assertEquals(8, new CulReceiveRingBuffer(5).getCapacity());
+        assertEquals(8, new CulReceiveRingBuffer(8).getCapacity());
+        assertThrows(IllegalArgumentException.class, () -> new CulReceiveRingBuffer(0));
+    }
+
+    @Test
+    public void testEmpty() {
+        final CulReceiveRingBuffer buffer = new CulReceiveRingBuffer(4);
+        final Collector collector = new Collector();
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.drain(collector, 10));
+        assertTrue(collector.messages.isEmpty());
+        assertEquals(0, buffer.getDepth());
+    }
+
+    @Test
+    public void testFullDropsAndCounts() {
+        final CulReceiveRingBuffer buffer = new CulReceiveRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(CulFrameType.FHT, i, -70f, i));
+        }
+        assertFalse(buffer.offer(CulFrameType.FHT, 4, -70f, 4));
+        assertFalse(buffer.offer(CulFrameType.FHT, 5, -70f, 5));
+        assertEquals(2, buffer.getDroppedCount());
+        assertEquals(4, buffer.getDepth());
+        assertEquals(4, buffer.getHighWaterMark());
+
+        final Collector collector = new Collector();
+        assertEquals(4, buffer.drain(collector, 10));
+        assertEquals(List.of(0, 1, 2, 3), collector.messages);
+        assertTrue(buffer.isEmpty());
+        //there is space again
+        assertTrue(buffer.offer(CulFrameType.FHT, 6, -70f, 6));
+        assertEquals(2, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void testWrapAroundKeepsOrder() {
+        final CulReceiveRingBuffer buffer = new CulReceiveRingBuffer(4);
+        final Collector collector = new Collector();
+        final List<Object> expected = new ArrayList<>();
+        int next = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 3; i++) {
+                expected.add(next);
+                assertTrue(buffer.offer(CulFrameType.HMS, next, Float.NaN, 1000L + next));
+                next++;
+            }
+            assertEquals(3, buffer.getDepth());
+            assertEquals(3, buffer.drain(collector, 3));
+        }
+        assertEquals(expected, collector.messages);
+        assertEquals(Long.valueOf(1000L + next - 1), collector.receivedNanos.get(next - 1));
+        assertEquals(3, buffer.getHighWaterMark());
+        assertEquals(0, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void testDrainAtMostMaxFrames() {
+        final CulReceiveRingBuffer buffer = new CulReceiveRingBuffer(8);
+        for (int i = 0; i < 5; i++) {
+            buffer.offer(CulFrameType.EM, i, Float.NaN, i);
+        }
+        final Collector collector = new Collector();
+        assertEquals(2, buffer.drain(collector, 2));
+        assertEquals(3, buffer.getDepth());
+        assertEquals(3, buffer.drain(collector, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4), collector.messages);
+    }
+
+    @Test
+    public void testFailingConsumerDoesNotBlockTheBuffer() {
+        final CulReceiveRingBuffer buffer = new CulReceiveRingBuffer(4);
+        buffer.offer(CulFrameType.EM, 0, Float.NaN, 0);
+        buffer.offer(CulFrameType.EM, 1, Float.NaN, 1);
+        assertThrows(IllegalStateException.class, () -> buffer.drain((type, message, signalStrength, receivedNanos) -> {
+            throw new IllegalStateException();
+        }, 10));
+        assertEquals(1, buffer.getDepth());
+        final Collector collector = new Collector();
+        assertEquals(1, buffer.drain(collector, 10));
+        assertEquals(List.of(1), collector.messages);
+    }
+
+    @Test
+    public void testOfferWakesParkedConsumer() throws InterruptedException {
+        final CulReceiveRingBuffer buffer = new CulReceiveRingBuffer(4);
+        final Collector collector = new Collector();
+        final long[] waitedNanos = new long[1];
+        final Thread consumer = new Thread(() -> {
+            final long start = System.nanoTime();
+            while (buffer.isEmpty()) {
+                buffer.awaitFrames(TimeUnit.SECONDS.toNanos(30));
+            }
+            waitedNanos[0] = System.nanoTime() - start;
+            buffer.drain(collector, 10);
+        });
+        consumer.start();
+        Thread.sleep(100);
+        buffer.offer(CulFrameType.FHT, "frame", Float.NaN, 0);
+        consumer.join(TimeUnit.SECONDS.toMillis(10));
+        assertFalse(consumer.isAlive());
+        assertTrue(waitedNanos[0] < TimeUnit.SECONDS.toNanos(10));
+        assertEquals(List.of("frame"), collector.messages);
+    }
+
+}
@@ -0,0 +1,253 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.ibapl.fhz4j.api.Protocol;
+import de.ibapl.fhz4j.protocol.fht.FhtProperty;
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class CulTransmitQueueTest {
+
+    private static final short HOUSECODE_A = 0x1234;
+    private static final short HOUSECODE_B = 0x5678;
+
+    /**
+     * The commands in the order they are written.
+     */
+    private final LinkedBlockingQueue<String> written = new LinkedBlockingQueue<>();
+    private CulTransmitQueue queue;
+    private AirtimeBudget airtimeBudget;
+
+    private CulTransmitQueue newQueue(long agingStepNanos) {
+        airtimeBudget = new AirtimeBudget(0.01);
+        queue = new CulTransmitQueue("test writer", (write) -> write.write(null), airtimeBudget, 0, agingStepNanos);
+        return queue;
+    }
+
+    private CulTransmitQueue.CulWrite write(String name) {
+        return (adapter) -> written.add(name);
+    }
+
+    private List<String> awaitWritten(int count) throws InterruptedException {
+        final List<String> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final String s = written.poll(10, TimeUnit.SECONDS);
+            if (s == null) {
+                break;
+            }
+            result.add(s);
+        }
+        return result;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (queue != null) {
+            queue.close();
+        }
+    }
+
+    @Test
+    public void testStrictPriority() throws Exception {
+        final CulTransmitQueue q = newQueue(CulTransmitQueue.AGING_STEP_NANOS);
+        q.submit(CulTransmitQueue.Priority.DIAGNOSTIC, null, 0, write("diagnostic"));
+        q.submit(CulTransmitQueue.Priority.SCHEDULED, Protocol.FHT, 0, write("scheduled"));
+        q.submit(Protocol.FHT, HOUSECODE_A, FhtProperty.DESIRED_TEMP, 0, write("interactive"));
+        assertEquals(3, q.size());
+        q.start();
+        assertEquals(List.of("interactive", "scheduled", "diagnostic"), awaitWritten(3));
+        assertEquals(0, q.getPromotedCount());
+    }
+
+    @Test
+    public void testAging() throws Exception {
+        final CulTransmitQueue q = newQueue(TimeUnit.MILLISECONDS.toNanos(50));
+        q.submit(CulTransmitQueue.Priority.DIAGNOSTIC, null, 0, write("diagnostic"));
+        //two aging steps, the diagnostic command competes as interactive
+        Thread.sleep(150);
+        q.submit(Protocol.FHT, HOUSECODE_A, FhtProperty.DESIRED_TEMP, 0, write("interactive 1"));
+        q.submit(Protocol.FHT, HOUSECODE_A, FhtProperty.MODE, 0, write("interactive 2"));
+        q.start();
+        //on a tie the older command goes first, after a promoted command the next take is strict
+        assertEquals(List.of("diagnostic", "interactive 1", "interactive 2"), awaitWritten(3));
+        assertEquals(1, q.getPromotedCount());
+    }
+
+    @Test
+    public void testCoalescingPerSlot() throws Exception {
+        final CulTransmitQueue q = newQueue(CulTransmitQueue.AGING_STEP_NANOS);
+        final CompletableFuture<Void> first = q.submit(Protocol.FHT, HOUSECODE_A, FhtProperty.DESIRED_TEMP, 0, write("A temp 20"));
+        q.submit(Protocol.FHT, HOUSECODE_A, DayOfWeek.MONDAY, 0, write("A monday"));
+        q.submit(Protocol.FHT, HOUSECODE_B, FhtProperty.DESIRED_TEMP, 0, write("B temp 20"));
+        final CompletableFuture<Void> second = q.submit(Protocol.FHT, HOUSECODE_A, FhtProperty.DESIRED_TEMP, 0, write("A temp 21"));
+        assertSame(first, second);
+        assertEquals(3, q.size());
+        assertEquals(4, q.getSubmittedCount());
+        assertEquals(1, q.getCoalescedCount());
+        q.start();
+        //the replacing command moved to the tail
+        assertEquals(List.of("A monday", "B temp 20", "A temp 21"), awaitWritten(3));
+        assertNull(first.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testUncoalescedCommands() throws Exception {
+        final CulTransmitQueue q = newQueue(CulTransmitQueue.AGING_STEP_NANOS);
+        q.submit(CulTransmitQueue.Priority.SCHEDULED, Protocol.FHT, HOUSECODE_A, 0, 0, write("ping 1"));
+        q.submit(CulTransmitQueue.Priority.SCHEDULED, Protocol.FHT, HOUSECODE_A, 0, 0, write("ping 2"));
+        assertEquals(0, q.getCoalescedCount());
+        q.start();
+        assertEquals(List.of("ping 1", "ping 2"), awaitWritten(2));
+    }
+
+    @Test
+    public void testBufferGateHoldsDevice() throws Exception {
+        final CulTransmitQueue q = newQueue(CulTransmitQueue.AGING_STEP_NANOS);
+        final Set<Object> held = ConcurrentHashMap.newKeySet();
+        held.add(HOUSECODE_A);
+        final List<Object> admitted = new ArrayList<>();
+        q.setBufferGate(new CulTransmitQueue.BufferGate() {
+            @Override
+            public long millisUntilAdmitted(Object address, int bytes) {
+                return held.contains(address) ? 60_000 : 0;
+            }
+
+            @Override
+            public void written(Object address, int bytes) {
+                synchronized (admitted) {
+                    admitted.add(address);
+                }
+            }
+        });
+        q.submit(Protocol.FHT, HOUSECODE_A, FhtProperty.DESIRED_TEMP, 0, 5, write("A temp"));
+        final CompletableFuture<Void> last = q.submit(Protocol.FHT, HOUSECODE_A, FhtProperty.MODE, 0, 5, write("A mode"));
+        q.submit(Protocol.FHT, HOUSECODE_B, FhtProperty.DESIRED_TEMP, 0, 5, write("B temp"));
+        q.start();
+        //the later command of the other device passes
+        assertEquals(List.of("B temp"), awaitWritten(1));
+        assertNull(written.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(2, q.size());
+        assertTrue(q.getHeldBackCount() > 0);
+
+        held.clear();
+        q.wakeUp();
+        //the commands of the held device keep their order
+        assertEquals(List.of("A temp", "A mode"), awaitWritten(2));
+        //the gate learns of a write before its future completes
+        last.get(10, TimeUnit.SECONDS);
+        synchronized (admitted) {
+            assertEquals(List.of((Object) HOUSECODE_B, HOUSECODE_A, HOUSECODE_A), admitted);
+        }
+    }
+
+    @Test
+    public void testBufferGateHoldAll() throws Exception {
+        final CulTransmitQueue q = newQueue(CulTransmitQueue.AGING_STEP_NANOS);
+        final boolean[] full = {true};
+        q.setBufferGate(new CulTransmitQueue.BufferGate() {
+            @Override
+            public long millisUntilAdmitted(Object address, int bytes) {
+                synchronized (full) {
+                    return full[0] ? HOLD_ALL : 0;
+                }
+            }
+
+            @Override
+            public void written(Object address, int bytes) {
+            }
+        });
+        q.submit(Protocol.FHT, HOUSECODE_A, FhtProperty.DESIRED_TEMP, 0, 5, write("A temp"));
+        q.submit(Protocol.FHT, HOUSECODE_B, FhtProperty.DESIRED_TEMP, 0, 5, write("B temp"));
+        q.submit(CulTransmitQueue.Priority.DIAGNOSTIC, null, 0, write("diagnostic"));
+        q.start();
+        //only the command without buffer bytes passes
+        assertEquals(List.of("diagnostic"), awaitWritten(1));
+        assertNull(written.poll(200, TimeUnit.MILLISECONDS));
+
+        synchronized (full) {
+            full[0] = false;
+        }
+        q.wakeUp();
+        assertEquals(List.of("A temp", "B temp"), awaitWritten(2));
+    }
+
+    @Test
+    public void testCloseCancelsPending() throws Exception {
+        final CulTransmitQueue q = newQueue(CulTransmitQueue.AGING_STEP_NANOS);
+        final CompletableFuture<Void> pending = q.submit(Protocol.FHT, HOUSECODE_A, FhtProperty.DESIRED_TEMP, 0, write("A temp"));
+        q.close();
+        assertThrows(CancellationException.class, () -> pending.getNow(null));
+        final CompletableFuture<Void> afterClose = q.submit(Protocol.FHT, HOUSECODE_A, FhtProperty.DESIRED_TEMP, 0, write("A temp"));
+        assertTrue(afterClose.isCompletedExceptionally());
+        assertEquals(0, q.size());
+    }
+
+    @Test
+    public void testFailedWriteFailsTheFuture() throws Exception {
+        final CulTransmitQueue q = newQueue(CulTransmitQueue.AGING_STEP_NANOS);
+        final CompletableFuture<Void> failed = q.submit(CulTransmitQueue.Priority.DIAGNOSTIC, null, 0, (adapter) -> {
+            throw new IOException("not connected");
+        });
+        final CompletableFuture<Void> next = q.submit(CulTransmitQueue.Priority.DIAGNOSTIC, null, 0, write("next"));
+        q.start();
+        final ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IOException);
+        assertEquals(List.of("next"), awaitWritten(1));
+        assertNull(next.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testFailedWriteRefundsTheAirtime() throws Exception {
+        final CulTransmitQueue q = newQueue(CulTransmitQueue.AGING_STEP_NANOS);
+        final CompletableFuture<Void> failed = q.submit(Protocol.FHT, HOUSECODE_A, FhtProperty.DESIRED_TEMP, 100, (adapter) -> {
+            throw new IOException("not connected");
+        });
+        final CompletableFuture<Void> sent = q.submit(Protocol.FHT, HOUSECODE_B, FhtProperty.DESIRED_TEMP, 40, write("B temp"));
+        q.start();
+        assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+        assertNull(sent.get(10, TimeUnit.SECONDS));
+        assertEquals(40, airtimeBudget.getUsedMillis(Protocol.FHT, AirtimeBudget.nowMillis()));
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class DeviceHandlerTableTest {
+
+    @Test
+    public void testEmpty() {
+        final DeviceHandlerTable<String> table = new DeviceHandlerTable<>();
+        assertEquals(0, table.size());
+        assertNull(table.get(0));
+        assertNull(table.get(0x1234));
+        assertNull(table.remove(0x1234));
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        final DeviceHandlerTable<String> table = new DeviceHandlerTable<>();
+        assertNull(table.put(0x1234, "a"));
+        assertNull(table.put(0, "zero"));
+        assertNull(table.put(-1, "minus one"));
+        assertEquals(3, table.size());
+        assertEquals("a", table.get(0x1234));
+        assertEquals("zero", table.get(0));
+        assertEquals("minus one", table.get(-1));
+        assertNull(table.get(0x1235));
+
+        assertEquals("a", table.put(0x1234, "b"));
+        assertEquals(3, table.size());
+        assertEquals("b", table.get(0x1234));
+
+        assertEquals("b", table.remove(0x1234));
+        assertEquals(2, table.size());
+        assertNull(table.get(0x1234));
+        assertEquals("zero", table.get(0));
+        assertEquals("minus one", table.get(-1));
+    }
+
+    @Test
+    public void testManyConsecutiveAddresses() {
+        final DeviceHandlerTable<Integer> table = new DeviceHandlerTable<>();
+        for (int address = 0; address < 1000; address++) {
+            table.put(address, address);
+        }
+        assertEquals(1000, table.size());
+        for (int address = 0; address < 1000; address++) {
+            assertEquals(Integer.valueOf(address), table.get(address));
+        }
+        assertNull(table.get(1000));
+        //removing must not break the probe sequence of the remaining keys
+        for (int address = 0; address < 1000; address += 2) {
+            assertEquals(Integer.valueOf(address), table.remove(address));
+        }
+        assertEquals(500, table.size());
+        for (int address = 0; address < 1000; address++) {
+            if ((address & 1) == 0) {
+                assertNull(table.get(address));
+            } else {
+                assertEquals(Integer.valueOf(address), table.get(address));
+            }
+        }
+    }
+
+    @Test
+    public void testRemoveOnlyTheGivenHandler() {
+        final DeviceHandlerTable<String> table = new DeviceHandlerTable<>();
+        final String disposed = new String("handler");
+        final String successor = new String("handler");
+        table.put(7, disposed);
+        table.put(7, successor);
+        assertFalse(table.remove(7, disposed));
+        assertSame(successor, table.get(7));
+        assertTrue(table.remove(7, successor));
+        assertNull(table.get(7));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    public void testForEachAndClear() {
+        final DeviceHandlerTable<String> table = new DeviceHandlerTable<>();
+        table.put(1, "a");
+        table.put(2, "b");
+        table.put(3, "c");
+        final Set<String> values = new HashSet<>();
+        table.forEach(values::add);
+        assertEquals(Set.of("a", "b", "c"), values);
+        table.clear();
+        assertEquals(0, table.size());
+        assertNull(table.get(1));
+    }
+
+    @Test
+    public void testNullHandler() {
+        final DeviceHandlerTable<String> table = new DeviceHandlerTable<>();
+        assertThrows(IllegalArgumentException.class, () -> table.put(1, null));
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class DeviceIndexTest {
+
+    private record Entry(CulFrameType type, int address, float signalStrength, int frames) {
+
+    }
+
+    private static List<Entry> entries(DeviceIndex index) {
+        final List<Entry> result = new ArrayList<>();
+        index.forEach((type, subtype, address, firstSeenMillis, lastSeenMillis, signalStrength, frames) -> {
+            assertTrue(firstSeenMillis <= lastSeenMillis);
+            result.add(new Entry(type, address, signalStrength, frames));
+        });
+        return result;
+    }
+
+    private static long fileSize(int capacity) {
+        return 16 + capacity * DeviceIndex.RECORD_SIZE;
+    }
+
+    @Test
+    public void testNotOpen() {
+        final DeviceIndex index = new DeviceIndex(4);
+        assertFalse(index.isOpen());
+        index.record(CulFrameType.FHT, 0x1234, null, -70f);
+        assertEquals(0, index.size());
+        assertEquals(List.of(), entries(index));
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        final Path file = Files.createTempDirectory("index").resolve("sub").resolve("devices.idx");
+        final DeviceIndex index = new DeviceIndex(4);
+        index.open(file);
+        assertTrue(index.isOpen());
+        assertEquals(fileSize(4), Files.size(file));
+        index.record(CulFrameType.FHT, 0x1234, null, -70f);
+        //NaN keeps the last signal strength
+        index.record(CulFrameType.FHT, 0x1234, null, Float.NaN);
+        //the same address of an other type is an other device
+        index.record(CulFrameType.FHT80_TF, 0x1234, null, Float.NaN);
+        index.close();
+        assertFalse(index.isOpen());
+
+        final DeviceIndex reopened = new DeviceIndex(4);
+        reopened.open(file);
+        assertEquals(2, reopened.size());
+        final List<Entry> entries = entries(reopened);
+        assertEquals(new Entry(CulFrameType.FHT, 0x1234, -70f, 2), entries.get(0));
+        assertEquals(CulFrameType.FHT80_TF, entries.get(1).type());
+        assertTrue(Float.isNaN(entries.get(1).signalStrength()));
+        //a known device is updated, not added
+        reopened.record(CulFrameType.FHT, 0x1234, null, -60f);
+        assertEquals(2, reopened.size());
+        assertEquals(new Entry(CulFrameType.FHT, 0x1234, -60f, 3), entries(reopened).get(0));
+        reopened.close();
+    }
+
+    @Test
+    public void testReplaceOtherLayout() throws Exception {
+        final Path dir = Files.createTempDirectory("index");
+        final Path garbage = Files.write(dir.resolve("garbage.idx"), new byte[]{1, 2, 3});
+        final DeviceIndex index = new DeviceIndex(4);
+        index.open(garbage);
+        assertEquals(0, index.size());
+        assertEquals(fileSize(4), Files.size(garbage));
+        index.record(CulFrameType.FHT, 0x1234, null, -70f);
+        index.close();
+
+        //an other capacity is an other layout
+        final DeviceIndex larger = new DeviceIndex(8);
+        larger.open(garbage);
+        assertEquals(0, larger.size());
+        assertEquals(fileSize(8), Files.size(garbage));
+        assertEquals(List.of(), entries(larger));
+        larger.close();
+    }
+
+    @Test
+    public void testFull() throws Exception {
+        final Path file = Files.createTempDirectory("index").resolve("devices.idx");
+        final DeviceIndex index = new DeviceIndex(2);
+        index.open(file);
+        index.record(CulFrameType.FHT, 1, null, -70f);
+        index.record(CulFrameType.FHT, 2, null, -70f);
+        index.record(CulFrameType.FHT, 3, null, -70f);
+        index.record(CulFrameType.FHT, 4, null, -70f);
+        assertEquals(2, index.size());
+        //the known devices are still updated
+        index.record(CulFrameType.FHT, 2, null, -50f);
+        assertEquals(List.of(new Entry(CulFrameType.FHT, 1, -70f, 1), new Entry(CulFrameType.FHT, 2, -50f, 2)), entries(index));
+        index.close();
+    }
+
+    @Test
+    public void testVisitWithoutLock() throws Exception {
+        final Path file = Files.createTempDirectory("index").resolve("devices.idx");
+        final DeviceIndex index = new DeviceIndex(4);
+        index.open(file);
+        index.record(CulFrameType.FHT, 1, null, -70f);
+        final List<Integer> visited = new ArrayList<>();
+        index.forEach((type, subtype, address, firstSeenMillis, lastSeenMillis, signalStrength, frames) -> {
+            //the dispatcher records a frame while the devices are announced
+            final Thread dispatcher = new Thread(() -> index.record(CulFrameType.FHT, 2, null, -70f));
+            dispatcher.start();
+            try {
+                dispatcher.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertFalse(dispatcher.isAlive());
+            visited.add(address);
+        });
+        //the copy does not see the new device
+        assertEquals(List.of(1), visited);
+        assertEquals(2, index.size());
+        index.close();
+    }
+
+}
@@ -0,0 +1,128 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class FhtBufferModelTest {
+
+    private static final short HOUSECODE_A = 0x1234;
+    private static final short HOUSECODE_B = 0x5678;
+
+    @Test
+    public void testEstimateBytes() {
+        assertEquals(5, FhtBufferModel.estimateBytes(1));
+        assertEquals(17, FhtBufferModel.estimateBytes(7));
+    }
+
+    @Test
+    public void testHighWaterMark() {
+        final FhtBufferModel model = new FhtBufferModel();
+        //75% of 74 bytes
+        final int mark = FhtBufferModel.DEFAULT_CAPACITY * FhtBufferModel.HIGH_WATER_PERCENT / 100;
+        assertEquals(55, mark);
+        assertFalse(model.isPollNeeded());
+        //an empty buffer admits any command
+        assertTrue(model.isAdmitted(100));
+        model.written(HOUSECODE_A, 50);
+        assertTrue(model.isPollNeeded());
+        assertTrue(model.isAdmitted(5));
+        assertFalse(model.isAdmitted(6));
+        model.written(HOUSECODE_B, 5);
+        assertEquals(55, model.getUsed());
+        assertEquals(FhtBufferModel.DEFAULT_CAPACITY - 55, model.getRemaining());
+        assertFalse(model.isAdmitted(1));
+    }
+
+    @Test
+    public void testUsedNeverExceedsCapacity() {
+        final FhtBufferModel model = new FhtBufferModel();
+        model.written(HOUSECODE_A, 60);
+        model.written(HOUSECODE_A, 60);
+        assertEquals(FhtBufferModel.DEFAULT_CAPACITY, model.getUsed());
+        assertEquals(0, model.getRemaining());
+    }
+
+    @Test
+    public void testDeviceHeardFreesItsBytes() {
+        final FhtBufferModel model = new FhtBufferModel();
+        model.written(HOUSECODE_A, 5);
+        model.written(HOUSECODE_A, 7);
+        model.written(HOUSECODE_B, 9);
+        assertEquals(21, model.getUsed());
+        assertTrue(model.deviceHeard(HOUSECODE_A));
+        assertEquals(9, model.getUsed());
+        //nothing queued any more
+        assertFalse(model.deviceHeard(HOUSECODE_A));
+        assertEquals(9, model.getUsed());
+        assertTrue(model.deviceHeard(HOUSECODE_B));
+        assertEquals(0, model.getUsed());
+        assertFalse(model.isPollNeeded());
+    }
+
+    @Test
+    public void testRemainingReportedReplacesEstimate() {
+        final FhtBufferModel model = new FhtBufferModel();
+        model.written(HOUSECODE_A, 10);
+        model.remainingReported(60);
+        assertEquals(14, model.getUsed());
+        //the reported bytes are not freed twice
+        assertFalse(model.deviceHeard(HOUSECODE_A));
+        assertEquals(14, model.getUsed());
+        model.remainingReported(FhtBufferModel.DEFAULT_CAPACITY);
+        assertEquals(0, model.getUsed());
+    }
+
+    @Test
+    public void testLargerCapacityReported() {
+        final FhtBufferModel model = new FhtBufferModel();
+        model.remainingReported(200);
+        assertEquals(200, model.getCapacity());
+        assertEquals(0, model.getUsed());
+        model.written(HOUSECODE_A, 140);
+        assertTrue(model.isAdmitted(10));
+        assertFalse(model.isAdmitted(11));
+    }
+
+    @Test
+    public void testOverflowAndClear() {
+        final FhtBufferModel model = new FhtBufferModel();
+        model.written(HOUSECODE_A, 5);
+        model.overflowReported();
+        assertEquals(1, model.getOverflowCount());
+        assertEquals(0, model.getRemaining());
+        assertFalse(model.isAdmitted(1));
+        model.clear();
+        assertEquals(0, model.getUsed());
+        assertTrue(model.isAdmitted(5));
+        assertFalse(model.deviceHeard(HOUSECODE_A));
+    }
+
+}
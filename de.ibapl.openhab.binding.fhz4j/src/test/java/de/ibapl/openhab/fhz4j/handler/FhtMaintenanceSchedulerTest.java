@@ -0,0 +1,258 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.scheduler.CronScheduler;
+import org.openhab.core.scheduler.ScheduledCompletableFuture;
+import org.openhab.core.scheduler.SchedulerRunnable;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class FhtMaintenanceSchedulerTest {
+
+    private static final String CRON_PATTERN = "0 0 3 ? * SUN *";
+    private static final long TOLERANCE_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /**
+     * Records the scheduled tasks, the test runs them.
+     */
+    private static final class ManualScheduler extends ScheduledThreadPoolExecutor {
+
+        final List<Runnable> commands = new ArrayList<>();
+        final List<Long> delays = new ArrayList<>();
+
+        ManualScheduler() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            commands.add(command);
+            delays.add(unit.toNanos(delay));
+            //something cancelable that never fires
+            return super.schedule(() -> {
+            }, 1, TimeUnit.DAYS);
+        }
+
+        /**
+         * @return the delay of the task that was run.
+         */
+        long runNext() {
+            assertTrue(!commands.isEmpty(), "no task scheduled");
+            final long delay = delays.remove(0);
+            commands.remove(0).run();
+            return delay;
+        }
+
+    }
+
+    private final class FakeOperations implements FhtMaintenanceScheduler.Operations {
+
+        final List<Short> clocks = new ArrayList<>();
+        final List<Short> reportings = new ArrayList<>();
+        final Set<Short> failing = new HashSet<>();
+        final List<Integer> remainingFhtBufferSizes = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<Void> setClock(short housecode, LocalDateTime localDateTime) {
+            clocks.add(housecode);
+            if (failing.contains(housecode)) {
+                return CompletableFuture.failedFuture(new IOException("no answer"));
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public CompletableFuture<Void> initFhtReporting(short housecode) {
+            reportings.add(housecode);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public int getRemainingFhtBufferSize(short housecode) {
+            return remainingFhtBufferSizes.isEmpty() ? -1 : remainingFhtBufferSizes.remove(0);
+        }
+
+    }
+
+    private ManualScheduler scheduler;
+    private FakeOperations operations;
+    private SchedulerRunnable cronJob;
+    private FhtMaintenanceScheduler maintenance;
+
+    @BeforeEach
+    public void setUp() {
+        scheduler = new ManualScheduler();
+        operations = new FakeOperations();
+        final ScheduledCompletableFuture<?> cronFuture = (ScheduledCompletableFuture<?>) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ScheduledCompletableFuture.class}, (proxy, method, args) -> method.getReturnType() == boolean.class ? Boolean.FALSE : null);
+        final CronScheduler cronScheduler = (CronScheduler) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{CronScheduler.class}, (proxy, method, args) -> {
+                    if ("schedule".equals(method.getName()) && args[0] instanceof SchedulerRunnable runnable) {
+                        assertEquals(CRON_PATTERN, args[args.length - 1]);
+                        cronJob = runnable;
+                        return cronFuture;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        maintenance = new FhtMaintenanceScheduler("test", cronScheduler, scheduler, operations);
+        maintenance.setWindow(Duration.ofMinutes(60));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private static void assertDelay(long expectedNanos, long actualNanos) {
+        assertTrue(Math.abs(expectedNanos - actualNanos) < TOLERANCE_NANOS, "expected: " + expectedNanos + " but was: " + actualNanos);
+    }
+
+    private void startRound(short... housecodes) throws Exception {
+        for (short housecode : housecodes) {
+            maintenance.register(housecode, CRON_PATTERN);
+        }
+        maintenance.start();
+        assertNotNull(cronJob);
+        cronJob.run();
+    }
+
+    @Test
+    public void testStaggering() throws Exception {
+        startRound((short) 0x0303, (short) 0x0101, (short) 0x0202);
+        assertEquals(3, maintenance.size());
+        assertDelay(0, scheduler.runNext());
+        assertDelay(TimeUnit.MINUTES.toNanos(20), scheduler.runNext());
+        assertDelay(TimeUnit.MINUTES.toNanos(40), scheduler.runNext());
+        //the finishing task after the last slot
+        assertDelay(TimeUnit.MINUTES.toNanos(60), scheduler.runNext());
+        assertEquals(List.of((short) 0x0101, (short) 0x0202, (short) 0x0303), operations.clocks);
+        assertEquals(operations.clocks, operations.reportings);
+        //all done, no retry
+        assertTrue(scheduler.commands.isEmpty());
+    }
+
+    @Test
+    public void testRetryOnlyTheFailed() throws Exception {
+        operations.failing.add((short) 0x0202);
+        startRound((short) 0x0101, (short) 0x0202, (short) 0x0303);
+        for (int i = 0; i < 4; i++) {
+            scheduler.runNext();
+        }
+        assertEquals(List.of((short) 0x0101, (short) 0x0303), operations.reportings);
+        operations.failing.clear();
+        //the retry round with only the failed device
+        assertDelay(TimeUnit.MINUTES.toNanos(30), scheduler.runNext());
+        //the only device of the retry round has the whole window
+        assertDelay(TimeUnit.MINUTES.toNanos(30 + 60), scheduler.runNext());
+        assertEquals(List.of((short) 0x0101, (short) 0x0202, (short) 0x0303, (short) 0x0202), operations.clocks);
+        assertEquals(List.of((short) 0x0101, (short) 0x0303, (short) 0x0202), operations.reportings);
+        assertTrue(scheduler.commands.isEmpty());
+    }
+
+    @Test
+    public void testGiveUp() throws Exception {
+        operations.failing.add((short) 0x0101);
+        startRound((short) 0x0101);
+        while (!scheduler.commands.isEmpty()) {
+            scheduler.runNext();
+        }
+        //the first round and 3 retries
+        assertEquals(4, operations.clocks.size());
+        assertTrue(operations.reportings.isEmpty());
+    }
+
+    @Test
+    public void testWaitForTheFhtBuffer() throws Exception {
+        operations.remainingFhtBufferSizes.add(FhtMaintenanceScheduler.MIN_REMAINING_FHT_BUFFER - 1);
+        operations.remainingFhtBufferSizes.add(FhtMaintenanceScheduler.MIN_REMAINING_FHT_BUFFER);
+        startRound((short) 0x0101, (short) 0x0202);
+        scheduler.runNext();
+        assertTrue(operations.clocks.isEmpty());
+        //the device waits for the buffer to drain
+        assertDelay(TimeUnit.MINUTES.toNanos(2), scheduler.runNext());
+        assertEquals(List.of((short) 0x0101), operations.clocks);
+        scheduler.runNext();
+        assertEquals(List.of((short) 0x0101, (short) 0x0202), operations.clocks);
+    }
+
+    @Test
+    public void testBufferStaysFull() throws Exception {
+        for (int i = 0; i < 6; i++) {
+            operations.remainingFhtBufferSizes.add(0);
+        }
+        startRound((short) 0x0101);
+        //the first try and 5 waits
+        for (int i = 0; i < 6; i++) {
+            scheduler.runNext();
+        }
+        assertTrue(operations.clocks.isEmpty());
+        //finish and postpone to the retry round
+        scheduler.runNext();
+        assertDelay(TimeUnit.MINUTES.toNanos(30), scheduler.runNext());
+        assertEquals(List.of((short) 0x0101), operations.clocks);
+    }
+
+    @Test
+    public void testStopCancelsTheRound() throws Exception {
+        startRound((short) 0x0101, (short) 0x0202);
+        scheduler.runNext();
+        maintenance.stop();
+        scheduler.runNext();
+        assertEquals(List.of((short) 0x0101), operations.clocks);
+        assertTrue(scheduler.commands.isEmpty());
+        assertEquals(2, maintenance.size());
+    }
+
+    @Test
+    public void testUnregisterDuringRound() throws Exception {
+        startRound((short) 0x0101, (short) 0x0202, (short) 0x0303);
+        scheduler.runNext();
+        maintenance.unregister((short) 0x0202);
+        while (!scheduler.commands.isEmpty()) {
+            scheduler.runNext();
+        }
+        assertEquals(List.of((short) 0x0101, (short) 0x0303), operations.clocks);
+    }
+
+}
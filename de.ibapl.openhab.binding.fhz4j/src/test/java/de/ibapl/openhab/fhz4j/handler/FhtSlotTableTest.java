@@ -0,0 +1,168 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class FhtSlotTableTest {
+
+    private static final short HOUSECODE = 0x1234;
+    private static final long T0 = TimeUnit.HOURS.toNanos(1);
+    private static final long PERIOD = TimeUnit.SECONDS.toNanos(118);
+    private static final long LEAD = FhtSlotTable.DEFAULT_LEAD_NANOS;
+
+    /**
+     * @return the period, last slot and slot count of the device.
+     */
+    private static long[] slotOf(FhtSlotTable table, short housecode) {
+        final long[] result = new long[3];
+        table.forEach((hc, lastSlotNanos, periodNanos, slotCount) -> {
+            if (hc == housecode) {
+                result[0] = periodNanos;
+                result[1] = lastSlotNanos;
+                result[2] = slotCount;
+            }
+        });
+        return result;
+    }
+
+    private static long seconds(long s) {
+        return TimeUnit.SECONDS.toNanos(s);
+    }
+
+    @Test
+    public void testLeadRange() {
+        assertThrows(IllegalArgumentException.class, () -> new FhtSlotTable(-1));
+        assertThrows(IllegalArgumentException.class, () -> new FhtSlotTable(FhtSlotTable.MIN_PERIOD_NANOS));
+    }
+
+    @Test
+    public void testUnknownDeviceIsReleased() {
+        final FhtSlotTable table = new FhtSlotTable(LEAD);
+        assertEquals(0, table.nanosUntilRelease(HOUSECODE, T0));
+        assertEquals(T0, table.predictNextSlot(HOUSECODE, T0));
+        table.heard(HOUSECODE, T0);
+        //no period yet
+        assertEquals(0, table.nanosUntilRelease(HOUSECODE, T0 + seconds(1)));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void testPeriodLearning() {
+        final FhtSlotTable table = new FhtSlotTable(LEAD);
+        table.heard(HOUSECODE, T0);
+        //the frames of one burst do not start a new slot
+        table.heard(HOUSECODE, T0 + seconds(3));
+        table.heard(HOUSECODE, T0 + seconds(6));
+        assertEquals(1, slotOf(table, HOUSECODE)[2]);
+        table.heard(HOUSECODE, T0 + PERIOD);
+        assertEquals(PERIOD, slotOf(table, HOUSECODE)[0]);
+        assertEquals(T0 + PERIOD, slotOf(table, HOUSECODE)[1]);
+        assertEquals(2, slotOf(table, HOUSECODE)[2]);
+        assertEquals(T0 + 2 * PERIOD, table.predictNextSlot(HOUSECODE, T0 + PERIOD + seconds(1)));
+        //a new sample moves the period by a quarter
+        table.heard(HOUSECODE, T0 + 2 * PERIOD + seconds(4));
+        assertEquals(PERIOD + seconds(1), slotOf(table, HOUSECODE)[0]);
+    }
+
+    @Test
+    public void testImplausibleFirstDistance() {
+        final FhtSlotTable table = new FhtSlotTable(LEAD);
+        table.heard(HOUSECODE, T0);
+        table.heard(HOUSECODE, T0 + seconds(60));
+        assertEquals(0, slotOf(table, HOUSECODE)[0]);
+        //the second burst is the new phase
+        table.heard(HOUSECODE, T0 + seconds(60) + PERIOD);
+        assertEquals(PERIOD, slotOf(table, HOUSECODE)[0]);
+    }
+
+    @Test
+    public void testMissedSlots() {
+        final FhtSlotTable table = new FhtSlotTable(LEAD);
+        table.heard(HOUSECODE, T0);
+        table.heard(HOUSECODE, T0 + PERIOD);
+        //two slots missed, the distance is three periods
+        table.heard(HOUSECODE, T0 + 4 * PERIOD + seconds(3));
+        assertEquals(PERIOD + seconds(1) / 4, slotOf(table, HOUSECODE)[0]);
+        assertEquals(T0 + 4 * PERIOD + seconds(3), slotOf(table, HOUSECODE)[1]);
+    }
+
+    @Test
+    public void testJitter() {
+        final FhtSlotTable table = new FhtSlotTable(LEAD);
+        table.heard(HOUSECODE, T0);
+        table.heard(HOUSECODE, T0 + PERIOD);
+        //out of phase, the period is kept and the burst is the new phase
+        final long outOfPhase = T0 + 2 * PERIOD + FhtSlotTable.JITTER_NANOS + seconds(20);
+        table.heard(HOUSECODE, outOfPhase);
+        assertEquals(PERIOD, slotOf(table, HOUSECODE)[0]);
+        assertEquals(outOfPhase, slotOf(table, HOUSECODE)[1]);
+        //in phase again with the new phase
+        table.heard(HOUSECODE, outOfPhase + PERIOD - FhtSlotTable.JITTER_NANOS);
+        assertEquals(PERIOD - FhtSlotTable.JITTER_NANOS / 4, slotOf(table, HOUSECODE)[0]);
+    }
+
+    @Test
+    public void testNanosUntilRelease() {
+        final FhtSlotTable table = new FhtSlotTable(LEAD);
+        table.heard(HOUSECODE, T0);
+        final long lastSlot = T0 + PERIOD;
+        table.heard(HOUSECODE, lastSlot);
+        //just after the slot, wait until the lead before the next one
+        assertEquals(PERIOD - seconds(20) - LEAD, table.nanosUntilRelease(HOUSECODE, lastSlot + seconds(20)));
+        //within the lead
+        assertEquals(0, table.nanosUntilRelease(HOUSECODE, lastSlot + PERIOD - LEAD));
+        //the predicted slot is due but not heard yet
+        assertEquals(0, table.nanosUntilRelease(HOUSECODE, lastSlot + PERIOD + FhtSlotTable.JITTER_NANOS));
+        //the slot was missed, wait for the next one
+        assertEquals(PERIOD - seconds(20) - LEAD, table.nanosUntilRelease(HOUSECODE, lastSlot + PERIOD + seconds(20)));
+        //not heard for too long, the phase is not trusted
+        assertEquals(0, table.nanosUntilRelease(HOUSECODE, lastSlot + PERIOD * FhtSlotTable.MAX_MISSED_SLOTS + seconds(1)));
+    }
+
+    @Test
+    public void testManyDevices() {
+        final FhtSlotTable table = new FhtSlotTable(LEAD);
+        for (int i = 0; i < 100; i++) {
+            table.heard((short) (0x1000 + i), T0 + seconds(i));
+        }
+        for (int i = 0; i < 100; i++) {
+            table.heard((short) (0x1000 + i), T0 + seconds(i) + PERIOD);
+        }
+        assertEquals(100, table.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(PERIOD, slotOf(table, (short) (0x1000 + i))[0]);
+        }
+        table.clear();
+        assertEquals(0, table.size());
+        assertEquals(0, table.nanosUntilRelease((short) 0x1000, T0 + seconds(20) + PERIOD));
+    }
+
+}
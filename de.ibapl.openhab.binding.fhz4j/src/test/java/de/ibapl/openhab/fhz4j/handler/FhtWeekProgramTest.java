@@ -0,0 +1,117 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class FhtWeekProgramTest {
+
+    private static final String WORKDAY = "06:00-08:00 16:00-22:00";
+    private static final String WEEKEND = "08:00-23:00 XX:XX-XX:XX";
+    private static final String WEEK = WORKDAY + "; " + WORKDAY + "; " + WORKDAY + "; " + WORKDAY + "; " + WORKDAY + "; " + WEEKEND + "; " + WEEKEND;
+
+    @Test
+    public void testParseWeek() {
+        final FhtWeekProgram program = FhtWeekProgram.parse(WEEK);
+        assertTrue(program.isComplete());
+        assertEquals(LocalTime.of(6, 0), program.get(DayOfWeek.MONDAY, 0));
+        assertEquals(LocalTime.of(22, 0), program.get(DayOfWeek.FRIDAY, 3));
+        assertEquals(LocalTime.of(23, 0), program.get(DayOfWeek.SUNDAY, 1));
+        assertNull(program.get(DayOfWeek.SUNDAY, 2));
+        assertNull(program.get(DayOfWeek.SATURDAY, 3));
+        assertThrows(IndexOutOfBoundsException.class, () -> program.get(DayOfWeek.MONDAY, 4));
+    }
+
+    @Test
+    public void testParseSingleDayForAllDays() {
+        final FhtWeekProgram program = FhtWeekProgram.parse(" " + WORKDAY + " ");
+        for (DayOfWeek day : DayOfWeek.values()) {
+            assertEquals(WORKDAY, program.format(day));
+        }
+    }
+
+    @Test
+    public void testParseErrors() {
+        assertThrows(IllegalArgumentException.class, () -> FhtWeekProgram.parse(WORKDAY + ";" + WORKDAY));
+        assertThrows(IllegalArgumentException.class, () -> FhtWeekProgram.parse("06:00 08:00 16:00-22:00"));
+        assertThrows(IllegalArgumentException.class, () -> FhtWeekProgram.parse("06:00-08:00 16:00-22:0"));
+        assertThrows(IllegalArgumentException.class, () -> FhtWeekProgram.parse("06:00-08:00 16:00-25:00"));
+    }
+
+    @Test
+    public void testFormat() {
+        assertEquals(WEEK, FhtWeekProgram.parse(WEEK).format());
+        assertEquals(FhtWeekProgram.parse(WEEK), FhtWeekProgram.parse(FhtWeekProgram.parse(WEEK).format()));
+        final String unknown = "XX:XX-XX:XX XX:XX-XX:XX";
+        assertEquals(unknown, FhtWeekProgram.UNKNOWN.format(DayOfWeek.MONDAY));
+        final FhtWeekProgram monday = FhtWeekProgram.UNKNOWN.withDay(DayOfWeek.MONDAY, LocalTime.of(6, 0), LocalTime.of(8, 0),
+                LocalTime.of(16, 0), LocalTime.of(22, 0));
+        assertEquals(WORKDAY + "; " + unknown + "; " + unknown + "; " + unknown + "; " + unknown + "; " + unknown + "; " + unknown,
+                monday.format());
+    }
+
+    @Test
+    public void testWithDay() {
+        FhtWeekProgram program = FhtWeekProgram.UNKNOWN;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            assertFalse(program.isComplete());
+            assertFalse(program.isKnown(day));
+            program = program.withDay(day, LocalTime.of(6, 0), LocalTime.of(8, 0), null, null);
+            assertTrue(program.isKnown(day));
+        }
+        assertTrue(program.isComplete());
+        assertEquals(FhtWeekProgram.parse("06:00-08:00 XX:XX-XX:XX"), program);
+        //immutable
+        assertFalse(FhtWeekProgram.UNKNOWN.isKnown(DayOfWeek.MONDAY));
+    }
+
+    @Test
+    public void testChangedDays() {
+        final FhtWeekProgram week = FhtWeekProgram.parse(WEEK);
+        assertEquals(EnumSet.allOf(DayOfWeek.class), week.changedDays(FhtWeekProgram.UNKNOWN));
+        assertEquals(EnumSet.noneOf(DayOfWeek.class), week.changedDays(week));
+        assertEquals(EnumSet.noneOf(DayOfWeek.class), FhtWeekProgram.UNKNOWN.changedDays(week));
+
+        final FhtWeekProgram workdays = FhtWeekProgram.parse(WORKDAY);
+        assertEquals(EnumSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY), workdays.changedDays(week));
+
+        //only the days reported so far are compared
+        final FhtWeekProgram reported = FhtWeekProgram.UNKNOWN
+                .withDay(DayOfWeek.MONDAY, LocalTime.of(6, 0), LocalTime.of(8, 0), LocalTime.of(16, 0), LocalTime.of(22, 0))
+                .withDay(DayOfWeek.SUNDAY, LocalTime.of(6, 0), LocalTime.of(8, 0), LocalTime.of(16, 0), LocalTime.of(22, 0));
+        assertEquals(EnumSet.complementOf(EnumSet.of(DayOfWeek.MONDAY)), week.changedDays(reported));
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.ibapl.fhz4j.protocol.fht.FhtProperty;
+import java.time.DayOfWeek;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class FhtWriteTrackerTest {
+
+    private static final long FIRST_TIMEOUT_MILLIS = 50;
+    private static final long DEADLINE_MILLIS = 400;
+
+    private ScheduledExecutorService scheduler;
+    /**
+     * The {@link System#nanoTime()} of each write.
+     */
+    private final List<Long> writes = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        scheduler = new ScheduledThreadPoolExecutor(1);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private Supplier<CompletableFuture<Void>> write() {
+        return () -> {
+            synchronized (writes) {
+                writes.add(System.nanoTime());
+            }
+            return CompletableFuture.completedFuture(null);
+        };
+    }
+
+    private int writeCount() {
+        synchronized (writes) {
+            return writes.size();
+        }
+    }
+
+    private FhtWriteTracker newTracker(long firstTimeoutMillis, long deadlineMillis) {
+        return new FhtWriteTracker("FHT80b test", scheduler, firstTimeoutMillis, deadlineMillis);
+    }
+
+    @Test
+    public void testIllegalTimeouts() {
+        assertThrows(IllegalArgumentException.class, () -> newTracker(0, 100));
+        assertThrows(IllegalArgumentException.class, () -> newTracker(100, 50));
+    }
+
+    @Test
+    public void testConfirmed() throws Exception {
+        final FhtWriteTracker tracker = newTracker(FhtWriteTracker.DEFAULT_FIRST_TIMEOUT_MILLIS, FhtWriteTracker.DEFAULT_DEADLINE_MILLIS);
+        final CompletableFuture<Void> result = tracker.track(FhtProperty.DESIRED_TEMP, 21.5f, write());
+        assertEquals(1, writeCount());
+        assertEquals(1, tracker.size());
+        //a report sent before the device got the command
+        assertFalse(tracker.reported(FhtProperty.DESIRED_TEMP, 20.0f));
+        assertFalse(tracker.reported(FhtProperty.MODE, 21.5f));
+        assertFalse(result.isDone());
+        assertTrue(tracker.reported(FhtProperty.DESIRED_TEMP, 21.5f));
+        assertTrue(result.isDone());
+        assertEquals(0, tracker.size());
+        assertEquals(1, LatencyHistogram.totalCount(tracker.confirmationLatency()));
+        //confirmed only once
+        assertFalse(tracker.reported(FhtProperty.DESIRED_TEMP, 21.5f));
+    }
+
+    @Test
+    public void testReplacement() throws Exception {
+        final FhtWriteTracker tracker = newTracker(FhtWriteTracker.DEFAULT_FIRST_TIMEOUT_MILLIS, FhtWriteTracker.DEFAULT_DEADLINE_MILLIS);
+        final CompletableFuture<Void> first = tracker.track(FhtProperty.DESIRED_TEMP, 21.5f, write());
+        final CompletableFuture<Void> second = tracker.track(FhtProperty.DESIRED_TEMP, 22.0f, write());
+        assertSame(first, second);
+        assertEquals(2, writeCount());
+        assertEquals(1, tracker.size());
+        //the replaced value does not confirm
+        assertFalse(tracker.reported(FhtProperty.DESIRED_TEMP, 21.5f));
+        assertTrue(tracker.reported(FhtProperty.DESIRED_TEMP, 22.0f));
+        assertTrue(first.isDone());
+    }
+
+    @Test
+    public void testResendBackoffAndDeadline() throws Exception {
+        final FhtWriteTracker tracker = newTracker(FIRST_TIMEOUT_MILLIS, DEADLINE_MILLIS);
+        final long start = System.nanoTime();
+        final CompletableFuture<Void> result = tracker.track(DayOfWeek.MONDAY, "06:00-08:00 16:00-22:00", write());
+        final ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof TimeoutException);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= DEADLINE_MILLIS - 1);
+        assertEquals(0, tracker.size());
+        //the first write and the resends after timeouts of 50, 100 and 200 ms until the deadline,
+        //a late timer leaves less resends before the deadline
+        final List<Long> w;
+        synchronized (writes) {
+            w = new ArrayList<>(writes);
+        }
+        assertTrue(w.size() >= 2 && w.size() <= 4, "writes: " + w.size());
+        for (int i = 1; i < w.size(); i++) {
+            final long sinceStartMillis = TimeUnit.NANOSECONDS.toMillis(w.get(i) - start);
+            assertTrue(sinceStartMillis >= FIRST_TIMEOUT_MILLIS * ((1 << i) - 1), "resend " + i + " after " + sinceStartMillis + " ms");
+        }
+        assertTrue(tracker.toString().contains("resent=" + (w.size() - 1) + ", failed=1"), tracker.toString());
+    }
+
+    @Test
+    public void testConfirmedAfterResend() throws Exception {
+        final FhtWriteTracker tracker = newTracker(FIRST_TIMEOUT_MILLIS, 10_000);
+        final CompletableFuture<Void> result = tracker.track(FhtProperty.MODE, "AUTO", write());
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (writeCount() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, writeCount());
+        assertTrue(tracker.reported(FhtProperty.MODE, "AUTO"));
+        result.get(1, TimeUnit.SECONDS);
+        //no more resends
+        Thread.sleep(3 * FIRST_TIMEOUT_MILLIS);
+        assertEquals(2, writeCount());
+    }
+
+    @Test
+    public void testExpectDoesNotWrite() {
+        final FhtWriteTracker tracker = newTracker(FhtWriteTracker.DEFAULT_FIRST_TIMEOUT_MILLIS, FhtWriteTracker.DEFAULT_DEADLINE_MILLIS);
+        final CompletableFuture<Void> result = tracker.expect(DayOfWeek.SUNDAY, "XX:XX-XX:XX XX:XX-XX:XX", write());
+        assertEquals(0, writeCount());
+        assertTrue(tracker.reported(DayOfWeek.SUNDAY, "XX:XX-XX:XX XX:XX-XX:XX"));
+        assertTrue(result.isDone());
+    }
+
+    @Test
+    public void testClearCancels() {
+        final FhtWriteTracker tracker = newTracker(FhtWriteTracker.DEFAULT_FIRST_TIMEOUT_MILLIS, FhtWriteTracker.DEFAULT_DEADLINE_MILLIS);
+        final CompletableFuture<Void> result = tracker.track(FhtProperty.DESIRED_TEMP, 21.5f, write());
+        tracker.clear();
+        assertEquals(0, tracker.size());
+        assertThrows(CancellationException.class, () -> result.getNow(null));
+        assertFalse(tracker.reported(FhtProperty.DESIRED_TEMP, 21.5f));
+    }
+
+}
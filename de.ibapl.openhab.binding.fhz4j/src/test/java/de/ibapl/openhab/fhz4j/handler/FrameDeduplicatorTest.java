@@ -0,0 +1,107 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The generations start at {@link System#nanoTime()} of the construction, so
+ * all times are taken relative to it.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class FrameDeduplicatorTest {
+
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(2);
+
+    private static long fingerprint(String frame) {
+        return FrameDeduplicator.fingerprint(CulFrameType.FS20, frame);
+    }
+
+    @Test
+    public void testIllegalWindow() {
+        assertThrows(IllegalArgumentException.class, () -> new FrameDeduplicator(0, 16));
+    }
+
+    @Test
+    public void testFingerprint() {
+        assertEquals(fingerprint("F12340401"), fingerprint("F12340401"));
+        assertNotEquals(fingerprint("F12340401"), fingerprint("F12340402"));
+        //the type is part of the fingerprint
+        assertNotEquals(FrameDeduplicator.fingerprint(CulFrameType.FS20, "frame"),
+                FrameDeduplicator.fingerprint(CulFrameType.LA_CROSSE_TX, "frame"));
+    }
+
+    @Test
+    public void testDuplicateWithinWindow() {
+        final long t0 = System.nanoTime();
+        final FrameDeduplicator dedup = new FrameDeduplicator(WINDOW, 16);
+        final long a = fingerprint("A");
+        final long b = fingerprint("B");
+        assertFalse(dedup.isDuplicate(a, t0));
+        assertTrue(dedup.isDuplicate(a, t0 + 1_000));
+        assertFalse(dedup.isDuplicate(b, t0 + 2_000));
+        assertTrue(dedup.isDuplicate(b, t0 + 3_000));
+        assertEquals(2, dedup.getDuplicateCount());
+    }
+
+    @Test
+    public void testDuplicateInPreviousGeneration() {
+        final long t0 = System.nanoTime();
+        final FrameDeduplicator dedup = new FrameDeduplicator(WINDOW, 16);
+        final long a = fingerprint("A");
+        assertFalse(dedup.isDuplicate(a, t0));
+        //a new generation started, the frame is in the previous one
+        assertTrue(dedup.isDuplicate(a, t0 + WINDOW + WINDOW / 2));
+    }
+
+    @Test
+    public void testNoDuplicateAfterTwoWindows() {
+        final long t0 = System.nanoTime();
+        final FrameDeduplicator dedup = new FrameDeduplicator(WINDOW, 16);
+        final long a = fingerprint("A");
+        assertFalse(dedup.isDuplicate(a, t0));
+        assertFalse(dedup.isDuplicate(a, t0 + 3 * WINDOW));
+        assertEquals(0, dedup.getDuplicateCount());
+    }
+
+    @Test
+    public void testFullGenerationStartsEarly() {
+        final long t0 = System.nanoTime();
+        final FrameDeduplicator dedup = new FrameDeduplicator(WINDOW, 4);
+        final int frames = 100;
+        for (int i = 0; i < frames; i++) {
+            assertFalse(dedup.isDuplicate(fingerprint("frame " + i), t0 + i));
+        }
+        //the latest frames are still known, the oldest were dropped with their generations
+        assertTrue(dedup.isDuplicate(fingerprint("frame " + (frames - 1)), t0 + frames));
+        assertFalse(dedup.isDuplicate(fingerprint("frame 0"), t0 + frames));
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i, LatencyHistogram.index(i));
+            assertEquals(i, LatencyHistogram.upperBound(i));
+        }
+        //8 .. 15 have the precision of 1, 16 .. 31 of 2 ...
+        assertEquals(8, LatencyHistogram.index(8));
+        assertEquals(15, LatencyHistogram.index(15));
+        assertEquals(16, LatencyHistogram.index(16));
+        assertEquals(16, LatencyHistogram.index(17));
+        assertEquals(17, LatencyHistogram.upperBound(LatencyHistogram.index(16)));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.index(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.BUCKET_COUNT - 1));
+        //each value lies within 12.5% below the upper bound of its bucket
+        for (long value = 1; value > 0 && value < Long.MAX_VALUE / 3; value = value * 3 + 1) {
+            final long upperBound = LatencyHistogram.upperBound(LatencyHistogram.index(value));
+            assertTrue(upperBound >= value, "value: " + value);
+            assertTrue(upperBound - value <= value / 8, "value: " + value);
+        }
+    }
+
+    @Test
+    public void testNegativeIsZero() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        final long[] counts = histogram.snapshot();
+        assertEquals(1, counts[0]);
+        assertEquals(1, LatencyHistogram.totalCount(counts));
+    }
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(-1, LatencyHistogram.valueAtPercentile(histogram.snapshot(), 50));
+        assertEquals(-1, LatencyHistogram.maxValue(histogram.snapshot()));
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        final long[] counts = histogram.snapshot();
+        assertEquals(100, LatencyHistogram.totalCount(counts));
+        assertEquals(1, LatencyHistogram.valueAtPercentile(counts, 0));
+        assertEquals(LatencyHistogram.upperBound(LatencyHistogram.index(50)), LatencyHistogram.valueAtPercentile(counts, 50));
+        assertEquals(LatencyHistogram.upperBound(LatencyHistogram.index(99)), LatencyHistogram.valueAtPercentile(counts, 99));
+        assertEquals(LatencyHistogram.upperBound(LatencyHistogram.index(100)), LatencyHistogram.valueAtPercentile(counts, 100));
+        assertEquals(LatencyHistogram.upperBound(LatencyHistogram.index(100)), LatencyHistogram.maxValue(counts));
+    }
+
+    @Test
+    public void testDifferenceOfSnapshots() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 1000; i++) {
+            histogram.record(1_000_000);
+        }
+        final long[] before = histogram.snapshot();
+        for (int i = 0; i < 10; i++) {
+            histogram.record(3);
+        }
+        final long[] after = histogram.snapshot();
+        final long[] difference = new long[after.length];
+        for (int i = 0; i < after.length; i++) {
+            difference[i] = after[i] - before[i];
+        }
+        assertEquals(10, LatencyHistogram.totalCount(difference));
+        assertEquals(3, LatencyHistogram.valueAtPercentile(difference, 99));
+        assertEquals(3, LatencyHistogram.maxValue(difference));
+    }
+
+}
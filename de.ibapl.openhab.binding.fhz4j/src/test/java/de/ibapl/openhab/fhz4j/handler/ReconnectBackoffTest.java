@@ -0,0 +1,89 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class ReconnectBackoffTest {
+
+    @Test
+    public void testIllegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new ReconnectBackoff(0, 1000, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> new ReconnectBackoff(1000, 999, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> new ReconnectBackoff(1000, 2000, -0.1));
+        assertThrows(IllegalArgumentException.class, () -> new ReconnectBackoff(1000, 2000, 1.0));
+    }
+
+    @Test
+    public void testDoublingUpToMax() {
+        final ReconnectBackoff backoff = new ReconnectBackoff(1000, 10_000, 0.0);
+        assertEquals(1000, backoff.nextDelayMillis());
+        assertEquals(2000, backoff.nextDelayMillis());
+        assertEquals(4000, backoff.nextDelayMillis());
+        assertEquals(8000, backoff.nextDelayMillis());
+        assertEquals(10_000, backoff.nextDelayMillis());
+        assertEquals(10_000, backoff.nextDelayMillis());
+    }
+
+    @Test
+    public void testManyAttemptsDoNotOverflow() {
+        final ReconnectBackoff backoff = new ReconnectBackoff(1000, 300_000, 0.0);
+        for (int i = 0; i < 1000; i++) {
+            final long delay = backoff.nextDelayMillis();
+            assertTrue(delay >= 1000 && delay <= 300_000, "delay: " + delay);
+        }
+        assertEquals(300_000, backoff.nextDelayMillis());
+    }
+
+    @Test
+    public void testReset() {
+        final ReconnectBackoff backoff = new ReconnectBackoff(1000, 10_000, 0.0);
+        backoff.nextDelayMillis();
+        backoff.nextDelayMillis();
+        backoff.reset();
+        assertEquals(1000, backoff.nextDelayMillis());
+    }
+
+    @Test
+    public void testJitter() {
+        final ReconnectBackoff backoff = new ReconnectBackoff(10_000, 10_000, 0.2);
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 1000; i++) {
+            final long delay = backoff.nextDelayMillis();
+            assertTrue(delay >= 8000 && delay <= 12_000, "delay: " + delay);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+        //the attempts are spread
+        assertTrue(max - min > 1000, "min: " + min + " max: " + max);
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class SignalStrengthTableTest {
+
+    @Test
+    public void testIllegalAlpha() {
+        assertThrows(IllegalArgumentException.class, () -> new SignalStrengthTable(0f));
+        assertThrows(IllegalArgumentException.class, () -> new SignalStrengthTable(1.5f));
+        assertThrows(IllegalArgumentException.class, () -> new SignalStrengthTable(Float.NaN));
+    }
+
+    @Test
+    public void testRecord() {
+        final SignalStrengthTable table = new SignalStrengthTable(0.5f);
+        assertTrue(Float.isNaN(table.getEwma(CulFrameType.FHT, 0x1234)));
+        assertEquals(-80f, table.record(CulFrameType.FHT, 0x1234, -80f));
+        assertEquals(-70f, table.record(CulFrameType.FHT, 0x1234, -60f));
+        assertEquals(-70f, table.getEwma(CulFrameType.FHT, 0x1234));
+        //the same address of an other type is an other device
+        assertEquals(-50f, table.record(CulFrameType.FHT80_TF, 0x1234, -50f));
+        assertEquals(2, table.size());
+
+        final List<String> visited = new ArrayList<>();
+        table.forEach((type, address, min, mean, max, ewma, count) -> {
+            if (type == CulFrameType.FHT) {
+                assertEquals(0x1234, address);
+                assertEquals(-80f, min);
+                assertEquals(-70f, mean);
+                assertEquals(-60f, max);
+                assertEquals(-70f, ewma);
+                assertEquals(2, count);
+            }
+            visited.add(type.name());
+        });
+        assertEquals(2, visited.size());
+    }
+
+    @Test
+    public void testNotBefore() {
+        final SignalStrengthTable table = new SignalStrengthTable(0.5f);
+        table.record(CulFrameType.HMS, 1, -60f);
+        final long afterRecord = System.nanoTime() + 1;
+        assertEquals(-60f, table.getEwma(CulFrameType.HMS, 1, afterRecord - 1_000_000_000L));
+        assertTrue(Float.isNaN(table.getEwma(CulFrameType.HMS, 1, afterRecord)));
+    }
+
+    @Test
+    public void testGrowAndClear() {
+        final SignalStrengthTable table = new SignalStrengthTable(1f);
+        final int devices = 1000;
+        for (int address = 0; address < devices; address++) {
+            table.record(CulFrameType.HMS, address, -address / 10f);
+        }
+        assertEquals(devices, table.size());
+        for (int address = 0; address < devices; address++) {
+            assertEquals(-address / 10f, table.getEwma(CulFrameType.HMS, address));
+        }
+        table.clear();
+        assertEquals(0, table.size());
+        assertTrue(Float.isNaN(table.getEwma(CulFrameType.HMS, 1)));
+    }
+
+    @Test
+    public void testRound() {
+        assertEquals(-70.0, SignalStrengthTable.round(-70.2f));
+        assertEquals(-70.5, SignalStrengthTable.round(-70.3f));
+        assertEquals(-70.5, SignalStrengthTable.round(-70.7f));
+        assertEquals(-71.0, SignalStrengthTable.round(-70.8f));
+    }
+
+}
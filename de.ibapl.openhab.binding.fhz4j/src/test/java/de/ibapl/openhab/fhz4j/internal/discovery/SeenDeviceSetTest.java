@@ -0,0 +1,91 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.fhz4j.internal.discovery;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class SeenDeviceSetTest {
+
+    private static final long T0 = 1_000_000_000L;
+
+    @Test
+    public void testAnnounceOnce() {
+        final SeenDeviceSet set = new SeenDeviceSet(0);
+        assertTrue(set.announce(0x1234, T0));
+        assertFalse(set.announce(0x1234, T0 + 1));
+        assertFalse(set.announce(0x1234, Long.MAX_VALUE));
+        assertTrue(set.announce(0x1235, T0));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    public void testRefresh() {
+        final SeenDeviceSet set = new SeenDeviceSet(100);
+        assertTrue(set.announce(7, T0));
+        assertFalse(set.announce(7, T0 + 99));
+        assertTrue(set.announce(7, T0 + 100));
+        //the refresh time counts from the last announcement
+        assertFalse(set.announce(7, T0 + 150));
+        assertTrue(set.announce(7, T0 + 200));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void testGrow() {
+        final SeenDeviceSet set = new SeenDeviceSet(100);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(set.announce(i, T0 + i));
+        }
+        assertEquals(1000, set.size());
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(set.announce(i, T0 + i + 99));
+        }
+        //the announcement times survived the growing
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(set.announce(i, T0 + i + 100));
+        }
+        assertEquals(1000, set.size());
+    }
+
+    @Test
+    public void testClear() {
+        final SeenDeviceSet set = new SeenDeviceSet(0);
+        for (int i = 0; i < 100; i++) {
+            set.announce(i, T0);
+        }
+        set.clear();
+        assertEquals(0, set.size());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(set.announce(i, T0));
+        }
+        assertEquals(100, set.size());
+    }
+
+}
@@ -27,6 +27,8 @@ import de.ibapl.onewire4j.container.OneWireContainer;
 import de.ibapl.onewire4j.container.TemperatureContainer;
 import de.ibapl.onewire4j.request.data.SearchCommand;
 import static de.ibapl.openhab.onewire4j.OneWire4JBindingConstants.THING_TYPE_ONEWIRE_TEMPERATURE;
+import de.ibapl.openhab.spsw.trace.SerialPortTrace;
+import de.ibapl.openhab.spsw.trace.TracingSerialPortSocket;
 import de.ibapl.spsw.api.SerialPortSocket;
 import de.ibapl.spsw.api.SerialPortSocketFactory;
 import de.ibapl.spsw.logging.LogExplainRead;
@@ -36,6 +38,8 @@ import de.ibapl.spsw.logging.TimeStampLogging;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -72,12 +76,22 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
     private static final String PORT_PARAM = "port";
     private static final String REFRESH_RATE_PARAM = "refreshrate";
     private static final String LOG_SERIAL_PORT_PARAM = "logSerialPort";
+    private static final String TRACE_SERIAL_PORT_PARAM = "traceSerialPort";
+
+    private static final String SERIAL_PORT_TRACE_DIR = "SERIAL_PORT_TRACE";
+    private static final String SERIAL_PORT_TRACE_PREFIX = "OneWire_";
+    private static final int SERIAL_PORT_TRACE_BUFFER_SIZE = 64 * 1024;
+    private static final long SERIAL_PORT_TRACE_MAX_FILE_BYTES = 1024 * 1024;
+    private static final Duration SERIAL_PORT_TRACE_MAX_FILE_AGE = Duration.ofDays(1);
+    private static final long SERIAL_PORT_TRACE_MAX_TOTAL_BYTES = 16 * 1024 * 1024;
 
     private static final Logger LOGGER = Logger.getLogger("d.i.o.ow.h.SpswBridgeHandler");
 
     private String port;
     private BigDecimal refreshRate;
     private boolean logSerialPort;
+    private boolean traceSerialPort;
+    private final SerialPortTrace serialPortTrace;
     private LogExplainRead logExplainRead;
     private LogExplainWrite logExplainWrite;
 
@@ -87,6 +101,8 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
     public SpswBridgeHandler(Bridge bridge, List<SerialPortSocketFactory> serialPortSocketFactories) {
         super(bridge);
         this.serialPortSocketFactories = serialPortSocketFactories;
+        serialPortTrace = new SerialPortTrace(Path.of(SERIAL_PORT_TRACE_DIR, bridge.getUID().getId()), SERIAL_PORT_TRACE_PREFIX,
+                SERIAL_PORT_TRACE_BUFFER_SIZE, SERIAL_PORT_TRACE_MAX_FILE_BYTES, SERIAL_PORT_TRACE_MAX_FILE_AGE, SERIAL_PORT_TRACE_MAX_TOTAL_BYTES);
     }
 
     @Override
@@ -113,6 +129,10 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
         } else {
             logSerialPort = ((Boolean) config.get(LOG_SERIAL_PORT_PARAM));
         }
+        traceSerialPort = Boolean.TRUE.equals(config.get(TRACE_SERIAL_PORT_PARAM));
+        if (traceSerialPort) {
+            serialPortTrace.start("Serial port trace " + getThing().getUID());
+        }
 
         try {
             oneWireAdapter = new AdapterFactory().open(createSerialPort(), 3);
@@ -174,10 +194,10 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
                     handleIOException(ioe);
                 } catch (Throwable t) {
                     if (i < 2) {
-                        logExplainRead.explainRead(t);
+                        explainRead(t);
                         LOGGER.log(Level.WARNING, "Could not read Device in round(max 3): " + i, t);
                     } else {
-                        logExplainRead.explainRead(t);
+                        explainRead(t);
                         LOGGER.log(Level.WARNING, "Could not read Device, max(3) tries reached!", t);
                     }
                 }
@@ -200,6 +220,7 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
             }
             oneWireAdapter = null;
         }
+        serialPortTrace.stop();
         LOGGER.info("Onewire adapter closed");
     }
 
@@ -210,7 +231,10 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
     private SerialPortSocket createSerialPort() throws IOException {
         for (SerialPortSocketFactory spsf : serialPortSocketFactories) {
             try {
-                final SerialPortSocket serialPortSocket = spsf.open(port);
+                SerialPortSocket serialPortSocket = spsf.open(port);
+                if (traceSerialPort) {
+                    serialPortSocket = TracingSerialPortSocket.wrap(serialPortSocket, serialPortTrace);
+                }
                 if (logSerialPort) {
                     //Wrap socket with logger
                     final String opendString = DateTimeFormatter.ISO_INSTANT.format(Instant.now());
@@ -233,9 +257,16 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
         throw new RuntimeException("No useable spsw factory found");
     }
 
+    private void explainRead(Throwable t) {
+        final LogExplainRead ler = logExplainRead;
+        if (ler != null) {
+            ler.explainRead(t);
+        }
+    }
+
     private void handleIOException(IOException ioe) {
         //TODO This might be not correct for write
-        logExplainRead.explainRead(ioe);
+        explainRead(ioe);
         LOGGER.log(Level.SEVERE, "Got IOE in oneWireAdapter", ioe);
         try {
             oneWireAdapter.sendReset();
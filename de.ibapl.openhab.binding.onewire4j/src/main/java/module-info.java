@@ -31,4 +31,5 @@ module de.ibapl.opnhab.bindings.onewire4j {
     requires org.openhab.core.thing;
 
     requires de.ibapl.onewire4j;
+    requires de.ibapl.openhab.spsw.trace;
 }
@@ -21,6 +21,8 @@
  */
 package de.ibapl.openhab.openv4j.handler;
 
+import de.ibapl.openhab.spsw.trace.SerialPortTrace;
+import de.ibapl.openhab.spsw.trace.TracingSerialPortSocket;
 import de.ibapl.openv4j.spi.protocolhandlers.OpenV4JAdapter;
 import de.ibapl.spsw.api.SerialPortSocket;
 import de.ibapl.spsw.api.SerialPortSocketFactory;
@@ -31,7 +33,9 @@ import de.ibapl.spsw.logging.TimeStampLogging;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -66,23 +70,38 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
     private static final String PORT_PARAM = "port";
     private static final String REFRESH_RATE_PARAM = "refreshrate";
     private static final String LOG_SERIAL_PORT_PARAM = "logSerialPort";
+    private static final String TRACE_SERIAL_PORT_PARAM = "traceSerialPort";
+
+    private static final String SERIAL_PORT_TRACE_DIR = "SERIAL_PORT_TRACE";
+    private static final String SERIAL_PORT_TRACE_PREFIX = "OpenV_";
+    private static final int SERIAL_PORT_TRACE_BUFFER_SIZE = 64 * 1024;
+    private static final long SERIAL_PORT_TRACE_MAX_FILE_BYTES = 1024 * 1024;
+    private static final Duration SERIAL_PORT_TRACE_MAX_FILE_AGE = Duration.ofDays(1);
+    private static final long SERIAL_PORT_TRACE_MAX_TOTAL_BYTES = 16 * 1024 * 1024;
 
     private static final Logger LOGGER = Logger.getLogger("d.i.o.ov.h.SpswBridgeHandler");
 
     private String port;
     private BigDecimal refreshRate;
     private boolean logSerialPort;
+    private boolean traceSerialPort;
+    private final SerialPortTrace serialPortTrace;
     private ScheduledFuture<?> refreshJob;
     private OpenV4JAdapter openV4JAdapter;
 
     public SpswBridgeHandler(Bridge bridge, List<SerialPortSocketFactory> serialPortSocketFactories) {
         super(bridge);
         this.serialPortSocketFactories = serialPortSocketFactories;
+        serialPortTrace = new SerialPortTrace(Path.of(SERIAL_PORT_TRACE_DIR, bridge.getUID().getId()), SERIAL_PORT_TRACE_PREFIX,
+                SERIAL_PORT_TRACE_BUFFER_SIZE, SERIAL_PORT_TRACE_MAX_FILE_BYTES, SERIAL_PORT_TRACE_MAX_FILE_AGE, SERIAL_PORT_TRACE_MAX_TOTAL_BYTES);
     }
 
     private SerialPortSocket createSerialPortSocket() throws IOException {
         String opendString = DateTimeFormatter.ISO_INSTANT.format(Instant.now());
-        final SerialPortSocket sps = serialPortSocketFactories.open(port);
+        SerialPortSocket sps = serialPortSocketFactories.open(port);
+        if (traceSerialPort) {
+            sps = TracingSerialPortSocket.wrap(sps, serialPortTrace);
+        }
         if (logSerialPort) {
             LoggingSerialPortSocket result = LoggingSerialPortSocket.wrapWithCustomOutputStream(sps,
                     new SupressReadTimeoutExceptionLogWriter(new FileOutputStream("CUL_SpswBridgeHandler_" + opendString + ".log.txt"),
@@ -113,6 +132,10 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
         } else {
             logSerialPort = ((Boolean) config.get(LOG_SERIAL_PORT_PARAM));
         }
+        traceSerialPort = Boolean.TRUE.equals(config.get(TRACE_SERIAL_PORT_PARAM));
+        if (traceSerialPort) {
+            serialPortTrace.start("Serial port trace " + getThing().getUID());
+        }
 
         try {
             openV4JAdapter = new OpenV4JAdapter(createSerialPortSocket());
@@ -152,6 +175,7 @@ public class SpswBridgeHandler extends BaseBridgeHandler {
             }
         }
 
+        serialPortTrace.stop();
         LOGGER.log(Level.INFO, "OpenV4JAdapter disposed");
     }
 
@@ -127,6 +127,13 @@ public class RS232BridgeConfigurationProvider implements ConfigDescriptionProvid
                         withLabel("Log Serial Port Data").
                         withDescription("Log IO and settings on the serial port");
                 configBuilder.withParameter(paramBuilder.build());
+
+                paramBuilder = ConfigDescriptionParameterBuilder.create("traceSerialPort", Type.BOOLEAN).
+                        withDefault(String.valueOf(false)).
+                        withRequired(false).
+                        withLabel("Trace Serial Port Data").
+                        withDescription("Record the raw serial port data to rolling compressed files in SERIAL_PORT_TRACE. Cheap enough to stay switched on.");
+                configBuilder.withParameter(paramBuilder.build());
             }
         }
         return configBuilder.build();
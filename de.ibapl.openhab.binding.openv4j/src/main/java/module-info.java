@@ -34,4 +34,5 @@ module de.ibapl.opnhab.bindings.openv4j {
     requires org.openhab.core.thing;
 
     requires de.ibapl.openv4j.core;
+    requires de.ibapl.openhab.spsw.trace;
 }
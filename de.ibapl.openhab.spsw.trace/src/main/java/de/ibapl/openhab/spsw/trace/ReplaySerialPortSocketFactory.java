@@ -0,0 +1,282 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.spsw.trace;
+
+import de.ibapl.spsw.api.SerialPortSocket;
+import de.ibapl.spsw.api.SerialPortSocketFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link SerialPortSocketFactory} which replays a {@link SerialPortTrace}
+ * instead of opening a serial port.
+ *
+ * The read records of the trace are delivered with their original timing
+ * divided by the speed; a speed of 0 delivers them as fast as the reader
+ * consumes them. The bytes written by the binding are discarded. At the end
+ * of the trace the throughput is logged and the input stream blocks like a
+ * silent line until the socket is closed. The port name passed to open is
+ * ignored.
+ *
+ * Settings like speed or timeouts are accepted and ignored, so the factory
+ * and the sockets are dynamic proxies which return default values for all
+ * methods they don't know.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public final class ReplaySerialPortSocketFactory implements InvocationHandler {
+
+    private static final Logger LOGGER = Logger.getLogger("d.i.o.s.t.ReplaySerialPortSocketFactory");
+
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Path trace;
+    private final double speed;
+
+    private ReplaySerialPortSocketFactory(Path trace, double speed) {
+        this.trace = trace;
+        this.speed = speed;
+    }
+
+    /**
+     * @param trace a trace file or a directory containing trace files.
+     * @param speed 1 for the original timing, N for N-times faster and 0 for
+     * as fast as possible.
+     */
+    public static SerialPortSocketFactory create(Path trace, double speed) {
+        if (speed < 0) {
+            throw new IllegalArgumentException("speed must not be negative: " + speed);
+        }
+        return (SerialPortSocketFactory) Proxy.newProxyInstance(SerialPortSocketFactory.class.getClassLoader(),
+                new Class<?>[]{SerialPortSocketFactory.class}, new ReplaySerialPortSocketFactory(trace, speed));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "open":
+                return new ReplaySocket().open();
+            case "getPortNames":
+                return List.of(trace.toString());
+            default:
+                return defaultInvoke(proxy, method, args, "Replay factory: " + trace);
+        }
+    }
+
+    private static Object defaultInvoke(Object proxy, Method method, Object[] args, String name) {
+        switch (method.getName()) {
+            case "toString":
+                return name;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+        }
+        final Class<?> type = method.getReturnType();
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == char.class) {
+            return (char) 0;
+        } else if (type == byte.class) {
+            return (byte) 0;
+        } else if (type == short.class) {
+            return (short) 0;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == float.class) {
+            return 0f;
+        } else {
+            return 0d;
+        }
+    }
+
+    private final class ReplaySocket implements InvocationHandler {
+
+        private final SerialPortTraceReader reader;
+        private final ReplayInputStream in = new ReplayInputStream();
+        private final DiscardOutputStream out = new DiscardOutputStream();
+        private volatile boolean open = true;
+
+        ReplaySocket() throws IOException {
+            reader = new SerialPortTraceReader(trace);
+        }
+
+        SerialPortSocket open() {
+            LOGGER.log(Level.INFO, "Start replay of {0} speed: {1}", new Object[]{trace, speed});
+            return (SerialPortSocket) Proxy.newProxyInstance(SerialPortSocket.class.getClassLoader(),
+                    new Class<?>[]{SerialPortSocket.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getParameterCount() == 0) {
+                switch (method.getName()) {
+                    case "getInputStream":
+                        return in;
+                    case "getOutputStream":
+                        return out;
+                    case "isOpen":
+                        return open;
+                    case "isClosed":
+                        return !open;
+                    case "close":
+                        close();
+                        return null;
+                    case "getPortName":
+                        return trace.toString();
+                    default:
+                }
+            }
+            return defaultInvoke(proxy, method, args, "Replay: " + trace);
+        }
+
+        private void close() throws IOException {
+            if (open) {
+                open = false;
+                reader.close();
+            }
+        }
+
+        private void ensureOpen() throws IOException {
+            if (!open) {
+                throw new IOException("Replay socket closed: " + trace);
+            }
+        }
+
+        private final class ReplayInputStream extends InputStream {
+
+            private byte[] data;
+            private int pos;
+            private long firstTimestampNanos;
+            private long startNanos;
+            private boolean finished;
+            private long records;
+            private long bytes;
+
+            @Override
+            public int read() throws IOException {
+                final byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                ensureOpen();
+                if (len == 0) {
+                    return 0;
+                }
+                if (data == null || pos == data.length) {
+                    if (!nextRead()) {
+                        //Behave like a silent line
+                        while (open) {
+                            LockSupport.parkNanos(this, POLL_NANOS);
+                        }
+                        ensureOpen();
+                    }
+                }
+                final int n = Math.min(len, data.length - pos);
+                System.arraycopy(data, pos, b, off, n);
+                pos += n;
+                bytes += n;
+                return n;
+            }
+
+            @Override
+            public int available() {
+                return data == null ? 0 : data.length - pos;
+            }
+
+            /**
+             * Wait until the next read record is due.
+             *
+             * @return false at the end of the trace.
+             */
+            private boolean nextRead() throws IOException {
+                if (finished) {
+                    return false;
+                }
+                SerialPortTraceReader.Record r;
+                do {
+                    r = reader.next();
+                } while (r != null && r.direction != SerialPortTrace.READ);
+                if (r == null) {
+                    finished = true;
+                    final long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+                    LOGGER.log(Level.INFO, "Finished replay of {0}: {1} records, {2} bytes in {3} ms ({4} bytes/s), {5} bytes written discarded",
+                            new Object[]{trace, records, bytes, elapsedMillis, bytes * 1000 / elapsedMillis, out.bytes});
+                    return false;
+                }
+                if (records == 0) {
+                    firstTimestampNanos = r.timestampNanos;
+                    startNanos = System.nanoTime();
+                } else if (speed > 0) {
+                    final long dueNanos = startNanos + (long) ((r.timestampNanos - firstTimestampNanos) / speed);
+                    long waitNanos;
+                    while ((waitNanos = dueNanos - System.nanoTime()) > 0) {
+                        ensureOpen();
+                        LockSupport.parkNanos(this, Math.min(waitNanos, POLL_NANOS));
+                    }
+                }
+                records++;
+                data = r.data;
+                pos = 0;
+                return true;
+            }
+
+        }
+
+        private final class DiscardOutputStream extends OutputStream {
+
+            private volatile long bytes;
+
+            @Override
+            public void write(int b) throws IOException {
+                ensureOpen();
+                bytes++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                ensureOpen();
+                bytes += len;
+            }
+
+        }
+
+    }
+
+}
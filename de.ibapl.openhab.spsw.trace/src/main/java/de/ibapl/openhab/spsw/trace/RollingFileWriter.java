@@ -0,0 +1,229 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.spsw.trace;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes to rolling files on a background thread.
+ *
+ * A file is rolled if it exceeds the max size or age. The name of a file is
+ * the prefix, the UTC timestamp of its creation and the suffix, so the names
+ * sort by age. When a new file is opened the oldest files are deleted if all
+ * files exceed the max total size, so the footprint is at most the max total
+ * size plus one file.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public abstract class RollingFileWriter {
+
+    private static final Logger LOGGER = Logger.getLogger("d.i.o.s.t.RollingFileWriter");
+
+    private static final DateTimeFormatter FILE_NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS'Z'").withZone(ZoneOffset.UTC);
+
+    private final Path directory;
+    private final String filePrefix;
+    private final String fileSuffix;
+    private final long maxFileBytes;
+    private final long maxFileAgeMillis;
+    private final long maxTotalBytes;
+
+    private volatile Thread writerThread;
+    private volatile boolean running;
+
+    private Path currentFile;
+    private long currentFileOpenedMillis;
+
+    /**
+     * @param directory the directory of the files.
+     * @param filePrefix the prefix of the file names.
+     * @param fileSuffix the suffix of the file names.
+     * @param maxFileBytes roll the file if it is larger.
+     * @param maxFileAge roll the file if it is older.
+     * @param maxTotalBytes delete the oldest files if all files are larger.
+     */
+    protected RollingFileWriter(Path directory, String filePrefix, String fileSuffix, long maxFileBytes, Duration maxFileAge, long maxTotalBytes) {
+        this.directory = directory;
+        this.filePrefix = filePrefix;
+        this.fileSuffix = fileSuffix;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFileAgeMillis = maxFileAge.toMillis();
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    public synchronized void start(String name) {
+        if (running) {
+            return;
+        }
+        running = true;
+        writerThread = new Thread(this::run, name);
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Write the pending data and close the file.
+     */
+    public void stop() {
+        final Thread t;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            t = writerThread;
+            writerThread = null;
+        }
+        wakeUp(t);
+        try {
+            //Don't interrupt, this would close the file channel
+            t.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the writer thread or null if not running.
+     */
+    protected final Thread getWriterThread() {
+        return writerThread;
+    }
+
+    /**
+     * Wake the writer thread on stop, if it may wait for a long time.
+     */
+    protected void wakeUp(Thread writer) {
+        //no-op
+    }
+
+    /**
+     * Runs on the writer thread until {@link #isRunning()} is false and all
+     * pending data is written, the file is closed afterwards.
+     */
+    protected abstract void writePending() throws IOException, InterruptedException;
+
+    /**
+     * @return the bytes written to the current file.
+     */
+    protected abstract long getCurrentFileBytes();
+
+    /**
+     * Open the new file.
+     *
+     * @param file the file, it does not exist.
+     * @param nowMillis the time of the creation.
+     */
+    protected abstract void openFile(Path file, long nowMillis) throws IOException;
+
+    protected abstract void closeCurrentFile() throws IOException;
+
+    private void run() {
+        try {
+            writePending();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Can't write " + filePrefix + "*" + fileSuffix + " in " + directory + ", stop writing", e);
+            running = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeFile();
+        }
+    }
+
+    /**
+     * Close the current file if it is too large or too old and open a new one
+     * if there is none.
+     */
+    protected final void rollIfNeeded() throws IOException {
+        long now = System.currentTimeMillis();
+        if (currentFile != null && (getCurrentFileBytes() >= maxFileBytes || now - currentFileOpenedMillis >= maxFileAgeMillis)) {
+            closeFile();
+        }
+        if (currentFile == null) {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(filePrefix + FILE_NAME_FORMATTER.format(Instant.ofEpochMilli(now)) + fileSuffix);
+            while (Files.exists(file)) {
+                //rolled twice in the same ms
+                now++;
+                file = directory.resolve(filePrefix + FILE_NAME_FORMATTER.format(Instant.ofEpochMilli(now)) + fileSuffix);
+            }
+            openFile(file, now);
+            currentFile = file;
+            currentFileOpenedMillis = now;
+            deleteOldestFiles();
+        }
+    }
+
+    protected final void closeFile() {
+        if (currentFile != null) {
+            try {
+                closeCurrentFile();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Can't close file " + currentFile, e);
+            }
+            currentFile = null;
+        }
+    }
+
+    /**
+     * Delete the oldest files (the name starts with the timestamp) until all
+     * files fit in maxTotalBytes.
+     */
+    private void deleteOldestFiles() throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(directory, filePrefix + "*" + fileSuffix)) {
+            for (Path p : ds) {
+                files.add(p);
+            }
+        }
+        files.sort(null);
+        long total = 0;
+        for (Path p : files) {
+            total += Files.size(p);
+        }
+        for (Path p : files) {
+            if (total <= maxTotalBytes || p.equals(currentFile)) {
+                break;
+            }
+            total -= Files.size(p);
+            Files.deleteIfExists(p);
+            LOGGER.log(Level.FINE, "Deleted file {0}", p);
+        }
+    }
+
+}
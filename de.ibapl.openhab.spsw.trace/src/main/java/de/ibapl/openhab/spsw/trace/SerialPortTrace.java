@@ -0,0 +1,239 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.spsw.trace;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records the raw bytes read from and written to the serial port to rolling
+ * gzip files.
+ *
+ * The serial port threads only copy the bytes into a preallocated direct
+ * buffer; formatting and file IO is done by a background thread which swaps
+ * the full buffer against an empty one. If the buffer is full the record is
+ * dropped and counted. The files are rolled by the {@link RollingFileWriter},
+ * the size of a file is its compressed size.
+ *
+ * File format (big endian, gzip compressed):
+ * <pre>
+ * header:  "SPTRACE1" epochMillis:long nanoTime:long
+ * record:  nanoTime:long direction:byte ('R' or 'W') length:int data:byte[length]
+ * </pre>
+ * The header maps the {@link System#nanoTime()} of the records to the wall
+ * clock.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public final class SerialPortTrace extends RollingFileWriter {
+
+    public static final byte READ = 'R';
+    public static final byte WRITE = 'W';
+
+    static final byte[] MAGIC = {'S', 'P', 'T', 'R', 'A', 'C', 'E', '1'};
+    static final String FILE_SUFFIX = ".trace.gz";
+    private static final int RECORD_HEADER_BYTES = Long.BYTES + 1 + Integer.BYTES;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    private final int wakeupThreshold;
+
+    /*
+     * Guarded by lock, the producers append to active, the writer thread drains spare.
+     */
+    private final Object lock = new Object();
+    private ByteBuffer active;
+    private ByteBuffer spare;
+
+    private DataOutputStream out;
+    private CountingOutputStream fileOut;
+    private final byte[] scratch = new byte[GZIP_BUFFER_SIZE];
+
+    private volatile long recordCount;
+    private volatile long droppedCount;
+
+    /**
+     * @param directory the directory of the trace files.
+     * @param filePrefix the prefix of the trace file names.
+     * @param bufferSize the size of each of the two direct buffers.
+     * @param maxFileBytes roll the file if it is larger.
+     * @param maxFileAge roll the file if it is older.
+     * @param maxTotalBytes delete the oldest files if all files are larger.
+     */
+    public SerialPortTrace(Path directory, String filePrefix, int bufferSize, long maxFileBytes, Duration maxFileAge, long maxTotalBytes) {
+        super(directory, filePrefix, FILE_SUFFIX, maxFileBytes, maxFileAge, maxTotalBytes);
+        this.wakeupThreshold = bufferSize / 2;
+        active = ByteBuffer.allocateDirect(bufferSize);
+        spare = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    @Override
+    protected void wakeUp(Thread writer) {
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Called on the serial port threads, does not block on IO.
+     */
+    public void record(byte direction, byte[] b, int off, int len) {
+        if (!isRunning() || len <= 0) {
+            return;
+        }
+        final long nanos = System.nanoTime();
+        boolean wakeup;
+        synchronized (lock) {
+            if (active.remaining() < RECORD_HEADER_BYTES + len) {
+                droppedCount++;
+                return;
+            }
+            //wake the writer only once, when the threshold is crossed
+            wakeup = active.position() < wakeupThreshold;
+            active.putLong(nanos).put(direction).putInt(len).put(b, off, len);
+            wakeup &= active.position() >= wakeupThreshold;
+            recordCount++;
+        }
+        if (wakeup) {
+            LockSupport.unpark(getWriterThread());
+        }
+    }
+
+    /**
+     * Called on the serial port threads, does not block on IO.
+     */
+    public void record(byte direction, int b) {
+        if (!isRunning()) {
+            return;
+        }
+        final long nanos = System.nanoTime();
+        synchronized (lock) {
+            if (active.remaining() < RECORD_HEADER_BYTES + 1) {
+                droppedCount++;
+                return;
+            }
+            active.putLong(nanos).put(direction).putInt(1).put((byte) b);
+            recordCount++;
+        }
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    @Override
+    protected void writePending() throws IOException {
+        while (isRunning()) {
+            LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+            drain();
+        }
+        drain();
+    }
+
+    private void drain() throws IOException {
+        final ByteBuffer full;
+        synchronized (lock) {
+            if (active.position() == 0) {
+                return;
+            }
+            full = active;
+            active = spare;
+            spare = full;
+        }
+        full.flip();
+        try {
+            rollIfNeeded();
+            while (full.hasRemaining()) {
+                final int len = Math.min(full.remaining(), scratch.length);
+                full.get(scratch, 0, len);
+                out.write(scratch, 0, len);
+            }
+            //sync flush, so a partial file can be decompressed up to here
+            out.flush();
+        } finally {
+            full.clear();
+        }
+    }
+
+    @Override
+    protected long getCurrentFileBytes() {
+        return fileOut.count;
+    }
+
+    @Override
+    protected void openFile(Path file, long nowMillis) throws IOException {
+        fileOut = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE_NEW)));
+        out = new DataOutputStream(new GZIPOutputStream(fileOut, GZIP_BUFFER_SIZE, true));
+        out.write(MAGIC);
+        out.writeLong(nowMillis);
+        out.writeLong(System.nanoTime());
+    }
+
+    @Override
+    protected void closeCurrentFile() throws IOException {
+        try {
+            out.close();
+        } finally {
+            out = null;
+            fileOut = null;
+        }
+    }
+
+    /**
+     * Counts the compressed bytes of the current file.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+    }
+
+}
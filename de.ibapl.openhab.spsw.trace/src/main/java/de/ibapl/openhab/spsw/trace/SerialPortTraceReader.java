@@ -0,0 +1,160 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.spsw.trace;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the records of a single {@link SerialPortTrace} file or of all trace
+ * files of a directory in the order of their names.
+ *
+ * The timestamps of the records are mapped to the wall clock with the header
+ * of each file, so the timeline is continuous across files.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+final class SerialPortTraceReader implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger("d.i.o.s.t.SerialPortTraceReader");
+
+    static final class Record {
+
+        /**
+         * Nanoseconds since the epoch.
+         */
+        final long timestampNanos;
+        final byte direction;
+        final byte[] data;
+
+        Record(long timestampNanos, byte direction, byte[] data) {
+            this.timestampNanos = timestampNanos;
+            this.direction = direction;
+            this.data = data;
+        }
+
+    }
+
+    private final Iterator<Path> files;
+    private DataInputStream in;
+    private Path currentFile;
+    private long fileEpochNanos;
+    private long fileNanoTime;
+
+    /**
+     * @param path a trace file or a directory containing trace files.
+     */
+    SerialPortTraceReader(Path path) throws IOException {
+        final List<Path> paths = new ArrayList<>();
+        if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(path, "*" + SerialPortTrace.FILE_SUFFIX)) {
+                for (Path p : ds) {
+                    paths.add(p);
+                }
+            }
+            paths.sort(null);
+        } else {
+            paths.add(path);
+        }
+        if (paths.isEmpty()) {
+            throw new IOException("No serial port trace files in " + path);
+        }
+        files = paths.iterator();
+    }
+
+    /**
+     * A truncated record at the end of a file is skipped and ends that file.
+     *
+     * @return the next record or null at the end of the last file.
+     */
+    Record next() throws IOException {
+        while (true) {
+            if (in == null) {
+                if (!files.hasNext()) {
+                    return null;
+                }
+                open(files.next());
+            }
+            final long nanos;
+            try {
+                nanos = in.readLong();
+            } catch (EOFException e) {
+                close();
+                continue;
+            }
+            final byte direction;
+            final byte[] data;
+            try {
+                direction = in.readByte();
+                final int length = in.readInt();
+                if (length < 0) {
+                    throw new IOException("Corrupt serial port trace file " + currentFile);
+                }
+                data = new byte[length];
+                in.readFully(data);
+            } catch (EOFException e) {
+                //The file was not closed properly, i.e. the process was killed while tracing.
+                LOGGER.log(Level.WARNING, "Truncated last record in serial port trace file {0}", currentFile);
+                close();
+                continue;
+            }
+            return new Record(fileEpochNanos + nanos - fileNanoTime, direction, data);
+        }
+    }
+
+    private void open(Path file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))));
+        currentFile = file;
+        final byte[] magic = new byte[SerialPortTrace.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, SerialPortTrace.MAGIC)) {
+            close();
+            throw new IOException("Not a serial port trace file " + file);
+        }
+        fileEpochNanos = in.readLong() * 1_000_000L;
+        fileNanoTime = in.readLong();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (in != null) {
+            final DataInputStream is = in;
+            in = null;
+            currentFile = null;
+            is.close();
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.spsw.trace;
+
+import de.ibapl.spsw.api.SerialPortSocket;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Wraps a {@link SerialPortSocket} so that all bytes read and written are
+ * recorded to a {@link SerialPortTrace}. All other methods are passed to the
+ * wrapped socket.
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public final class TracingSerialPortSocket implements InvocationHandler {
+
+    private final SerialPortSocket sps;
+    private final SerialPortTrace trace;
+    private InputStream rawIn;
+    private InputStream tracingIn;
+    private OutputStream rawOut;
+    private OutputStream tracingOut;
+
+    private TracingSerialPortSocket(SerialPortSocket sps, SerialPortTrace trace) {
+        this.sps = sps;
+        this.trace = trace;
+    }
+
+    public static SerialPortSocket wrap(SerialPortSocket sps, SerialPortTrace trace) {
+        return (SerialPortSocket) Proxy.newProxyInstance(SerialPortSocket.class.getClassLoader(),
+                new Class<?>[]{SerialPortSocket.class}, new TracingSerialPortSocket(sps, trace));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getParameterCount() == 0) {
+            switch (method.getName()) {
+                case "getInputStream":
+                    return getInputStream();
+                case "getOutputStream":
+                    return getOutputStream();
+                case "toString":
+                    return "Tracing: " + sps;
+                default:
+            }
+        }
+        try {
+            return method.invoke(sps, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private synchronized InputStream getInputStream() throws IOException {
+        final InputStream is = sps.getInputStream();
+        if (is != rawIn) {
+            rawIn = is;
+            tracingIn = is == null ? null : new TracingInputStream(is);
+        }
+        return tracingIn;
+    }
+
+    private synchronized OutputStream getOutputStream() throws IOException {
+        final OutputStream os = sps.getOutputStream();
+        if (os != rawOut) {
+            rawOut = os;
+            tracingOut = os == null ? null : new TracingOutputStream(os);
+        }
+        return tracingOut;
+    }
+
+    private final class TracingInputStream extends FilterInputStream {
+
+        TracingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int result = in.read();
+            if (result >= 0) {
+                trace.record(SerialPortTrace.READ, result);
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int result = in.read(b, off, len);
+            trace.record(SerialPortTrace.READ, b, off, result);
+            return result;
+        }
+
+    }
+
+    private final class TracingOutputStream extends FilterOutputStream {
+
+        TracingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            trace.record(SerialPortTrace.WRITE, b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            trace.record(SerialPortTrace.WRITE, b, off, len);
+        }
+
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.spsw.trace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class RollingFileWriterTest {
+
+    private static final String PREFIX = "TEST_";
+    private static final String SUFFIX = ".txt";
+
+    /**
+     * Writes each queued line as is.
+     */
+    private static final class LineWriter extends RollingFileWriter {
+
+        private final LinkedBlockingQueue<String> lines = new LinkedBlockingQueue<>();
+        private OutputStream out;
+        private long bytes;
+
+        LineWriter(Path directory, long maxFileBytes, Duration maxFileAge, long maxTotalBytes) {
+            super(directory, PREFIX, SUFFIX, maxFileBytes, maxFileAge, maxTotalBytes);
+        }
+
+        @Override
+        protected void writePending() throws IOException, InterruptedException {
+            while (isRunning() || !lines.isEmpty()) {
+                final String line = lines.poll(10, TimeUnit.MILLISECONDS);
+                if (line != null) {
+                    rollIfNeeded();
+                    final byte[] b = line.getBytes(StandardCharsets.US_ASCII);
+                    out.write(b);
+                    bytes += b.length;
+                }
+            }
+        }
+
+        @Override
+        protected long getCurrentFileBytes() {
+            return bytes;
+        }
+
+        @Override
+        protected void openFile(Path file, long nowMillis) throws IOException {
+            out = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW);
+            bytes = 0;
+        }
+
+        @Override
+        protected void closeCurrentFile() throws IOException {
+            out.close();
+            out = null;
+        }
+
+    }
+
+    /**
+     * Write the lines and stop the writer.
+     */
+    private static void writeAll(LineWriter writer, String... lines) {
+        for (String line : lines) {
+            writer.lines.add(line);
+        }
+        writer.start("test writer");
+        writer.stop();
+        assertFalse(writer.isRunning());
+    }
+
+    /**
+     * @return the contents of the files, the oldest first.
+     */
+    private static List<String> contents(Path directory) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path p : ds) {
+                files.add(p);
+            }
+        }
+        files.sort(null);
+        final List<String> result = new ArrayList<>();
+        for (Path p : files) {
+            result.add(Files.readString(p, StandardCharsets.US_ASCII));
+        }
+        return result;
+    }
+
+    @Test
+    public void testRollBySize() throws Exception {
+        final Path dir = Files.createTempDirectory("rolling");
+        writeAll(new LineWriter(dir, 10, Duration.ofDays(1), Long.MAX_VALUE), "0123456789", "abcde", "fghij", "k");
+        assertEquals(List.of("0123456789", "abcdefghij", "k"), contents(dir));
+    }
+
+    @Test
+    public void testRollByAge() throws Exception {
+        final Path dir = Files.createTempDirectory("rolling");
+        //every line is older than the max age, the files are opened in the same ms
+        writeAll(new LineWriter(dir, Long.MAX_VALUE, Duration.ZERO, Long.MAX_VALUE), "a", "b", "c");
+        assertEquals(List.of("a", "b", "c"), contents(dir));
+    }
+
+    @Test
+    public void testRetention() throws Exception {
+        final Path dir = Files.createTempDirectory("rolling");
+        final Path other = Files.writeString(dir.resolve("OTHER_0" + SUFFIX), "not a file of the writer");
+        writeAll(new LineWriter(dir, 10, Duration.ofDays(1), 25), "0000000000", "1111111111", "2222222222", "3333333333", "4444444444");
+        //the oldest files are deleted when a new file is opened, until the others fit into 25 bytes
+        assertEquals(List.of("2222222222", "3333333333", "4444444444"), contents(dir));
+        assertTrue(Files.exists(other));
+    }
+
+    @Test
+    public void testRestartAppendsNewFiles() throws Exception {
+        final Path dir = Files.createTempDirectory("rolling");
+        writeAll(new LineWriter(dir, 10, Duration.ofDays(1), Long.MAX_VALUE), "first");
+        writeAll(new LineWriter(dir, 10, Duration.ofDays(1), Long.MAX_VALUE), "second");
+        assertEquals(List.of("first", "second"), contents(dir));
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.spsw.trace;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class SerialPortTraceReaderTest {
+
+    private static final byte[] FIRST = {'X', '\r', '\n'};
+    private static final byte[] SECOND = {'V', '\r', '\n'};
+
+    /**
+     * @return a trace file with two complete records followed by the first
+     * bytes of a third one.
+     */
+    private static byte[] truncatedTrace() throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            out.write(SerialPortTrace.MAGIC);
+            out.writeLong(1_000L);
+            out.writeLong(0L);
+            writeRecord(out, 10L, FIRST);
+            writeRecord(out, 20L, SECOND);
+            out.writeLong(30L);
+            out.writeByte(SerialPortTrace.READ);
+            out.writeInt(16);
+            out.write(FIRST);
+        }
+        return bos.toByteArray();
+    }
+
+    private static void writeRecord(DataOutputStream out, long nanos, byte[] data) throws IOException {
+        out.writeLong(nanos);
+        out.writeByte(SerialPortTrace.READ);
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static void assertTwoRecords(Path file) throws IOException {
+        try (SerialPortTraceReader reader = new SerialPortTraceReader(file)) {
+            SerialPortTraceReader.Record r = reader.next();
+            assertNotNull(r);
+            assertEquals(1_000_000_010L, r.timestampNanos);
+            assertArrayEquals(FIRST, r.data);
+            r = reader.next();
+            assertNotNull(r);
+            assertEquals(1_000_000_020L, r.timestampNanos);
+            assertArrayEquals(SECOND, r.data);
+            assertNull(reader.next());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testTruncatedLastRecordEndsTrace() throws IOException {
+        final Path file = Files.createTempFile("truncated", SerialPortTrace.FILE_SUFFIX);
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+                out.write(truncatedTrace());
+            }
+            assertTwoRecords(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testUnfinishedGzipStreamEndsTrace() throws IOException {
+        final Path file = Files.createTempFile("unfinished", SerialPortTrace.FILE_SUFFIX);
+        try {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (OutputStream out = new GZIPOutputStream(bos)) {
+                out.write(truncatedTrace());
+            }
+            //Cut off the gzip trailer and the end of the deflate stream, as if the process was killed.
+            final byte[] gz = bos.toByteArray();
+            Files.write(file, Arrays.copyOf(gz, gz.length - 12));
+            assertTwoRecords(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
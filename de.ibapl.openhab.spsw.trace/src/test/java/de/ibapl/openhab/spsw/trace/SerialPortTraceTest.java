@@ -0,0 +1,81 @@
+/*
+ * ESH-IBAPL  - OpenHAB bindings for various IB APL drivers, https://github.com/aploese/esh-ibapl/
+ * Copyright (C) 2024, Arne Plöse and individual contributors as indicated
+ * by the @authors tag. See the copyright.txt in the distribution for a
+ * full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 3 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package de.ibapl.openhab.spsw.trace;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+/**
+ *
+ * @author aploese@gmx.de - Initial contribution
+ */
+public class SerialPortTraceTest {
+
+    private static final byte[] LINE = {'X', '\r', '\n'};
+
+    @Test
+    public void testRecordAndRead() throws Exception {
+        final Path dir = Files.createTempDirectory("trace");
+        final SerialPortTrace trace = new SerialPortTrace(dir, "CUL_", 1024, Long.MAX_VALUE, Duration.ofDays(1), Long.MAX_VALUE);
+        //not running, nothing is recorded
+        trace.record(SerialPortTrace.WRITE, 'V');
+        trace.start("test trace writer");
+        trace.record(SerialPortTrace.WRITE, 'V');
+        trace.record(SerialPortTrace.READ, LINE, 0, LINE.length);
+        trace.stop();
+        assertEquals(2, trace.getRecordCount());
+        assertEquals(0, trace.getDroppedCount());
+
+        try (SerialPortTraceReader reader = new SerialPortTraceReader(dir)) {
+            SerialPortTraceReader.Record r = reader.next();
+            assertNotNull(r);
+            assertEquals(SerialPortTrace.WRITE, r.direction);
+            assertArrayEquals(new byte[]{'V'}, r.data);
+            r = reader.next();
+            assertNotNull(r);
+            assertEquals(SerialPortTrace.READ, r.direction);
+            assertArrayEquals(LINE, r.data);
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    public void testFullBufferDrops() throws Exception {
+        final Path dir = Files.createTempDirectory("trace");
+        //a record has 13 bytes plus the data
+        final SerialPortTrace trace = new SerialPortTrace(dir, "CUL_", 20, Long.MAX_VALUE, Duration.ofDays(1), Long.MAX_VALUE);
+        trace.start("test trace writer");
+        trace.record(SerialPortTrace.READ, new byte[8], 0, 8);
+        trace.record(SerialPortTrace.READ, LINE, 0, LINE.length);
+        trace.stop();
+        assertEquals(1, trace.getRecordCount());
+        assertEquals(1, trace.getDroppedCount());
+    }
+
+}